@@ -0,0 +1,107 @@
+package net.basiccloud.registry;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Support of the default asynchronous methods, which run the blocking methods in a shared executor.
+ *
+ * <p>The executor has at most {@link #MAX_THREADS} daemon threads, tasks beyond that are queued. Backends
+ * with non-blocking clients should override the asynchronous methods instead of relying on it.
+ */
+public final class AsyncSupport {
+
+    /**
+     * max number of threads of the shared executor, {@code max(4, 2 * available processors)}.
+     */
+    public static final int MAX_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private AsyncSupport() {
+        // no instance
+    }
+
+    /**
+     * get the shared executor for blocking registry calls.
+     *
+     * @return the shared executor
+     */
+    public static Executor getExecutor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * run given blocking call in the shared executor.
+     *
+     * @param supplier blocking call
+     * @param <T>      type of result
+     * @return future completed with the result, or exceptionally with the exception thrown by the call
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, EXECUTOR);
+    }
+
+    /**
+     * run given blocking call in the shared executor.
+     *
+     * @param runnable blocking call
+     * @return future completed when the call returns, or exceptionally with the exception thrown by the call
+     */
+    public static CompletableFuture<Void> runAsync(Runnable runnable) {
+        return CompletableFuture.runAsync(runnable, EXECUTOR);
+    }
+
+    /**
+     * run given non-blocking call in current thread, for backends overriding the asynchronous methods.
+     *
+     * @param supplier non-blocking call
+     * @param <T>      type of result
+     * @return future completed with the result, or exceptionally with the exception thrown by the call
+     */
+    public static <T> CompletableFuture<T> supplyNow(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.completedFuture(supplier.get());
+        } catch (RuntimeException e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * run given non-blocking call in current thread, for backends overriding the asynchronous methods.
+     *
+     * @param runnable non-blocking call
+     * @return future completed when the call returns, or exceptionally with the exception thrown by the call
+     */
+    public static CompletableFuture<Void> runNow(Runnable runnable) {
+        return supplyNow(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * create a future already completed exceptionally.
+     *
+     * @param e   exception
+     * @param <T> type of result
+     * @return failed future
+     */
+    public static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private static ExecutorService createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+                .setNameFormat("registry-async-%d")
+                .setDaemon(true)
+                .build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,171 @@
+package net.basiccloud.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Result of a batch operation, one item for each input in the same order.
+ *
+ * @param <I> type of input
+ * @param <O> type of output, {@link Void} if the operation has no output
+ */
+public class BatchResult<I, O> {
+
+    /**
+     * result of one input.
+     *
+     * @param <I> type of input
+     * @param <O> type of output
+     */
+    public static class Item<I, O> {
+        private final I input;
+        private final O output;
+        private final Throwable error;
+
+        private Item(I input, O output, Throwable error) {
+            this.input = input;
+            this.output = output;
+            this.error = error;
+        }
+
+        public I getInput() {
+            return input;
+        }
+
+        /**
+         * get output of the input(perhaps null).
+         *
+         * @return output, null if failed or the operation has no output
+         */
+        public O getOutput() {
+            return output;
+        }
+
+        /**
+         * get error of the input(perhaps null).
+         *
+         * @return error, null if succeeded
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return "Item{" +
+                    "input=" + input +
+                    ", output=" + output +
+                    ", error=" + error +
+                    '}';
+        }
+    }
+
+    public static class Builder<I, O> {
+        private final List<Item<I, O>> items = new ArrayList<>();
+
+        private Builder() {
+
+        }
+
+        public Builder<I, O> addSuccess(I input, O output) {
+            items.add(new Item<>(input, output, null));
+            return this;
+        }
+
+        public Builder<I, O> addFailure(I input, Throwable error) {
+            checkNotNull(error, "error should not be null");
+            items.add(new Item<>(input, null, error));
+            return this;
+        }
+
+        public BatchResult<I, O> build() {
+            return new BatchResult<>(Collections.unmodifiableList(new ArrayList<>(items)));
+        }
+    }
+
+    /**
+     * create a new empty builder.
+     *
+     * @param <I> type of input
+     * @param <O> type of output
+     * @return a new empty builder
+     */
+    public static <I, O> Builder<I, O> newBuilder() {
+        return new Builder<>();
+    }
+
+    private final List<Item<I, O>> items;
+    private final int failureCount;
+
+    private BatchResult(List<Item<I, O>> items) {
+        this.items = items;
+        int failures = 0;
+        for (Item<I, O> item : items) {
+            if (!item.isSuccess()) {
+                failures++;
+            }
+        }
+        this.failureCount = failures;
+    }
+
+    /**
+     * get all items, in the same order as the inputs.
+     *
+     * @return all items
+     */
+    public List<Item<I, O>> getItems() {
+        return items;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public boolean isAllSuccess() {
+        return failureCount == 0;
+    }
+
+    /**
+     * get outputs of succeeded items.
+     *
+     * @return outputs of succeeded items, in the same order as the inputs
+     */
+    public List<O> getOutputs() {
+        List<O> outputs = new ArrayList<>(items.size() - failureCount);
+        for (Item<I, O> item : items) {
+            if (item.isSuccess()) {
+                outputs.add(item.getOutput());
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * get failed items.
+     *
+     * @return failed items, in the same order as the inputs
+     */
+    public List<Item<I, O>> getFailures() {
+        List<Item<I, O>> failures = new ArrayList<>(failureCount);
+        for (Item<I, O> item : items) {
+            if (!item.isSuccess()) {
+                failures.add(item);
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "items=" + items +
+                '}';
+    }
+}
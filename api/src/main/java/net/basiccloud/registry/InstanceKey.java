@@ -0,0 +1,228 @@
+package net.basiccloud.registry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compact identity of a service instance as two longs, an alternative of {@link ServiceInstance#getId()}.
+ *
+ * <p>The service key packs the interned ids of group and service: {@code groupId << 32 | serviceId}. The endpoint
+ * key packs an IPv4 address and the port: {@code ipv4 << 16 | port}; other addresses (IPv6 or host names) are
+ * interned to an id and flagged by bit 48. The static {@link #serviceKey(String, String)} and
+ * {@link #endpointKey(String, int)} compute the keys without allocation for primitive-keyed lookups. Lookups of
+ * names which may never have been keyed, e.g. from user input, use {@link #findServiceKey(String, String)} and
+ * {@link #findEndpointKey(String, int)} instead, which do not intern.
+ *
+ * <p>Ids are assigned by a process wide dictionary and never released, so keys are only comparable inside one
+ * process and should not be persisted.
+ */
+public final class InstanceKey {
+
+    /**
+     * returned by the find methods when no key is found, never a valid key.
+     */
+    public static final long NOT_FOUND = -1;
+
+    private static final long NON_IPV4_FLAG = 1L << 48;
+
+    private static final ConcurrentMap<String, Integer> NAME_IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_NAME_ID = new AtomicInteger();
+
+    /**
+     * get key of given instance.
+     *
+     * @param instance service instance
+     * @return instance key
+     */
+    public static InstanceKey of(ServiceInstance instance) {
+        checkNotNull(instance, "instance should not be null");
+        return of(instance.getGroup(), instance.getService(), instance.getIp(), instance.getPort());
+    }
+
+    /**
+     * get key of given instance.
+     *
+     * @param group   service group
+     * @param service service
+     * @param ip      ip address
+     * @param port    port
+     * @return instance key
+     */
+    public static InstanceKey of(String group, String service, String ip, int port) {
+        return new InstanceKey(serviceKey(group, service), endpointKey(ip, port));
+    }
+
+    /**
+     * get service key of given group and service.
+     *
+     * @param group   service group
+     * @param service service
+     * @return service key
+     */
+    public static long serviceKey(String group, String service) {
+        checkNotNull(group, "group should not be null");
+        checkNotNull(service, "service should not be null");
+        return (long) nameId(group) << 32 | nameId(service) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * get endpoint key of given ip and port, allocation free for IPv4 addresses.
+     *
+     * @param ip   ip address
+     * @param port port
+     * @return endpoint key
+     */
+    public static long endpointKey(String ip, int port) {
+        checkNotNull(ip, "ip should not be null");
+        checkArgument(port >= 0 && port <= 0xFFFF, "port should between 0 and 65535: port=" + port);
+        long ipv4 = parseIpv4(ip);
+        if (ipv4 >= 0) {
+            return ipv4 << 16 | port;
+        }
+        return NON_IPV4_FLAG | (nameId(ip) & 0xFFFFFFFFL) << 16 | port;
+    }
+
+    /**
+     * get service key of given group and service without interning them.
+     *
+     * @param group   service group
+     * @param service service
+     * @return service key, {@link #NOT_FOUND} if the group or the service was never keyed
+     */
+    public static long findServiceKey(String group, String service) {
+        checkNotNull(group, "group should not be null");
+        checkNotNull(service, "service should not be null");
+        Integer groupId = NAME_IDS.get(group);
+        Integer serviceId = NAME_IDS.get(service);
+        if (groupId == null || serviceId == null) {
+            return NOT_FOUND;
+        }
+        return (long) groupId << 32 | serviceId & 0xFFFFFFFFL;
+    }
+
+    /**
+     * get endpoint key of given ip and port without interning the ip.
+     *
+     * @param ip   ip address
+     * @param port port
+     * @return endpoint key, {@link #NOT_FOUND} if the port is out of range or a non IPv4 address was never keyed
+     */
+    public static long findEndpointKey(String ip, int port) {
+        checkNotNull(ip, "ip should not be null");
+        if (port < 0 || port > 0xFFFF) {
+            return NOT_FOUND;
+        }
+        long ipv4 = parseIpv4(ip);
+        if (ipv4 >= 0) {
+            return ipv4 << 16 | port;
+        }
+        Integer id = NAME_IDS.get(ip);
+        return id == null ? NOT_FOUND : NON_IPV4_FLAG | (id & 0xFFFFFFFFL) << 16 | port;
+    }
+
+    private final long serviceKey;
+    private final long endpointKey;
+
+    private InstanceKey(long serviceKey, long endpointKey) {
+        this.serviceKey = serviceKey;
+        this.endpointKey = endpointKey;
+    }
+
+    public long getServiceKey() {
+        return serviceKey;
+    }
+
+    public long getEndpointKey() {
+        return endpointKey;
+    }
+
+    public int getPort() {
+        return (int) (endpointKey & 0xFFFF);
+    }
+
+    /**
+     * is the ip address an IPv4 address.
+     *
+     * @return true if IPv4, {@link #getIpv4()} returns the address then
+     */
+    public boolean isIpv4() {
+        return (endpointKey & NON_IPV4_FLAG) == 0;
+    }
+
+    /**
+     * get IPv4 address as an int, highest byte first.
+     *
+     * @return IPv4 address
+     */
+    public int getIpv4() {
+        checkArgument(isIpv4(), "ip address is not IPv4");
+        return (int) (endpointKey >>> 16);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        InstanceKey that = (InstanceKey) o;
+
+        return serviceKey == that.serviceKey && endpointKey == that.endpointKey;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(serviceKey) + Long.hashCode(endpointKey);
+    }
+
+    @Override
+    public String toString() {
+        return "InstanceKey{" +
+                "serviceKey=" + Long.toHexString(serviceKey) +
+                ", endpointKey=" + Long.toHexString(endpointKey) +
+                '}';
+    }
+
+    private static int nameId(String name) {
+        Integer id = NAME_IDS.get(name);
+        return id != null ? id : NAME_IDS.computeIfAbsent(name, key -> NEXT_NAME_ID.getAndIncrement());
+    }
+
+    /**
+     * parse dotted decimal IPv4 address.
+     *
+     * @return address as unsigned int, -1 if not an IPv4 address
+     */
+    private static long parseIpv4(String ip) {
+        int length = ip.length();
+        if (length < 7 || length > 15) {
+            return -1;
+        }
+        long address = 0;
+        int part = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? ip.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                // no leading zero, which some parsers read as octal
+                if (digits == 1 && part == 0) {
+                    return -1;
+                }
+                part = part * 10 + (c - '0');
+                digits++;
+            } else if (c == '.' && digits > 0 && part <= 255) {
+                address = address << 8 | part;
+                part = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        return dots == 4 ? address : -1;
+    }
+}
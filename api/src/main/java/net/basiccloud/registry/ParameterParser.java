@@ -9,6 +9,8 @@ import java.util.Optional;
 
 /**
  * Parameter parser.
+ *
+ * <p>Every call scans all parameters, connections parse them once with {@link RegistryConfig#parse(Map)} instead.
  */
 public class ParameterParser {
 
@@ -0,0 +1,195 @@
+package net.basiccloud.registry;
+
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable registry configuration parsed once from the connection parameters.
+ *
+ * <p>A parameter is found by its name or by any key ending with "." and the name, like
+ * {@link ParameterParser#parseByNameOrPostfix(Map, String)}: "registryUrl" and "light.server.registryUrl" both set
+ * the registry url. {@link #parse(Map)} indexes all keys by the part after their last "." in one pass, so every
+ * lookup is one hash lookup, and converts the well known settings to typed values. A key equal to the name wins
+ * over the keys ending with it; blank values are ignored. Invalid numbers fail the parse, so they are reported
+ * once at connect time.
+ */
+public final class RegistryConfig {
+
+    private static Logger logger = LoggerFactory.getLogger(RegistryConfig.class);
+
+    public static final String REGISTRY_URL = "registryUrl";
+    public static final String CONNECT_TIMEOUT_MILLIS = "connectTimeoutMillis";
+    public static final String WATCH_WINDOW_MILLIS = "watchWindowMillis";
+
+    public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 3000;
+    /**
+     * default coalescing window of watches, 0 to deliver every update.
+     */
+    public static final long DEFAULT_WATCH_WINDOW_MILLIS = 0;
+
+    /**
+     * configuration without parameter.
+     */
+    public static final RegistryConfig EMPTY = parse(ImmutableMap.of());
+
+    private final Map<String, String> parameters;
+    private final Map<String, String> values;
+    private final String registryUrl;
+    private final long connectTimeoutMillis;
+    private final long watchWindowMillis;
+
+    private RegistryConfig(Map<String, String> parameters, Map<String, String> values) {
+        this.parameters = parameters;
+        this.values = values;
+        this.registryUrl = values.get(REGISTRY_URL);
+        this.connectTimeoutMillis = parseLong(CONNECT_TIMEOUT_MILLIS, DEFAULT_CONNECT_TIMEOUT_MILLIS, 1);
+        this.watchWindowMillis = parseLong(WATCH_WINDOW_MILLIS, DEFAULT_WATCH_WINDOW_MILLIS, 0);
+    }
+
+    /**
+     * parse given parameters.
+     *
+     * @param parameters connection parameters
+     * @return configuration
+     * @throws IllegalArgumentException if a well known setting is invalid
+     */
+    public static RegistryConfig parse(Map<String, String> parameters) {
+        checkNotNull(parameters, "parameters should not be null");
+        Map<String, String> values = new HashMap<>(parameters.size() * 2);
+        Map<String, String> keys = new HashMap<>(parameters.size() * 2);
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            if (key == null) {
+                continue;
+            }
+            if (value == null || value.trim().isEmpty()) {
+                logger.warn("blank parameter ignored: key={}", key);
+                continue;
+            }
+            String name = key.substring(key.lastIndexOf('.') + 1);
+            String previousKey = keys.get(name);
+            if (previousKey != null) {
+                if (previousKey.equals(name) || !key.equals(name)) {
+                    logger.warn("duplicated parameter ignored: name={}, key={}, used key={}", name, key, previousKey);
+                    continue;
+                }
+            }
+            keys.put(name, key);
+            values.put(name, value.trim());
+        }
+        return new RegistryConfig(Collections.unmodifiableMap(new HashMap<>(parameters)), ImmutableMap.copyOf(values));
+    }
+
+    /**
+     * get registry url.
+     *
+     * @return registry url, empty if not set
+     */
+    public Optional<String> getRegistryUrl() {
+        return Optional.ofNullable(registryUrl);
+    }
+
+    /**
+     * get max time to connect a backend of {@link net.basiccloud.registry.connection.ServiceRegistryConnectionManager}.
+     *
+     * @return timeout in milliseconds
+     */
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * get coalescing window of the watches of
+     * {@link net.basiccloud.registry.connection.ServiceRegistryConnectionManager}, see
+     * {@link ServiceRegistryClient#watch(String, String, Version, long, ServiceRegistryClient.ClientListener)}.
+     *
+     * @return window in milliseconds, 0 to deliver every update
+     */
+    public long getWatchWindowMillis() {
+        return watchWindowMillis;
+    }
+
+    /**
+     * get parameter by name, for backend specific settings.
+     *
+     * @param name name of the parameter, without "."
+     * @return trimmed value, empty if not set
+     */
+    public Optional<String> getString(String name) {
+        return Optional.ofNullable(values.get(name));
+    }
+
+    /**
+     * get parameter by name as long.
+     *
+     * @param name         name of the parameter, without "."
+     * @param defaultValue value if not set
+     * @return value
+     * @throws IllegalArgumentException if the value is not a number
+     */
+    public long getLong(String name, long defaultValue) {
+        return parseLong(name, defaultValue, Long.MIN_VALUE);
+    }
+
+    /**
+     * get parameter by name as boolean, "true" ignoring case is true and any other value false.
+     *
+     * @param name         name of the parameter, without "."
+     * @param defaultValue value if not set
+     * @return value
+     */
+    public boolean getBoolean(String name, boolean defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * get the parameters parsed, unchanged, e.g. to connect a factory taking parameters.
+     *
+     * @return unmodifiable copy of the parameters, with all keys and values as given
+     */
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * get all parameters by name, a parameter ignored by the parse is not in it.
+     *
+     * @return immutable map of names to trimmed values
+     */
+    public Map<String, String> asMap() {
+        return values;
+    }
+
+    private long parseLong(String name, long defaultValue, long min) {
+        String value = values.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        long result;
+        try {
+            result = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + name + ", it should be a number: value=" + value, e);
+        }
+        if (result < min) {
+            throw new IllegalArgumentException("invalid " + name + ", it should not be less than " + min
+                    + ": value=" + value);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "RegistryConfig" + values;
+    }
+}
@@ -23,19 +23,19 @@ public class ServiceInstance {
 
         public Builder setGroup(String group) {
             checkArgument(!Strings.isNullOrEmpty(group), "group should not be null or empty");
-            this.group = group;
+            this.group = StringInterner.intern(group);
             return this;
         }
 
         public Builder setService(String service) {
             checkArgument(!Strings.isNullOrEmpty(service), "service should not be null or empty");
-            this.service = service;
+            this.service = StringInterner.intern(service);
             return this;
         }
 
         public Builder setIp(String ip) {
             checkArgument(!Strings.isNullOrEmpty(ip), "ip should not be null or empty");
-            this.ip = ip;
+            this.ip = StringInterner.intern(ip);
             return this;
         }
 
@@ -90,7 +90,6 @@ public class ServiceInstance {
         return builder;
     }
 
-    private final String id;
     private final String group;
     private final String service;
     private final String ip;
@@ -98,13 +97,17 @@ public class ServiceInstance {
     private final ServiceInstanceData data;
     private final ServiceInstanceStatus status;
 
+    /**
+     * computed on first {@link #getId()}, the race is benign as for {@link String#hashCode()}.
+     */
+    private String id;
+
     private ServiceInstance(String group, String service, String ip, int port,
                             ServiceInstanceData data, ServiceInstanceStatus status) {
         this.group = group;
         this.service = service;
         this.ip = ip;
         this.port = port;
-        this.id = group + "-" + service + "-" + ip + "-" + port;
         this.data = data;
         this.status = status;
     }
@@ -125,8 +128,17 @@ public class ServiceInstance {
         return port;
     }
 
+    /**
+     * get id of the instance: {@code group-service-ip-port}.
+     *
+     * @return instance id
+     */
     public String getId() {
-        return id;
+        String value = id;
+        if (value == null) {
+            id = value = group + "-" + service + "-" + ip + "-" + port;
+        }
+        return value;
     }
 
     public ServiceInstanceData getData() {
@@ -145,7 +157,6 @@ public class ServiceInstance {
         ServiceInstance that = (ServiceInstance) o;
 
         if (port != that.port) return false;
-        if (id != null ? !id.equals(that.id) : that.id != null) return false;
         if (group != null ? !group.equals(that.group) : that.group != null) return false;
         if (service != null ? !service.equals(that.service) : that.service != null) return false;
         if (ip != null ? !ip.equals(that.ip) : that.ip != null) return false;
@@ -156,8 +167,7 @@ public class ServiceInstance {
 
     @Override
     public int hashCode() {
-        int result = id != null ? id.hashCode() : 0;
-        result = 31 * result + (group != null ? group.hashCode() : 0);
+        int result = group != null ? group.hashCode() : 0;
         result = 31 * result + (service != null ? service.hashCode() : 0);
         result = 31 * result + (ip != null ? ip.hashCode() : 0);
         result = 31 * result + port;
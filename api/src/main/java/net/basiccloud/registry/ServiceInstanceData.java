@@ -55,7 +55,7 @@ public class ServiceInstanceData {
         }
 
         public Builder setServiceType(String serviceType) {
-            this.serviceType = Strings.emptyToNull(serviceType);
+            this.serviceType = StringInterner.intern(Strings.emptyToNull(serviceType));
             return this;
         }
 
@@ -117,7 +117,7 @@ public class ServiceInstanceData {
             if (tags != null) {
                 for (String tag : tags) {
                     if (!Strings.isNullOrEmpty(tag)) {
-                        this.tags.add(tag.trim());
+                        this.tags.add(StringInterner.intern(tag.trim()));
                     }
                 }
             }
@@ -141,7 +141,7 @@ public class ServiceInstanceData {
             checkArgument(!Strings.isNullOrEmpty(protocol), "protocol should not be null or empty.");
             checkArgument(port > 0, "setPort should be positive.");
             checkArgument(port < 65535, "setPort should between 0 and 65535.");
-            this.ports.put(protocol.trim(), port);
+            this.ports.put(StringInterner.intern(protocol.trim()), port);
 
             return this;
         }
@@ -0,0 +1,150 @@
+package net.basiccloud.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Changes of the instances of one service, delivered to {@link ServiceRegistryClient.DeltaListener}.
+ *
+ * <p>Instances are identified by {@link ServiceInstance#getId()}: an added instance was absent before the change,
+ * a changed instance replaces the present one with the same id, and a removed instance is the one that was present.
+ * A patched instance is present before and after the change, and only its status or work mode changed, see
+ * {@link ServiceInstancePatch#applyTo(ServiceInstance)}.
+ */
+public class ServiceInstanceDelta {
+
+    public static class Builder {
+        private long revision;
+        private List<ServiceInstance> added = new ArrayList<>();
+        private List<ServiceInstance> changed = new ArrayList<>();
+        private List<ServiceInstance> removed = new ArrayList<>();
+        private List<ServiceInstancePatch> patched = new ArrayList<>();
+
+        private Builder() {
+
+        }
+
+        public Builder setRevision(long revision) {
+            checkArgument(revision >= 0, "revision should not be negative.");
+            this.revision = revision;
+            return this;
+        }
+
+        public Builder addAdded(ServiceInstance instance) {
+            this.added.add(checkNotNull(instance, "instance should not be null"));
+            return this;
+        }
+
+        public Builder addChanged(ServiceInstance instance) {
+            this.changed.add(checkNotNull(instance, "instance should not be null"));
+            return this;
+        }
+
+        public Builder addRemoved(ServiceInstance instance) {
+            this.removed.add(checkNotNull(instance, "instance should not be null"));
+            return this;
+        }
+
+        public Builder addPatched(ServiceInstancePatch patch) {
+            checkNotNull(patch, "patch should not be null");
+            checkArgument(patch.getInstanceId() != null, "instanceId of patch should not be null");
+            this.patched.add(patch);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty() && patched.isEmpty();
+        }
+
+        public ServiceInstanceDelta build() {
+            return new ServiceInstanceDelta(revision, unmodifiableCopy(added), unmodifiableCopy(changed),
+                    unmodifiableCopy(removed), unmodifiableCopy(patched));
+        }
+
+        private static <T> List<T> unmodifiableCopy(List<T> list) {
+            return list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(list));
+        }
+    }
+
+    /**
+     * create a new empty builder.
+     *
+     * @return a new empty builder
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    private final long revision;
+    private final List<ServiceInstance> added;
+    private final List<ServiceInstance> changed;
+    private final List<ServiceInstance> removed;
+    private final List<ServiceInstancePatch> patched;
+
+    private ServiceInstanceDelta(long revision, List<ServiceInstance> added, List<ServiceInstance> changed,
+                                 List<ServiceInstance> removed, List<ServiceInstancePatch> patched) {
+        this.revision = revision;
+        this.added = added;
+        this.changed = changed;
+        this.removed = removed;
+        this.patched = patched;
+    }
+
+    /**
+     * get revision of the service after this change, increasing with each change of one watch.
+     *
+     * @return revision
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    public List<ServiceInstance> getAdded() {
+        return added;
+    }
+
+    public List<ServiceInstance> getChanged() {
+        return changed;
+    }
+
+    public List<ServiceInstance> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * get patches of the instances whose status or work mode changed only.
+     *
+     * @return patches, each with the id of the instance patched
+     */
+    public List<ServiceInstancePatch> getPatched() {
+        return patched;
+    }
+
+    /**
+     * number of instances added, changed, removed and patched.
+     *
+     * @return number of changes
+     */
+    public int size() {
+        return added.size() + changed.size() + removed.size() + patched.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceInstanceDelta{" +
+                "revision=" + revision +
+                ", added=" + added +
+                ", changed=" + changed +
+                ", removed=" + removed +
+                ", patched=" + patched +
+                '}';
+    }
+}
@@ -0,0 +1,232 @@
+package net.basiccloud.registry;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Partial update of a registered instance: its status, its work mode, or both.
+ *
+ * <p>Sent by {@link ServiceRegistryServer#patch(RegisterId, ServiceInstancePatch)} instead of registering the whole
+ * instance again, and delivered to delta watchers in {@link ServiceInstanceDelta#getPatched()} with the id of the
+ * instance patched.
+ *
+ * <p>A patched status is merged into the status of the instance: the status, update time and comment are changed,
+ * the comment only if set, while the lease id of the instance is always kept. A patched work mode may be
+ * conditional on an expected work mode, so it does not override a work mode set by others, e.g. operators.
+ */
+public class ServiceInstancePatch {
+
+    public static class Builder {
+        private String instanceId;
+        private ServiceInstanceStatus status;
+        private WorkMode workMode;
+        private WorkMode expectedWorkMode;
+
+        private Builder() {
+
+        }
+
+        /**
+         * set id of the instance patched, set by the registry when delivering the patch to watchers.
+         *
+         * @param instanceId instance id, see {@link ServiceInstance#getId()}
+         * @return builder
+         */
+        public Builder setInstanceId(String instanceId) {
+            this.instanceId = checkNotNull(instanceId, "instanceId should not be null.");
+            return this;
+        }
+
+        public Builder setStatus(ServiceInstanceStatus status) {
+            this.status = checkNotNull(status, "status should not be null.");
+            return this;
+        }
+
+        public Builder setWorkMode(WorkMode workMode) {
+            this.workMode = checkNotNull(workMode, "workMode should not be null.");
+            return this;
+        }
+
+        /**
+         * change the work mode only if the instance is in given work mode.
+         *
+         * @param expectedWorkMode work mode expected
+         * @return builder
+         */
+        public Builder setExpectedWorkMode(WorkMode expectedWorkMode) {
+            this.expectedWorkMode = checkNotNull(expectedWorkMode, "expectedWorkMode should not be null.");
+            return this;
+        }
+
+        public ServiceInstancePatch build() {
+            checkState(status != null || workMode != null, "status or workMode should be set before build");
+            checkState(expectedWorkMode == null || workMode != null, "workMode should be set with expectedWorkMode");
+            return new ServiceInstancePatch(instanceId, status, workMode, expectedWorkMode);
+        }
+    }
+
+    /**
+     * create a new empty builder.
+     *
+     * @return a new empty builder
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * create a patch of the status only.
+     *
+     * @param status new status
+     * @return patch
+     */
+    public static ServiceInstancePatch ofStatus(ServiceInstanceStatus status) {
+        return newBuilder().setStatus(status).build();
+    }
+
+    /**
+     * create a patch of the work mode only.
+     *
+     * @param workMode new work mode
+     * @return patch
+     */
+    public static ServiceInstancePatch ofWorkMode(WorkMode workMode) {
+        return newBuilder().setWorkMode(workMode).build();
+    }
+
+    private final String instanceId;
+    private final ServiceInstanceStatus status;
+    private final WorkMode workMode;
+    private final WorkMode expectedWorkMode;
+
+    private ServiceInstancePatch(String instanceId, ServiceInstanceStatus status, WorkMode workMode,
+                                 WorkMode expectedWorkMode) {
+        this.instanceId = instanceId;
+        this.status = status;
+        this.workMode = workMode;
+        this.expectedWorkMode = expectedWorkMode;
+    }
+
+    /**
+     * get id of the instance patched.
+     *
+     * @return instance id, null if not delivered by the registry
+     */
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * get new status.
+     *
+     * @return status, null if not patched
+     */
+    public ServiceInstanceStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * get new work mode.
+     *
+     * @return work mode, null if not patched
+     */
+    public WorkMode getWorkMode() {
+        return workMode;
+    }
+
+    /**
+     * get work mode the instance should be in to change its work mode.
+     *
+     * @return expected work mode, null if the work mode is changed whatever it is
+     */
+    public WorkMode getExpectedWorkMode() {
+        return expectedWorkMode;
+    }
+
+    /**
+     * copy this patch for given instance.
+     *
+     * @param instanceId instance id
+     * @return patch with the instance id
+     */
+    public ServiceInstancePatch forInstance(String instanceId) {
+        checkNotNull(instanceId, "instanceId should not be null");
+        return instanceId.equals(this.instanceId) ? this : new ServiceInstancePatch(instanceId, status, workMode,
+                expectedWorkMode);
+    }
+
+    /**
+     * apply this patch to given instance.
+     *
+     * @param instance instance to patch
+     * @return patched instance, the given instance if nothing changes
+     * @throws IllegalArgumentException if the work mode is patched unconditionally but the instance has no data
+     */
+    public ServiceInstance applyTo(ServiceInstance instance) {
+        checkNotNull(instance, "instance should not be null");
+        ServiceInstanceData data = instance.getData();
+        ServiceInstanceStatus mergedStatus = mergeStatus(instance.getStatus());
+        boolean statusChanged = mergedStatus != null && !mergedStatus.equals(instance.getStatus());
+        boolean workModeChanged = workMode != null && (data == null ? expectedWorkMode == null
+                : data.getWorkMode() != workMode
+                && (expectedWorkMode == null || data.getWorkMode() == expectedWorkMode));
+        if (!statusChanged && !workModeChanged) {
+            return instance;
+        }
+        ServiceInstance.Builder builder = ServiceInstance.newBuilder(instance);
+        if (statusChanged) {
+            builder.setStatus(mergedStatus);
+        }
+        if (workModeChanged) {
+            checkArgument(data != null, "instance without data can not change work mode: id=%s", instance.getId());
+            builder.setData(ServiceInstanceData.newBuilder(data).setWorkMode(workMode).build());
+        }
+        return builder.build();
+    }
+
+    private ServiceInstanceStatus mergeStatus(ServiceInstanceStatus current) {
+        if (status == null || current == null) {
+            return status == null ? current : status;
+        }
+        ServiceInstanceStatus.Builder builder = ServiceInstanceStatus.newBuilder(current)
+                .setStatus(status.getStatus())
+                .setLastUpdateTime(status.getLastUpdateTime());
+        if (status.getComment() != null) {
+            builder.setComment(status.getComment());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ServiceInstancePatch that = (ServiceInstancePatch) o;
+
+        return (instanceId != null ? instanceId.equals(that.instanceId) : that.instanceId == null)
+                && (status != null ? status.equals(that.status) : that.status == null)
+                && workMode == that.workMode
+                && expectedWorkMode == that.expectedWorkMode;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = instanceId != null ? instanceId.hashCode() : 0;
+        result = 31 * result + (status != null ? status.hashCode() : 0);
+        result = 31 * result + (workMode != null ? workMode.hashCode() : 0);
+        result = 31 * result + (expectedWorkMode != null ? expectedWorkMode.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceInstancePatch{" +
+                "instanceId='" + instanceId + '\'' +
+                ", status=" + status +
+                ", workMode=" + workMode +
+                ", expectedWorkMode=" + expectedWorkMode +
+                '}';
+    }
+}
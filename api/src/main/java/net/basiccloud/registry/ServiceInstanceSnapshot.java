@@ -0,0 +1,105 @@
+package net.basiccloud.registry;
+
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Local snapshot of the instances of one service, kept up to date by {@link ServiceInstanceDelta}.
+ *
+ * <p>{@link #apply(ServiceInstanceDelta)} costs O(changes), so a routing table can follow a service with
+ * thousands of instances without re-reading all of them on every change. {@link #update(List)} computes the
+ * delta from a full instance list instead, for sources that only deliver full lists.
+ *
+ * <p>Not thread safe.
+ */
+public class ServiceInstanceSnapshot {
+
+    private final Map<String, ServiceInstance> instances = new LinkedHashMap<>();
+    private final Collection<ServiceInstance> instancesView = Collections.unmodifiableCollection(instances.values());
+    private long revision;
+
+    /**
+     * apply given delta.
+     *
+     * @param delta delta to apply
+     * @return false if the delta is ignored because its revision is not newer than this snapshot
+     */
+    public boolean apply(ServiceInstanceDelta delta) {
+        checkNotNull(delta, "delta should not be null");
+        if (delta.getRevision() <= revision && revision > 0) {
+            return false;
+        }
+        for (ServiceInstance instance : delta.getRemoved()) {
+            instances.remove(instance.getId());
+        }
+        for (ServiceInstance instance : delta.getAdded()) {
+            instances.put(instance.getId(), instance);
+        }
+        for (ServiceInstance instance : delta.getChanged()) {
+            instances.put(instance.getId(), instance);
+        }
+        for (ServiceInstancePatch patch : delta.getPatched()) {
+            instances.computeIfPresent(patch.getInstanceId(), (id, instance) -> patch.applyTo(instance));
+        }
+        revision = delta.getRevision();
+        return true;
+    }
+
+    /**
+     * replace all instances with given list, and compute the delta.
+     *
+     * @param list full instance list
+     * @return the delta applied, with revision increased by one
+     */
+    public ServiceInstanceDelta update(List<ServiceInstance> list) {
+        checkNotNull(list, "list should not be null");
+        ServiceInstanceDelta.Builder builder = ServiceInstanceDelta.newBuilder().setRevision(revision + 1);
+        Set<String> present = new HashSet<>(list.size() * 2);
+        for (ServiceInstance instance : list) {
+            present.add(instance.getId());
+            ServiceInstance exist = instances.get(instance.getId());
+            if (exist == null) {
+                builder.addAdded(instance);
+            } else if (exist != instance && !exist.equals(instance)) {
+                builder.addChanged(instance);
+            }
+        }
+        for (ServiceInstance exist : instances.values()) {
+            if (!present.contains(exist.getId())) {
+                builder.addRemoved(exist);
+            }
+        }
+
+        ServiceInstanceDelta delta = builder.build();
+        apply(delta);
+        return delta;
+    }
+
+    /**
+     * get current instances.
+     *
+     * @return unmodifiable view of current instances
+     */
+    public Collection<ServiceInstance> getInstances() {
+        return instancesView;
+    }
+
+    /**
+     * get instance by id.
+     *
+     * @param id instance id
+     * @return the instance, null if absent
+     */
+    public ServiceInstance get(String id) {
+        return instances.get(id);
+    }
+
+    public int size() {
+        return instances.size();
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+}
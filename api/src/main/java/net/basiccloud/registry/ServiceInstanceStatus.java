@@ -12,12 +12,45 @@ public class ServiceInstanceStatus {
         /**
          * online.
          */
-        ONLINE,
+        ONLINE(0),
 
         /**
          * offline.
          */
-        OFFLINE
+        OFFLINE(1);
+
+        private static final Status[] VALUES = values();
+
+        private final int code;
+
+        Status(int code) {
+            this.code = code;
+        }
+
+        /**
+         * get code of the status, stable across versions unlike the ordinal.
+         *
+         * @return code
+         */
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * get status of given code.
+         *
+         * @param code code of status
+         * @return status
+         * @throws IllegalArgumentException if no status has the code
+         */
+        public static Status valueOfCode(int code) {
+            for (Status status : VALUES) {
+                if (status.code == code) {
+                    return status;
+                }
+            }
+            throw new IllegalArgumentException("unknown status code: code=" + code);
+        }
     }
 
     public static class Builder {
@@ -1,6 +1,7 @@
 package net.basiccloud.registry;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * admin of setService registry.
@@ -17,4 +18,20 @@ public interface ServiceRegistryAdmin {
      * @return setService instance found, empty if no such instance
      */
     Optional<ServiceInstance> getInstance(String group, String service, String ip, int port);
+
+    /**
+     * asynchronous {@link #getInstance(String, String, String, int)}.
+     *
+     * <p>The default implementation runs the blocking method in {@link AsyncSupport#getExecutor()}.
+     *
+     * @param group setService setGroup
+     * @param service setService
+     * @param ip setIp address
+     * @param port setPort
+     * @return future of the setService instance found
+     */
+    default CompletableFuture<Optional<ServiceInstance>> getInstanceAsync(String group, String service,
+                                                                         String ip, int port) {
+        return AsyncSupport.supplyAsync(() -> getInstance(group, service, ip, port));
+    }
 }
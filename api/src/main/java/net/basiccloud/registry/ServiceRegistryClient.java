@@ -1,7 +1,11 @@
 package net.basiccloud.registry;
 
+import net.basiccloud.registry.watch.CoalescingClientListener;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * client of setService registry.
@@ -14,7 +18,119 @@ public interface ServiceRegistryClient {
 
     boolean watch(String group, String service, Version version, ClientListener clientListener);
 
+    /**
+     * discover instances of given service matching given tag query.
+     *
+     * <p>The default implementation filters the result of {@link #discover(String, String)}, backends with a tag
+     * index should override it.
+     *
+     * @param group   service group
+     * @param service service
+     * @param query   tag query
+     * @return instances matching the query
+     */
+    default List<ServiceInstance> discover(String group, String service, TagQuery query) {
+        return discover(group, service).stream().filter(query::matches).collect(Collectors.toList());
+    }
+
+    /**
+     * asynchronous {@link #discover(String, String)}.
+     *
+     * <p>The default implementation runs the blocking method in {@link AsyncSupport#getExecutor()}.
+     *
+     * @param group   service group
+     * @param service service
+     * @return future of the instance list
+     */
+    default CompletableFuture<List<ServiceInstance>> discoverAsync(String group, String service) {
+        return AsyncSupport.supplyAsync(() -> discover(group, service));
+    }
+
+    /**
+     * asynchronous {@link #discover(String, String, Version)}.
+     *
+     * <p>The default implementation runs the blocking method in {@link AsyncSupport#getExecutor()}.
+     *
+     * @param group   service group
+     * @param service service
+     * @param version required version
+     * @return future of the instance list
+     */
+    default CompletableFuture<List<ServiceInstance>> discoverAsync(String group, String service, Version version) {
+        return AsyncSupport.supplyAsync(() -> discover(group, service, version));
+    }
+
+    /**
+     * asynchronous {@link #watch(String, String, Version, ClientListener)}.
+     *
+     * <p>The default implementation runs the blocking method in {@link AsyncSupport#getExecutor()}.
+     *
+     * @param group          service group
+     * @param service        service
+     * @param version        required version
+     * @param clientListener listener
+     * @return future of the watch result
+     */
+    default CompletableFuture<Boolean> watchAsync(String group, String service, Version version,
+                                                  ClientListener clientListener) {
+        return AsyncSupport.supplyAsync(() -> watch(group, service, version, clientListener));
+    }
+
+    /**
+     * watch given service, coalescing the updates of each window of given milliseconds into one.
+     *
+     * <p>See {@link CoalescingClientListener} for how updates are coalesced and conflated.
+     *
+     * @param group          service group
+     * @param service        service
+     * @param version        required version, null for all instances
+     * @param windowMillis   coalescing window in milliseconds, 0 to only conflate updates for slow listeners
+     * @param clientListener listener
+     * @return the coalescing listener with its counters, empty if not watched
+     */
+    default Optional<CoalescingClientListener> watch(String group, String service, Version version, long windowMillis,
+                                                     ClientListener clientListener) {
+        CoalescingClientListener listener = CoalescingClientListener.newBuilder()
+                .setListener(clientListener)
+                .setWindowMillis(windowMillis)
+                .build();
+        return watch(group, service, version, listener) ? Optional.of(listener) : Optional.empty();
+    }
+
+    /**
+     * watch the changes of given service, opt-in alternative of {@link #watch(String, String, Version, ClientListener)}.
+     *
+     * <p>Current instances are delivered as added in the first delta. The default implementation watches the full
+     * lists and computes the delta of each of them with a {@link ServiceInstanceSnapshot}, backends should override
+     * it to compute the delta once per change.
+     *
+     * @param group         service group
+     * @param service       service
+     * @param version       required version, null for all instances
+     * @param deltaListener listener of the changes
+     * @return true if watched
+     */
+    default boolean watchDelta(String group, String service, Version version, DeltaListener deltaListener) {
+        ServiceInstanceSnapshot snapshot = new ServiceInstanceSnapshot();
+        return watch(group, service, version, list -> {
+            ServiceInstanceDelta delta;
+            synchronized (snapshot) {
+                delta = snapshot.update(list);
+            }
+            if (!delta.isEmpty() || delta.getRevision() == 1) {
+                deltaListener.update(delta);
+            }
+        });
+    }
+
     interface ClientListener {
         void update(List<ServiceInstance> list);
     }
+
+    /**
+     * listener of instance changes, see {@link #watchDelta(String, String, Version, DeltaListener)}.
+     */
+    interface DeltaListener {
+        void update(ServiceInstanceDelta delta);
+    }
 }
@@ -1,5 +1,7 @@
 package net.basiccloud.registry;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Connection for ServiceRegistry.
  */
@@ -11,4 +13,35 @@ public interface ServiceRegistryConnection {
      * @throws ServiceRegistryConnectionException if fails to connect to registry
      */
     void connect();
+
+    /**
+     * asynchronous {@link #connect()}.
+     *
+     * <p>The default implementation runs the blocking method in {@link AsyncSupport#getExecutor()}.
+     *
+     * @return future completed when connected, or exceptionally with ServiceRegistryConnectionException
+     */
+    default CompletableFuture<Void> connectAsync() {
+        return AsyncSupport.runAsync(this::connect);
+    }
+
+    /**
+     * get configuration parsed from the parameters of this connection, shared by the clients and servers created from
+     * it.
+     *
+     * <p>The default implementation returns {@link RegistryConfig#EMPTY}.
+     *
+     * @return configuration
+     */
+    default RegistryConfig getConfig() {
+        return RegistryConfig.EMPTY;
+    }
+
+    /**
+     * disconnect from registry and release the resources of this connection.
+     *
+     * <p>The default implementation does nothing.
+     */
+    default void close() {
+    }
 }
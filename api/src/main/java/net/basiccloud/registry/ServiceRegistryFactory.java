@@ -17,6 +17,20 @@ public interface ServiceRegistryFactory {
 
     ServiceRegistryConnection connect(Map<String, String> parameters);
 
+    /**
+     * create connection from parameters already parsed.
+     *
+     * <p>The default implementation calls {@link #connect(Map)} with {@link RegistryConfig#getParameters()}, the
+     * parameters as given, factories parsing the parameters with {@link RegistryConfig#parse(Map)} should override it
+     * to skip the second parse.
+     *
+     * @param config parsed connection parameters
+     * @return connection
+     */
+    default ServiceRegistryConnection connect(RegistryConfig config) {
+        return connect(config.getParameters());
+    }
+
     ServiceRegistryClient getClient(ServiceRegistryConnection conn);
 
     ServiceRegistryServer getServer(ServiceRegistryConnection conn);
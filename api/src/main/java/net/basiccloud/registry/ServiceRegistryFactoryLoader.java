@@ -1,57 +1,339 @@
 package net.basiccloud.registry;
 
+import net.basiccloud.registry.metrics.InstrumentedServiceRegistryFactory;
+import net.basiccloud.registry.metrics.RegistryMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Loader to load factory implementation.
+ *
+ * <p>Implementations are listed in "META-INF/services/net.basiccloud.registry.ServiceRegistryFactory" as for
+ * {@link ServiceLoader}. Their priorities are read from {@link ServiceRegistryFactoryPriority} before
+ * instantiation, so only the selected factory and the factories without the annotation are instantiated. The
+ * factory with the highest priority wins, the first listed on a tie. A successful selection is cached per class
+ * loader and a failed one is tried again by the next load. The cached factory is defined by the class loader and
+ * keeps it reachable, call {@link #clearCache()} to release it before unloading the class loader.
  */
 public class ServiceRegistryFactoryLoader {
 
     private static Logger logger = LoggerFactory.getLogger(ServiceRegistryFactoryLoader.class);
 
+    private static final String SERVICES_FILE = "META-INF/services/" + ServiceRegistryFactory.class.getName();
+
+    /**
+     * written holding the cache.
+     */
+    private static final ConcurrentMap<ClassLoader, Optional<ServiceRegistryFactory>> CACHE =
+            new ConcurrentHashMap<>();
+
+    /**
+     * factory connected by {@link #loadConnected(Map, int, long)}.
+     */
+    public static final class Connected {
+        private final ServiceRegistryFactory factory;
+        private final ServiceRegistryConnection connection;
+
+        private Connected(ServiceRegistryFactory factory, ServiceRegistryConnection connection) {
+            this.factory = factory;
+            this.connection = connection;
+        }
+
+        public ServiceRegistryFactory getFactory() {
+            return factory;
+        }
+
+        public ServiceRegistryConnection getConnection() {
+            return connection;
+        }
+    }
+
+    /**
+     * load the factory with the highest priority in the class loader of current thread, cached.
+     *
+     * @return factory, empty if no implementation found
+     */
     public static Optional<ServiceRegistryFactory> load() {
-        List<ServiceRegistryFactory> factories = getAllImplementations();
+        ClassLoader classLoader = currentClassLoader();
+        Optional<ServiceRegistryFactory> factory = CACHE.get(classLoader);
+        if (factory != null) {
+            return factory;
+        }
+        synchronized (CACHE) {
+            factory = CACHE.get(classLoader);
+            if (factory == null) {
+                factory = select(classLoader);
+                if (factory.isPresent()) {
+                    CACHE.put(classLoader, factory);
+                }
+            }
+            return factory;
+        }
+    }
+
+    /**
+     * forget the cached selections, the next {@link #load()} selects again. This is the only way to release the
+     * cached factories and their class loaders.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    /**
+     * load factory as {@link #load()}, decorated to record the metrics of every registry call to the
+     * {@link RegistryMetrics} implementation found in classpath.
+     *
+     * @return instrumented factory, empty if no implementation found
+     * @see InstrumentedServiceRegistryFactory#loadMetrics()
+     */
+    public static Optional<ServiceRegistryFactory> loadInstrumented() {
+        return loadInstrumented(InstrumentedServiceRegistryFactory.loadMetrics());
+    }
+
+    /**
+     * load factory as {@link #load()}, decorated to record the metrics of every registry call to given metrics.
+     *
+     * @param metrics metrics to record to
+     * @return instrumented factory, empty if no implementation found
+     */
+    public static Optional<ServiceRegistryFactory> loadInstrumented(RegistryMetrics metrics) {
+        checkNotNull(metrics, "metrics should not be null");
+        return load().map(factory -> new InstrumentedServiceRegistryFactory(factory, metrics));
+    }
+
+    /**
+     * connect the factories with the top priorities in parallel and activate the first one connected.
+     *
+     * <p>Each factory connects in {@link AsyncSupport#getExecutor()} with {@link ServiceRegistryFactory#connect(Map)}
+     * then {@link ServiceRegistryConnection#connect()}. Connections completed after the winner or after the timeout
+     * are closed. Not cached, every call connects.
+     *
+     * @param parameters    connection parameters
+     * @param topN          number of factories to try, by priority
+     * @param timeoutMillis max time to wait for a connection
+     * @return factory and its connection, empty if no factory connects in time
+     */
+    public static Optional<Connected> loadConnected(Map<String, String> parameters, int topN, long timeoutMillis) {
+        checkNotNull(parameters, "parameters should not be null");
+        checkArgument(topN > 0, "topN should be positive");
+        checkArgument(timeoutMillis > 0, "timeoutMillis should be positive");
+
+        List<Candidate> candidates = sortByPriority(findCandidates(currentClassLoader()));
+        List<ServiceRegistryFactory> factories = new ArrayList<>(topN);
+        for (Candidate candidate : candidates) {
+            if (factories.size() == topN) {
+                break;
+            }
+            ServiceRegistryFactory factory = candidate.getFactory();
+            if (factory != null) {
+                factories.add(factory);
+            }
+        }
         if (factories.isEmpty()) {
             logger.error("no implementation of ServiceRegistryFactory found in classpath");
             return Optional.empty();
         }
 
-        if (factories.size() == 1) {
-            logger.info("only one implementation of ServiceRegistryFactory found and actived");
-            return Optional.of(factories.get(0));
+        CompletableFuture<Connected> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(factories.size());
+        for (ServiceRegistryFactory factory : factories) {
+            AsyncSupport.runAsync(() -> {
+                ServiceRegistryConnection conn = factory.connect(parameters);
+                checkNotNull(conn, "factory returns no connection: name=" + factory.getName());
+                conn.connect();
+                if (!winner.complete(new Connected(factory, conn))) {
+                    logger.info("ServiceRegistryFactory {} connected after the winner or the timeout, closed",
+                            factory.getName());
+                    close(factory, conn);
+                }
+            }).whenComplete((result, e) -> {
+                if (e != null) {
+                    logger.warn("ServiceRegistryFactory {} fails to connect", factory.getName(), e);
+                }
+                if (pending.decrementAndGet() == 0) {
+                    winner.complete(null);
+                }
+            });
+        }
+
+        Connected connected;
+        try {
+            connected = winner.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // connections completed from now on are closed, unless one just won
+            winner.complete(null);
+            connected = winner.getNow(null);
+            if (connected == null) {
+                logger.error("no ServiceRegistryFactory connected in {}ms: tried={}", timeoutMillis,
+                        factories.size());
+                return Optional.empty();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!winner.complete(null)) {
+                Connected dropped = winner.getNow(null);
+                if (dropped != null) {
+                    close(dropped.getFactory(), dropped.getConnection());
+                }
+            }
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            // never completed exceptionally
+            throw new IllegalStateException(e);
+        }
+        if (connected == null) {
+            logger.error("no ServiceRegistryFactory connected: tried={}", factories.size());
+            return Optional.empty();
+        }
+        logger.info("ServiceRegistryFactory implementation {} is finally activated by connecting first",
+                connected.getFactory().getName());
+        return Optional.of(connected);
+    }
+
+    private static void close(ServiceRegistryFactory factory, ServiceRegistryConnection conn) {
+        try {
+            conn.close();
+        } catch (RuntimeException e) {
+            logger.warn("fail to close connection of ServiceRegistryFactory {}", factory.getName(), e);
+        }
+    }
+
+    private static Optional<ServiceRegistryFactory> select(ClassLoader classLoader) {
+        List<Candidate> candidates = findCandidates(classLoader);
+        if (candidates.isEmpty()) {
+            logger.error("no implementation of ServiceRegistryFactory found in classpath");
+            return Optional.empty();
+        }
+
+        for (Candidate candidate : sortByPriority(candidates)) {
+            ServiceRegistryFactory factory = candidate.getFactory();
+            if (factory != null) {
+                logger.info("ServiceRegistryFactory implementation {} is finally activated by priority: "
+                        + "candidates={}", factory.getName(), candidates.size());
+                return Optional.of(factory);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * sort candidates by priority descending, stable so the first listed wins a tie.
+     */
+    private static List<Candidate> sortByPriority(List<Candidate> candidates) {
+        List<Candidate> sorted = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            if (candidate.getPriority() != null) {
+                sorted.add(candidate);
+            }
+        }
+        sorted.sort((a, b) -> Integer.compare(b.getPriority(), a.getPriority()));
+        return sorted;
+    }
+
+    private static List<Candidate> findCandidates(ClassLoader classLoader) {
+        Set<String> classNames = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(SERVICES_FILE);
+            while (urls.hasMoreElements()) {
+                readClassNames(urls.nextElement(), classNames);
+            }
+        } catch (IOException e) {
+            logger.error("fail to read {}", SERVICES_FILE, e);
         }
 
-        return Optional.of(chooseHighestPriority(factories));
+        List<Candidate> candidates = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            try {
+                Class<? extends ServiceRegistryFactory> type = Class.forName(className, false, classLoader)
+                        .asSubclass(ServiceRegistryFactory.class);
+                Candidate candidate = new Candidate(type);
+                logger.info("find ServiceRegistryFactory implementation: priority={}, class={}",
+                        candidate.getPriority(), className);
+                candidates.add(candidate);
+            } catch (ClassNotFoundException | ClassCastException | LinkageError e) {
+                logger.error("invalid ServiceRegistryFactory implementation, ignored: class={}", className, e);
+            }
+        }
+        return candidates;
     }
 
-    private static List<ServiceRegistryFactory> getAllImplementations() {
-        List<ServiceRegistryFactory> factories = new ArrayList<>();
-        ServiceLoader<ServiceRegistryFactory> loader = ServiceLoader.load(ServiceRegistryFactory.class);
-        for (ServiceRegistryFactory factory : loader) {
-            logger.info("find ServiceRegistryFactory implementation: name={}, priority={}, class={}",
-                    factory.getName(), factory.getPriority(), factory.getClass().getName());
-            factories.add(factory);
+    private static void readClassNames(URL url, Set<String> classNames) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String className = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!className.isEmpty()) {
+                    classNames.add(className);
+                }
+            }
         }
-        return factories;
     }
 
-    private static ServiceRegistryFactory chooseHighestPriority(List<ServiceRegistryFactory> factories) {
-        checkState(factories.size() > 1);
+    private static ClassLoader currentClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader != null ? classLoader : ClassLoader.getSystemClassLoader();
+    }
+
+    /**
+     * implementation class, instantiated when selected or when it has no {@link ServiceRegistryFactoryPriority}.
+     */
+    private static final class Candidate {
+        private final Class<? extends ServiceRegistryFactory> type;
+        private final Integer priority;
+        private ServiceRegistryFactory factory;
+        private boolean instantiated;
 
-        ServiceRegistryFactory result = factories.get(0);
-        for (int i = 1; i < factories.size(); i++) {
-            ServiceRegistryFactory factory = factories.get(i);
-            if (factory.getPriority() > result.getPriority()) {
-                result = factory;
+        private Candidate(Class<? extends ServiceRegistryFactory> type) {
+            this.type = type;
+            ServiceRegistryFactoryPriority annotation = type.getAnnotation(ServiceRegistryFactoryPriority.class);
+            if (annotation != null) {
+                this.priority = annotation.value();
+            } else {
+                ServiceRegistryFactory instance = getFactory();
+                this.priority = instance == null ? null : instance.getPriority();
             }
         }
 
-        logger.info("ServiceRegistryFactory implementation {} is finally activated by priority", result.getName());
-        return result;
+        /**
+         * get priority.
+         *
+         * @return priority, null if the implementation fails to instantiate
+         */
+        private Integer getPriority() {
+            return priority;
+        }
+
+        /**
+         * get the factory, instantiated on first call.
+         *
+         * @return factory, null if fails to instantiate
+         */
+        private ServiceRegistryFactory getFactory() {
+            if (!instantiated) {
+                instantiated = true;
+                try {
+                    factory = type.getConstructor().newInstance();
+                    logger.info("ServiceRegistryFactory instantiated: name={}, priority={}, class={}",
+                            factory.getName(), factory.getPriority(), type.getName());
+                } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                    logger.error("fail to instantiate ServiceRegistryFactory, ignored: class={}", type.getName(), e);
+                }
+            }
+            return factory;
+        }
     }
 }
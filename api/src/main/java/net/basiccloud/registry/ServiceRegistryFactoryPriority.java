@@ -0,0 +1,23 @@
+package net.basiccloud.registry;
+
+import java.lang.annotation.*;
+
+/**
+ * priority of a {@link ServiceRegistryFactory} implementation, read by {@link ServiceRegistryFactoryLoader} without
+ * instantiating the factory.
+ *
+ * <p>The value must equal {@link ServiceRegistryFactory#getPriority()}. Factories without this annotation are
+ * instantiated to get their priority.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ServiceRegistryFactoryPriority {
+
+    /**
+     * priority of the factory.
+     *
+     * @return priority
+     */
+    int value();
+}
@@ -1,5 +1,10 @@
 package net.basiccloud.registry;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * server of setService registry.
  */
@@ -19,4 +24,141 @@ public interface ServiceRegistryServer<R extends RegisterId> {
      * @param registerId register Id returned in register() method
      */
     void deregister(R registerId);
+
+    /**
+     * asynchronous {@link #register(ServiceInstance)}.
+     *
+     * <p>The default implementation runs the blocking method in {@link AsyncSupport#getExecutor()}.
+     *
+     * @param serviceInstance setService instance
+     * @return future of the register id
+     */
+    default CompletableFuture<R> registerAsync(ServiceInstance serviceInstance) {
+        return AsyncSupport.supplyAsync(() -> register(serviceInstance));
+    }
+
+    /**
+     * asynchronous {@link #deregister(RegisterId)}.
+     *
+     * <p>The default implementation runs the blocking method in {@link AsyncSupport#getExecutor()}.
+     *
+     * @param registerId register Id returned in register() method
+     * @return future completed when deregistered
+     */
+    default CompletableFuture<Void> deregisterAsync(R registerId) {
+        return AsyncSupport.runAsync(() -> deregister(registerId));
+    }
+
+    /**
+     * register setService instances in batch.
+     *
+     * <p>The default implementation calls {@link #register(ServiceInstance)} one by one, backends should override
+     * it to pipeline the instances or register them in one transaction.
+     *
+     * @param serviceInstances setService instances
+     * @return register id or error of each instance, in the same order as given instances
+     */
+    default BatchResult<ServiceInstance, R> registerAll(Collection<ServiceInstance> serviceInstances) {
+        checkNotNull(serviceInstances, "serviceInstances should not be null");
+        BatchResult.Builder<ServiceInstance, R> builder = BatchResult.newBuilder();
+        for (ServiceInstance serviceInstance : serviceInstances) {
+            try {
+                builder.addSuccess(serviceInstance, register(serviceInstance));
+            } catch (RuntimeException e) {
+                builder.addFailure(serviceInstance, e);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * deregister setService instances in batch.
+     *
+     * <p>The default implementation calls {@link #deregister(RegisterId)} one by one, backends should override
+     * it to pipeline the instances or deregister them in one transaction.
+     *
+     * @param registerIds register Ids returned in register() or registerAll() method
+     * @return error of each register id, in the same order as given register ids
+     */
+    default BatchResult<R, Void> deregisterAll(Collection<R> registerIds) {
+        checkNotNull(registerIds, "registerIds should not be null");
+        BatchResult.Builder<R, Void> builder = BatchResult.newBuilder();
+        for (R registerId : registerIds) {
+            try {
+                deregister(registerId);
+                builder.addSuccess(registerId, null);
+            } catch (RuntimeException e) {
+                builder.addFailure(registerId, e);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * update only the status and/or work mode of a registered instance, without registering it again.
+     *
+     * <p>Delta watchers receive the patch in {@link ServiceInstanceDelta#getPatched()} instead of the whole instance.
+     *
+     * @param registerId register Id returned in register() method
+     * @param patch      patch to apply
+     */
+    void patch(R registerId, ServiceInstancePatch patch);
+
+    /**
+     * update only the status of a registered instance, see {@link #patch(RegisterId, ServiceInstancePatch)}.
+     *
+     * @param registerId register Id returned in register() method
+     * @param status     new status
+     */
+    default void updateStatus(R registerId, ServiceInstanceStatus status) {
+        patch(registerId, ServiceInstancePatch.ofStatus(status));
+    }
+
+    /**
+     * update only the work mode of a registered instance, see {@link #patch(RegisterId, ServiceInstancePatch)}.
+     *
+     * @param registerId register Id returned in register() method
+     * @param workMode   new work mode
+     */
+    default void updateWorkMode(R registerId, WorkMode workMode) {
+        patch(registerId, ServiceInstancePatch.ofWorkMode(workMode));
+    }
+
+    /**
+     * asynchronous {@link #patch(RegisterId, ServiceInstancePatch)}.
+     *
+     * <p>The default implementation runs the blocking method in {@link AsyncSupport#getExecutor()}.
+     *
+     * @param registerId register Id returned in register() method
+     * @param patch      patch to apply
+     * @return future completed when patched
+     */
+    default CompletableFuture<Void> patchAsync(R registerId, ServiceInstancePatch patch) {
+        return AsyncSupport.runAsync(() -> patch(registerId, patch));
+    }
+
+    /**
+     * apply the same patch to registered instances in batch, e.g. to take thousands of instances out of traffic.
+     *
+     * <p>The default implementation calls {@link #patch(RegisterId, ServiceInstancePatch)} one by one, backends
+     * should override it to notify the watchers of a service once.
+     *
+     * @param registerIds register Ids returned in register() or registerAll() method
+     * @param patch       patch to apply
+     * @return error of each register id, in the same order as given register ids
+     */
+    default BatchResult<R, Void> patchAll(Collection<R> registerIds, ServiceInstancePatch patch) {
+        checkNotNull(registerIds, "registerIds should not be null");
+        checkNotNull(patch, "patch should not be null");
+        BatchResult.Builder<R, Void> builder = BatchResult.newBuilder();
+        for (R registerId : registerIds) {
+            try {
+                patch(registerId, patch);
+                builder.addSuccess(registerId, null);
+            } catch (RuntimeException e) {
+                builder.addFailure(registerId, e);
+            }
+        }
+        return builder.build();
+    }
 }
@@ -0,0 +1,39 @@
+package net.basiccloud.registry;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Process wide interner of the strings repeated across instances: group, service, ip, service type, protocol and tag.
+ *
+ * <p>The builders of {@link ServiceInstance} and {@link ServiceInstanceData} intern these values, so a snapshot of
+ * many instances keeps one copy of each distinct string. Interned strings are weakly referenced and collected when
+ * no instance uses them anymore.
+ */
+public final class StringInterner {
+
+    private static final Interner<String> INTERNER = Interners.newWeakInterner();
+
+    static {
+        intern(ServiceInstanceData.LIGHT_SERVICE_TYPE);
+        intern(ServiceInstanceData.REST_SERVICE_TYPE);
+        intern(ServiceInstanceData.PROTOCOL_GRPC);
+        intern(ServiceInstanceData.PROTOCOL_GRPCS);
+        intern(ServiceInstanceData.PROTOCOL_HTTP);
+        intern(ServiceInstanceData.PROTOCOL_HTTPS);
+    }
+
+    private StringInterner() {
+        // no instance
+    }
+
+    /**
+     * get the canonical instance of given string.
+     *
+     * @param value string, nullable
+     * @return the canonical string equal to given one, null if given null
+     */
+    public static String intern(String value) {
+        return value == null ? null : INTERNER.intern(value);
+    }
+}
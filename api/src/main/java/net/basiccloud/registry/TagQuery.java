@@ -0,0 +1,150 @@
+package net.basiccloud.registry;
+
+import com.google.common.base.Strings;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Query of instances by tags: an instance matches if it has all the tags of {@link #getAllOf()}, at least one of
+ * {@link #getAnyOf()} when it is not empty, and none of {@link #getNoneOf()}.
+ */
+public class TagQuery {
+
+    public static class Builder {
+        private Set<String> allOf = new LinkedHashSet<>();
+        private Set<String> anyOf = new LinkedHashSet<>();
+        private Set<String> noneOf = new LinkedHashSet<>();
+
+        private Builder() {
+
+        }
+
+        public Builder allOf(String... tags) {
+            addTags(allOf, tags);
+            return this;
+        }
+
+        public Builder anyOf(String... tags) {
+            addTags(anyOf, tags);
+            return this;
+        }
+
+        public Builder noneOf(String... tags) {
+            addTags(noneOf, tags);
+            return this;
+        }
+
+        public TagQuery build() {
+            return new TagQuery(allOf.toArray(new String[0]), anyOf.toArray(new String[0]),
+                    noneOf.toArray(new String[0]));
+        }
+
+        private static void addTags(Set<String> set, String... tags) {
+            checkNotNull(tags, "tags should not be null.");
+            for (String tag : tags) {
+                checkArgument(!Strings.isNullOrEmpty(tag), "tag should not be null or empty.");
+                set.add(tag);
+            }
+        }
+    }
+
+    /**
+     * create a new empty builder, the query of an empty builder matches all instances.
+     *
+     * @return a new empty builder
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    private final String[] allOf;
+    private final String[] anyOf;
+    private final String[] noneOf;
+
+    private TagQuery(String[] allOf, String[] anyOf, String[] noneOf) {
+        this.allOf = allOf;
+        this.anyOf = anyOf;
+        this.noneOf = noneOf;
+    }
+
+    public String[] getAllOf() {
+        return allOf.clone();
+    }
+
+    public String[] getAnyOf() {
+        return anyOf.clone();
+    }
+
+    public String[] getNoneOf() {
+        return noneOf.clone();
+    }
+
+    /**
+     * does given instance match this query, instances without data have no tag.
+     *
+     * @param instance service instance
+     * @return true if matches
+     */
+    public boolean matches(ServiceInstance instance) {
+        String[] tags = instance.getData() == null ? new String[0] : instance.getData().getTags();
+        for (String tag : allOf) {
+            if (!contains(tags, tag)) {
+                return false;
+            }
+        }
+        for (String tag : noneOf) {
+            if (contains(tags, tag)) {
+                return false;
+            }
+        }
+        if (anyOf.length == 0) {
+            return true;
+        }
+        for (String tag : anyOf) {
+            if (contains(tags, tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(String[] tags, String tag) {
+        for (String each : tags) {
+            if (each.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TagQuery that = (TagQuery) o;
+        return Arrays.equals(allOf, that.allOf) && Arrays.equals(anyOf, that.anyOf)
+                && Arrays.equals(noneOf, that.noneOf);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(allOf);
+        result = 31 * result + Arrays.hashCode(anyOf);
+        result = 31 * result + Arrays.hashCode(noneOf);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "TagQuery{" +
+                "allOf=" + Arrays.toString(allOf) +
+                ", anyOf=" + Arrays.toString(anyOf) +
+                ", noneOf=" + Arrays.toString(noneOf) +
+                '}';
+    }
+}
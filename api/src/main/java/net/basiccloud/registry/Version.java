@@ -1,7 +1,5 @@
 package net.basiccloud.registry;
 
-import java.util.regex.Pattern;
-
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -12,7 +10,22 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class Version {
 
-    private static final Pattern VERSION_REGEX = Pattern.compile("^\\d{1,3}(\\.\\d{1,3}){0,2}$");
+    private static final String INVALID_VERSION_MESSAGE = "Invalid version, it should like 1/1.0/1.0.0: version = ";
+
+    /**
+     * size of the intern cache of {@link #valueOf(String)}, must be power of 2.
+     */
+    private static final int CACHE_SIZE = 512;
+
+    /**
+     * direct-mapped intern cache: the slot of a version string is decided by its hash code, a new entry
+     * simply replaces the old one in the same slot, so the cache is bounded and lock-free.
+     */
+    private static final CacheEntry[] CACHE = new CacheEntry[CACHE_SIZE];
+
+    private static final int MAJOR_SHIFT = 20;
+    private static final int MINOR_SHIFT = 10;
+    private static final int PART_MASK = 0x3FF;
 
     /**
      * exception of invalid version.
@@ -24,17 +37,11 @@ public class Version {
     }
 
     /**
-     * major version.
-     */
-    private final int major;
-    /**
-     * minor version.
-     */
-    private final int minor;
-    /**
-     * patch version.
+     * major, minor and patch packed as 10 bits each: {@code major << 20 | minor << 10 | patch}.
+     *
+     * <p>Packed values of the same major compare in the same order as the versions.
      */
-    private final int patch;
+    private final int packed;
 
     /**
      * constructor with specified major，minor and patch
@@ -49,13 +56,14 @@ public class Version {
         checkArgument(minor >= 0 && minor <= 999, "minor of version should between 0 and 999: current minor=" + minor);
         checkArgument(patch >= 0 && patch <= 999, "patch of version should between 0 and 999: current patch=" + patch);
 
-        this.major = major;
-        this.minor = minor;
-        this.patch = patch;
+        this.packed = major << MAJOR_SHIFT | minor << MINOR_SHIFT | patch;
     }
 
     /**
      * parse from string.
+     *
+     * <p>Versions parsed recently are interned, so the same string usually returns the same object.
+     *
      * @param version version in string format like "1.0.0"
      * @return version object
      * @throws InvalidVersionException if version is invalid
@@ -63,61 +71,102 @@ public class Version {
     public static Version valueOf(String version) {
         checkNotNull(version, "version should not be null");
 
-        if (!VERSION_REGEX.matcher(version).matches()) {
-            throw new InvalidVersionException("Invalid version, " +
-                    "it should like 1/1.0/1.0.0: version = " + version);
+        int hash = version.hashCode();
+        int index = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        CacheEntry entry = CACHE[index];
+        if (entry != null && entry.text.equals(version)) {
+            return entry.version;
         }
 
-        String[] parts = version.split("\\.");
-        int major;
+        Version result = parse(version);
+        CACHE[index] = new CacheEntry(version, result);
+        return result;
+    }
+
+    /**
+     * parse "major[.minor[.patch]]" in one pass, each part has 1 to 3 digits.
+     */
+    private static Version parse(String version) {
+        int length = version.length();
+        int major = 0;
         int minor = 0;
         int patch = 0;
-        if (parts.length == 1) {
-            major = Integer.valueOf(parts[0]);
-        } else if (parts.length == 2) {
-            major = Integer.valueOf(parts[0]);
-            minor = Integer.valueOf(parts[1]);
-        } else {
-            major = Integer.valueOf(parts[0]);
-            minor = Integer.valueOf(parts[1]);
-            patch = Integer.valueOf(parts[2]);
+        int partIndex = 0;
+        int part = 0;
+        int digits = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? version.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                if (++digits > 3) {
+                    throw new InvalidVersionException(INVALID_VERSION_MESSAGE + version);
+                }
+                part = part * 10 + (c - '0');
+                continue;
+            }
+            // end of a part: the string end is treated as a trailing '.'
+            if (c != '.' || digits == 0 || (partIndex == 2 && i < length)) {
+                throw new InvalidVersionException(INVALID_VERSION_MESSAGE + version);
+            }
+            if (partIndex == 0) {
+                major = part;
+            } else if (partIndex == 1) {
+                minor = part;
+            } else {
+                patch = part;
+            }
+            partIndex++;
+            part = 0;
+            digits = 0;
         }
 
         return new Version(major, minor, patch);
     }
 
+    /**
+     * get major, minor and patch packed in one int: {@code major << 20 | minor << 10 | patch}.
+     *
+     * <p>Packed versions with the same major compare in the same order as the versions.
+     *
+     * @return packed version
+     */
+    public int toPackedInt() {
+        return packed;
+    }
+
+    /**
+     * create version from the packed int of {@link #toPackedInt()}.
+     *
+     * @param packed packed version
+     * @return version object
+     * @throws IllegalArgumentException if one of major/minor/patch is invalid
+     */
+    public static Version fromPackedInt(int packed) {
+        return new Version(packed >>> MAJOR_SHIFT, packed >>> MINOR_SHIFT & PART_MASK, packed & PART_MASK);
+    }
+
+    public int getMajor() {
+        return packed >>> MAJOR_SHIFT;
+    }
+
+    public int getMinor() {
+        return packed >>> MINOR_SHIFT & PART_MASK;
+    }
+
+    public int getPatch() {
+        return packed & PART_MASK;
+    }
+
     /**
      * check if current version is back compatible with given version.
      *
+     * <p>Major must equal (if server is 2.*, then the client should also be 2.*), and minor/patch should not be
+     * less than the target (server 2.5.* is compatible with client 2.4.*, but not with client 2.6.*).
+     *
      * @param targetVersion target version
      * @return true if back compatible with target version, false if not
      */
     public boolean isBackCompatibleWith(Version targetVersion) {
-        // 1. compare major first
-        if (this.major != targetVersion.major) {
-            // major must equal, otherwise return false directly
-            // For example: if server is 2.*, then the client should also be 2.*
-            return false;
-        }
-
-        // 2. same major, continue to compare the minor version
-        if (this.minor < targetVersion.minor) {
-            // 2.1 if minor is less than target version, return false
-            // For example: if server is 2.5.*, and client is 2.6.*, it should be incompatible.
-            // In this case, patch comparison is not required.
-            return false;
-        }
-
-        if (this.minor > targetVersion.minor) {
-            // 2.2 if minor is greater than target version, return true
-            // For example: if server is 2.5.*, and client is 2.4.*/2.3.*, it should be compatible.
-            // In this case, patch comparison is not required.
-            return true;
-        }
-
-        // 2.3 major and minor are both the same, we need to compare patch
-        // if (this.minor == targetVersion.minor) { }
-        return this.patch >= targetVersion.patch;
+        return (this.packed ^ targetVersion.packed) >>> MAJOR_SHIFT == 0 && this.packed >= targetVersion.packed;
     }
 
     @Override
@@ -127,24 +176,28 @@ public class Version {
 
         Version version = (Version) o;
 
-        if (major != version.major) return false;
-        if (minor != version.minor) return false;
-        return patch == version.patch;
-
+        return packed == version.packed;
     }
 
     @Override
     public int hashCode() {
-        int result = major;
-        result = 31 * result + minor;
-        result = 31 * result + patch;
-        return result;
+        return packed;
     }
 
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder(16);
-        builder.append(this.major).append('.').append(this.minor).append('.').append(this.patch);
+        builder.append(getMajor()).append('.').append(getMinor()).append('.').append(getPatch());
         return builder.toString();
     }
+
+    private static final class CacheEntry {
+        private final String text;
+        private final Version version;
+
+        private CacheEntry(String text, Version version) {
+            this.text = text;
+            this.version = version;
+        }
+    }
 }
@@ -19,6 +19,8 @@ public enum WorkMode {
      */
     DEGRADE(2, true);
 
+    private static final WorkMode[] VALUES = values();
+
     private final int code;
 
     private final boolean available;
@@ -32,6 +34,22 @@ public enum WorkMode {
         return code;
     }
 
+    /**
+     * get work mode of given code.
+     *
+     * @param code code of work mode
+     * @return work mode
+     * @throws IllegalArgumentException if no work mode has the code
+     */
+    public static WorkMode valueOfCode(int code) {
+        for (WorkMode workMode : VALUES) {
+            if (workMode.code == code) {
+                return workMode;
+            }
+        }
+        throw new IllegalArgumentException("unknown work mode code: code=" + code);
+    }
+
     /**
      * Is available to the clients.
      *
@@ -0,0 +1,200 @@
+package net.basiccloud.registry.balancer;
+
+import net.basiccloud.registry.InstanceKey;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.WorkMode;
+import net.basiccloud.registry.index.LongHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Base of load balancers: weighs the instances and keeps the snapshot of candidates.
+ *
+ * <p>Instances whose work mode is not available or whose status is offline are skipped. {@link WorkMode#DEGRADE}
+ * instances get {@code degradeWeight} against {@link #NORMAL_WEIGHT} of the others, and instances without data are
+ * treated as normal.
+ */
+public abstract class AbstractLoadBalancer implements LoadBalancer {
+
+    /**
+     * weight of a normal instance.
+     */
+    public static final int NORMAL_WEIGHT = 100;
+
+    /**
+     * default weight of a degraded instance.
+     */
+    public static final int DEFAULT_DEGRADE_WEIGHT = 10;
+
+    /**
+     * immutable snapshot of the candidates.
+     */
+    protected static final class Candidates {
+        private static final Candidates EMPTY = new Candidates(new ServiceInstance[0], new int[0], new int[0],
+                new AtomicInteger[0], new LongHashMap<>(), 0, 1);
+
+        /**
+         * available instances, in the order of the update.
+         */
+        protected final ServiceInstance[] instances;
+        protected final int[] weights;
+        /**
+         * {@code cumulativeWeights[i]} is the sum of the weights of instances 0 to i.
+         */
+        protected final int[] cumulativeWeights;
+        /**
+         * calls in flight of each instance, kept across updates for the same endpoint.
+         */
+        protected final AtomicInteger[] inFlight;
+        protected final LongHashMap<AtomicInteger> inFlightByEndpoint;
+        protected final int totalWeight;
+        /**
+         * step coprime with the total weight, walking all weight positions in an interleaved order.
+         */
+        protected final int stride;
+
+        private Candidates(ServiceInstance[] instances, int[] weights, int[] cumulativeWeights,
+                           AtomicInteger[] inFlight, LongHashMap<AtomicInteger> inFlightByEndpoint, int totalWeight,
+                           int stride) {
+            this.instances = instances;
+            this.weights = weights;
+            this.cumulativeWeights = cumulativeWeights;
+            this.inFlight = inFlight;
+            this.inFlightByEndpoint = inFlightByEndpoint;
+            this.totalWeight = totalWeight;
+            this.stride = stride;
+        }
+
+        /**
+         * find the instance covering given weight position.
+         *
+         * @param position position in [0, totalWeight)
+         * @return index of the instance
+         */
+        protected int indexOfPosition(int position) {
+            int low = 0;
+            int high = cumulativeWeights.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulativeWeights[middle] > position) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    private final int degradeWeight;
+    private volatile Candidates candidates = Candidates.EMPTY;
+
+    protected AbstractLoadBalancer() {
+        this(DEFAULT_DEGRADE_WEIGHT);
+    }
+
+    /**
+     * create a balancer with given weight of degraded instances.
+     *
+     * @param degradeWeight weight of degraded instances, between 0 (never picked) and {@link #NORMAL_WEIGHT}
+     */
+    protected AbstractLoadBalancer(int degradeWeight) {
+        checkArgument(degradeWeight >= 0 && degradeWeight <= NORMAL_WEIGHT,
+                "degradeWeight should between 0 and " + NORMAL_WEIGHT);
+        this.degradeWeight = degradeWeight;
+    }
+
+    @Override
+    public void update(List<ServiceInstance> list) {
+        checkNotNull(list, "list should not be null");
+        Candidates previous = candidates;
+        List<ServiceInstance> available = new ArrayList<>(list.size());
+        List<Integer> weightList = new ArrayList<>(list.size());
+        for (ServiceInstance instance : list) {
+            int weight = weightOf(instance);
+            if (weight > 0) {
+                available.add(instance);
+                weightList.add(weight);
+            }
+        }
+
+        int size = available.size();
+        ServiceInstance[] instances = available.toArray(new ServiceInstance[size]);
+        int[] weights = new int[size];
+        int[] cumulativeWeights = new int[size];
+        AtomicInteger[] inFlight = new AtomicInteger[size];
+        LongHashMap<AtomicInteger> inFlightByEndpoint = new LongHashMap<>(size);
+        int totalWeight = 0;
+        for (int i = 0; i < size; i++) {
+            weights[i] = weightList.get(i);
+            totalWeight += weights[i];
+            cumulativeWeights[i] = totalWeight;
+            long endpointKey = InstanceKey.endpointKey(instances[i].getIp(), instances[i].getPort());
+            AtomicInteger counter = previous.inFlightByEndpoint.get(endpointKey);
+            inFlight[i] = counter != null ? counter : new AtomicInteger();
+            inFlightByEndpoint.put(endpointKey, inFlight[i]);
+        }
+        candidates = new Candidates(instances, weights, cumulativeWeights, inFlight, inFlightByEndpoint, totalWeight,
+                strideOf(totalWeight));
+    }
+
+    @Override
+    public int size() {
+        return candidates.instances.length;
+    }
+
+    /**
+     * get current candidates, a volatile read.
+     *
+     * @return candidates
+     */
+    protected Candidates getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * weight of given instance.
+     *
+     * @param instance instance
+     * @return weight, 0 if the instance should not be picked
+     */
+    protected int weightOf(ServiceInstance instance) {
+        if (instance.getStatus() != null && instance.getStatus().isOffline()) {
+            return 0;
+        }
+        if (instance.getData() == null) {
+            return NORMAL_WEIGHT;
+        }
+        WorkMode workMode = instance.getData().getWorkMode();
+        if (!workMode.isAvailable()) {
+            return 0;
+        }
+        return workMode == WorkMode.DEGRADE ? degradeWeight : NORMAL_WEIGHT;
+    }
+
+    private static int strideOf(int totalWeight) {
+        if (totalWeight <= 2) {
+            return 1;
+        }
+        // near the golden ratio of the total, so consecutive positions land far apart
+        int stride = (int) (totalWeight * 0.618);
+        while (gcd(stride, totalWeight) != 1) {
+            stride++;
+        }
+        return stride;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,251 @@
+package net.basiccloud.registry.balancer;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceRegistryClient.ClientListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Consistent hash ring of service instances for sticky routing: the same key is routed to the same instance as long
+ * as it stays available.
+ *
+ * <p>Ketama style: every instance is placed on the ring as {@code virtualNodes} points hashed from
+ * {@link ServiceInstance#getId()}, and a key is routed to the first point at or after its hash, found by binary
+ * search. Instances whose work mode is not available or whose status is offline are not on the ring.
+ *
+ * <p>{@link #update(List)} is incremental: only the points of the instances joining are hashed and merged into
+ * the sorted points, the points of the instances leaving are dropped, and an instance changed with the same id
+ * keeps its points. Only the keys of the joining and leaving instances move. Lookups read an immutable ring through
+ * one volatile field, {@link #pick(long)} does not allocate.
+ */
+public class ConsistentHashRing implements ClientListener {
+
+    /**
+     * default number of points of an instance.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final int virtualNodes;
+    private volatile Ring ring = Ring.EMPTY;
+
+    public ConsistentHashRing() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * create ring with given number of points of an instance.
+     *
+     * @param virtualNodes number of points of an instance, more points spread keys more evenly
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        checkArgument(virtualNodes > 0, "virtualNodes should be positive");
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * hash a key as {@link #pick(String)} does, for callers keeping the hash of hot keys.
+     *
+     * @param key key
+     * @return hash of the key
+     */
+    public static long hashKey(String key) {
+        checkNotNull(key, "key should not be null");
+        return HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * route given key.
+     *
+     * @param key key
+     * @return instance of the key, null if the ring is empty
+     */
+    public ServiceInstance pick(String key) {
+        return pick(hashKey(key));
+    }
+
+    /**
+     * route given key hash.
+     *
+     * @param hash hash of the key, see {@link #hashKey(String)}
+     * @return instance of the key, null if the ring is empty
+     */
+    public ServiceInstance pick(long hash) {
+        Ring current = ring;
+        long[] points = current.points;
+        if (points.length == 0) {
+            return null;
+        }
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (points[middle] < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return current.members[current.slots[low == points.length ? 0 : low]];
+    }
+
+    /**
+     * number of instances on the ring.
+     *
+     * @return number of instances
+     */
+    public int size() {
+        return ring.slotById.size();
+    }
+
+    @Override
+    public synchronized void update(List<ServiceInstance> list) {
+        checkNotNull(list, "list should not be null");
+        Ring current = ring;
+        Map<String, ServiceInstance> available = new LinkedHashMap<>(list.size() * 2);
+        for (ServiceInstance instance : list) {
+            if (isAvailable(instance)) {
+                available.put(instance.getId(), instance);
+            }
+        }
+
+        ServiceInstance[] members = current.members.clone();
+        Map<String, Integer> slotById = new HashMap<>(current.slotById);
+        boolean[] removedSlots = new boolean[members.length];
+        boolean changed = false;
+        for (Map.Entry<String, Integer> entry : current.slotById.entrySet()) {
+            int slot = entry.getValue();
+            ServiceInstance instance = available.remove(entry.getKey());
+            if (instance == null) {
+                removedSlots[slot] = true;
+                members[slot] = null;
+                slotById.remove(entry.getKey());
+                changed = true;
+            } else if (instance != members[slot]) {
+                // same id, same points
+                members[slot] = instance;
+                changed = true;
+            }
+        }
+        if (!changed && available.isEmpty()) {
+            return;
+        }
+
+        // the instances left in available are joining, take the slots freed before growing the members
+        int addedCount = available.size() * virtualNodes;
+        long[] addedPoints = new long[addedCount];
+        int[] addedSlots = new int[addedCount];
+        int freeSlot = 0;
+        int index = 0;
+        for (ServiceInstance instance : available.values()) {
+            while (freeSlot < members.length && members[freeSlot] != null) {
+                freeSlot++;
+            }
+            if (freeSlot == members.length) {
+                members = Arrays.copyOf(members, Math.max(8, members.length * 2));
+            }
+            members[freeSlot] = instance;
+            slotById.put(instance.getId(), freeSlot);
+            for (int i = 0; i < virtualNodes; i++) {
+                addedPoints[index] = hashPoint(instance.getId(), i);
+                addedSlots[index] = freeSlot;
+                index++;
+            }
+        }
+        sort(addedPoints, addedSlots);
+
+        ring = merge(current, removedSlots, addedPoints, addedSlots, members, Collections.unmodifiableMap(slotById));
+    }
+
+    private static boolean isAvailable(ServiceInstance instance) {
+        if (instance.getStatus() != null && instance.getStatus().isOffline()) {
+            return false;
+        }
+        return instance.getData() == null || instance.getData().getWorkMode().isAvailable();
+    }
+
+    private static long hashPoint(String id, int virtualNode) {
+        return HASH_FUNCTION.newHasher()
+                .putString(id, StandardCharsets.UTF_8)
+                .putInt(virtualNode)
+                .hash().asLong();
+    }
+
+    /**
+     * sort the points of the joining instances, with their slots.
+     */
+    private static void sort(long[] points, int[] slots) {
+        Integer[] order = new Integer[points.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(points[a], points[b]));
+        long[] sortedPoints = new long[points.length];
+        int[] sortedSlots = new int[slots.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedPoints[i] = points[order[i]];
+            sortedSlots[i] = slots[order[i]];
+        }
+        System.arraycopy(sortedPoints, 0, points, 0, points.length);
+        System.arraycopy(sortedSlots, 0, slots, 0, slots.length);
+    }
+
+    /**
+     * merge the points kept from current ring with the sorted points joining, in one pass.
+     */
+    private static Ring merge(Ring current, boolean[] removedSlots, long[] addedPoints, int[] addedSlots,
+                              ServiceInstance[] members, Map<String, Integer> slotById) {
+        long[] points = current.points;
+        int[] slots = current.slots;
+        int kept = 0;
+        for (int slot : slots) {
+            if (!removedSlots[slot]) {
+                kept++;
+            }
+        }
+        long[] mergedPoints = new long[kept + addedPoints.length];
+        int[] mergedSlots = new int[mergedPoints.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < points.length || j < addedPoints.length) {
+            if (i < points.length && removedSlots[slots[i]]) {
+                i++;
+            } else if (j == addedPoints.length || (i < points.length && points[i] <= addedPoints[j])) {
+                mergedPoints[k] = points[i];
+                mergedSlots[k++] = slots[i++];
+            } else {
+                mergedPoints[k] = addedPoints[j];
+                mergedSlots[k++] = addedSlots[j++];
+            }
+        }
+        return new Ring(mergedPoints, mergedSlots, members, slotById);
+    }
+
+    /**
+     * immutable ring: sorted points, the member slot of each point, and the members.
+     */
+    private static final class Ring {
+        private static final Ring EMPTY = new Ring(new long[0], new int[0], new ServiceInstance[0],
+                Collections.emptyMap());
+
+        private final long[] points;
+        private final int[] slots;
+        private final ServiceInstance[] members;
+        private final Map<String, Integer> slotById;
+
+        private Ring(long[] points, int[] slots, ServiceInstance[] members, Map<String, Integer> slotById) {
+            this.points = points;
+            this.slots = slots;
+            this.members = members;
+            this.slotById = slotById;
+        }
+    }
+}
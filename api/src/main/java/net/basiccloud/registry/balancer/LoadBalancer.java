@@ -0,0 +1,40 @@
+package net.basiccloud.registry.balancer;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceRegistryClient.ClientListener;
+
+import java.util.List;
+
+/**
+ * Client side load balancer over the instances of one service.
+ *
+ * <p>The balancer is a {@link ClientListener}: watch the service with it, or call {@link #update(List)} with the
+ * discovered instances, and it prepares an immutable snapshot of the candidates. {@link #pick()} then works on the
+ * snapshot without lock and without allocation, so it can run on every call.
+ */
+public interface LoadBalancer extends ClientListener {
+
+    /**
+     * pick an instance for one call.
+     *
+     * @return picked instance, null if no instance is available
+     */
+    ServiceInstance pick();
+
+    /**
+     * tell the balancer the call to an instance returned by {@link #pick()} completed, for balancers tracking the
+     * calls in flight.
+     *
+     * @param instance picked instance
+     */
+    default void release(ServiceInstance instance) {
+        // nothing to do by default
+    }
+
+    /**
+     * number of available instances.
+     *
+     * @return number of instances which can be picked
+     */
+    int size();
+}
@@ -0,0 +1,72 @@
+package net.basiccloud.registry.balancer;
+
+import net.basiccloud.registry.InstanceKey;
+import net.basiccloud.registry.ServiceInstance;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Power of two choices load balancer: picks two instances at random by weight, and takes the one with fewer calls
+ * in flight relative to its weight, counting the call being picked.
+ *
+ * <p>{@link #pick()} counts a call in flight on the picked instance, so every pick must be followed by one
+ * {@link #release(ServiceInstance)} when the call completes. Counters survive updates of the same endpoint.
+ */
+public class PowerOfTwoChoicesLoadBalancer extends AbstractLoadBalancer {
+
+    public PowerOfTwoChoicesLoadBalancer() {
+        super();
+    }
+
+    public PowerOfTwoChoicesLoadBalancer(int degradeWeight) {
+        super(degradeWeight);
+    }
+
+    @Override
+    public ServiceInstance pick() {
+        Candidates candidates = getCandidates();
+        int size = candidates.instances.length;
+        if (size == 0) {
+            return null;
+        }
+        int chosen = 0;
+        if (size > 1) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = candidates.indexOfPosition(random.nextInt(candidates.totalWeight));
+            int second = candidates.indexOfPosition(random.nextInt(candidates.totalWeight));
+            if (first == second) {
+                second = (first + 1 + random.nextInt(size - 1)) % size;
+            }
+            // compare (inFlight + 1) / weight, the load with this call, without division
+            long firstLoad = (candidates.inFlight[first].get() + 1L) * candidates.weights[second];
+            long secondLoad = (candidates.inFlight[second].get() + 1L) * candidates.weights[first];
+            chosen = firstLoad < secondLoad || (firstLoad == secondLoad
+                    && candidates.weights[first] >= candidates.weights[second]) ? first : second;
+        }
+        candidates.inFlight[chosen].incrementAndGet();
+        return candidates.instances[chosen];
+    }
+
+    @Override
+    public void release(ServiceInstance instance) {
+        AtomicInteger counter = getCandidates().inFlightByEndpoint
+                .get(InstanceKey.endpointKey(instance.getIp(), instance.getPort()));
+        if (counter != null && counter.decrementAndGet() < 0) {
+            // released more than picked, or released after a new counter was created
+            counter.incrementAndGet();
+        }
+    }
+
+    /**
+     * number of calls in flight to given instance.
+     *
+     * @param instance instance
+     * @return calls in flight, 0 if the instance is not a candidate
+     */
+    public int getInFlight(ServiceInstance instance) {
+        AtomicInteger counter = getCandidates().inFlightByEndpoint
+                .get(InstanceKey.endpointKey(instance.getIp(), instance.getPort()));
+        return counter == null ? 0 : counter.get();
+    }
+}
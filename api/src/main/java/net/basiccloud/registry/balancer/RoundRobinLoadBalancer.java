@@ -0,0 +1,36 @@
+package net.basiccloud.registry.balancer;
+
+import net.basiccloud.registry.ServiceInstance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Weighted round robin load balancer.
+ *
+ * <p>Every {@code totalWeight} picks visit every weight position once, so each instance gets exactly its share.
+ * Positions are walked with a stride coprime with the total weight, which interleaves the instances instead of
+ * picking the same one {@code weight} times in a row.
+ */
+public class RoundRobinLoadBalancer extends AbstractLoadBalancer {
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    public RoundRobinLoadBalancer() {
+        super();
+    }
+
+    public RoundRobinLoadBalancer(int degradeWeight) {
+        super(degradeWeight);
+    }
+
+    @Override
+    public ServiceInstance pick() {
+        Candidates candidates = getCandidates();
+        if (candidates.totalWeight == 0) {
+            return null;
+        }
+        int n = counter.getAndIncrement() & Integer.MAX_VALUE;
+        int position = (int) ((long) n * candidates.stride % candidates.totalWeight);
+        return candidates.instances[candidates.indexOfPosition(position)];
+    }
+}
@@ -0,0 +1,29 @@
+package net.basiccloud.registry.balancer;
+
+import net.basiccloud.registry.ServiceInstance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted random load balancer, picks each instance with the probability of its share of the total weight.
+ */
+public class WeightedRandomLoadBalancer extends AbstractLoadBalancer {
+
+    public WeightedRandomLoadBalancer() {
+        super();
+    }
+
+    public WeightedRandomLoadBalancer(int degradeWeight) {
+        super(degradeWeight);
+    }
+
+    @Override
+    public ServiceInstance pick() {
+        Candidates candidates = getCandidates();
+        if (candidates.totalWeight == 0) {
+            return null;
+        }
+        int position = ThreadLocalRandom.current().nextInt(candidates.totalWeight);
+        return candidates.instances[candidates.indexOfPosition(position)];
+    }
+}
@@ -0,0 +1,427 @@
+package net.basiccloud.registry.cache;
+
+import com.google.common.collect.ImmutableList;
+import net.basiccloud.registry.AsyncSupport;
+import net.basiccloud.registry.InstanceKey;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceRegistryClient;
+import net.basiccloud.registry.Version;
+import net.basiccloud.registry.index.LongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Caching decorator of {@link ServiceRegistryClient}.
+ *
+ * <p>The first discover of a group/service/version watches it on the delegate client and keeps one
+ * immutable snapshot of the instances, which is replaced on every {@link ClientListener#update(List)}.
+ * Following discovers are served from the snapshot with a volatile read and no allocation: services are found by
+ * their {@link InstanceKey#serviceKey(String, String)} in a copy-on-write primitive map. If the delegate fails to
+ * watch, the discover is not cached and the watch is retried by the next discover.
+ *
+ * <p>With a {@link SnapshotFile}, the snapshots are saved to the file in background after every change, and the
+ * snapshots saved by a previous run are served as soon as the client is created, before the registry answers.
+ * These stale snapshots are reconciled in background by watching the delegate, and the reconcile is retried every
+ * {@link #RECONCILE_RETRY_MILLIS} by the discovers while the registry is not reachable.
+ */
+public class CachingServiceRegistryClient implements ServiceRegistryClient {
+
+    private static Logger logger = LoggerFactory.getLogger(CachingServiceRegistryClient.class);
+
+    /**
+     * min interval between two reconciles of a stale snapshot.
+     */
+    public static final long RECONCILE_RETRY_MILLIS = 5000;
+
+    private final ServiceRegistryClient delegate;
+    private final SnapshotFile snapshotFile;
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    /**
+     * services by service key, replaced holding this client.
+     */
+    private volatile LongHashMap<CachedService> services = new LongHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
+
+    public CachingServiceRegistryClient(ServiceRegistryClient delegate) {
+        this.delegate = checkNotNull(delegate, "delegate should not be null");
+        this.snapshotFile = null;
+    }
+
+    /**
+     * create cache persisted to given file, the snapshots in the file are served immediately and reconciled with
+     * the delegate in background.
+     *
+     * @param delegate     client decorated
+     * @param snapshotFile file of the snapshots
+     */
+    public CachingServiceRegistryClient(ServiceRegistryClient delegate, SnapshotFile snapshotFile) {
+        this.delegate = checkNotNull(delegate, "delegate should not be null");
+        this.snapshotFile = checkNotNull(snapshotFile, "snapshotFile should not be null");
+        for (SnapshotFile.Entry entry : snapshotFile.load()) {
+            CachedService cachedService = getOrCreateService(entry.getGroup(), entry.getService());
+            CachedView view = entry.getVersion() == null ? cachedService.all
+                    : cachedService.byVersion.computeIfAbsent(entry.getVersion(), cachedService::newView);
+            view.restore(entry);
+            view.reconcileIfDue();
+        }
+    }
+
+    @Override
+    public List<ServiceInstance> discover(String group, String service) {
+        return discover(getOrCreateService(group, service).all);
+    }
+
+    @Override
+    public List<ServiceInstance> discover(String group, String service, Version version) {
+        checkNotNull(version, "version should not be null");
+        CachedService cachedService = getOrCreateService(group, service);
+        CachedView view = cachedService.byVersion.get(version);
+        if (view == null) {
+            view = cachedService.byVersion.computeIfAbsent(version, cachedService::newView);
+        }
+        return discover(view);
+    }
+
+    /**
+     * asynchronous discover, completed in the calling thread if cached, otherwise loaded in
+     * {@link AsyncSupport#getExecutor()}.
+     */
+    @Override
+    public CompletableFuture<List<ServiceInstance>> discoverAsync(String group, String service) {
+        List<ServiceInstance> snapshot = hit(getOrCreateService(group, service).all);
+        if (snapshot != null) {
+            return CompletableFuture.completedFuture(snapshot);
+        }
+        return AsyncSupport.supplyAsync(() -> discover(group, service));
+    }
+
+    /**
+     * asynchronous discover, completed in the calling thread if cached, otherwise loaded in
+     * {@link AsyncSupport#getExecutor()}.
+     */
+    @Override
+    public CompletableFuture<List<ServiceInstance>> discoverAsync(String group, String service, Version version) {
+        checkNotNull(version, "version should not be null");
+        CachedView view = getOrCreateService(group, service).byVersion.get(version);
+        List<ServiceInstance> snapshot = view == null ? null : hit(view);
+        if (snapshot != null) {
+            return CompletableFuture.completedFuture(snapshot);
+        }
+        return AsyncSupport.supplyAsync(() -> discover(group, service, version));
+    }
+
+    /**
+     * watch on the delegate client, the listener is not shared with the cache.
+     */
+    @Override
+    public boolean watch(String group, String service, Version version, ClientListener clientListener) {
+        return delegate.watch(group, service, version, clientListener);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> watchAsync(String group, String service, Version version,
+                                                 ClientListener clientListener) {
+        return delegate.watchAsync(group, service, version, clientListener);
+    }
+
+    @Override
+    public boolean watchDelta(String group, String service, Version version, DeltaListener deltaListener) {
+        return delegate.watchDelta(group, service, version, deltaListener);
+    }
+
+    /**
+     * get the client decorated by this cache.
+     *
+     * @return delegate client
+     */
+    public ServiceRegistryClient getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * check if the snapshot of given group/service/version is restored from the snapshot file and not yet
+     * reconciled with the delegate.
+     *
+     * @param group   group
+     * @param service service
+     * @param version version, null for all versions
+     * @return true if stale, false if reconciled or not cached
+     */
+    public boolean isStale(String group, String service, Version version) {
+        long serviceKey = InstanceKey.findServiceKey(group, service);
+        CachedService cachedService = serviceKey == InstanceKey.NOT_FOUND ? null : services.get(serviceKey);
+        if (cachedService == null) {
+            return false;
+        }
+        CachedView view = version == null ? cachedService.all : cachedService.byVersion.get(version);
+        return view != null && view.stale;
+    }
+
+    /**
+     * save current snapshots to the snapshot file now, for example before shutdown.
+     *
+     * @throws IOException if fail to write the file
+     * @throws IllegalStateException if the cache has no snapshot file
+     */
+    public void saveSnapshots() throws IOException {
+        checkState(snapshotFile != null, "no snapshot file");
+        List<SnapshotFile.Entry> entries = new ArrayList<>();
+        services.forEachValue(cachedService -> {
+            cachedService.all.addEntry(entries);
+            cachedService.byVersion.values().forEach(view -> view.addEntry(entries));
+        });
+        snapshotFile.save(entries);
+    }
+
+    /**
+     * number of discovers served from cached snapshots.
+     *
+     * @return hit count
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * number of discovers that went to the delegate client.
+     *
+     * @return miss count
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * number of snapshots replaced by watch updates.
+     *
+     * @return refresh count
+     */
+    public long getRefreshCount() {
+        return refreshCount.sum();
+    }
+
+    private CachedService getOrCreateService(String group, String service) {
+        long serviceKey = InstanceKey.serviceKey(group, service);
+        CachedService cachedService = services.get(serviceKey);
+        if (cachedService != null) {
+            return cachedService;
+        }
+        synchronized (this) {
+            cachedService = services.get(serviceKey);
+            if (cachedService == null) {
+                cachedService = new CachedService(group, service);
+                LongHashMap<CachedService> newServices = services.copy();
+                newServices.put(serviceKey, cachedService);
+                services = newServices;
+            }
+            return cachedService;
+        }
+    }
+
+    private List<ServiceInstance> discover(CachedView view) {
+        List<ServiceInstance> snapshot = hit(view);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        missCount.increment();
+        return view.load();
+    }
+
+    /**
+     * get the snapshot of given view and count a hit, a stale snapshot is served and reconciled if due.
+     *
+     * @return snapshot, null if not cached
+     */
+    private List<ServiceInstance> hit(CachedView view) {
+        List<ServiceInstance> snapshot = view.snapshot;
+        if (snapshot == null) {
+            return null;
+        }
+        hitCount.increment();
+        if (view.stale) {
+            view.reconcileIfDue();
+        }
+        return snapshot;
+    }
+
+    private void scheduleSave() {
+        if (snapshotFile == null || !saveScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        AsyncSupport.runAsync(() -> {
+            saveScheduled.set(false);
+            try {
+                saveSnapshots();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("fail to save snapshot file: path={}", snapshotFile.getPath(), e);
+            }
+        });
+    }
+
+    private final class CachedService {
+        private final String group;
+        private final String service;
+        private final CachedView all;
+        private final ConcurrentMap<Version, CachedView> byVersion = new ConcurrentHashMap<>();
+
+        private CachedService(String group, String service) {
+            this.group = group;
+            this.service = service;
+            this.all = new CachedView(group, service, null);
+        }
+
+        private CachedView newView(Version version) {
+            return new CachedView(group, service, version);
+        }
+    }
+
+    private final class CachedView implements ClientListener {
+
+        private final String group;
+        private final String service;
+        private final Version version;
+
+        private volatile List<ServiceInstance> snapshot;
+        /**
+         * time the snapshot was received from the delegate.
+         */
+        private volatile long updateTime;
+        /**
+         * restored from the snapshot file and not yet updated by the delegate.
+         */
+        private volatile boolean stale;
+        private boolean watched;
+        /**
+         * a watch of the delegate is in progress, out of the monitor.
+         */
+        private boolean watching;
+        private long nextReconcileTime;
+
+        private CachedView(String group, String service, Version version) {
+            this.group = group;
+            this.service = service;
+            this.version = version;
+        }
+
+        @Override
+        public void update(List<ServiceInstance> list) {
+            synchronized (this) {
+                this.snapshot = list == null ? ImmutableList.of() : ImmutableList.copyOf(list);
+                this.updateTime = System.currentTimeMillis();
+                this.stale = false;
+            }
+            refreshCount.increment();
+            scheduleSave();
+        }
+
+        private synchronized void restore(SnapshotFile.Entry entry) {
+            this.snapshot = entry.getInstances();
+            this.updateTime = entry.getUpdateTime();
+            this.stale = true;
+        }
+
+        private synchronized void addEntry(List<SnapshotFile.Entry> entries) {
+            if (snapshot != null) {
+                entries.add(new SnapshotFile.Entry(group, service, version, snapshot, updateTime));
+            }
+        }
+
+        /**
+         * watch the delegate in background to replace the stale snapshot, at most once per
+         * {@link #RECONCILE_RETRY_MILLIS}.
+         */
+        private void reconcileIfDue() {
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                if (watched || watching || !stale || now < nextReconcileTime) {
+                    return;
+                }
+                nextReconcileTime = now + RECONCILE_RETRY_MILLIS;
+                watching = true;
+            }
+            AsyncSupport.runAsync(() -> {
+                if (!watchDelegate()) {
+                    logger.warn("fail to watch, serve stale snapshot: group={}, service={}, version={}, updateTime={}",
+                            group, service, version, updateTime);
+                }
+            }).exceptionally(e -> {
+                logger.warn("fail to watch, serve stale snapshot: group={}, service={}, version={}, updateTime={}",
+                        group, service, version, updateTime, e);
+                return null;
+            });
+        }
+
+        /**
+         * watch the delegate out of the monitor, the delegate may call {@link #update(List)} before returning.
+         * Called after setting watching holding the monitor.
+         *
+         * @return true if watched
+         */
+        private boolean watchDelegate() {
+            boolean result = false;
+            try {
+                result = delegate.watch(group, service, version, this);
+                return result;
+            } finally {
+                synchronized (this) {
+                    watching = false;
+                    watched = watched || result;
+                }
+            }
+        }
+
+        private List<ServiceInstance> load() {
+            boolean watch;
+            synchronized (this) {
+                if (snapshot != null) {
+                    return snapshot;
+                }
+                watch = !watched && !watching;
+                watching = watching || watch;
+            }
+            if (watch) {
+                if (!watchDelegate()) {
+                    logger.warn("fail to watch, discover without cache: group={}, service={}, version={}",
+                            group, service, version);
+                }
+                List<ServiceInstance> current = snapshot;
+                if (current != null) {
+                    // updated by the watch already
+                    return current;
+                }
+            }
+
+            List<ServiceInstance> list = version == null
+                    ? delegate.discover(group, service) : delegate.discover(group, service, version);
+            synchronized (this) {
+                if (snapshot != null) {
+                    // updated by watch meanwhile, which is newer than the list just discovered
+                    return snapshot;
+                }
+                List<ServiceInstance> loaded = list == null ? ImmutableList.of() : ImmutableList.copyOf(list);
+                if (watched) {
+                    this.snapshot = loaded;
+                    this.updateTime = System.currentTimeMillis();
+                    scheduleSave();
+                }
+                return loaded;
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package net.basiccloud.registry.cache;
+
+import com.google.common.collect.ImmutableList;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.Version;
+import net.basiccloud.registry.codec.ServiceInstanceCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Local file keeping the last known good instances of the discovered services, so a client can start and discover
+ * while the registry is not reachable.
+ *
+ * <p>The file is written and read through memory mapped I/O, the instances are encoded by
+ * {@link ServiceInstanceCodec}. A save writes a temporary file next to the target and moves it over the target, so
+ * readers never see a partial file. Every entry records the time its instances were received from the registry;
+ * entries older than {@code maxAgeMillis} are dropped on load. A file which is missing, corrupted or of an unknown
+ * version is loaded as empty.
+ *
+ * <p>Layout: magic, file version, save time, entry count, CRC32 of the entries, then for each entry group, service,
+ * optional packed version, update time and the encoded instance list.
+ */
+public class SnapshotFile {
+
+    private static Logger logger = LoggerFactory.getLogger(SnapshotFile.class);
+
+    /**
+     * "BCRS", basic cloud registry snapshot.
+     */
+    private static final int MAGIC = 0x42435253;
+    private static final byte FILE_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 4 + 8;
+    private static final int NO_VERSION = -1;
+
+    /**
+     * default max age of the entries loaded, 7 days.
+     */
+    public static final long DEFAULT_MAX_AGE_MILLIS = 7 * 24 * 3600 * 1000L;
+
+    /**
+     * instances of one discovered group/service/version.
+     */
+    public static final class Entry {
+        private final String group;
+        private final String service;
+        private final Version version;
+        private final List<ServiceInstance> instances;
+        private final long updateTime;
+
+        /**
+         * create entry.
+         *
+         * @param group      group
+         * @param service    service
+         * @param version    version discovered, null for all versions
+         * @param instances  instances
+         * @param updateTime time the instances were received from the registry
+         */
+        public Entry(String group, String service, Version version, List<ServiceInstance> instances,
+                     long updateTime) {
+            this.group = checkNotNull(group, "group should not be null");
+            this.service = checkNotNull(service, "service should not be null");
+            this.version = version;
+            this.instances = ImmutableList.copyOf(checkNotNull(instances, "instances should not be null"));
+            this.updateTime = updateTime;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public String getService() {
+            return service;
+        }
+
+        /**
+         * get version discovered.
+         *
+         * @return version, null for all versions
+         */
+        public Version getVersion() {
+            return version;
+        }
+
+        public List<ServiceInstance> getInstances() {
+            return instances;
+        }
+
+        /**
+         * get time the instances were received from the registry.
+         *
+         * @return update time in milliseconds
+         */
+        public long getUpdateTime() {
+            return updateTime;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "group='" + group + '\'' +
+                    ", service='" + service + '\'' +
+                    ", version=" + version +
+                    ", instances=" + instances.size() +
+                    ", updateTime=" + updateTime +
+                    '}';
+        }
+    }
+
+    private final Path path;
+    private final long maxAgeMillis;
+
+    private SnapshotFile(Path path, long maxAgeMillis) {
+        this.path = path;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    /**
+     * save given entries, replacing the file.
+     *
+     * @param entries entries to save
+     * @throws IOException if fail to write the file
+     */
+    public synchronized void save(Collection<Entry> entries) throws IOException {
+        checkNotNull(entries, "entries should not be null");
+        List<byte[]> keys = new ArrayList<>(entries.size() * 2);
+        int[] listSizes = new int[entries.size()];
+        long size = HEADER_SIZE;
+        int index = 0;
+        for (Entry entry : entries) {
+            byte[] group = entry.group.getBytes(StandardCharsets.UTF_8);
+            byte[] service = entry.service.getBytes(StandardCharsets.UTF_8);
+            keys.add(group);
+            keys.add(service);
+            listSizes[index] = listSize(entry.instances);
+            size += 4 + group.length + 4 + service.length + 4 + 8 + 4 + listSizes[index];
+            index++;
+        }
+        checkArgument(size <= Integer.MAX_VALUE, "snapshot too large: size=" + size);
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).put(FILE_VERSION).putLong(System.currentTimeMillis()).putInt(entries.size());
+            int checksumPosition = buffer.position();
+            buffer.putLong(0);
+            index = 0;
+            for (Entry entry : entries) {
+                putBytes(buffer, keys.get(index * 2));
+                putBytes(buffer, keys.get(index * 2 + 1));
+                buffer.putInt(entry.version == null ? NO_VERSION : entry.version.toPackedInt());
+                buffer.putLong(entry.updateTime);
+                int length = listSizes[index++];
+                buffer.putInt(length);
+                int start = buffer.position();
+                ServiceInstanceCodec.encodeList(entry.instances, buffer);
+                // the count may take less than the 5 bytes reserved, the rest is left zero
+                buffer.position(start + length);
+            }
+            buffer.putLong(checksumPosition, checksum(buffer, HEADER_SIZE, (int) size));
+            buffer.force();
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * load entries not older than max age.
+     *
+     * @return entries, empty if the file is missing or invalid
+     */
+    public synchronized List<Entry> load() {
+        if (!Files.isRegularFile(path)) {
+            return ImmutableList.of();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                logger.warn("invalid snapshot file, ignored: path={}, size={}", path, size);
+                return ImmutableList.of();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int magic = buffer.getInt();
+            byte fileVersion = buffer.get();
+            if (magic != MAGIC || fileVersion != FILE_VERSION) {
+                logger.warn("unknown snapshot file, ignored: path={}, magic={}, fileVersion={}",
+                        path, Integer.toHexString(magic), fileVersion);
+                return ImmutableList.of();
+            }
+            long saveTime = buffer.getLong();
+            int count = buffer.getInt();
+            long checksum = buffer.getLong();
+            if (checksum != checksum(buffer, HEADER_SIZE, (int) size)) {
+                logger.warn("corrupted snapshot file, ignored: path={}", path);
+                return ImmutableList.of();
+            }
+
+            long minUpdateTime = System.currentTimeMillis() - maxAgeMillis;
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String group = getString(buffer);
+                String service = getString(buffer);
+                int packedVersion = buffer.getInt();
+                long updateTime = buffer.getLong();
+                int length = buffer.getInt();
+                if (updateTime < minUpdateTime) {
+                    buffer.position(buffer.position() + length);
+                    continue;
+                }
+                ByteBuffer list = buffer.slice();
+                list.limit(length);
+                buffer.position(buffer.position() + length);
+                entries.add(new Entry(group, service,
+                        packedVersion == NO_VERSION ? null : Version.fromPackedInt(packedVersion),
+                        ServiceInstanceCodec.decodeList(list), updateTime));
+            }
+            logger.info("snapshot file loaded: path={}, saveTime={}, entries={}, expired={}",
+                    path, saveTime, entries.size(), count - entries.size());
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("fail to load snapshot file, ignored: path={}", path, e);
+            return ImmutableList.of();
+        }
+    }
+
+    private static int listSize(List<ServiceInstance> instances) {
+        // format version + varint of count, at most 5 bytes
+        int size = 1 + 5;
+        for (ServiceInstance instance : instances) {
+            size += ServiceInstanceCodec.encodedSize(instance) - 1;
+        }
+        return size;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        checkArgument(length >= 0 && length <= buffer.remaining(), "invalid string length: length=" + length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(ByteBuffer buffer, int from, int to) {
+        ByteBuffer body = buffer.duplicate();
+        body.limit(to).position(from);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return crc.getValue();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Path path;
+        private long maxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+
+        private Builder() {
+        }
+
+        /**
+         * set path of the file.
+         *
+         * @param path path of the file, required
+         * @return builder
+         */
+        public Builder setPath(Path path) {
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * set max age of the entries loaded.
+         *
+         * @param maxAgeMillis max age in milliseconds, default {@link #DEFAULT_MAX_AGE_MILLIS}
+         * @return builder
+         */
+        public Builder setMaxAgeMillis(long maxAgeMillis) {
+            this.maxAgeMillis = maxAgeMillis;
+            return this;
+        }
+
+        public SnapshotFile build() {
+            checkNotNull(path, "path should not be null");
+            checkArgument(maxAgeMillis > 0, "maxAgeMillis should be positive");
+            return new SnapshotFile(path, maxAgeMillis);
+        }
+    }
+}
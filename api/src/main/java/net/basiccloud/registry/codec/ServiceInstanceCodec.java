@@ -0,0 +1,611 @@
+package net.basiccloud.registry.codec;
+
+import net.basiccloud.registry.*;
+import net.basiccloud.registry.ServiceInstanceStatus.Status;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compact binary codec of {@link ServiceInstance}, {@link ServiceInstanceData}, {@link ServiceInstanceStatus} and
+ * {@link Version}.
+ *
+ * <p>Every encoded value starts with one byte of {@link #FORMAT_VERSION}. Integers are written as varints, versions
+ * as the varint of {@link Version#toPackedInt()}, work modes as {@link WorkMode#getCode()}, statuses as one byte of
+ * {@link Status#getCode()}, and the well known service types and protocols as one byte index instead of a string.
+ * Strings are written as UTF-8 directly into the buffer and read directly from the backing array of heap buffers.
+ *
+ * <p>Encoding writes at the position of the buffer and decoding reads from it, both advance the position. Use
+ * {@link #encodedSize(ServiceInstance)} to size a buffer; decoding malformed bytes throws
+ * {@link IllegalArgumentException} or {@link java.nio.BufferUnderflowException}.
+ */
+public final class ServiceInstanceCodec {
+
+    /**
+     * version of the encoding format.
+     */
+    public static final byte FORMAT_VERSION = 1;
+
+    /**
+     * strings encoded as their index in this table, must only be appended to keep the format compatible.
+     */
+    private static final String[] WELL_KNOWN_STRINGS = {
+            ServiceInstanceData.LIGHT_SERVICE_TYPE,
+            ServiceInstanceData.REST_SERVICE_TYPE,
+            ServiceInstanceData.PROTOCOL_GRPC,
+            ServiceInstanceData.PROTOCOL_GRPCS,
+            ServiceInstanceData.PROTOCOL_HTTP,
+            ServiceInstanceData.PROTOCOL_HTTPS
+    };
+
+    private static final byte NULL_STRING = -1;
+
+    static final int HAS_DATA = 1;
+    static final int HAS_STATUS = 1 << 1;
+
+    private ServiceInstanceCodec() {
+        // no instance
+    }
+
+    /**
+     * encode given instance.
+     *
+     * @param instance instance
+     * @return buffer of the encoded instance, ready to read
+     */
+    public static ByteBuffer encode(ServiceInstance instance) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(instance));
+        encode(instance, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * encode given instance into given buffer.
+     *
+     * @param instance instance
+     * @param buffer   buffer to write to
+     * @throws java.nio.BufferOverflowException if the buffer has not enough space
+     */
+    public static void encode(ServiceInstance instance, ByteBuffer buffer) {
+        checkNotNull(instance, "instance should not be null");
+        buffer.put(FORMAT_VERSION);
+        writeInstance(instance, buffer);
+    }
+
+    /**
+     * decode one instance.
+     *
+     * @param buffer buffer to read from
+     * @return instance
+     */
+    public static ServiceInstance decodeInstance(ByteBuffer buffer) {
+        readFormatVersion(buffer);
+        return readInstance(buffer);
+    }
+
+    /**
+     * encode given instances, for example the instance list of a service.
+     *
+     * @param instances instances
+     * @return buffer of the encoded instances, ready to read
+     */
+    public static ByteBuffer encodeList(List<ServiceInstance> instances) {
+        checkNotNull(instances, "instances should not be null");
+        int size = 1 + varIntSize(instances.size());
+        for (ServiceInstance instance : instances) {
+            size += instanceSize(instance);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        encodeList(instances, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * encode given instances into given buffer.
+     *
+     * @param instances instances
+     * @param buffer    buffer to write to
+     * @throws java.nio.BufferOverflowException if the buffer has not enough space
+     */
+    public static void encodeList(List<ServiceInstance> instances, ByteBuffer buffer) {
+        checkNotNull(instances, "instances should not be null");
+        buffer.put(FORMAT_VERSION);
+        writeVarInt(buffer, instances.size());
+        for (ServiceInstance instance : instances) {
+            writeInstance(instance, buffer);
+        }
+    }
+
+    /**
+     * decode instances encoded by {@link #encodeList(List, ByteBuffer)}.
+     *
+     * @param buffer buffer to read from
+     * @return instances
+     */
+    public static List<ServiceInstance> decodeList(ByteBuffer buffer) {
+        readFormatVersion(buffer);
+        int count = readVarInt(buffer);
+        checkArgument(count <= buffer.remaining(), "invalid instance count: count=" + count);
+        List<ServiceInstance> instances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            instances.add(readInstance(buffer));
+        }
+        return instances;
+    }
+
+    /**
+     * decode instances encoded by {@link #encodeList(List, ByteBuffer)} as lazy views.
+     *
+     * <p>Only the fixed size fields are read here, strings, tags and ports are decoded by the views on first
+     * access. The views read from a duplicate of the buffer, whose content should not change while they are used.
+     *
+     * @param buffer buffer to read from, its position is moved to the end of the instances
+     * @return views of the instances
+     */
+    public static List<ServiceInstanceView> decodeViews(ByteBuffer buffer) {
+        readFormatVersion(buffer);
+        int count = readVarInt(buffer);
+        checkArgument(count <= buffer.remaining(), "invalid instance count: count=" + count);
+        ByteBuffer source = buffer.duplicate();
+        List<ServiceInstanceView> views = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            views.add(new ServiceInstanceView(source));
+        }
+        buffer.position(source.position());
+        return views;
+    }
+
+    /**
+     * decode one instance encoded by {@link #encode(ServiceInstance, ByteBuffer)} as a lazy view, see
+     * {@link #decodeViews(ByteBuffer)}.
+     *
+     * @param buffer buffer to read from, its position is moved to the end of the instance
+     * @return view of the instance
+     */
+    public static ServiceInstanceView decodeView(ByteBuffer buffer) {
+        readFormatVersion(buffer);
+        ByteBuffer source = buffer.duplicate();
+        ServiceInstanceView view = new ServiceInstanceView(source);
+        buffer.position(source.position());
+        return view;
+    }
+
+    /**
+     * encode given instance data into given buffer.
+     *
+     * @param data   instance data
+     * @param buffer buffer to write to
+     */
+    public static void encodeData(ServiceInstanceData data, ByteBuffer buffer) {
+        checkNotNull(data, "data should not be null");
+        buffer.put(FORMAT_VERSION);
+        writeData(data, buffer);
+    }
+
+    /**
+     * decode instance data encoded by {@link #encodeData(ServiceInstanceData, ByteBuffer)}.
+     *
+     * @param buffer buffer to read from
+     * @return instance data
+     */
+    public static ServiceInstanceData decodeData(ByteBuffer buffer) {
+        readFormatVersion(buffer);
+        return readData(buffer);
+    }
+
+    /**
+     * encode given instance status into given buffer.
+     *
+     * @param status instance status
+     * @param buffer buffer to write to
+     */
+    public static void encodeStatus(ServiceInstanceStatus status, ByteBuffer buffer) {
+        checkNotNull(status, "status should not be null");
+        buffer.put(FORMAT_VERSION);
+        writeStatus(status, buffer);
+    }
+
+    /**
+     * decode instance status encoded by {@link #encodeStatus(ServiceInstanceStatus, ByteBuffer)}.
+     *
+     * @param buffer buffer to read from
+     * @return instance status
+     */
+    public static ServiceInstanceStatus decodeStatus(ByteBuffer buffer) {
+        readFormatVersion(buffer);
+        return readStatus(buffer);
+    }
+
+    /**
+     * encode given version into given buffer.
+     *
+     * @param version version
+     * @param buffer  buffer to write to
+     */
+    public static void encodeVersion(Version version, ByteBuffer buffer) {
+        checkNotNull(version, "version should not be null");
+        buffer.put(FORMAT_VERSION);
+        writeVarInt(buffer, version.toPackedInt());
+    }
+
+    /**
+     * decode version encoded by {@link #encodeVersion(Version, ByteBuffer)}.
+     *
+     * @param buffer buffer to read from
+     * @return version
+     */
+    public static Version decodeVersion(ByteBuffer buffer) {
+        readFormatVersion(buffer);
+        return Version.fromPackedInt(readVarInt(buffer));
+    }
+
+    /**
+     * get size of given instance encoded by {@link #encode(ServiceInstance, ByteBuffer)}.
+     *
+     * @param instance instance
+     * @return size in bytes
+     */
+    public static int encodedSize(ServiceInstance instance) {
+        checkNotNull(instance, "instance should not be null");
+        return 1 + instanceSize(instance);
+    }
+
+    static void readFormatVersion(ByteBuffer buffer) {
+        byte formatVersion = buffer.get();
+        checkArgument(formatVersion == FORMAT_VERSION, "unsupported format version: formatVersion=" + formatVersion);
+    }
+
+    private static void writeInstance(ServiceInstance instance, ByteBuffer buffer) {
+        writeString(buffer, instance.getGroup());
+        writeString(buffer, instance.getService());
+        writeString(buffer, instance.getIp());
+        writeVarInt(buffer, instance.getPort());
+        int flags = (instance.getData() != null ? HAS_DATA : 0) | (instance.getStatus() != null ? HAS_STATUS : 0);
+        buffer.put((byte) flags);
+        if (instance.getData() != null) {
+            writeData(instance.getData(), buffer);
+        }
+        if (instance.getStatus() != null) {
+            writeStatus(instance.getStatus(), buffer);
+        }
+    }
+
+    static ServiceInstance readInstance(ByteBuffer buffer) {
+        ServiceInstance.Builder builder = ServiceInstance.newBuilder()
+                .setGroup(readString(buffer))
+                .setService(readString(buffer))
+                .setIp(readString(buffer))
+                .setPort(readVarInt(buffer));
+        int flags = buffer.get();
+        if ((flags & HAS_DATA) != 0) {
+            builder.setData(readData(buffer));
+        }
+        if ((flags & HAS_STATUS) != 0) {
+            builder.setStatus(readStatus(buffer));
+        }
+        return builder.build();
+    }
+
+    private static int instanceSize(ServiceInstance instance) {
+        int size = stringSize(instance.getGroup()) + stringSize(instance.getService()) + stringSize(instance.getIp())
+                + varIntSize(instance.getPort()) + 1;
+        if (instance.getData() != null) {
+            size += dataSize(instance.getData());
+        }
+        if (instance.getStatus() != null) {
+            size += statusSize(instance.getStatus());
+        }
+        return size;
+    }
+
+    private static void writeData(ServiceInstanceData data, ByteBuffer buffer) {
+        writeWellKnownString(buffer, data.getServiceType());
+        writeVarInt(buffer, data.getServiceVersion().toPackedInt());
+        writeVarInt(buffer, data.getFrameworkVersion().toPackedInt());
+        writeVarInt(buffer, data.getWorkMode().getCode());
+        String[] tags = data.getTags();
+        writeVarInt(buffer, tags.length);
+        for (String tag : tags) {
+            writeString(buffer, tag);
+        }
+        Map<String, Integer> ports = data.getPorts();
+        writeVarInt(buffer, ports.size());
+        for (Map.Entry<String, Integer> entry : ports.entrySet()) {
+            writeWellKnownString(buffer, entry.getKey());
+            writeVarInt(buffer, entry.getValue());
+        }
+    }
+
+    private static ServiceInstanceData readData(ByteBuffer buffer) {
+        ServiceInstanceData.Builder builder = ServiceInstanceData.newBuilder()
+                .setServiceType(readWellKnownString(buffer))
+                .setServiceVersion(Version.fromPackedInt(readVarInt(buffer)))
+                .setFrameworkVersion(Version.fromPackedInt(readVarInt(buffer)))
+                .setWorkMode(WorkMode.valueOfCode(readVarInt(buffer)));
+        int tagCount = readVarInt(buffer);
+        checkArgument(tagCount <= buffer.remaining(), "invalid tag count: count=" + tagCount);
+        String[] tags = new String[tagCount];
+        for (int i = 0; i < tagCount; i++) {
+            tags[i] = readString(buffer);
+        }
+        builder.setTags(tags);
+        int portCount = readVarInt(buffer);
+        checkArgument(portCount <= buffer.remaining(), "invalid port count: count=" + portCount);
+        for (int i = 0; i < portCount; i++) {
+            builder.addPort(readWellKnownString(buffer), readVarInt(buffer));
+        }
+        return builder.build();
+    }
+
+    private static int dataSize(ServiceInstanceData data) {
+        int size = wellKnownStringSize(data.getServiceType())
+                + varIntSize(data.getServiceVersion().toPackedInt())
+                + varIntSize(data.getFrameworkVersion().toPackedInt())
+                + varIntSize(data.getWorkMode().getCode())
+                + varIntSize(data.getTags().length);
+        for (String tag : data.getTags()) {
+            size += stringSize(tag);
+        }
+        size += varIntSize(data.getPorts().size());
+        for (Map.Entry<String, Integer> entry : data.getPorts().entrySet()) {
+            size += wellKnownStringSize(entry.getKey()) + varIntSize(entry.getValue());
+        }
+        return size;
+    }
+
+    private static void writeStatus(ServiceInstanceStatus status, ByteBuffer buffer) {
+        buffer.put((byte) status.getStatus().getCode());
+        writeVarLong(buffer, status.getLastUpdateTime());
+        writeNullableString(buffer, status.getComment());
+        writeVarLong(buffer, status.getLeaseId());
+    }
+
+    private static ServiceInstanceStatus readStatus(ByteBuffer buffer) {
+        return ServiceInstanceStatus.newBuilder()
+                .setStatus(Status.valueOfCode(buffer.get()))
+                .setLastUpdateTime(readVarLong(buffer))
+                .setComment(readNullableString(buffer))
+                .setLeaseId(readVarLong(buffer))
+                .build();
+    }
+
+    private static int statusSize(ServiceInstanceStatus status) {
+        return 1 + varLongSize(status.getLastUpdateTime())
+                + (status.getComment() == null ? 1 : stringSize(status.getComment(), 1))
+                + varLongSize(status.getLeaseId());
+    }
+
+    // well known string: index + 1 of the table, 0 followed by the string, or NULL_STRING
+
+    private static void writeWellKnownString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.put(NULL_STRING);
+            return;
+        }
+        int index = wellKnownIndex(value);
+        if (index >= 0) {
+            buffer.put((byte) (index + 1));
+        } else {
+            buffer.put((byte) 0);
+            writeString(buffer, value);
+        }
+    }
+
+    static String readWellKnownString(ByteBuffer buffer) {
+        int index = buffer.get();
+        if (index == 0) {
+            return readString(buffer);
+        }
+        if (index == NULL_STRING) {
+            return null;
+        }
+        checkArgument(index > 0 && index <= WELL_KNOWN_STRINGS.length, "invalid well known string: index=" + index);
+        return WELL_KNOWN_STRINGS[index - 1];
+    }
+
+    static void skipWellKnownString(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            skipString(buffer);
+        }
+    }
+
+    private static int wellKnownStringSize(String value) {
+        return value == null || wellKnownIndex(value) >= 0 ? 1 : 1 + stringSize(value);
+    }
+
+    private static int wellKnownIndex(String value) {
+        for (int i = 0; i < WELL_KNOWN_STRINGS.length; i++) {
+            if (WELL_KNOWN_STRINGS[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // string: varint of UTF-8 length, then UTF-8 bytes; nullable string: varint of length + 1, 0 for null
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        writeString(buffer, value, 0);
+    }
+
+    private static void writeNullableString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            writeVarInt(buffer, 0);
+        } else {
+            writeString(buffer, value, 1);
+        }
+    }
+
+    private static void writeString(ByteBuffer buffer, String value, int lengthOffset) {
+        writeVarInt(buffer, utf8Length(value) + lengthOffset);
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >>> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >>> 18));
+                buffer.put((byte) (0x80 | codePoint >>> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >>> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, replaced by '?' as String.getBytes does
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >>> 12));
+                buffer.put((byte) (0x80 | c >>> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    static String readString(ByteBuffer buffer) {
+        return readString(buffer, readVarInt(buffer));
+    }
+
+    static String readNullableString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        return length == 0 ? null : readString(buffer, length - 1);
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        checkArgument(length >= 0 && length <= buffer.remaining(), "invalid string length: length=" + length);
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    static void skipString(ByteBuffer buffer) {
+        skip(buffer, readVarInt(buffer));
+    }
+
+    static void skipNullableString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        if (length > 0) {
+            skip(buffer, length - 1);
+        }
+    }
+
+    private static void skip(ByteBuffer buffer, int length) {
+        checkArgument(length >= 0 && length <= buffer.remaining(), "invalid string length: length=" + length);
+        buffer.position(buffer.position() + length);
+    }
+
+    private static int stringSize(String value) {
+        return stringSize(value, 0);
+    }
+
+    private static int stringSize(String value, int lengthOffset) {
+        int length = utf8Length(value);
+        return varIntSize(length + lengthOffset) + length;
+    }
+
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    utf8Length += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    utf8Length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    utf8Length += 2;
+                }
+            }
+        }
+        return utf8Length;
+    }
+
+    // varint: 7 bits per byte, least significant group first, high bit set on all but the last byte
+
+    private static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            if (shift == 28 && (b & 0xF0) != 0) {
+                // the 5th byte holds the 4 high bits only
+                throw new IllegalArgumentException("malformed varint");
+            }
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    private static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            if (shift == 63 && (b & 0xFE) != 0) {
+                // the 10th byte holds the high bit only
+                throw new IllegalArgumentException("malformed varlong");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varlong");
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+}
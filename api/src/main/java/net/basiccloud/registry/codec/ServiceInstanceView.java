@@ -0,0 +1,273 @@
+package net.basiccloud.registry.codec;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceStatus.Status;
+import net.basiccloud.registry.Version;
+import net.basiccloud.registry.WorkMode;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Read-only view of one {@link ServiceInstance} encoded by {@link ServiceInstanceCodec}, created by
+ * {@link ServiceInstanceCodec#decodeViews(ByteBuffer)}.
+ *
+ * <p>Port, versions, work mode, status, last update time and lease id are read when the view is created. Strings,
+ * tags and ports are decoded from the buffer on first access and then cached. {@link #toServiceInstance()}
+ * materializes an owned instance, which no longer depends on the buffer.
+ */
+public final class ServiceInstanceView {
+
+    private final ByteBuffer source;
+    private final int groupOffset;
+    private final int serviceOffset;
+    private final int ipOffset;
+    private final int port;
+
+    private final boolean hasData;
+    private final int serviceTypeOffset;
+    private final int serviceVersion;
+    private final int frameworkVersion;
+    private final WorkMode workMode;
+    private final int tagsOffset;
+    private final int portsOffset;
+
+    private final boolean hasStatus;
+    private final Status status;
+    private final long lastUpdateTime;
+    private final int commentOffset;
+    private final long leaseId;
+
+    private volatile String group;
+    private volatile String service;
+    private volatile String ip;
+    private volatile String[] tags;
+    private volatile Map<String, Integer> ports;
+    /**
+     * service type and comment may be null, they are published by their decoded flags.
+     */
+    private String serviceType;
+    private volatile boolean serviceTypeDecoded;
+    private String comment;
+    private volatile boolean commentDecoded;
+
+    /**
+     * create view of the instance at the position of given buffer, and move the position to the end of it.
+     */
+    ServiceInstanceView(ByteBuffer source) {
+        this.source = source;
+        this.groupOffset = source.position();
+        ServiceInstanceCodec.skipString(source);
+        this.serviceOffset = source.position();
+        ServiceInstanceCodec.skipString(source);
+        this.ipOffset = source.position();
+        ServiceInstanceCodec.skipString(source);
+        this.port = ServiceInstanceCodec.readVarInt(source);
+        int flags = source.get();
+
+        this.hasData = (flags & ServiceInstanceCodec.HAS_DATA) != 0;
+        if (hasData) {
+            this.serviceTypeOffset = source.position();
+            ServiceInstanceCodec.skipWellKnownString(source);
+            this.serviceVersion = ServiceInstanceCodec.readVarInt(source);
+            this.frameworkVersion = ServiceInstanceCodec.readVarInt(source);
+            this.workMode = WorkMode.valueOfCode(ServiceInstanceCodec.readVarInt(source));
+            this.tagsOffset = source.position();
+            int tagCount = ServiceInstanceCodec.readVarInt(source);
+            for (int i = 0; i < tagCount; i++) {
+                ServiceInstanceCodec.skipString(source);
+            }
+            this.portsOffset = source.position();
+            int portCount = ServiceInstanceCodec.readVarInt(source);
+            for (int i = 0; i < portCount; i++) {
+                ServiceInstanceCodec.skipWellKnownString(source);
+                ServiceInstanceCodec.readVarInt(source);
+            }
+        } else {
+            this.serviceTypeOffset = -1;
+            this.serviceVersion = 0;
+            this.frameworkVersion = 0;
+            this.workMode = null;
+            this.tagsOffset = -1;
+            this.portsOffset = -1;
+        }
+
+        this.hasStatus = (flags & ServiceInstanceCodec.HAS_STATUS) != 0;
+        if (hasStatus) {
+            this.status = Status.valueOfCode(source.get());
+            this.lastUpdateTime = ServiceInstanceCodec.readVarLong(source);
+            this.commentOffset = source.position();
+            ServiceInstanceCodec.skipNullableString(source);
+            this.leaseId = ServiceInstanceCodec.readVarLong(source);
+        } else {
+            this.status = null;
+            this.lastUpdateTime = 0;
+            this.commentOffset = -1;
+            this.leaseId = 0;
+        }
+    }
+
+    public String getGroup() {
+        String value = group;
+        if (value == null) {
+            group = value = ServiceInstanceCodec.readString(at(groupOffset));
+        }
+        return value;
+    }
+
+    public String getService() {
+        String value = service;
+        if (value == null) {
+            service = value = ServiceInstanceCodec.readString(at(serviceOffset));
+        }
+        return value;
+    }
+
+    public String getIp() {
+        String value = ip;
+        if (value == null) {
+            ip = value = ServiceInstanceCodec.readString(at(ipOffset));
+        }
+        return value;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * has the instance data.
+     *
+     * @return true if the instance has data, the data getters throw {@link IllegalStateException} if not
+     */
+    public boolean hasData() {
+        return hasData;
+    }
+
+    public String getServiceType() {
+        checkData();
+        if (!serviceTypeDecoded) {
+            serviceType = ServiceInstanceCodec.readWellKnownString(at(serviceTypeOffset));
+            serviceTypeDecoded = true;
+        }
+        return serviceType;
+    }
+
+    public Version getServiceVersion() {
+        checkData();
+        return Version.fromPackedInt(serviceVersion);
+    }
+
+    public Version getFrameworkVersion() {
+        checkData();
+        return Version.fromPackedInt(frameworkVersion);
+    }
+
+    public WorkMode getWorkMode() {
+        checkData();
+        return workMode;
+    }
+
+    public String[] getTags() {
+        checkData();
+        String[] value = tags;
+        if (value == null) {
+            ByteBuffer buffer = at(tagsOffset);
+            value = new String[ServiceInstanceCodec.readVarInt(buffer)];
+            for (int i = 0; i < value.length; i++) {
+                value[i] = ServiceInstanceCodec.readString(buffer);
+            }
+            tags = value;
+        }
+        return value.clone();
+    }
+
+    public Map<String, Integer> getPorts() {
+        checkData();
+        Map<String, Integer> value = ports;
+        if (value == null) {
+            ByteBuffer buffer = at(portsOffset);
+            int count = ServiceInstanceCodec.readVarInt(buffer);
+            Map<String, Integer> map = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                map.put(ServiceInstanceCodec.readWellKnownString(buffer), ServiceInstanceCodec.readVarInt(buffer));
+            }
+            ports = value = Collections.unmodifiableMap(map);
+        }
+        return value;
+    }
+
+    /**
+     * has the instance status.
+     *
+     * @return true if the instance has status, the status getters throw {@link IllegalStateException} if not
+     */
+    public boolean hasStatus() {
+        return hasStatus;
+    }
+
+    public Status getStatus() {
+        checkStatus();
+        return status;
+    }
+
+    public boolean isOnline() {
+        return status == Status.ONLINE;
+    }
+
+    public long getLastUpdateTime() {
+        checkStatus();
+        return lastUpdateTime;
+    }
+
+    public String getComment() {
+        checkStatus();
+        if (!commentDecoded) {
+            comment = ServiceInstanceCodec.readNullableString(at(commentOffset));
+            commentDecoded = true;
+        }
+        return comment;
+    }
+
+    public long getLeaseId() {
+        checkStatus();
+        return leaseId;
+    }
+
+    /**
+     * decode an owned instance from the buffer.
+     *
+     * @return service instance
+     */
+    public ServiceInstance toServiceInstance() {
+        return ServiceInstanceCodec.readInstance(at(groupOffset));
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceInstanceView{" +
+                "group='" + getGroup() + '\'' +
+                ", service='" + getService() + '\'' +
+                ", ip='" + getIp() + '\'' +
+                ", port=" + port +
+                '}';
+    }
+
+    private ByteBuffer at(int offset) {
+        ByteBuffer buffer = source.duplicate();
+        buffer.limit(buffer.capacity()).position(offset);
+        return buffer;
+    }
+
+    private void checkData() {
+        checkState(hasData, "instance has no data");
+    }
+
+    private void checkStatus() {
+        checkState(hasStatus, "instance has no status");
+    }
+}
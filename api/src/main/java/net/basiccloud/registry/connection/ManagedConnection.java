@@ -0,0 +1,272 @@
+package net.basiccloud.registry.connection;
+
+import net.basiccloud.registry.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Shared connection of one registry url: reference count, current backend, and reconnect.
+ */
+final class ManagedConnection {
+
+    private static Logger logger = LoggerFactory.getLogger(ManagedConnection.class);
+
+    private final ServiceRegistryConnectionManager manager;
+    private final RegistryConfig config;
+    private final String registryUrl;
+
+    private final ManagedServiceRegistryClient client = new ManagedServiceRegistryClient(this);
+    private final ManagedServiceRegistryServer server = new ManagedServiceRegistryServer(this);
+    private final ManagedServiceRegistryAdmin admin = new ManagedServiceRegistryAdmin(this);
+
+    private final AtomicBoolean reconnecting = new AtomicBoolean();
+    private final AtomicLong reconnectCount = new AtomicLong();
+    private volatile Backend backend;
+    private volatile boolean closed;
+    /**
+     * guarded by the connections of the manager.
+     */
+    private int references;
+
+    ManagedConnection(ServiceRegistryConnectionManager manager, String registryUrl, RegistryConfig config) {
+        this.manager = manager;
+        this.registryUrl = registryUrl;
+        this.config = config;
+    }
+
+    /**
+     * connect the first backend unless connected, concurrent acquires of the same url wait for the first connect.
+     *
+     * @throws ServiceRegistryConnectionException if fail to connect
+     */
+    synchronized void open() {
+        checkState(!closed, "connection is closed: registryUrl=" + registryUrl);
+        if (backend == null) {
+            this.backend = newBackend();
+        }
+    }
+
+    /**
+     * add a reference, called by the manager holding its lock.
+     */
+    void retain() {
+        references++;
+    }
+
+    /**
+     * remove a reference, called by the manager holding its lock.
+     *
+     * @return references left
+     */
+    int release() {
+        return --references;
+    }
+
+    /**
+     * release the reference of a closed handle.
+     */
+    void releaseHandle() {
+        manager.release(this);
+    }
+
+    /**
+     * close the connection, the active registrations are deregistered and the backend is closed. Called by the
+     * manager without holding its lock.
+     */
+    void close() {
+        Backend current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = backend;
+        }
+        if (current != null) {
+            retire(current, server.getCurrentIds());
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    RegistryConfig getConfig() {
+        return config;
+    }
+
+    String getRegistryUrl() {
+        return registryUrl;
+    }
+
+    ManagedServiceRegistryClient getClient() {
+        return client;
+    }
+
+    ManagedServiceRegistryServer getServer() {
+        return server;
+    }
+
+    ManagedServiceRegistryAdmin getAdmin() {
+        return admin;
+    }
+
+    boolean isReconnecting() {
+        return reconnecting.get();
+    }
+
+    long getReconnectCount() {
+        return reconnectCount.get();
+    }
+
+    Backend getBackend() {
+        checkState(!closed, "connection is closed: registryUrl=" + registryUrl);
+        return backend;
+    }
+
+    /**
+     * called when a call fails to reach the registry, start reconnecting unless already.
+     *
+     * @param cause failure
+     */
+    void onFailure(Throwable cause) {
+        if (closed || !reconnecting.compareAndSet(false, true)) {
+            return;
+        }
+        logger.warn("registry connection failed, reconnecting: registryUrl={}", registryUrl, cause);
+        manager.scheduleReconnect(() -> reconnect(0), 0);
+    }
+
+    private void reconnect(int attempt) {
+        if (closed) {
+            reconnecting.set(false);
+            return;
+        }
+        Backend newBackend = null;
+        try {
+            newBackend = newBackend();
+            Backend replacing = newBackend;
+            Backend[] oldBackend = new Backend[1];
+            List<RegisterId> oldIds = new ArrayList<>();
+            // switch while holding the watches and registrations, so a watch or register goes either to the old
+            // backend and is replayed, or to the new backend only
+            client.replay(replacing.client, () -> oldIds.addAll(server.replay(replacing.server,
+                    () -> oldBackend[0] = switchBackend(replacing))));
+            reconnectCount.incrementAndGet();
+            reconnecting.set(false);
+            logger.info("registry reconnected: registryUrl={}, attempts={}", registryUrl, attempt + 1);
+            retire(oldBackend[0], oldIds);
+        } catch (RuntimeException e) {
+            if (newBackend != null) {
+                closeQuietly(newBackend.conn);
+            }
+            if (closed) {
+                reconnecting.set(false);
+                return;
+            }
+            int failures = attempt + 1;
+            long backoffMillis = manager.backoffMillis(failures);
+            logger.warn("fail to reconnect registry, retry later: registryUrl={}, attempts={}, backoff={}ms",
+                    registryUrl, failures, backoffMillis, e);
+            manager.scheduleReconnect(() -> reconnect(failures), backoffMillis);
+        }
+    }
+
+    /**
+     * switch to the new backend unless closed meanwhile.
+     *
+     * @return the replaced backend
+     */
+    private synchronized Backend switchBackend(Backend newBackend) {
+        checkState(!closed, "connection is closed: registryUrl=" + registryUrl);
+        Backend oldBackend = backend;
+        this.backend = newBackend;
+        return oldBackend;
+    }
+
+    /**
+     * deregister what is still registered on a replaced or closing backend, then close it.
+     */
+    private void retire(Backend oldBackend, List<RegisterId> registerIds) {
+        ManagedServiceRegistryServer.deregisterQuietly(oldBackend.server, registerIds);
+        closeQuietly(oldBackend.conn);
+    }
+
+    private void closeQuietly(ServiceRegistryConnection conn) {
+        try {
+            conn.close();
+        } catch (RuntimeException e) {
+            logger.warn("fail to close registry connection: registryUrl={}", registryUrl, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Backend newBackend() {
+        ServiceRegistryFactory factory = manager.getFactory();
+        ServiceRegistryConnection conn = factory.connect(config);
+        if (conn == null) {
+            throw new ServiceRegistryConnectionException("factory returns no connection: registryUrl=" + registryUrl);
+        }
+        connect(conn);
+        try {
+            return new Backend(conn, factory.getClient(conn), factory.getServer(conn), factory.getAdmin(conn));
+        } catch (RuntimeException e) {
+            closeQuietly(conn);
+            throw e;
+        }
+    }
+
+    /**
+     * connect within the connect timeout of the config, the connection is closed if it fails.
+     */
+    private void connect(ServiceRegistryConnection conn) {
+        long timeoutMillis = config.getConnectTimeoutMillis();
+        try {
+            conn.connectAsync().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            conn.close();
+            throw new ServiceRegistryConnectionException("fail to connect in " + timeoutMillis
+                    + "ms: registryUrl=" + registryUrl, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            conn.close();
+            throw new ServiceRegistryConnectionException("interrupted while connecting: registryUrl=" + registryUrl,
+                    e);
+        } catch (ExecutionException e) {
+            conn.close();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ServiceRegistryConnectionException("fail to connect: registryUrl=" + registryUrl,
+                    e.getCause());
+        }
+    }
+
+    /**
+     * connection, client, server and admin of the factory.
+     */
+    static final class Backend {
+        final ServiceRegistryConnection conn;
+        final ServiceRegistryClient client;
+        final ServiceRegistryServer<RegisterId> server;
+        final ServiceRegistryAdmin admin;
+
+        private Backend(ServiceRegistryConnection conn, ServiceRegistryClient client,
+                        ServiceRegistryServer<RegisterId> server, ServiceRegistryAdmin admin) {
+            this.conn = conn;
+            this.client = client;
+            this.server = server;
+            this.admin = admin;
+        }
+    }
+}
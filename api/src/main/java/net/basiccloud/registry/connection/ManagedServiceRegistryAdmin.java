@@ -0,0 +1,33 @@
+package net.basiccloud.registry.connection;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceRegistryAdmin;
+import net.basiccloud.registry.ServiceRegistryConnectionException;
+
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * admin of a {@link ManagedConnection}, calls the current backend admin.
+ */
+class ManagedServiceRegistryAdmin implements ServiceRegistryAdmin {
+
+    private final ManagedConnection connection;
+
+    ManagedServiceRegistryAdmin(ManagedConnection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public Optional<ServiceInstance> getInstance(String group, String service, String ip, int port) {
+        ServiceRegistryAdmin admin = connection.getBackend().admin;
+        checkState(admin != null, "factory returns no admin");
+        try {
+            return admin.getInstance(group, service, ip, port);
+        } catch (ServiceRegistryConnectionException e) {
+            connection.onFailure(e);
+            throw e;
+        }
+    }
+}
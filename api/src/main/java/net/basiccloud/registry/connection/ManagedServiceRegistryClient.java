@@ -0,0 +1,214 @@
+package net.basiccloud.registry.connection;
+
+import net.basiccloud.registry.*;
+import net.basiccloud.registry.watch.CoalescingClientListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * client of a {@link ManagedConnection}, calls the current backend client and keeps the active watches to replay
+ * them after reconnect.
+ *
+ * <p>Listeners are watched through forwarding listeners, detached when the backend is replaced so a replaced backend
+ * can not deliver updates any more.
+ */
+class ManagedServiceRegistryClient implements ServiceRegistryClient {
+
+    private final ManagedConnection connection;
+    private final List<Watch> watches = new ArrayList<>();
+
+    ManagedServiceRegistryClient(ManagedConnection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public List<ServiceInstance> discover(String group, String service) {
+        try {
+            return client().discover(group, service);
+        } catch (ServiceRegistryConnectionException e) {
+            connection.onFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<ServiceInstance> discover(String group, String service, Version version) {
+        try {
+            return client().discover(group, service, version);
+        } catch (ServiceRegistryConnectionException e) {
+            connection.onFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<ServiceInstance> discover(String group, String service, TagQuery query) {
+        try {
+            return client().discover(group, service, query);
+        } catch (ServiceRegistryConnectionException e) {
+            connection.onFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<ServiceInstance>> discoverAsync(String group, String service) {
+        return detectFailure(client().discoverAsync(group, service));
+    }
+
+    @Override
+    public CompletableFuture<List<ServiceInstance>> discoverAsync(String group, String service, Version version) {
+        return detectFailure(client().discoverAsync(group, service, version));
+    }
+
+    /**
+     * watch on the current backend client, the watch is replayed after reconnect if it succeeds. Updates are
+     * coalesced when the config has a watch window, see {@link RegistryConfig#getWatchWindowMillis()}.
+     */
+    @Override
+    public boolean watch(String group, String service, Version version, ClientListener clientListener) {
+        long windowMillis = connection.getConfig().getWatchWindowMillis();
+        ClientListener listener = windowMillis == 0 || clientListener instanceof CoalescingClientListener
+                ? clientListener : CoalescingClientListener.newBuilder()
+                .setListener(clientListener)
+                .setWindowMillis(windowMillis)
+                .build();
+        return watch(new Watch(group, service, version, listener, null));
+    }
+
+    /**
+     * watch delta on the current backend client, the watch is replayed after reconnect if it succeeds.
+     */
+    @Override
+    public boolean watchDelta(String group, String service, Version version, DeltaListener deltaListener) {
+        return watch(new Watch(group, service, version, null, deltaListener));
+    }
+
+    /**
+     * number of active watches.
+     *
+     * @return watch count
+     */
+    int getWatchCount() {
+        synchronized (watches) {
+            return watches.size();
+        }
+    }
+
+    /**
+     * watch again on the client of the new backend, then switch to it holding the watches.
+     *
+     * @param newClient     client of the new backend
+     * @param switchBackend switch to the new backend, called when all watches are replayed
+     * @throws ServiceRegistryConnectionException if a watch fails
+     */
+    void replay(ServiceRegistryClient newClient, Runnable switchBackend) {
+        synchronized (watches) {
+            List<AtomicBoolean> attachments = new ArrayList<>(watches.size());
+            try {
+                checkState(newClient != null || watches.isEmpty(), "factory returns no client");
+                for (Watch watch : watches) {
+                    AtomicBoolean attached = watch.attach(newClient);
+                    if (attached == null) {
+                        throw new ServiceRegistryConnectionException("fail to replay watch: group=" + watch.group
+                                + ", service=" + watch.service + ", version=" + watch.version);
+                    }
+                    attachments.add(attached);
+                }
+                switchBackend.run();
+            } catch (RuntimeException e) {
+                // the new backend is dropped
+                attachments.forEach(attached -> attached.set(false));
+                throw e;
+            }
+            for (int i = 0; i < watches.size(); i++) {
+                Watch watch = watches.get(i);
+                watch.attached.set(false);
+                watch.attached = attachments.get(i);
+            }
+        }
+    }
+
+    private boolean watch(Watch watch) {
+        synchronized (watches) {
+            AtomicBoolean attached;
+            try {
+                attached = watch.attach(client());
+            } catch (ServiceRegistryConnectionException e) {
+                connection.onFailure(e);
+                throw e;
+            }
+            if (attached == null) {
+                return false;
+            }
+            watch.attached = attached;
+            watches.add(watch);
+            return true;
+        }
+    }
+
+    private ServiceRegistryClient client() {
+        ServiceRegistryClient client = connection.getBackend().client;
+        checkState(client != null, "factory returns no client");
+        return client;
+    }
+
+    private <T> CompletableFuture<T> detectFailure(CompletableFuture<T> future) {
+        return future.whenComplete((result, e) -> {
+            Throwable cause = e != null && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof ServiceRegistryConnectionException) {
+                connection.onFailure(cause);
+            }
+        });
+    }
+
+    private static final class Watch {
+        private final String group;
+        private final String service;
+        private final Version version;
+        private final ClientListener clientListener;
+        private final DeltaListener deltaListener;
+        /**
+         * attachment to the current backend, guarded by the watches.
+         */
+        private AtomicBoolean attached;
+
+        private Watch(String group, String service, Version version, ClientListener clientListener,
+                      DeltaListener deltaListener) {
+            this.group = group;
+            this.service = service;
+            this.version = version;
+            this.clientListener = clientListener;
+            this.deltaListener = deltaListener;
+        }
+
+        /**
+         * watch on given client with a listener forwarding until detached.
+         *
+         * @return the attachment, clear it to detach, null if not watched
+         */
+        private AtomicBoolean attach(ServiceRegistryClient client) {
+            AtomicBoolean attached = new AtomicBoolean(true);
+            boolean watched;
+            if (clientListener != null) {
+                watched = client.watch(group, service, version, list -> {
+                    if (attached.get()) {
+                        clientListener.update(list);
+                    }
+                });
+            } else {
+                watched = client.watchDelta(group, service, version, delta -> {
+                    if (attached.get()) {
+                        deltaListener.update(delta);
+                    }
+                });
+            }
+            return watched ? attached : null;
+        }
+    }
+}
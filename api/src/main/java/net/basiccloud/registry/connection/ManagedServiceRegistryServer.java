@@ -0,0 +1,211 @@
+package net.basiccloud.registry.connection;
+
+import net.basiccloud.registry.BatchResult;
+import net.basiccloud.registry.RegisterId;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstancePatch;
+import net.basiccloud.registry.ServiceRegistryConnectionException;
+import net.basiccloud.registry.ServiceRegistryServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * server of a {@link ManagedConnection}, registers on the current backend server and keeps the active registrations
+ * to register them again after reconnect.
+ *
+ * <p>The register id returned by the first register stays valid: a deregister or patch with it uses the id of the
+ * latest replay. Patches are applied to the kept registrations too, so a replay registers the patched instances.
+ */
+class ManagedServiceRegistryServer implements ServiceRegistryServer<RegisterId> {
+
+    private static Logger logger = LoggerFactory.getLogger(ManagedServiceRegistryServer.class);
+
+    private final ManagedConnection connection;
+    private final Map<RegisterId, Registration> registrations = new IdentityHashMap<>();
+
+    ManagedServiceRegistryServer(ManagedConnection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public RegisterId register(ServiceInstance serviceInstance) {
+        synchronized (registrations) {
+            RegisterId registerId;
+            try {
+                registerId = server().register(serviceInstance);
+            } catch (ServiceRegistryConnectionException e) {
+                connection.onFailure(e);
+                throw e;
+            }
+            registrations.put(registerId, new Registration(serviceInstance, registerId));
+            return registerId;
+        }
+    }
+
+    /**
+     * deregister, the registration is not replayed any more even if the deregister fails.
+     */
+    @Override
+    public void deregister(RegisterId registerId) {
+        synchronized (registrations) {
+            Registration registration = registrations.remove(registerId);
+            try {
+                server().deregister(registration == null ? registerId : registration.currentId);
+            } catch (ServiceRegistryConnectionException e) {
+                connection.onFailure(e);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void patch(RegisterId registerId, ServiceInstancePatch patch) {
+        synchronized (registrations) {
+            Registration registration = registrations.get(registerId);
+            try {
+                server().patch(registration == null ? registerId : registration.currentId, patch);
+            } catch (ServiceRegistryConnectionException e) {
+                connection.onFailure(e);
+                throw e;
+            }
+            if (registration != null) {
+                registration.instance = patch.applyTo(registration.instance);
+            }
+        }
+    }
+
+    /**
+     * patch in batch on the current backend server, the registrations patched successfully are patched for replay.
+     */
+    @Override
+    public BatchResult<RegisterId, Void> patchAll(Collection<RegisterId> registerIds, ServiceInstancePatch patch) {
+        synchronized (registrations) {
+            List<RegisterId> currentIds = new ArrayList<>(registerIds.size());
+            for (RegisterId registerId : registerIds) {
+                Registration registration = registrations.get(registerId);
+                currentIds.add(registration == null ? registerId : registration.currentId);
+            }
+            BatchResult<RegisterId, Void> result;
+            try {
+                result = server().patchAll(currentIds, patch);
+            } catch (ServiceRegistryConnectionException e) {
+                connection.onFailure(e);
+                throw e;
+            }
+
+            BatchResult.Builder<RegisterId, Void> builder = BatchResult.newBuilder();
+            int index = 0;
+            for (RegisterId registerId : registerIds) {
+                BatchResult.Item<RegisterId, Void> item = result.getItems().get(index++);
+                if (item.isSuccess()) {
+                    Registration registration = registrations.get(registerId);
+                    if (registration != null) {
+                        registration.instance = patch.applyTo(registration.instance);
+                    }
+                    builder.addSuccess(registerId, null);
+                } else {
+                    if (item.getError() instanceof ServiceRegistryConnectionException) {
+                        connection.onFailure(item.getError());
+                    }
+                    builder.addFailure(registerId, item.getError());
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * number of active registrations.
+     *
+     * @return registration count
+     */
+    int getRegistrationCount() {
+        synchronized (registrations) {
+            return registrations.size();
+        }
+    }
+
+    /**
+     * register ids of the active registrations on the current backend server.
+     *
+     * @return current register ids
+     */
+    List<RegisterId> getCurrentIds() {
+        synchronized (registrations) {
+            List<RegisterId> currentIds = new ArrayList<>(registrations.size());
+            registrations.values().forEach(registration -> currentIds.add(registration.currentId));
+            return currentIds;
+        }
+    }
+
+    /**
+     * register again on the server of the new backend, then switch to it holding the registrations. If a register
+     * or the switch fails, the registrations already replayed are deregistered from the new server.
+     *
+     * @param newServer     server of the new backend
+     * @param switchBackend switch to the new backend, called when all registrations are replayed
+     * @return register ids on the server of the replaced backend
+     * @throws ServiceRegistryConnectionException if a register fails
+     */
+    List<RegisterId> replay(ServiceRegistryServer<RegisterId> newServer, Runnable switchBackend) {
+        synchronized (registrations) {
+            checkState(newServer != null || registrations.isEmpty(), "factory returns no server");
+            Map<Registration, RegisterId> newIds = new IdentityHashMap<>();
+            try {
+                for (Registration registration : registrations.values()) {
+                    newIds.put(registration, newServer.register(registration.instance));
+                }
+                switchBackend.run();
+            } catch (RuntimeException e) {
+                deregisterQuietly(newServer, newIds.values());
+                throw e;
+            }
+            List<RegisterId> oldIds = new ArrayList<>(newIds.size());
+            newIds.forEach((registration, newId) -> {
+                oldIds.add(registration.currentId);
+                registration.currentId = newId;
+            });
+            return oldIds;
+        }
+    }
+
+    /**
+     * deregister from a server that is going to be closed, failures are logged only.
+     *
+     * @param server      server to deregister from, may be null if there is nothing to deregister
+     * @param registerIds register ids on the server
+     */
+    static void deregisterQuietly(ServiceRegistryServer<RegisterId> server, Collection<RegisterId> registerIds) {
+        for (RegisterId registerId : registerIds) {
+            try {
+                server.deregister(registerId);
+            } catch (RuntimeException e) {
+                logger.warn("fail to deregister from a closing backend: registerId={}", registerId, e);
+            }
+        }
+    }
+
+    private ServiceRegistryServer<RegisterId> server() {
+        ServiceRegistryServer<RegisterId> server = connection.getBackend().server;
+        checkState(server != null, "factory returns no server");
+        return server;
+    }
+
+    private static final class Registration {
+        private ServiceInstance instance;
+        private RegisterId currentId;
+
+        private Registration(ServiceInstance instance, RegisterId currentId) {
+            this.instance = instance;
+            this.currentId = currentId;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package net.basiccloud.registry.connection;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.basiccloud.registry.RegistryConfig;
+import net.basiccloud.registry.ServiceRegistryConnectionException;
+import net.basiccloud.registry.ServiceRegistryFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Shares connections of one {@link ServiceRegistryFactory} between the clients, servers and admins of a JVM.
+ *
+ * <p>{@link #acquire(Map)} returns a handle of the connection of the registry url parsed from the parameters, the
+ * first acquire of an url connects, and the connection is dropped when the last handle is closed. Clients, servers
+ * and admins got from the handles are shared per connection. The parameters are parsed once into a
+ * {@link RegistryConfig} given to {@link ServiceRegistryFactory#connect(RegistryConfig)}; its connect timeout
+ * bounds every connect, and its watch window coalesces the updates of the watches.
+ *
+ * <p>When a call throws {@link ServiceRegistryConnectionException}, the connection reconnects in background: a new
+ * backend connection, client, server and admin are created by the factory, retried with jittered exponential
+ * backoff, then the active watches and registrations are replayed on them. The client, server and admin held by the
+ * callers switch to the new backend, so they do not need to be rebuilt.
+ */
+public class ServiceRegistryConnectionManager implements Closeable {
+
+    private final ServiceRegistryFactory factory;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final ScheduledExecutorService reconnectExecutor;
+
+    private final Map<String, ManagedConnection> connections = new HashMap<>();
+    private boolean closed;
+
+    private ServiceRegistryConnectionManager(ServiceRegistryFactory factory, long initialBackoffMillis,
+                                             long maxBackoffMillis) {
+        this.factory = factory;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.reconnectExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("registry-reconnect-%d").setDaemon(true).build());
+    }
+
+    /**
+     * acquire the shared connection of the registry url of given parameters, connect if not connected yet.
+     *
+     * @param parameters connection parameters, with registry url
+     * @return a new handle of the shared connection, close it to release the connection
+     * @throws IllegalArgumentException           if no registry url in parameters
+     * @throws ServiceRegistryConnectionException if fail to connect
+     */
+    public SharedServiceRegistryConnection acquire(Map<String, String> parameters) {
+        checkNotNull(parameters, "parameters should not be null");
+        RegistryConfig config = RegistryConfig.parse(parameters);
+        String registryUrl = config.getRegistryUrl()
+                .orElseThrow(() -> new IllegalArgumentException("registryUrl should be in parameters"));
+        ManagedConnection connection;
+        synchronized (connections) {
+            checkState(!closed, "connection manager is closed");
+            connection = connections.computeIfAbsent(registryUrl,
+                    url -> new ManagedConnection(this, url, config));
+            connection.retain();
+        }
+        // connect out of the lock, acquires of other urls do not wait for it
+        try {
+            connection.open();
+        } catch (RuntimeException e) {
+            release(connection);
+            throw e;
+        }
+        return new SharedServiceRegistryConnection(connection);
+    }
+
+    /**
+     * number of connections shared.
+     *
+     * @return number of connections
+     */
+    public int getConnectionCount() {
+        synchronized (connections) {
+            return connections.size();
+        }
+    }
+
+    /**
+     * close the manager, stop reconnecting, handles acquired can not be used any more.
+     */
+    @Override
+    public void close() {
+        List<ManagedConnection> closing;
+        synchronized (connections) {
+            closed = true;
+            closing = new ArrayList<>(connections.values());
+            connections.clear();
+        }
+        reconnectExecutor.shutdownNow();
+        closing.forEach(ManagedConnection::close);
+    }
+
+    ServiceRegistryFactory getFactory() {
+        return factory;
+    }
+
+    void release(ManagedConnection connection) {
+        synchronized (connections) {
+            if (connection.release() != 0) {
+                return;
+            }
+            connections.remove(connection.getRegistryUrl(), connection);
+        }
+        // deregister and close outside the lock, the backend may be slow or unreachable
+        connection.close();
+    }
+
+    /**
+     * schedule a reconnect attempt.
+     *
+     * @param task        reconnect task
+     * @param delayMillis delay, see {@link #backoffMillis(int)}
+     */
+    void scheduleReconnect(Runnable task, long delayMillis) {
+        if (!reconnectExecutor.isShutdown()) {
+            reconnectExecutor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * equal jitter: half of the exponential backoff, plus a random part of the other half.
+     */
+    long backoffMillis(int attempt) {
+        if (attempt == 0) {
+            return 0;
+        }
+        long backoff = initialBackoffMillis << Math.min(attempt - 1, 30);
+        if (backoff <= 0 || backoff > maxBackoffMillis) {
+            backoff = maxBackoffMillis;
+        }
+        long half = backoff / 2;
+        return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ServiceRegistryFactory factory;
+        private long initialBackoffMillis = 100;
+        private long maxBackoffMillis = 30000;
+
+        private Builder() {
+
+        }
+
+        /**
+         * set factory of the connections.
+         *
+         * @param factory factory, required
+         * @return builder
+         */
+        public Builder setFactory(ServiceRegistryFactory factory) {
+            this.factory = factory;
+            return this;
+        }
+
+        /**
+         * set backoff after the first failed reconnect, doubled after every failure.
+         *
+         * @param initialBackoffMillis initial backoff in milliseconds, default 100
+         * @return builder
+         */
+        public Builder setInitialBackoffMillis(long initialBackoffMillis) {
+            checkArgument(initialBackoffMillis > 0, "initialBackoffMillis should be positive.");
+            this.initialBackoffMillis = initialBackoffMillis;
+            return this;
+        }
+
+        /**
+         * set max backoff between reconnects.
+         *
+         * @param maxBackoffMillis max backoff in milliseconds, default 30000
+         * @return builder
+         */
+        public Builder setMaxBackoffMillis(long maxBackoffMillis) {
+            checkArgument(maxBackoffMillis > 0, "maxBackoffMillis should be positive.");
+            this.maxBackoffMillis = maxBackoffMillis;
+            return this;
+        }
+
+        public ServiceRegistryConnectionManager build() {
+            checkNotNull(factory, "factory should not be null");
+            checkArgument(maxBackoffMillis >= initialBackoffMillis,
+                    "maxBackoffMillis should not be less than initialBackoffMillis.");
+            return new ServiceRegistryConnectionManager(factory, initialBackoffMillis, maxBackoffMillis);
+        }
+    }
+}
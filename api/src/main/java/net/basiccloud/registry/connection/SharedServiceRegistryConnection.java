@@ -0,0 +1,122 @@
+package net.basiccloud.registry.connection;
+
+import net.basiccloud.registry.*;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Handle of a connection shared by {@link ServiceRegistryConnectionManager}, close it to release the connection.
+ *
+ * <p>All handles of the same registry url return the same client, server and admin, which survive reconnects.
+ */
+public class SharedServiceRegistryConnection implements ServiceRegistryConnection, Closeable {
+
+    private final ManagedConnection connection;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    SharedServiceRegistryConnection(ManagedConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * connect the current backend connection again, reconnect in background if it fails.
+     *
+     * @throws ServiceRegistryConnectionException if fails to connect to registry
+     */
+    @Override
+    public void connect() {
+        checkOpen();
+        try {
+            connection.getBackend().conn.connect();
+        } catch (ServiceRegistryConnectionException e) {
+            connection.onFailure(e);
+            throw e;
+        }
+    }
+
+    public ServiceRegistryClient getClient() {
+        checkOpen();
+        return connection.getClient();
+    }
+
+    public ServiceRegistryServer<RegisterId> getServer() {
+        checkOpen();
+        return connection.getServer();
+    }
+
+    public ServiceRegistryAdmin getAdmin() {
+        checkOpen();
+        return connection.getAdmin();
+    }
+
+    /**
+     * get configuration parsed once when the shared connection was created.
+     *
+     * @return configuration
+     */
+    @Override
+    public RegistryConfig getConfig() {
+        return connection.getConfig();
+    }
+
+    public String getRegistryUrl() {
+        return connection.getRegistryUrl();
+    }
+
+    /**
+     * start reconnecting in background, as if a call failed to reach the registry.
+     */
+    public void reconnect() {
+        checkOpen();
+        connection.onFailure(new ServiceRegistryConnectionException("reconnect requested"));
+    }
+
+    public boolean isReconnecting() {
+        return connection.isReconnecting();
+    }
+
+    /**
+     * number of successful reconnects of the shared connection.
+     *
+     * @return reconnect count
+     */
+    public long getReconnectCount() {
+        return connection.getReconnectCount();
+    }
+
+    /**
+     * number of watches replayed on reconnect.
+     *
+     * @return watch count
+     */
+    public int getWatchCount() {
+        return connection.getClient().getWatchCount();
+    }
+
+    /**
+     * number of registrations replayed on reconnect.
+     *
+     * @return registration count
+     */
+    public int getRegistrationCount() {
+        return connection.getServer().getRegistrationCount();
+    }
+
+    /**
+     * release the shared connection, the last release drops the connection. Closing twice has no effect.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            connection.releaseHandle();
+        }
+    }
+
+    private void checkOpen() {
+        checkState(!closed.get(), "connection handle is closed");
+        checkState(!connection.isClosed(), "connection is closed: registryUrl=" + connection.getRegistryUrl());
+    }
+}
@@ -12,7 +12,7 @@ public abstract class AbstractServiceInstanceFilter implements ServiceInstanceFi
     protected final String name;
 
     public AbstractServiceInstanceFilter(String name) {
-        checkArgument(Strings.isNullOrEmpty(name), "name shold not be null or empty");
+        checkArgument(!Strings.isNullOrEmpty(name), "name should not be null or empty");
         this.name = name;
     }
 
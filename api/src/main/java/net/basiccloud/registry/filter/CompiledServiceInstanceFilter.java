@@ -0,0 +1,160 @@
+package net.basiccloud.registry.filter;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.ServiceInstanceStatus;
+import net.basiccloud.registry.ServiceInstanceStatus.Status;
+import net.basiccloud.registry.Version;
+import net.basiccloud.registry.WorkMode;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Chain of filters compiled into one predicate, an instance passes if it passes all the filters.
+ *
+ * <p>The built-in {@link StatusFilter}, {@link WorkModeFilter}, {@link VersionFilter} and {@link TagFilter} are
+ * fused into field checks of one method in that order, with the tags of all tag filters merged. Other filters
+ * follow cheapest first by {@link ServiceInstanceFilter#getCost()}, and evaluation stops at the first failure.
+ * {@link #filter(List)} filters a list in one pass without intermediate lists.
+ */
+public final class CompiledServiceInstanceFilter implements ServiceInstanceFilter {
+
+    private static final ServiceInstanceFilter[] NO_FILTERS = new ServiceInstanceFilter[0];
+
+    /**
+     * compile given filters.
+     *
+     * @param filters filters
+     * @return compiled filter
+     */
+    public static CompiledServiceInstanceFilter compile(ServiceInstanceFilter... filters) {
+        checkNotNull(filters, "filters should not be null");
+        return compile(Arrays.asList(filters));
+    }
+
+    /**
+     * compile given filters.
+     *
+     * @param filters filters
+     * @return compiled filter
+     */
+    public static CompiledServiceInstanceFilter compile(Collection<? extends ServiceInstanceFilter> filters) {
+        checkNotNull(filters, "filters should not be null");
+        Status status = null;
+        boolean[] workModes = null;
+        Version version = null;
+        Set<String> tags = new LinkedHashSet<>();
+        List<ServiceInstanceFilter> others = new ArrayList<>();
+        for (ServiceInstanceFilter filter : filters) {
+            checkArgument(filter != null, "filter should not be null");
+            if (filter instanceof StatusFilter && status == null) {
+                status = ((StatusFilter) filter).getStatus();
+            } else if (filter instanceof WorkModeFilter && workModes == null) {
+                workModes = new boolean[WorkMode.values().length];
+                for (WorkMode workMode : WorkMode.values()) {
+                    workModes[workMode.ordinal()] = ((WorkModeFilter) filter).accept(workMode);
+                }
+            } else if (filter instanceof VersionFilter && version == null) {
+                version = ((VersionFilter) filter).getVersion();
+            } else if (filter instanceof TagFilter) {
+                Collections.addAll(tags, ((TagFilter) filter).getTags());
+            } else {
+                others.add(filter);
+            }
+        }
+        // stable sort keeps the given order of filters with the same cost
+        others.sort(Comparator.comparingInt(ServiceInstanceFilter::getCost));
+
+        String name = filters.stream().map(ServiceInstanceFilter::getFilterName).collect(Collectors.joining("&"));
+        return new CompiledServiceInstanceFilter(name.isEmpty() ? "CompiledFilter" : name, status, workModes,
+                version, tags.toArray(new String[0]), others.toArray(NO_FILTERS));
+    }
+
+    private final String name;
+    private final Status status;
+    private final boolean[] workModes;
+    private final Version version;
+    private final String[] tags;
+    private final boolean needData;
+    private final ServiceInstanceFilter[] others;
+
+    private CompiledServiceInstanceFilter(String name, Status status, boolean[] workModes, Version version,
+                                          String[] tags, ServiceInstanceFilter[] others) {
+        this.name = name;
+        this.status = status;
+        this.workModes = workModes;
+        this.version = version;
+        this.tags = tags;
+        this.needData = workModes != null || version != null || tags.length > 0;
+        this.others = others;
+    }
+
+    @Override
+    public String getFilterName() {
+        return name;
+    }
+
+    @Override
+    public boolean filter(ServiceInstance instance) {
+        if (status != null) {
+            ServiceInstanceStatus instanceStatus = instance.getStatus();
+            if (instanceStatus == null || instanceStatus.getStatus() != status) {
+                return false;
+            }
+        }
+        if (needData) {
+            ServiceInstanceData data = instance.getData();
+            if (data == null) {
+                return false;
+            }
+            if (workModes != null && !workModes[data.getWorkMode().ordinal()]) {
+                return false;
+            }
+            if (version != null && !data.getServiceVersion().isBackCompatibleWith(version)) {
+                return false;
+            }
+            if (tags.length > 0 && !TagFilter.containsAll(data.getTags(), tags)) {
+                return false;
+            }
+        }
+        for (ServiceInstanceFilter filter : others) {
+            if (!filter.filter(instance)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * filter given instances.
+     *
+     * @param instances instances
+     * @return instances passing the filter, in the given order
+     */
+    public List<ServiceInstance> filter(List<ServiceInstance> instances) {
+        checkNotNull(instances, "instances should not be null");
+        List<ServiceInstance> result = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (filter(instance)) {
+                result.add(instance);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledServiceInstanceFilter{" +
+                "name='" + name + '\'' +
+                ", status=" + status +
+                ", workModes=" + Arrays.toString(workModes) +
+                ", version=" + version +
+                ", tags=" + Arrays.toString(tags) +
+                ", others=" + others.length +
+                '}';
+    }
+}
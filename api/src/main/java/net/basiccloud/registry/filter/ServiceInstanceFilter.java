@@ -9,5 +9,21 @@ public interface ServiceInstanceFilter {
 
     String getFilterName();
 
+    /**
+     * filter given instance.
+     *
+     * @param instance service instance
+     * @return true if the instance passes the filter
+     */
     boolean filter(ServiceInstance instance);
+
+    /**
+     * relative cost of {@link #filter(ServiceInstance)}, {@link CompiledServiceInstanceFilter} evaluates cheaper
+     * filters first.
+     *
+     * @return relative cost, 8 by default
+     */
+    default int getCost() {
+        return 8;
+    }
 }
@@ -1,29 +1,55 @@
 package net.basiccloud.registry.filter;
 
 import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceStatus;
+import net.basiccloud.registry.ServiceInstanceStatus.Status;
+
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Status filter for service instance.
+ * Status filter for service instance, passes instances with given status, {@link Status#ONLINE} by default.
  */
 public class StatusFilter extends AbstractServiceInstanceFilter {
     public static class Builder {
+        private Status status = Status.ONLINE;
+
+        private Builder() {
+
+        }
+
+        public Builder setStatus(Status status) {
+            this.status = checkNotNull(status, "status should not be null.");
+            return this;
+        }
 
+        public StatusFilter build() {
+            return new StatusFilter(status);
+        }
     }
 
     public static Builder newBuilder() {
         return new Builder();
     }
 
+    private final Status status;
 
-    private StatusFilter() {
+    private StatusFilter(Status status) {
         super("StatusFilter");
+        this.status = status;
     }
 
+    public Status getStatus() {
+        return status;
+    }
 
     @Override
     public boolean filter(ServiceInstance instance) {
-        return false;
+        ServiceInstanceStatus instanceStatus = instance.getStatus();
+        return instanceStatus != null && instanceStatus.getStatus() == status;
     }
 
-
+    @Override
+    public int getCost() {
+        return 1;
+    }
 }
@@ -0,0 +1,89 @@
+package net.basiccloud.registry.filter;
+
+import com.google.common.base.Strings;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Tag filter for service instance, passes instances having all given tags.
+ */
+public class TagFilter extends AbstractServiceInstanceFilter {
+    public static class Builder {
+        private Set<String> tags = new LinkedHashSet<>();
+
+        private Builder() {
+
+        }
+
+        public Builder addTag(String... tags) {
+            checkNotNull(tags, "tags should not be null.");
+            for (String tag : tags) {
+                checkArgument(!Strings.isNullOrEmpty(tag), "tag should not be null or empty.");
+                this.tags.add(tag);
+            }
+            return this;
+        }
+
+        public Builder addTag(Collection<String> tagList) {
+            checkNotNull(tagList, "tagList should not be null.");
+            return addTag(tagList.toArray(new String[0]));
+        }
+
+        public TagFilter build() {
+            checkState(!tags.isEmpty(), "at least one tag should be added before build");
+            return new TagFilter(tags.toArray(new String[0]));
+        }
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    private final String[] tags;
+
+    private TagFilter(String[] tags) {
+        super("TagFilter");
+        this.tags = tags;
+    }
+
+    public String[] getTags() {
+        return tags.clone();
+    }
+
+    @Override
+    public boolean filter(ServiceInstance instance) {
+        ServiceInstanceData data = instance.getData();
+        return data != null && containsAll(data.getTags(), tags);
+    }
+
+    @Override
+    public int getCost() {
+        return 4;
+    }
+
+    static boolean containsAll(String[] instanceTags, String[] requiredTags) {
+        for (String required : requiredTags) {
+            if (!contains(instanceTags, required)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(String[] instanceTags, String tag) {
+        for (String instanceTag : instanceTags) {
+            if (instanceTag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,61 @@
+package net.basiccloud.registry.filter;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.Version;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Version filter for service instance, passes instances whose service version is back compatible with given version.
+ */
+public class VersionFilter extends AbstractServiceInstanceFilter {
+    public static class Builder {
+        private Version version;
+
+        private Builder() {
+
+        }
+
+        public Builder setVersion(Version version) {
+            this.version = checkNotNull(version, "version should not be null.");
+            return this;
+        }
+
+        public Builder setVersion(String version) {
+            return setVersion(Version.valueOf(version));
+        }
+
+        public VersionFilter build() {
+            checkState(version != null, "version should be set before build");
+            return new VersionFilter(version);
+        }
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    private final Version version;
+
+    private VersionFilter(Version version) {
+        super("VersionFilter");
+        this.version = version;
+    }
+
+    public Version getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean filter(ServiceInstance instance) {
+        ServiceInstanceData data = instance.getData();
+        return data != null && data.getServiceVersion().isBackCompatibleWith(version);
+    }
+
+    @Override
+    public int getCost() {
+        return 2;
+    }
+}
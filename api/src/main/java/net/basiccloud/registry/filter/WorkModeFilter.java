@@ -0,0 +1,65 @@
+package net.basiccloud.registry.filter;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.WorkMode;
+
+/**
+ * Work mode filter for service instance, passes instances whose work mode is available to the clients.
+ *
+ * <p>{@link WorkMode#DEGRADE} instances pass by default, and can be excluded by the builder.
+ */
+public class WorkModeFilter extends AbstractServiceInstanceFilter {
+    public static class Builder {
+        private boolean includeDegrade = true;
+
+        private Builder() {
+
+        }
+
+        public Builder setIncludeDegrade(boolean includeDegrade) {
+            this.includeDegrade = includeDegrade;
+            return this;
+        }
+
+        public WorkModeFilter build() {
+            return new WorkModeFilter(includeDegrade);
+        }
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    private final boolean includeDegrade;
+
+    private WorkModeFilter(boolean includeDegrade) {
+        super("WorkModeFilter");
+        this.includeDegrade = includeDegrade;
+    }
+
+    public boolean isIncludeDegrade() {
+        return includeDegrade;
+    }
+
+    /**
+     * does given work mode pass the filter.
+     *
+     * @param workMode work mode
+     * @return true if passes
+     */
+    public boolean accept(WorkMode workMode) {
+        return workMode.isAvailable() && (includeDegrade || workMode != WorkMode.DEGRADE);
+    }
+
+    @Override
+    public boolean filter(ServiceInstance instance) {
+        ServiceInstanceData data = instance.getData();
+        return data != null && accept(data.getWorkMode());
+    }
+
+    @Override
+    public int getCost() {
+        return 1;
+    }
+}
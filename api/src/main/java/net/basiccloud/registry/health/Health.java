@@ -0,0 +1,74 @@
+package net.basiccloud.registry.health;
+
+import net.basiccloud.registry.ServiceInstancePatch;
+import net.basiccloud.registry.ServiceInstanceStatus;
+import net.basiccloud.registry.WorkMode;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * health of a service instance reported by a {@link HealthProbe}, from the best to the worst.
+ *
+ * <p>The online status of the instance follows its health. The work mode is changed to {@link WorkMode#DEGRADE} only
+ * from {@link WorkMode#NORMAL}, and back only from {@link WorkMode#DEGRADE}, so a work mode set by operators, like
+ * {@link WorkMode#MAINTENANCE}, is left untouched.
+ */
+public enum Health {
+    /**
+     * healthy, the instance is online.
+     */
+    HEALTHY,
+
+    /**
+     * working with low quality, the instance stays online and degraded.
+     */
+    DEGRADED,
+
+    /**
+     * not working, the instance is offline.
+     */
+    UNHEALTHY;
+
+    /**
+     * is this health worse than given one.
+     *
+     * @param other health to compare
+     * @return true if worse
+     */
+    public boolean isWorseThan(Health other) {
+        return ordinal() > other.ordinal();
+    }
+
+    /**
+     * is an instance of this health kept online.
+     *
+     * @return true if not unhealthy
+     */
+    public boolean isOnline() {
+        return this != UNHEALTHY;
+    }
+
+    /**
+     * create the patch reporting the change from given health to this health, it keeps the lease and comment of the
+     * instance, and the work mode unless set by the change itself.
+     *
+     * @param from health reported before, different from this health
+     * @return patch
+     */
+    public ServiceInstancePatch toPatch(Health from) {
+        checkArgument(from != this, "health should change: health=%s", this);
+        ServiceInstancePatch.Builder builder = ServiceInstancePatch.newBuilder();
+        if (isOnline() != from.isOnline()) {
+            builder.setStatus(ServiceInstanceStatus.newBuilder()
+                    .setStatus(isOnline() ? ServiceInstanceStatus.Status.ONLINE : ServiceInstanceStatus.Status.OFFLINE)
+                    .setLastUpdateTime(System.currentTimeMillis())
+                    .build());
+        }
+        if (this == DEGRADED) {
+            builder.setWorkMode(WorkMode.DEGRADE).setExpectedWorkMode(WorkMode.NORMAL);
+        } else if (from == DEGRADED) {
+            builder.setWorkMode(WorkMode.NORMAL).setExpectedWorkMode(WorkMode.DEGRADE);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,359 @@
+package net.basiccloud.registry.health;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.basiccloud.registry.RegisterId;
+import net.basiccloud.registry.ServiceRegistryServer;
+import net.basiccloud.registry.lease.HashedTimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs {@link HealthProbe}s of registered instances on a schedule and reports the changes of their health to the
+ * registry with {@link ServiceRegistryServer#patch}, so clients stop routing to a sick instance within a few probe
+ * intervals instead of waiting for its lease to expire.
+ *
+ * <p>Probes are scheduled on one {@link HashedTimingWheel} thread and run in a small probe pool (4 threads by
+ * default). Every probe runs once per interval with a random jitter, the first run is spread over the first interval
+ * so thousands of instances are not probed at once. A probe exceeding its timeout is interrupted and counted as
+ * {@link Health#UNHEALTHY}, like a probe throwing an exception. The timeout is reported by a separate report
+ * thread, so probes hanging and ignoring the interrupt can not block it even when they take the whole probe pool.
+ *
+ * <p>The health reported changes when {@code failureThreshold} consecutive probes return the same worse health, or
+ * {@code successThreshold} consecutive probes return the same better health. Every change is sent to the registry,
+ * see {@link Health#toPatch(Health)}; a failed patch is sent again after the next probe. Instances are assumed
+ * {@link Health#HEALTHY} when watched.
+ */
+public class HealthChecker implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(HealthChecker.class);
+
+    public static class Builder {
+        private long intervalMillis = 2000;
+        private long timeoutMillis = 1000;
+        private double jitterRatio = 0.1;
+        private int failureThreshold = 2;
+        private int successThreshold = 2;
+        private int probeThreads = 4;
+        private long tickMillis = 10;
+
+        private Builder() {
+
+        }
+
+        public Builder setIntervalMillis(long intervalMillis) {
+            checkArgument(intervalMillis > 0, "intervalMillis should be positive.");
+            this.intervalMillis = intervalMillis;
+            return this;
+        }
+
+        public Builder setTimeoutMillis(long timeoutMillis) {
+            checkArgument(timeoutMillis > 0, "timeoutMillis should be positive.");
+            this.timeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        /**
+         * set max jitter of the interval, as a ratio of the interval.
+         *
+         * @param jitterRatio ratio between 0 and 1, default 0.1
+         * @return builder
+         */
+        public Builder setJitterRatio(double jitterRatio) {
+            checkArgument(jitterRatio >= 0 && jitterRatio <= 1, "jitterRatio should be between 0 and 1.");
+            this.jitterRatio = jitterRatio;
+            return this;
+        }
+
+        public Builder setFailureThreshold(int failureThreshold) {
+            checkArgument(failureThreshold > 0, "failureThreshold should be positive.");
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        public Builder setSuccessThreshold(int successThreshold) {
+            checkArgument(successThreshold > 0, "successThreshold should be positive.");
+            this.successThreshold = successThreshold;
+            return this;
+        }
+
+        public Builder setProbeThreads(int probeThreads) {
+            checkArgument(probeThreads > 0, "probeThreads should be positive.");
+            this.probeThreads = probeThreads;
+            return this;
+        }
+
+        public Builder setTickMillis(long tickMillis) {
+            checkArgument(tickMillis > 0, "tickMillis should be positive.");
+            this.tickMillis = tickMillis;
+            return this;
+        }
+
+        public HealthChecker build() {
+            return new HealthChecker(this);
+        }
+    }
+
+    /**
+     * create a new builder, default interval is 2s, timeout 1s, jitter 10%, thresholds 2 and 4 probe threads.
+     *
+     * @return a new builder
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * health check of one registered instance.
+     *
+     * @param <R> type of register id
+     */
+    public final class Check<R extends RegisterId> {
+        private final ServiceRegistryServer<R> server;
+        private final R registerId;
+        private final HealthProbe probe;
+        private volatile Health reported = Health.HEALTHY;
+        private volatile Health last;
+        private volatile HashedTimingWheel.Timeout timeout;
+        private volatile boolean cancelled;
+        /**
+         * guarded by this check.
+         */
+        private Health pending;
+        private int pendingCount;
+
+        private Check(ServiceRegistryServer<R> server, R registerId, HealthProbe probe) {
+            this.server = server;
+            this.registerId = registerId;
+            this.probe = probe;
+        }
+
+        public R getRegisterId() {
+            return registerId;
+        }
+
+        /**
+         * get health last reported to the registry.
+         *
+         * @return health reported
+         */
+        public Health getReportedHealth() {
+            return reported;
+        }
+
+        /**
+         * get health returned by the last probe.
+         *
+         * @return health, null if not probed yet
+         */
+        public Health getLastHealth() {
+            return last;
+        }
+
+        /**
+         * stop probing, the health reported is kept in the registry.
+         */
+        public void cancel() {
+            cancelled = true;
+            HashedTimingWheel.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        private void schedule(long delayNanos) {
+            if (!cancelled) {
+                timeout = wheel.schedule(this::probe, delayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void probe() {
+            if (cancelled) {
+                return;
+            }
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicReference<HashedTimingWheel.Timeout> probeTimeout = new AtomicReference<>();
+            Future<?> future;
+            try {
+                future = probeExecutor.submit(() -> {
+                    Health health;
+                    try {
+                        health = checkNotNull(probe.check(), "probe should not return null");
+                    } catch (Exception e) {
+                        probeFailureCount.increment();
+                        logger.debug("health probe failed: registerId={}", registerId, e);
+                        health = Health.UNHEALTHY;
+                    }
+                    if (done.compareAndSet(false, true)) {
+                        HashedTimingWheel.Timeout current = probeTimeout.get();
+                        if (current != null) {
+                            current.cancel();
+                        }
+                        complete(health);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // closed
+                return;
+            }
+            probeTimeout.set(wheel.schedule(() -> {
+                if (done.compareAndSet(false, true)) {
+                    future.cancel(true);
+                    probeFailureCount.increment();
+                    logger.warn("health probe timed out: registerId={}, timeout={}ms", registerId,
+                            TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+                    try {
+                        // never on the probe pool, it may be full of probes ignoring the interrupt
+                        reportExecutor.execute(() -> complete(Health.UNHEALTHY));
+                    } catch (RejectedExecutionException e) {
+                        // closed
+                    }
+                }
+            }, timeoutNanos, TimeUnit.NANOSECONDS));
+            if (done.get()) {
+                // probe finished before its timeout was published
+                probeTimeout.get().cancel();
+            }
+        }
+
+        private void complete(Health health) {
+            probeCount.increment();
+            synchronized (this) {
+                last = health;
+                Health target = transition(health);
+                if (target != null && !cancelled) {
+                    try {
+                        server.patch(registerId, target.toPatch(reported));
+                        logger.info("health changed: registerId={}, from={}, to={}", registerId, reported, target);
+                        reported = target;
+                        pending = null;
+                        pendingCount = 0;
+                        transitionCount.increment();
+                    } catch (RuntimeException e) {
+                        logger.warn("fail to report health, retry after next probe: registerId={}, health={}",
+                                registerId, target, e);
+                    }
+                }
+            }
+            schedule(nextDelayNanos());
+        }
+
+        /**
+         * count the probe result towards a transition.
+         *
+         * @return health to report, null if no transition
+         */
+        private Health transition(Health health) {
+            if (health == reported) {
+                pending = null;
+                pendingCount = 0;
+                return null;
+            }
+            if (health != pending) {
+                pending = health;
+                pendingCount = 0;
+            }
+            pendingCount++;
+            int threshold = health.isWorseThan(reported) ? failureThreshold : successThreshold;
+            return pendingCount >= threshold ? health : null;
+        }
+    }
+
+    private final long intervalNanos;
+    private final long timeoutNanos;
+    private final long jitterNanos;
+    private final int failureThreshold;
+    private final int successThreshold;
+    private final HashedTimingWheel wheel;
+    private final ExecutorService probeExecutor;
+    private final ExecutorService reportExecutor;
+
+    private final LongAdder probeCount = new LongAdder();
+    private final LongAdder probeFailureCount = new LongAdder();
+    private final LongAdder transitionCount = new LongAdder();
+
+    private HealthChecker(Builder builder) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(builder.intervalMillis);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(builder.timeoutMillis);
+        this.jitterNanos = (long) (intervalNanos * builder.jitterRatio);
+        this.failureThreshold = builder.failureThreshold;
+        this.successThreshold = builder.successThreshold;
+        this.wheel = new HashedTimingWheel(builder.tickMillis, TimeUnit.MILLISECONDS, 512, "health-check-timer");
+        this.probeExecutor = Executors.newFixedThreadPool(builder.probeThreads, new ThreadFactoryBuilder()
+                .setNameFormat("health-probe-%d")
+                .setDaemon(true)
+                .build());
+        this.reportExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("health-report-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * start probing a registered instance, the first probe runs within one interval.
+     *
+     * @param server     server the instance is registered with
+     * @param registerId register id of the instance
+     * @param probe      probe of the instance
+     * @param <R>        type of register id
+     * @return the check
+     */
+    public <R extends RegisterId> Check<R> watch(ServiceRegistryServer<R> server, R registerId, HealthProbe probe) {
+        checkNotNull(server, "server should not be null");
+        checkNotNull(registerId, "registerId should not be null");
+        checkNotNull(probe, "probe should not be null");
+        Check<R> check = new Check<>(server, registerId, probe);
+        check.schedule(ThreadLocalRandom.current().nextLong(intervalNanos));
+        return check;
+    }
+
+    /**
+     * number of probes completed, including failures.
+     *
+     * @return probe count
+     */
+    public long getProbeCount() {
+        return probeCount.sum();
+    }
+
+    /**
+     * number of probes throwing an exception or timed out.
+     *
+     * @return probe failure count
+     */
+    public long getProbeFailureCount() {
+        return probeFailureCount.sum();
+    }
+
+    /**
+     * number of health changes reported to the registry.
+     *
+     * @return transition count
+     */
+    public long getTransitionCount() {
+        return transitionCount.sum();
+    }
+
+    /**
+     * stop probing all instances.
+     */
+    @Override
+    public void close() {
+        wheel.close();
+        probeExecutor.shutdownNow();
+        reportExecutor.shutdownNow();
+    }
+
+    private long nextDelayNanos() {
+        return jitterNanos == 0 ? intervalNanos
+                : intervalNanos - jitterNanos + ThreadLocalRandom.current().nextLong(2 * jitterNanos + 1);
+    }
+}
@@ -0,0 +1,16 @@
+package net.basiccloud.registry.health;
+
+/**
+ * user supplied check of the health of the local instance, run by {@link HealthChecker}.
+ */
+@FunctionalInterface
+public interface HealthProbe {
+
+    /**
+     * check the health, the thread is interrupted if the check exceeds the probe timeout.
+     *
+     * @return health of the instance
+     * @throws Exception if the check fails, counted as {@link Health#UNHEALTHY}
+     */
+    Health check() throws Exception;
+}
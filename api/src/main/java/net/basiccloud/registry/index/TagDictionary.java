@@ -0,0 +1,55 @@
+package net.basiccloud.registry.index;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Process wide dictionary interning tags to small integer ids, starting from 0.
+ *
+ * <p>Ids are never released, tags are expected to be a small set of labels like zones and release channels.
+ */
+public final class TagDictionary {
+
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private TagDictionary() {
+        // no instance
+    }
+
+    /**
+     * get id of given tag, assign a new id if the tag is not interned yet.
+     *
+     * @param tag tag
+     * @return id of the tag
+     */
+    public static int intern(String tag) {
+        checkNotNull(tag, "tag should not be null");
+        Integer id = IDS.get(tag);
+        return id != null ? id : IDS.computeIfAbsent(tag, key -> NEXT_ID.getAndIncrement());
+    }
+
+    /**
+     * get id of given tag without interning it.
+     *
+     * @param tag tag
+     * @return id of the tag, -1 if the tag is not interned
+     */
+    public static int find(String tag) {
+        checkNotNull(tag, "tag should not be null");
+        Integer id = IDS.get(tag);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * number of interned tags.
+     *
+     * @return number of interned tags
+     */
+    public static int size() {
+        return IDS.size();
+    }
+}
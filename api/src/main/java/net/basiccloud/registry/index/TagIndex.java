@@ -0,0 +1,199 @@
+package net.basiccloud.registry.index;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.TagQuery;
+
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable bitmap index of service instances by tag.
+ *
+ * <p>Every instance takes a slot, and every tag, interned by {@link TagDictionary}, has a bitmap of the slots of
+ * the instances having it. {@link #find(TagQuery)} evaluates the query as AND, OR and AND NOT of the bitmaps
+ * without comparing any string, then collects the instances of the remaining slots.
+ *
+ * <p>{@link #withAdded(ServiceInstance)} and {@link #withRemoved(ServiceInstance)} return a new index that copies
+ * only the bitmaps of the tags of the instance and shares all the others. Slots of removed instances are reused,
+ * so the instances found are in slot order rather than in registration order.
+ */
+public final class TagIndex {
+
+    /**
+     * index without instance.
+     */
+    public static final TagIndex EMPTY = new TagIndex(new ServiceInstance[0], new BitSet(), new BitSet[0], 0);
+
+    /**
+     * create index of given instances.
+     *
+     * @param instances instances to index
+     * @return the index
+     */
+    public static TagIndex of(Collection<ServiceInstance> instances) {
+        checkNotNull(instances, "instances should not be null");
+        ServiceInstance[] slots = instances.toArray(new ServiceInstance[instances.size()]);
+        BitSet live = new BitSet(slots.length);
+        live.set(0, slots.length);
+        BitSet[] tagBits = new BitSet[0];
+        for (int slot = 0; slot < slots.length; slot++) {
+            for (String tag : tagsOf(slots[slot])) {
+                int id = TagDictionary.intern(tag);
+                if (id >= tagBits.length) {
+                    tagBits = Arrays.copyOf(tagBits, id + 1);
+                }
+                if (tagBits[id] == null) {
+                    tagBits[id] = new BitSet(slots.length);
+                }
+                tagBits[id].set(slot);
+            }
+        }
+        return new TagIndex(slots, live, tagBits, slots.length);
+    }
+
+    private final ServiceInstance[] slots;
+    private final BitSet live;
+    private final BitSet[] tagBits;
+    private final int size;
+
+    private TagIndex(ServiceInstance[] slots, BitSet live, BitSet[] tagBits, int size) {
+        this.slots = slots;
+        this.live = live;
+        this.tagBits = tagBits;
+        this.size = size;
+    }
+
+    /**
+     * find instances matching given query.
+     *
+     * @param query tag query
+     * @return immutable instance list in slot order, empty if no instance
+     */
+    public List<ServiceInstance> find(TagQuery query) {
+        checkNotNull(query, "query should not be null");
+        BitSet result = (BitSet) live.clone();
+        for (String tag : query.getAllOf()) {
+            BitSet bits = bitsOf(tag);
+            if (bits == null) {
+                return Collections.emptyList();
+            }
+            result.and(bits);
+        }
+        String[] anyOf = query.getAnyOf();
+        if (anyOf.length > 0) {
+            BitSet any = new BitSet();
+            for (String tag : anyOf) {
+                BitSet bits = bitsOf(tag);
+                if (bits != null) {
+                    any.or(bits);
+                }
+            }
+            result.and(any);
+        }
+        for (String tag : query.getNoneOf()) {
+            BitSet bits = bitsOf(tag);
+            if (bits != null) {
+                result.andNot(bits);
+            }
+        }
+
+        int count = result.cardinality();
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        ServiceInstance[] found = new ServiceInstance[count];
+        for (int slot = result.nextSetBit(0), i = 0; slot >= 0; slot = result.nextSetBit(slot + 1)) {
+            found[i++] = slots[slot];
+        }
+        return Collections.unmodifiableList(Arrays.asList(found));
+    }
+
+    /**
+     * create a new index with given instance added.
+     *
+     * @param instance instance to add
+     * @return new index
+     */
+    public TagIndex withAdded(ServiceInstance instance) {
+        checkNotNull(instance, "instance should not be null");
+        int slot = live.nextClearBit(0);
+        ServiceInstance[] newSlots = Arrays.copyOf(slots, slot < slots.length ? slots.length
+                : Math.max(8, slots.length * 2));
+        newSlots[slot] = instance;
+        BitSet newLive = (BitSet) live.clone();
+        newLive.set(slot);
+
+        BitSet[] newTagBits = tagBits.clone();
+        for (String tag : tagsOf(instance)) {
+            int id = TagDictionary.intern(tag);
+            if (id >= newTagBits.length) {
+                newTagBits = Arrays.copyOf(newTagBits, id + 1);
+            }
+            BitSet bits = newTagBits[id] == null ? new BitSet() : (BitSet) newTagBits[id].clone();
+            bits.set(slot);
+            newTagBits[id] = bits;
+        }
+        return new TagIndex(newSlots, newLive, newTagBits, size + 1);
+    }
+
+    /**
+     * create a new index with given instance removed, the instance is found by identity then by equals.
+     *
+     * @param instance instance to remove
+     * @return new index, or this index if the instance is not indexed
+     */
+    public TagIndex withRemoved(ServiceInstance instance) {
+        checkNotNull(instance, "instance should not be null");
+        int slot = slotOf(instance);
+        if (slot < 0) {
+            return this;
+        }
+        ServiceInstance removed = slots[slot];
+        ServiceInstance[] newSlots = slots.clone();
+        newSlots[slot] = null;
+        BitSet newLive = (BitSet) live.clone();
+        newLive.clear(slot);
+
+        BitSet[] newTagBits = tagBits.clone();
+        for (String tag : tagsOf(removed)) {
+            int id = TagDictionary.find(tag);
+            BitSet bits = (BitSet) newTagBits[id].clone();
+            bits.clear(slot);
+            newTagBits[id] = bits.isEmpty() ? null : bits;
+        }
+        return new TagIndex(newSlots, newLive, newTagBits, size - 1);
+    }
+
+    /**
+     * number of instances indexed.
+     *
+     * @return number of instances
+     */
+    public int size() {
+        return size;
+    }
+
+    private BitSet bitsOf(String tag) {
+        int id = TagDictionary.find(tag);
+        return id < 0 || id >= tagBits.length ? null : tagBits[id];
+    }
+
+    private int slotOf(ServiceInstance instance) {
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            if (slots[slot] == instance) {
+                return slot;
+            }
+        }
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            if (slots[slot].equals(instance)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private static String[] tagsOf(ServiceInstance instance) {
+        return instance.getData() == null ? new String[0] : instance.getData().getTags();
+    }
+}
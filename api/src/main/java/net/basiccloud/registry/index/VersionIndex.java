@@ -0,0 +1,258 @@
+package net.basiccloud.registry.index;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.Version;
+
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable index of service instances by service version.
+ *
+ * <p>Instances are bucketed by major version, and sorted by minor and patch in each bucket. All instances back
+ * compatible with a target version are then a suffix of the bucket of the same major, which is found by binary
+ * search and returned as a cached view, so {@link #getCompatible(Version)} costs O(log n) and allocates nothing
+ * once the view of the target version is cached.
+ *
+ * <p>{@link #withAdded(ServiceInstance)} and {@link #withRemoved(ServiceInstance)} return a new index sharing
+ * all untouched buckets with this one. Instances without data are not indexed.
+ */
+public final class VersionIndex {
+
+    /**
+     * index without instance.
+     */
+    public static final VersionIndex EMPTY = new VersionIndex(new int[0], new Bucket[0], 0);
+
+    /**
+     * create index of given instances.
+     *
+     * @param instances instances to index
+     * @return the index
+     */
+    public static VersionIndex of(Collection<ServiceInstance> instances) {
+        checkNotNull(instances, "instances should not be null");
+        TreeMap<Integer, List<ServiceInstance>> grouped = new TreeMap<>();
+        for (ServiceInstance instance : instances) {
+            if (instance.getData() != null) {
+                grouped.computeIfAbsent(instance.getData().getServiceVersion().getMajor(), key -> new ArrayList<>())
+                        .add(instance);
+            }
+        }
+
+        int[] majors = new int[grouped.size()];
+        Bucket[] buckets = new Bucket[grouped.size()];
+        int i = 0;
+        int size = 0;
+        for (Map.Entry<Integer, List<ServiceInstance>> entry : grouped.entrySet()) {
+            List<ServiceInstance> list = entry.getValue();
+            // stable sort, instances of the same version keep the given order
+            list.sort(Comparator.comparingInt(VersionIndex::versionOf));
+            majors[i] = entry.getKey();
+            buckets[i] = new Bucket(list.toArray(new ServiceInstance[list.size()]));
+            size += list.size();
+            i++;
+        }
+        return new VersionIndex(majors, buckets, size);
+    }
+
+    private final int[] majors;
+    private final Bucket[] buckets;
+    private final int size;
+
+    private VersionIndex(int[] majors, Bucket[] buckets, int size) {
+        this.majors = majors;
+        this.buckets = buckets;
+        this.size = size;
+    }
+
+    /**
+     * get all instances back compatible with given version, sorted by version.
+     *
+     * @param version target version
+     * @return immutable instance list, empty if no instance
+     */
+    public List<ServiceInstance> getCompatible(Version version) {
+        checkNotNull(version, "version should not be null");
+        int index = Arrays.binarySearch(majors, version.getMajor());
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        return buckets[index].getFrom(version.toPackedInt());
+    }
+
+    /**
+     * number of instances indexed.
+     *
+     * @return number of instances
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * create a new index with given instance added after instances of the same version.
+     *
+     * @param instance instance to add
+     * @return new index, this index if the instance has no data
+     */
+    public VersionIndex withAdded(ServiceInstance instance) {
+        checkNotNull(instance, "instance should not be null");
+        if (instance.getData() == null) {
+            return this;
+        }
+
+        int major = instance.getData().getServiceVersion().getMajor();
+        int index = Arrays.binarySearch(majors, major);
+        if (index >= 0) {
+            Bucket[] newBuckets = buckets.clone();
+            newBuckets[index] = buckets[index].withAdded(instance);
+            return new VersionIndex(majors, newBuckets, size + 1);
+        }
+
+        int insertAt = -index - 1;
+        int[] newMajors = new int[majors.length + 1];
+        Bucket[] newBuckets = new Bucket[buckets.length + 1];
+        System.arraycopy(majors, 0, newMajors, 0, insertAt);
+        System.arraycopy(buckets, 0, newBuckets, 0, insertAt);
+        newMajors[insertAt] = major;
+        newBuckets[insertAt] = new Bucket(new ServiceInstance[]{instance});
+        System.arraycopy(majors, insertAt, newMajors, insertAt + 1, majors.length - insertAt);
+        System.arraycopy(buckets, insertAt, newBuckets, insertAt + 1, buckets.length - insertAt);
+        return new VersionIndex(newMajors, newBuckets, size + 1);
+    }
+
+    /**
+     * create a new index with given instance removed.
+     *
+     * @param instance instance to remove, found by identity first and then by equals
+     * @return new index, this index if the instance is not indexed
+     */
+    public VersionIndex withRemoved(ServiceInstance instance) {
+        checkNotNull(instance, "instance should not be null");
+        if (instance.getData() == null) {
+            return this;
+        }
+
+        int index = Arrays.binarySearch(majors, instance.getData().getServiceVersion().getMajor());
+        if (index < 0) {
+            return this;
+        }
+        Bucket bucket = buckets[index].withRemoved(instance);
+        if (bucket == buckets[index]) {
+            return this;
+        }
+
+        if (bucket != null) {
+            Bucket[] newBuckets = buckets.clone();
+            newBuckets[index] = bucket;
+            return new VersionIndex(majors, newBuckets, size - 1);
+        }
+
+        int[] newMajors = new int[majors.length - 1];
+        Bucket[] newBuckets = new Bucket[buckets.length - 1];
+        System.arraycopy(majors, 0, newMajors, 0, index);
+        System.arraycopy(buckets, 0, newBuckets, 0, index);
+        System.arraycopy(majors, index + 1, newMajors, index, majors.length - index - 1);
+        System.arraycopy(buckets, index + 1, newBuckets, index, buckets.length - index - 1);
+        return new VersionIndex(newMajors, newBuckets, size - 1);
+    }
+
+    private static int versionOf(ServiceInstance instance) {
+        return instance.getData().getServiceVersion().toPackedInt();
+    }
+
+    /**
+     * instances of the same major, sorted by version.
+     */
+    private static final class Bucket {
+
+        private final ServiceInstance[] instances;
+        private final int[] versions;
+
+        /**
+         * cached views, views[i] is the immutable list of instances[i..n).
+         */
+        private final List<ServiceInstance>[] views;
+
+        private Bucket(ServiceInstance[] instances) {
+            this.instances = instances;
+            this.versions = new int[instances.length];
+            for (int i = 0; i < instances.length; i++) {
+                versions[i] = versionOf(instances[i]);
+            }
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<ServiceInstance>[] views = new List[instances.length + 1];
+            this.views = views;
+        }
+
+        private List<ServiceInstance> getFrom(int version) {
+            int from = lowerBound(version);
+            List<ServiceInstance> view = views[from];
+            if (view == null) {
+                // benign race: concurrent readers may create equal views, any of them can be cached
+                view = from == instances.length ? Collections.emptyList()
+                        : Collections.unmodifiableList(Arrays.asList(instances).subList(from, instances.length));
+                views[from] = view;
+            }
+            return view;
+        }
+
+        /**
+         * @return the first position whose version is not less than given version
+         */
+        private int lowerBound(int version) {
+            int low = 0;
+            int high = versions.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (versions[middle] < version) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private Bucket withAdded(ServiceInstance instance) {
+            // insert after instances of the same version
+            int insertAt = lowerBound(versionOf(instance) + 1);
+            ServiceInstance[] newInstances = new ServiceInstance[instances.length + 1];
+            System.arraycopy(instances, 0, newInstances, 0, insertAt);
+            newInstances[insertAt] = instance;
+            System.arraycopy(instances, insertAt, newInstances, insertAt + 1, instances.length - insertAt);
+            return new Bucket(newInstances);
+        }
+
+        /**
+         * @return new bucket, this bucket if not found, null if the bucket becomes empty
+         */
+        private Bucket withRemoved(ServiceInstance instance) {
+            int version = versionOf(instance);
+            int from = lowerBound(version);
+            int found = -1;
+            for (int i = from; i < instances.length && versions[i] == version; i++) {
+                if (instances[i] == instance) {
+                    found = i;
+                    break;
+                }
+                if (found < 0 && instances[i].equals(instance)) {
+                    found = i;
+                }
+            }
+            if (found < 0) {
+                return this;
+            }
+            if (instances.length == 1) {
+                return null;
+            }
+
+            ServiceInstance[] newInstances = new ServiceInstance[instances.length - 1];
+            System.arraycopy(instances, 0, newInstances, 0, found);
+            System.arraycopy(instances, found + 1, newInstances, found, instances.length - found - 1);
+            return new Bucket(newInstances);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package net.basiccloud.registry.lease;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Hashed timing wheel, schedules a large number of timeouts on one thread.
+ *
+ * <p>The wheel has {@code wheelSize} buckets and advances one bucket every {@code tickDuration}, a timeout is
+ * put into the bucket of its deadline and expires when the wheel reaches the bucket for the last round. Adding
+ * and cancelling a timeout are O(1), and the precision of the deadline is one tick.
+ *
+ * <p>Tasks run on the wheel thread, so they should be short or hand over to an executor.
+ */
+public class HashedTimingWheel implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    /**
+     * timeout returned by {@link #schedule(Runnable, long, TimeUnit)}.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadlineNanos;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * cancel the timeout, the task will not run if it has not expired yet.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * get deadline in {@link System#nanoTime()}.
+         *
+         * @return deadline
+         */
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+    }
+
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<Timeout>[] buckets;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean closed;
+    private long tick;
+
+    /**
+     * create and start a timing wheel.
+     *
+     * @param tickDuration  duration of one tick, at least 1 millisecond
+     * @param unit          unit of tickDuration
+     * @param wheelSize     number of buckets, rounded up to power of 2
+     * @param threadFactory factory of the wheel thread
+     */
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int wheelSize, ThreadFactory threadFactory) {
+        checkArgument(unit.toMillis(tickDuration) >= 1, "tickDuration should be at least 1 millisecond");
+        checkArgument(wheelSize > 0 && wheelSize <= 1 << 16, "wheelSize should between 1 and 65536");
+        checkNotNull(threadFactory, "threadFactory should not be null");
+
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.mask = size - 1;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Queue<Timeout>[] buckets = new Queue[size];
+        this.buckets = buckets;
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = threadFactory.newThread(this::run);
+        this.worker.start();
+    }
+
+    /**
+     * create and start a timing wheel with a daemon thread of given name.
+     *
+     * @param tickDuration duration of one tick, at least 1 millisecond
+     * @param unit         unit of tickDuration
+     * @param wheelSize    number of buckets, rounded up to power of 2
+     * @param threadName   name of the wheel thread
+     */
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int wheelSize, String threadName) {
+        this(tickDuration, unit, wheelSize, new ThreadFactoryBuilder().setNameFormat(threadName).setDaemon(true).build());
+    }
+
+    /**
+     * schedule a task.
+     *
+     * @param task  task to run on the wheel thread
+     * @param delay delay, the task expires in the first tick after the delay
+     * @param unit  unit of delay
+     * @return timeout to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        checkNotNull(task, "task should not be null");
+        checkState(!closed, "timing wheel is closed");
+        Timeout timeout = new Timeout(task, System.nanoTime() + Math.max(0, unit.toNanos(delay)));
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * stop the wheel thread, pending timeouts are discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (!closed) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos = deadline - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (closed) {
+                        break;
+                    }
+                    continue;
+                }
+            }
+
+            transferPendingTimeouts();
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+        logger.debug("timing wheel stopped: thread={}", worker.getName());
+    }
+
+    private void transferPendingTimeouts() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            // tick n is processed at startNanos + (n + 1) * tickNanos, find the first one not before the deadline
+            long ticks = Math.max((timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos - 1, tick);
+            timeout.remainingRounds = (ticks - tick) / buckets.length;
+            buckets[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Queue<Timeout> bucket) {
+        for (int i = bucket.size(); i > 0; i--) {
+            Timeout timeout = bucket.poll();
+            if (timeout.cancelled) {
+                continue;
+            }
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                bucket.add(timeout);
+                continue;
+            }
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                logger.error("fail to run timeout task", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package net.basiccloud.registry.lease;
+
+/**
+ * Lease operations of a registry backend, used by {@link LeaseKeepAliveScheduler} and {@link SharedLease}.
+ */
+public interface LeaseClient {
+
+    /**
+     * grant a new lease.
+     *
+     * @param ttlMillis time to live of the lease in milliseconds
+     * @return lease id, positive
+     * @throws net.basiccloud.registry.ServiceRegistryConnectionException if fails to connect to registry
+     */
+    long grant(long ttlMillis);
+
+    /**
+     * renew given lease for another ttl.
+     *
+     * @param leaseId lease id
+     * @return true if renewed, false if the lease has expired or been revoked
+     * @throws net.basiccloud.registry.ServiceRegistryConnectionException if fails to connect to registry
+     */
+    boolean keepAlive(long leaseId);
+
+    /**
+     * revoke given lease, all keys attached to the lease are removed by the registry.
+     *
+     * @param leaseId lease id
+     * @throws net.basiccloud.registry.ServiceRegistryConnectionException if fails to connect to registry
+     */
+    void revoke(long leaseId);
+}
@@ -0,0 +1,264 @@
+package net.basiccloud.registry.lease;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps leases alive from one {@link HashedTimingWheel} thread and a small renewal pool (1 thread by default).
+ *
+ * <p>Every lease is renewed every third of its ttl. A failed renewal is retried every tenth of the ttl until the
+ * lease deadline; after the deadline, or when the registry reports the lease is gone, the lease is lost and its
+ * {@link LeaseListener} is called.
+ */
+public class LeaseKeepAliveScheduler implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(LeaseKeepAliveScheduler.class);
+
+    public static class Builder {
+        private long tickMillis = 100;
+        private int wheelSize = 512;
+        private int renewalThreads = 1;
+
+        private Builder() {
+
+        }
+
+        public Builder setTickMillis(long tickMillis) {
+            checkArgument(tickMillis > 0, "tickMillis should be positive.");
+            this.tickMillis = tickMillis;
+            return this;
+        }
+
+        public Builder setWheelSize(int wheelSize) {
+            checkArgument(wheelSize > 0, "wheelSize should be positive.");
+            this.wheelSize = wheelSize;
+            return this;
+        }
+
+        public Builder setRenewalThreads(int renewalThreads) {
+            checkArgument(renewalThreads > 0, "renewalThreads should be positive.");
+            this.renewalThreads = renewalThreads;
+            return this;
+        }
+
+        public LeaseKeepAliveScheduler build() {
+            return new LeaseKeepAliveScheduler(tickMillis, wheelSize, renewalThreads);
+        }
+    }
+
+    /**
+     * create a new builder, default tick is 100ms, wheel size 512 and 1 renewal thread.
+     *
+     * @return a new builder
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * a lease kept alive by the scheduler.
+     */
+    public final class KeptLease {
+        private final long leaseId;
+        private final long ttlNanos;
+        private final LeaseClient client;
+        private final LeaseListener listener;
+        private volatile long deadlineNanos;
+        private volatile HashedTimingWheel.Timeout timeout;
+        private volatile boolean cancelled;
+        private volatile boolean lost;
+
+        private KeptLease(long leaseId, long ttlNanos, LeaseClient client, LeaseListener listener) {
+            this.leaseId = leaseId;
+            this.ttlNanos = ttlNanos;
+            this.client = client;
+            this.listener = listener;
+            this.deadlineNanos = System.nanoTime() + ttlNanos;
+        }
+
+        public long getLeaseId() {
+            return leaseId;
+        }
+
+        /**
+         * is the lease lost.
+         *
+         * @return true if the lease has expired or not been renewed before its deadline
+         */
+        public boolean isLost() {
+            return lost;
+        }
+
+        /**
+         * stop renewing the lease, the lease itself is not revoked.
+         */
+        public void cancel() {
+            cancelled = true;
+            HashedTimingWheel.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        private void scheduleRenewal(long delayNanos) {
+            if (!cancelled) {
+                timeout = wheel.schedule(() -> renewalExecutor.execute(this::renew), delayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void renew() {
+            if (cancelled) {
+                return;
+            }
+            long start = System.nanoTime();
+            if (start - deadlineNanos >= 0) {
+                missedDeadlineCount.increment();
+                lose();
+                return;
+            }
+
+            boolean alive;
+            try {
+                alive = client.keepAlive(leaseId);
+            } catch (RuntimeException e) {
+                recordLatency(System.nanoTime() - start);
+                renewalFailureCount.increment();
+                logger.warn("fail to renew lease, retry later: leaseId={}", leaseId, e);
+                scheduleRenewal(Math.min(ttlNanos / 10, Math.max(0, deadlineNanos - System.nanoTime())));
+                return;
+            }
+
+            recordLatency(System.nanoTime() - start);
+            if (alive) {
+                renewalCount.increment();
+                deadlineNanos = start + ttlNanos;
+                scheduleRenewal(ttlNanos / 3);
+            } else {
+                renewalFailureCount.increment();
+                lose();
+            }
+        }
+
+        private void lose() {
+            lost = true;
+            logger.warn("lease lost: leaseId={}", leaseId);
+            if (listener != null) {
+                try {
+                    listener.onLeaseLost(leaseId);
+                } catch (RuntimeException e) {
+                    logger.error("fail to notify lease lost: leaseId={}", leaseId, e);
+                }
+            }
+        }
+    }
+
+    private final HashedTimingWheel wheel;
+    private final ExecutorService renewalExecutor;
+
+    private final LongAdder renewalCount = new LongAdder();
+    private final LongAdder renewalFailureCount = new LongAdder();
+    private final LongAdder missedDeadlineCount = new LongAdder();
+    private final LongAdder latencyCount = new LongAdder();
+    private final LongAdder latencyTotalNanos = new LongAdder();
+    private final AtomicLong latencyMaxNanos = new AtomicLong();
+
+    private LeaseKeepAliveScheduler(long tickMillis, int wheelSize, int renewalThreads) {
+        this.wheel = new HashedTimingWheel(tickMillis, TimeUnit.MILLISECONDS, wheelSize, "lease-keepalive-timer");
+        this.renewalExecutor = Executors.newFixedThreadPool(renewalThreads, new ThreadFactoryBuilder()
+                .setNameFormat("lease-keepalive-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * start keeping given lease alive, the first renewal happens after a third of the ttl.
+     *
+     * @param leaseId   lease id granted by the client
+     * @param ttlMillis ttl of the lease in milliseconds
+     * @param client    client to renew the lease
+     * @param listener  listener called when the lease is lost, nullable
+     * @return the kept lease
+     */
+    public KeptLease keepAlive(long leaseId, long ttlMillis, LeaseClient client, LeaseListener listener) {
+        checkArgument(ttlMillis > 0, "ttlMillis should be positive.");
+        checkNotNull(client, "client should not be null");
+        KeptLease lease = new KeptLease(leaseId, TimeUnit.MILLISECONDS.toNanos(ttlMillis), client, listener);
+        lease.scheduleRenewal(lease.ttlNanos / 3);
+        return lease;
+    }
+
+    /**
+     * number of successful renewals.
+     *
+     * @return renewal count
+     */
+    public long getRenewalCount() {
+        return renewalCount.sum();
+    }
+
+    /**
+     * number of failed renewals, including renewals of leases already expired in the registry.
+     *
+     * @return renewal failure count
+     */
+    public long getRenewalFailureCount() {
+        return renewalFailureCount.sum();
+    }
+
+    /**
+     * number of leases not renewed before their deadline.
+     *
+     * @return missed deadline count
+     */
+    public long getMissedDeadlineCount() {
+        return missedDeadlineCount.sum();
+    }
+
+    /**
+     * average latency of renewal calls, successful or not.
+     *
+     * @return average latency in nanoseconds, 0 if no renewal yet
+     */
+    public long getAverageRenewalLatencyNanos() {
+        long count = latencyCount.sum();
+        return count == 0 ? 0 : latencyTotalNanos.sum() / count;
+    }
+
+    /**
+     * max latency of renewal calls, successful or not.
+     *
+     * @return max latency in nanoseconds, 0 if no renewal yet
+     */
+    public long getMaxRenewalLatencyNanos() {
+        return latencyMaxNanos.get();
+    }
+
+    /**
+     * stop renewing all leases.
+     */
+    @Override
+    public void close() {
+        wheel.close();
+        renewalExecutor.shutdownNow();
+    }
+
+    private void recordLatency(long latencyNanos) {
+        latencyCount.increment();
+        latencyTotalNanos.add(latencyNanos);
+        long max;
+        while (latencyNanos > (max = latencyMaxNanos.get())) {
+            if (latencyMaxNanos.compareAndSet(max, latencyNanos)) {
+                break;
+            }
+        }
+    }
+}
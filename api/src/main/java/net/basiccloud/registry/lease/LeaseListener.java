@@ -0,0 +1,16 @@
+package net.basiccloud.registry.lease;
+
+/**
+ * Listener of a lease kept alive by {@link LeaseKeepAliveScheduler}.
+ */
+public interface LeaseListener {
+
+    /**
+     * called when the lease is lost: expired in the registry, or not renewed before its deadline.
+     *
+     * <p>The lease is no longer renewed after this call.
+     *
+     * @param leaseId lease id
+     */
+    void onLeaseLost(long leaseId);
+}
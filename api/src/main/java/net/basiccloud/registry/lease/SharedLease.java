@@ -0,0 +1,97 @@
+package net.basiccloud.registry.lease;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * One lease shared by all instances registered by one {@link net.basiccloud.registry.ServiceRegistryServer}.
+ *
+ * <p>The lease is granted when the first instance acquires it and revoked when the last one releases it, so the
+ * renewal traffic of a process is one keepalive per ttl/3 no matter how many instances it registers.
+ *
+ * <p>If the lease is lost, the next {@link #acquire()} grants a new lease, and the listener given in the
+ * constructor is notified so that the server can register its instances again with the new lease.
+ */
+public class SharedLease {
+
+    private static Logger logger = LoggerFactory.getLogger(SharedLease.class);
+
+    private final LeaseClient client;
+    private final LeaseKeepAliveScheduler scheduler;
+    private final long ttlMillis;
+    private final LeaseListener listener;
+
+    private LeaseKeepAliveScheduler.KeptLease keptLease;
+    private int holders;
+
+    /**
+     * create a shared lease, no lease is granted until {@link #acquire()}.
+     *
+     * @param client    client to grant, renew and revoke the lease
+     * @param scheduler scheduler to keep the lease alive
+     * @param ttlMillis ttl of the lease in milliseconds
+     * @param listener  listener called when the lease is lost, nullable
+     */
+    public SharedLease(LeaseClient client, LeaseKeepAliveScheduler scheduler, long ttlMillis, LeaseListener listener) {
+        checkArgument(ttlMillis > 0, "ttlMillis should be positive.");
+        this.client = checkNotNull(client, "client should not be null");
+        this.scheduler = checkNotNull(scheduler, "scheduler should not be null");
+        this.ttlMillis = ttlMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * acquire the shared lease for one instance, grant it if no valid lease.
+     *
+     * @return lease id to attach the instance to
+     */
+    public synchronized long acquire() {
+        if (keptLease == null || keptLease.isLost()) {
+            long leaseId = client.grant(ttlMillis);
+            keptLease = scheduler.keepAlive(leaseId, ttlMillis, client, this::onLeaseLost);
+            logger.info("shared lease granted: leaseId={}, ttlMillis={}", leaseId, ttlMillis);
+        }
+        holders++;
+        return keptLease.getLeaseId();
+    }
+
+    /**
+     * release the shared lease for one instance, revoke it when no instance holds it.
+     */
+    public synchronized void release() {
+        checkState(holders > 0, "shared lease is not acquired");
+        if (--holders > 0) {
+            return;
+        }
+        LeaseKeepAliveScheduler.KeptLease current = keptLease;
+        keptLease = null;
+        current.cancel();
+        if (!current.isLost()) {
+            client.revoke(current.getLeaseId());
+            logger.info("shared lease revoked: leaseId={}", current.getLeaseId());
+        }
+    }
+
+    /**
+     * get current lease id.
+     *
+     * @return lease id, 0 if no lease is granted
+     */
+    public synchronized long getLeaseId() {
+        return keptLease == null ? 0 : keptLease.getLeaseId();
+    }
+
+    public synchronized int getHolders() {
+        return holders;
+    }
+
+    private void onLeaseLost(long leaseId) {
+        if (listener != null) {
+            listener.onLeaseLost(leaseId);
+        }
+    }
+}
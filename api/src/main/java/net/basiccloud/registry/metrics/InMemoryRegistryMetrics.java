@@ -0,0 +1,87 @@
+package net.basiccloud.registry.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Default {@link RegistryMetrics}, keeps {@link OperationMetrics} in memory per operation and per group/service,
+ * and in total per operation.
+ *
+ * <p>Calls without group or service, like connect and deregister, are counted under the empty string.
+ */
+public class InMemoryRegistryMetrics implements RegistryMetrics {
+
+    private final Map<Operation, OperationMetrics> totals = new EnumMap<>(Operation.class);
+    private final Map<Operation, ConcurrentMap<String, ConcurrentMap<String, OperationMetrics>>> byService =
+            new EnumMap<>(Operation.class);
+
+    public InMemoryRegistryMetrics() {
+        for (Operation operation : Operation.values()) {
+            totals.put(operation, new OperationMetrics());
+            byService.put(operation, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void record(Operation operation, String group, String service, long durationNanos, boolean success) {
+        totals.get(operation).record(durationNanos, success);
+        getOrCreate(operation, nullToEmpty(group), nullToEmpty(service)).record(durationNanos, success);
+    }
+
+    /**
+     * get metrics of all calls of given operation.
+     *
+     * @param operation operation
+     * @return metrics
+     */
+    public OperationMetrics getMetrics(Operation operation) {
+        checkNotNull(operation, "operation should not be null");
+        return totals.get(operation);
+    }
+
+    /**
+     * get metrics of the calls of given operation on given group/service.
+     *
+     * @param operation operation
+     * @param group     group, null for calls without group
+     * @param service   service, null for calls without service
+     * @return metrics, null if no such call recorded
+     */
+    public OperationMetrics getMetrics(Operation operation, String group, String service) {
+        checkNotNull(operation, "operation should not be null");
+        Map<String, OperationMetrics> services = byService.get(operation).get(nullToEmpty(group));
+        return services == null ? null : services.get(nullToEmpty(service));
+    }
+
+    /**
+     * get metrics of given operation per group, then per service.
+     *
+     * @param operation operation
+     * @return live view of the metrics, group and service are empty strings for calls without them
+     */
+    public Map<String, ? extends Map<String, OperationMetrics>> getMetricsByService(Operation operation) {
+        checkNotNull(operation, "operation should not be null");
+        return byService.get(operation);
+    }
+
+    private OperationMetrics getOrCreate(Operation operation, String group, String service) {
+        ConcurrentMap<String, ConcurrentMap<String, OperationMetrics>> groups = byService.get(operation);
+        ConcurrentMap<String, OperationMetrics> services = groups.get(group);
+        if (services == null) {
+            services = groups.computeIfAbsent(group, key -> new ConcurrentHashMap<>());
+        }
+        OperationMetrics metrics = services.get(service);
+        if (metrics == null) {
+            metrics = services.computeIfAbsent(service, key -> new OperationMetrics());
+        }
+        return metrics;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,43 @@
+package net.basiccloud.registry.metrics;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceRegistryAdmin;
+import net.basiccloud.registry.metrics.RegistryMetrics.Operation;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * admin recording {@link Operation#GET_INSTANCE}.
+ */
+class InstrumentedServiceRegistryAdmin implements ServiceRegistryAdmin {
+
+    private final ServiceRegistryAdmin delegate;
+    private final RegistryMetrics metrics;
+
+    InstrumentedServiceRegistryAdmin(ServiceRegistryAdmin delegate, RegistryMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Optional<ServiceInstance> getInstance(String group, String service, String ip, int port) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Optional<ServiceInstance> result = delegate.getInstance(group, service, ip, port);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(Operation.GET_INSTANCE, group, service, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Optional<ServiceInstance>> getInstanceAsync(String group, String service,
+                                                                        String ip, int port) {
+        long start = System.nanoTime();
+        return delegate.getInstanceAsync(group, service, ip, port).whenComplete((result, e) ->
+                metrics.record(Operation.GET_INSTANCE, group, service, System.nanoTime() - start, e == null));
+    }
+}
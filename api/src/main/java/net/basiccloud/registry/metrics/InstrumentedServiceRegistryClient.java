@@ -0,0 +1,110 @@
+package net.basiccloud.registry.metrics;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceRegistryClient;
+import net.basiccloud.registry.TagQuery;
+import net.basiccloud.registry.Version;
+import net.basiccloud.registry.metrics.RegistryMetrics.Operation;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * client recording {@link Operation#DISCOVER} and {@link Operation#WATCH}, a watch returning false is a failure.
+ */
+class InstrumentedServiceRegistryClient implements ServiceRegistryClient {
+
+    private final ServiceRegistryClient delegate;
+    private final RegistryMetrics metrics;
+
+    InstrumentedServiceRegistryClient(ServiceRegistryClient delegate, RegistryMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<ServiceInstance> discover(String group, String service) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<ServiceInstance> result = delegate.discover(group, service);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(Operation.DISCOVER, group, service, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<ServiceInstance> discover(String group, String service, Version version) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<ServiceInstance> result = delegate.discover(group, service, version);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(Operation.DISCOVER, group, service, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public List<ServiceInstance> discover(String group, String service, TagQuery query) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<ServiceInstance> result = delegate.discover(group, service, query);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(Operation.DISCOVER, group, service, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<ServiceInstance>> discoverAsync(String group, String service) {
+        long start = System.nanoTime();
+        return delegate.discoverAsync(group, service).whenComplete((result, e) ->
+                metrics.record(Operation.DISCOVER, group, service, System.nanoTime() - start, e == null));
+    }
+
+    @Override
+    public CompletableFuture<List<ServiceInstance>> discoverAsync(String group, String service, Version version) {
+        long start = System.nanoTime();
+        return delegate.discoverAsync(group, service, version).whenComplete((result, e) ->
+                metrics.record(Operation.DISCOVER, group, service, System.nanoTime() - start, e == null));
+    }
+
+    @Override
+    public boolean watch(String group, String service, Version version, ClientListener clientListener) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            success = delegate.watch(group, service, version, clientListener);
+            return success;
+        } finally {
+            metrics.record(Operation.WATCH, group, service, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> watchAsync(String group, String service, Version version,
+                                                 ClientListener clientListener) {
+        long start = System.nanoTime();
+        return delegate.watchAsync(group, service, version, clientListener).whenComplete((result, e) ->
+                metrics.record(Operation.WATCH, group, service, System.nanoTime() - start,
+                        e == null && Boolean.TRUE.equals(result)));
+    }
+
+    @Override
+    public boolean watchDelta(String group, String service, Version version, DeltaListener deltaListener) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            success = delegate.watchDelta(group, service, version, deltaListener);
+            return success;
+        } finally {
+            metrics.record(Operation.WATCH, group, service, System.nanoTime() - start, success);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package net.basiccloud.registry.metrics;
+
+import net.basiccloud.registry.RegistryConfig;
+import net.basiccloud.registry.ServiceRegistryConnection;
+import net.basiccloud.registry.metrics.RegistryMetrics.Operation;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * connection recording {@link Operation#CONNECT}.
+ */
+class InstrumentedServiceRegistryConnection implements ServiceRegistryConnection {
+
+    private final ServiceRegistryConnection delegate;
+    private final RegistryMetrics metrics;
+
+    InstrumentedServiceRegistryConnection(ServiceRegistryConnection delegate, RegistryMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void connect() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            delegate.connect();
+            success = true;
+        } finally {
+            metrics.record(Operation.CONNECT, null, null, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> connectAsync() {
+        long start = System.nanoTime();
+        return delegate.connectAsync().whenComplete((result, e) ->
+                metrics.record(Operation.CONNECT, null, null, System.nanoTime() - start, e == null));
+    }
+
+    @Override
+    public RegistryConfig getConfig() {
+        return delegate.getConfig();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    ServiceRegistryConnection getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,128 @@
+package net.basiccloud.registry.metrics;
+
+import net.basiccloud.registry.*;
+import net.basiccloud.registry.metrics.RegistryMetrics.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Decorator of {@link ServiceRegistryFactory} recording the latency and the success of every connect, discover,
+ * watch, register, deregister and getInstance call to {@link RegistryMetrics}.
+ *
+ * <p>The connection, client, server and admin returned are decorated too, and the connections returned by
+ * {@link #connect(Map)} and {@link #connect(RegistryConfig)} are unwrapped before given to the delegate factory.
+ * Asynchronous calls are forwarded to the asynchronous methods of the delegate and recorded on completion, so
+ * non-blocking backends stay non-blocking.
+ */
+public class InstrumentedServiceRegistryFactory implements ServiceRegistryFactory {
+
+    private static Logger logger = LoggerFactory.getLogger(InstrumentedServiceRegistryFactory.class);
+
+    private final ServiceRegistryFactory delegate;
+    private final RegistryMetrics metrics;
+
+    /**
+     * decorate given factory.
+     *
+     * @param delegate factory decorated
+     * @param metrics  metrics to record to
+     */
+    public InstrumentedServiceRegistryFactory(ServiceRegistryFactory delegate, RegistryMetrics metrics) {
+        this.delegate = checkNotNull(delegate, "delegate should not be null");
+        this.metrics = checkNotNull(metrics, "metrics should not be null");
+    }
+
+    /**
+     * load the {@link RegistryMetrics} implementation in classpath by {@link ServiceLoader}.
+     *
+     * @return the first implementation found, or a new {@link InMemoryRegistryMetrics} if none
+     */
+    public static RegistryMetrics loadMetrics() {
+        Iterator<RegistryMetrics> iterator = ServiceLoader.load(RegistryMetrics.class).iterator();
+        if (iterator.hasNext()) {
+            RegistryMetrics metrics = iterator.next();
+            logger.info("RegistryMetrics implementation found: class={}", metrics.getClass().getName());
+            return metrics;
+        }
+        return new InMemoryRegistryMetrics();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public int getPriority() {
+        return delegate.getPriority();
+    }
+
+    @Override
+    public ServiceRegistryConnection connect(Map<String, String> parameters) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            ServiceRegistryConnection conn = delegate.connect(parameters);
+            success = true;
+            return conn == null ? null : new InstrumentedServiceRegistryConnection(conn, metrics);
+        } finally {
+            metrics.record(Operation.CONNECT, null, null, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public ServiceRegistryConnection connect(RegistryConfig config) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            ServiceRegistryConnection conn = delegate.connect(config);
+            success = true;
+            return conn == null ? null : new InstrumentedServiceRegistryConnection(conn, metrics);
+        } finally {
+            metrics.record(Operation.CONNECT, null, null, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public ServiceRegistryClient getClient(ServiceRegistryConnection conn) {
+        ServiceRegistryClient client = delegate.getClient(unwrap(conn));
+        return client == null ? null : new InstrumentedServiceRegistryClient(client, metrics);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ServiceRegistryServer getServer(ServiceRegistryConnection conn) {
+        ServiceRegistryServer server = delegate.getServer(unwrap(conn));
+        return server == null ? null : new InstrumentedServiceRegistryServer<>(server, metrics);
+    }
+
+    @Override
+    public ServiceRegistryAdmin getAdmin(ServiceRegistryConnection conn) {
+        ServiceRegistryAdmin admin = delegate.getAdmin(unwrap(conn));
+        return admin == null ? null : new InstrumentedServiceRegistryAdmin(admin, metrics);
+    }
+
+    /**
+     * get the factory decorated.
+     *
+     * @return delegate factory
+     */
+    public ServiceRegistryFactory getDelegate() {
+        return delegate;
+    }
+
+    public RegistryMetrics getMetrics() {
+        return metrics;
+    }
+
+    private static ServiceRegistryConnection unwrap(ServiceRegistryConnection conn) {
+        return conn instanceof InstrumentedServiceRegistryConnection
+                ? ((InstrumentedServiceRegistryConnection) conn).getDelegate() : conn;
+    }
+}
@@ -0,0 +1,133 @@
+package net.basiccloud.registry.metrics;
+
+import net.basiccloud.registry.BatchResult;
+import net.basiccloud.registry.RegisterId;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstancePatch;
+import net.basiccloud.registry.ServiceRegistryServer;
+import net.basiccloud.registry.metrics.RegistryMetrics.Operation;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * server recording {@link Operation#REGISTER}, {@link Operation#DEREGISTER}, {@link Operation#PATCH} and the batch
+ * operations, register ids have no group/service so deregisters and patches are recorded without.
+ */
+class InstrumentedServiceRegistryServer<R extends RegisterId> implements ServiceRegistryServer<R> {
+
+    private final ServiceRegistryServer<R> delegate;
+    private final RegistryMetrics metrics;
+
+    InstrumentedServiceRegistryServer(ServiceRegistryServer<R> delegate, RegistryMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public R register(ServiceInstance serviceInstance) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            R registerId = delegate.register(serviceInstance);
+            success = true;
+            return registerId;
+        } finally {
+            metrics.record(Operation.REGISTER, groupOf(serviceInstance), serviceOf(serviceInstance),
+                    System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public void deregister(R registerId) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            delegate.deregister(registerId);
+            success = true;
+        } finally {
+            metrics.record(Operation.DEREGISTER, null, null, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public CompletableFuture<R> registerAsync(ServiceInstance serviceInstance) {
+        long start = System.nanoTime();
+        return delegate.registerAsync(serviceInstance).whenComplete((registerId, e) ->
+                metrics.record(Operation.REGISTER, groupOf(serviceInstance), serviceOf(serviceInstance),
+                        System.nanoTime() - start, e == null));
+    }
+
+    @Override
+    public CompletableFuture<Void> deregisterAsync(R registerId) {
+        long start = System.nanoTime();
+        return delegate.deregisterAsync(registerId).whenComplete((result, e) ->
+                metrics.record(Operation.DEREGISTER, null, null, System.nanoTime() - start, e == null));
+    }
+
+    @Override
+    public BatchResult<ServiceInstance, R> registerAll(Collection<ServiceInstance> serviceInstances) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            BatchResult<ServiceInstance, R> result = delegate.registerAll(serviceInstances);
+            success = result.isAllSuccess();
+            return result;
+        } finally {
+            metrics.record(Operation.REGISTER_ALL, null, null, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public BatchResult<R, Void> deregisterAll(Collection<R> registerIds) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            BatchResult<R, Void> result = delegate.deregisterAll(registerIds);
+            success = result.isAllSuccess();
+            return result;
+        } finally {
+            metrics.record(Operation.DEREGISTER_ALL, null, null, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public void patch(R registerId, ServiceInstancePatch patch) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            delegate.patch(registerId, patch);
+            success = true;
+        } finally {
+            metrics.record(Operation.PATCH, null, null, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> patchAsync(R registerId, ServiceInstancePatch patch) {
+        long start = System.nanoTime();
+        return delegate.patchAsync(registerId, patch).whenComplete((result, e) ->
+                metrics.record(Operation.PATCH, null, null, System.nanoTime() - start, e == null));
+    }
+
+    @Override
+    public BatchResult<R, Void> patchAll(Collection<R> registerIds, ServiceInstancePatch patch) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            BatchResult<R, Void> result = delegate.patchAll(registerIds, patch);
+            success = result.isAllSuccess();
+            return result;
+        } finally {
+            metrics.record(Operation.PATCH_ALL, null, null, System.nanoTime() - start, success);
+        }
+    }
+
+    private static String groupOf(ServiceInstance serviceInstance) {
+        return serviceInstance == null ? null : serviceInstance.getGroup();
+    }
+
+    private static String serviceOf(ServiceInstance serviceInstance) {
+        return serviceInstance == null ? null : serviceInstance.getService();
+    }
+}
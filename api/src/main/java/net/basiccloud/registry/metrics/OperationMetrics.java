@@ -0,0 +1,44 @@
+package net.basiccloud.registry.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and errors of one operation, of one service or of all.
+ */
+public final class OperationMetrics {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errorCount = new LongAdder();
+
+    void record(long durationNanos, boolean success) {
+        latency.record(durationNanos);
+        if (!success) {
+            errorCount.increment();
+        }
+    }
+
+    /**
+     * get histogram of the latencies of all calls, successful or not.
+     *
+     * @return latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "OperationMetrics{" +
+                "latency=" + latency +
+                ", errorCount=" + getErrorCount() +
+                '}';
+    }
+}
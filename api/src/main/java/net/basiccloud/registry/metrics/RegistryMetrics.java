@@ -0,0 +1,39 @@
+package net.basiccloud.registry.metrics;
+
+/**
+ * SPI of the metrics recorded by {@link InstrumentedServiceRegistryFactory}.
+ *
+ * <p>Implementations are found by {@link java.util.ServiceLoader}, see
+ * {@link InstrumentedServiceRegistryFactory#loadMetrics()}, or given to the factory directly. {@link #record} is
+ * called on the path of every registry call, it must be thread safe and should not block.
+ */
+public interface RegistryMetrics {
+
+    /**
+     * registry operations recorded.
+     */
+    enum Operation {
+        CONNECT,
+        DISCOVER,
+        WATCH,
+        REGISTER,
+        DEREGISTER,
+        REGISTER_ALL,
+        DEREGISTER_ALL,
+        GET_INSTANCE,
+        PATCH,
+        PATCH_ALL
+    }
+
+    /**
+     * record one call.
+     *
+     * @param operation     operation called
+     * @param group         group of the call, null if unknown like for connect and deregister
+     * @param service       service of the call, null if unknown
+     * @param durationNanos duration of the call in nanoseconds
+     * @param success       false if the call threw, returned a failure like a watch returning false, or was
+     *                      completed exceptionally
+     */
+    void record(Operation operation, String group, String service, long durationNanos, boolean success);
+}
@@ -0,0 +1,150 @@
+package net.basiccloud.registry.watch;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.basiccloud.registry.AsyncSupport;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceRegistryClient.ClientListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link ClientListener} decorator which coalesces bursts of updates.
+ *
+ * <p>The first update starts a window, updates inside the window replace each other and only the latest list is
+ * delivered when the window ends. Deliveries of one listener never overlap: updates arriving while the listener
+ * is still busy are conflated the same way and the latest one is delivered once it returns, so a slow listener
+ * sees fewer updates instead of an unbounded backlog.
+ *
+ * <p>Updates are delivered in the executor given to the builder, {@link AsyncSupport#getExecutor()} by default.
+ */
+public class CoalescingClientListener implements ClientListener {
+
+    private static Logger logger = LoggerFactory.getLogger(CoalescingClientListener.class);
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("registry-watch-coalescer").setDaemon(true).build());
+
+    public static class Builder {
+        private ClientListener listener;
+        private long windowMillis = 100;
+        private Executor executor = AsyncSupport.getExecutor();
+
+        private Builder() {
+
+        }
+
+        public Builder setListener(ClientListener listener) {
+            this.listener = checkNotNull(listener, "listener should not be null");
+            return this;
+        }
+
+        public Builder setWindowMillis(long windowMillis) {
+            checkArgument(windowMillis >= 0, "windowMillis should not be negative.");
+            this.windowMillis = windowMillis;
+            return this;
+        }
+
+        public Builder setExecutor(Executor executor) {
+            this.executor = checkNotNull(executor, "executor should not be null");
+            return this;
+        }
+
+        public CoalescingClientListener build() {
+            checkNotNull(listener, "listener should not be null");
+            return new CoalescingClientListener(listener, windowMillis, executor);
+        }
+    }
+
+    /**
+     * create a new builder, default window is 100ms.
+     *
+     * @return a new builder
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    private final ClientListener listener;
+    private final long windowMillis;
+    private final Executor executor;
+
+    private final AtomicReference<List<ServiceInstance>> latest = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final LongAdder rawCount = new LongAdder();
+    private final LongAdder deliveredCount = new LongAdder();
+
+    private CoalescingClientListener(ClientListener listener, long windowMillis, Executor executor) {
+        this.listener = listener;
+        this.windowMillis = windowMillis;
+        this.executor = executor;
+    }
+
+    @Override
+    public void update(List<ServiceInstance> list) {
+        rawCount.increment();
+        latest.set(list);
+        scheduleFlush();
+    }
+
+    /**
+     * number of updates received from the registry.
+     *
+     * @return raw update count
+     */
+    public long getRawCount() {
+        return rawCount.sum();
+    }
+
+    /**
+     * number of updates delivered to the listener.
+     *
+     * @return delivered update count
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.sum();
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    private void scheduleFlush() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        if (windowMillis == 0) {
+            executor.execute(this::flush);
+        } else {
+            TIMER.schedule(() -> executor.execute(this::flush), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        List<ServiceInstance> list = latest.getAndSet(null);
+        if (list != null) {
+            deliveredCount.increment();
+            try {
+                listener.update(list);
+            } catch (RuntimeException e) {
+                logger.error("fail to deliver coalesced update", e);
+            }
+        }
+        scheduled.set(false);
+        // updates received during the delivery start the next window
+        if (latest.get() != null) {
+            scheduleFlush();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package net.basiccloud.registry;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstanceKeyTest {
+
+    @Test
+    public void of() throws Exception {
+        ServiceInstance instance = ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080).build();
+        InstanceKey key = InstanceKey.of(instance);
+
+        assertThat(key).isEqualTo(InstanceKey.of("Main", "UserService", "192.168.0.1", 1080));
+        assertThat(key.hashCode()).isEqualTo(InstanceKey.of("Main", "UserService", "192.168.0.1", 1080).hashCode());
+        assertThat(key.getServiceKey()).isEqualTo(InstanceKey.serviceKey("Main", "UserService"));
+        assertThat(key.getEndpointKey()).isEqualTo(InstanceKey.endpointKey("192.168.0.1", 1080));
+        assertThat(key.isIpv4()).isTrue();
+        assertThat(key.getIpv4()).isEqualTo(0xC0A80001);
+        assertThat(key.getPort()).isEqualTo(1080);
+
+        assertThat(key).isNotEqualTo(InstanceKey.of("Main", "UserService", "192.168.0.1", 1081));
+        assertThat(key).isNotEqualTo(InstanceKey.of("Main", "UserService", "192.168.0.2", 1080));
+        assertThat(key).isNotEqualTo(InstanceKey.of("Main", "OrderService", "192.168.0.1", 1080));
+        assertThat(key).isNotEqualTo(InstanceKey.of("Other", "UserService", "192.168.0.1", 1080));
+        // group and service are not interchangeable
+        assertThat(InstanceKey.serviceKey("A", "B")).isNotEqualTo(InstanceKey.serviceKey("B", "A"));
+    }
+
+    @Test
+    public void endpointKey() throws Exception {
+        assertThat(InstanceKey.endpointKey("255.255.255.255", 65535)).isEqualTo(0xFFFFFFFFFFFFL);
+        assertThat(InstanceKey.endpointKey("0.0.0.0", 0)).isEqualTo(0L);
+
+        long hostKey = InstanceKey.endpointKey("user-service.local", 1080);
+        assertThat(hostKey).isEqualTo(InstanceKey.endpointKey("user-service.local", 1080));
+        assertThat(InstanceKey.of("Main", "UserService", "user-service.local", 1080).isIpv4()).isFalse();
+
+        // not IPv4, interned as names
+        for (String ip : new String[]{"::1", "1.2.3", "1.2.3.4.5", "256.0.0.1", "01.2.3.4", "1..2.3", "1.2.3.4."}) {
+            assertThat(InstanceKey.of("Main", "UserService", ip, 1080).isIpv4()).isFalse();
+        }
+    }
+
+    @Test
+    public void find() throws Exception {
+        assertThat(InstanceKey.findServiceKey("Main", "UserService"))
+                .isEqualTo(InstanceKey.serviceKey("Main", "UserService"));
+        assertThat(InstanceKey.findServiceKey("Main", "InstanceKeyTest.find")).isEqualTo(InstanceKey.NOT_FOUND);
+        assertThat(InstanceKey.findEndpointKey("192.168.0.1", 1080))
+                .isEqualTo(InstanceKey.endpointKey("192.168.0.1", 1080));
+        assertThat(InstanceKey.findEndpointKey("192.168.0.1", 65536)).isEqualTo(InstanceKey.NOT_FOUND);
+        assertThat(InstanceKey.findEndpointKey("find.local", 1080)).isEqualTo(InstanceKey.NOT_FOUND);
+        // still not interned
+        assertThat(InstanceKey.findEndpointKey("find.local", 1080)).isEqualTo(InstanceKey.NOT_FOUND);
+        long hostKey = InstanceKey.endpointKey("find.local", 1080);
+        assertThat(InstanceKey.findEndpointKey("find.local", 1080)).isEqualTo(hostKey);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void endpointKey_invalidPort() throws Exception {
+        InstanceKey.endpointKey("192.168.0.1", 65536);
+    }
+}
@@ -0,0 +1,120 @@
+package net.basiccloud.registry;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RegistryConfigTest {
+    private static String registryUrl = "etcd://192.168.0.1:9080";
+
+    @Test
+    public void parse() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("light.server.registryUrl", registryUrl);
+        parameters.put("connectTimeoutMillis", " 500 ");
+        parameters.put("light.client.watchWindowMillis", "50");
+        parameters.put("light.etcd.lease", "true");
+        RegistryConfig config = RegistryConfig.parse(parameters);
+        assertThat(config.getRegistryUrl().get()).isEqualTo(registryUrl);
+        assertThat(config.getConnectTimeoutMillis()).isEqualTo(500);
+        assertThat(config.getWatchWindowMillis()).isEqualTo(50);
+        assertThat(config.getBoolean("lease", false)).isTrue();
+        assertThat(config.getString("server").isPresent()).isFalse();
+    }
+
+    @Test
+    public void parse_defaults() throws Exception {
+        RegistryConfig config = RegistryConfig.parse(new HashMap<>());
+        assertThat(config.getRegistryUrl().isPresent()).isFalse();
+        assertThat(config.getConnectTimeoutMillis()).isEqualTo(RegistryConfig.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+        assertThat(config.getWatchWindowMillis()).isEqualTo(RegistryConfig.DEFAULT_WATCH_WINDOW_MILLIS);
+        assertThat(config.getLong("ttl", 30)).isEqualTo(30);
+        assertThat(config.getBoolean("lease", true)).isTrue();
+    }
+
+    @Test
+    public void parse_nameWinsOverPostfix() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            parameters.put("light." + i + ".registryUrl", "etcd://other" + i);
+        }
+        parameters.put("registryUrl", registryUrl);
+        assertThat(RegistryConfig.parse(parameters).getRegistryUrl().get()).isEqualTo(registryUrl);
+    }
+
+    @Test
+    public void getParameters_unchanged() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("light.server.registryUrl", registryUrl);
+        parameters.put("light.client.registryUrl", "etcd://other");
+        parameters.put("light.etcd.", "dotted");
+        RegistryConfig config = RegistryConfig.parse(parameters);
+        assertThat(config.getParameters()).isEqualTo(parameters);
+        parameters.clear();
+        assertThat(config.getParameters()).hasSize(3);
+
+        Map<String, String> connected = new HashMap<>();
+        ServiceRegistryFactory factory = new ServiceRegistryFactory() {
+            @Override
+            public String getName() {
+                return "mock";
+            }
+
+            @Override
+            public int getPriority() {
+                return PRIORITY_DEFAULT;
+            }
+
+            @Override
+            public ServiceRegistryConnection connect(Map<String, String> parameters) {
+                connected.putAll(parameters);
+                return null;
+            }
+
+            @Override
+            public ServiceRegistryClient getClient(ServiceRegistryConnection conn) {
+                return null;
+            }
+
+            @Override
+            public ServiceRegistryServer getServer(ServiceRegistryConnection conn) {
+                return null;
+            }
+
+            @Override
+            public ServiceRegistryAdmin getAdmin(ServiceRegistryConnection conn) {
+                return null;
+            }
+        };
+        factory.connect(config);
+        assertThat(connected).isEqualTo(config.getParameters());
+    }
+
+    @Test
+    public void parse_blankValue() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("registryUrl", " ");
+        parameters.put("light.server.registryUrl", registryUrl);
+        parameters.put("connectTimeoutMillis", "");
+        RegistryConfig config = RegistryConfig.parse(parameters);
+        assertThat(config.getRegistryUrl().get()).isEqualTo(registryUrl);
+        assertThat(config.getConnectTimeoutMillis()).isEqualTo(RegistryConfig.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_invalidNumber() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("light.client.connectTimeoutMillis", "3s");
+        RegistryConfig.parse(parameters);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_negativeNumber() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("watchWindowMillis", "-1");
+        RegistryConfig.parse(parameters);
+    }
+}
@@ -0,0 +1,108 @@
+package net.basiccloud.registry;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServiceInstancePatchTest {
+
+    private static ServiceInstance newInstance(WorkMode workMode) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setTags("a", "b").addGrpcPort(1080).setWorkMode(workMode).build())
+                .setStatus(ServiceInstanceStatus.newBuilder().asOnline().build())
+                .build();
+    }
+
+    @Test
+    public void applyTo_workMode() throws Exception {
+        ServiceInstance instance = newInstance(WorkMode.NORMAL);
+        ServiceInstance patched = ServiceInstancePatch.ofWorkMode(WorkMode.MAINTENANCE).applyTo(instance);
+        assertThat(patched.getId()).isEqualTo(instance.getId());
+        assertThat(patched.getData().getWorkMode()).isEqualTo(WorkMode.MAINTENANCE);
+        assertThat(patched.getData().getServiceVersion()).isEqualTo(instance.getData().getServiceVersion());
+        assertThat(patched.getData().getTags()).containsExactly("a", "b");
+        assertThat(patched.getData().getPorts()).isEqualTo(instance.getData().getPorts());
+        assertThat(patched.getStatus()).isEqualTo(instance.getStatus());
+    }
+
+    @Test
+    public void applyTo_status() throws Exception {
+        ServiceInstance instance = newInstance(WorkMode.NORMAL);
+        ServiceInstanceStatus offline = ServiceInstanceStatus.newBuilder().asOffline().build();
+        ServiceInstance patched = ServiceInstancePatch.newBuilder().setStatus(offline)
+                .setWorkMode(WorkMode.DEGRADE).build().applyTo(instance);
+        assertThat(patched.getStatus().isOffline()).isTrue();
+        assertThat(patched.getData().getWorkMode()).isEqualTo(WorkMode.DEGRADE);
+    }
+
+    @Test
+    public void applyTo_statusKeepLease() throws Exception {
+        ServiceInstance instance = ServiceInstance.newBuilder(newInstance(WorkMode.MAINTENANCE))
+                .setStatus(ServiceInstanceStatus.newBuilder().asOnline().setComment("leased").setLeaseId(42).build())
+                .build();
+        ServiceInstance patched = ServiceInstancePatch.ofStatus(ServiceInstanceStatus.newBuilder()
+                .setStatus(ServiceInstanceStatus.Status.OFFLINE).setLastUpdateTime(1).build()).applyTo(instance);
+        assertThat(patched.getStatus().isOffline()).isTrue();
+        assertThat(patched.getStatus().getLastUpdateTime()).isEqualTo(1L);
+        assertThat(patched.getStatus().getLeaseId()).isEqualTo(42L);
+        assertThat(patched.getStatus().getComment()).isEqualTo("leased");
+        assertThat(patched.getData().getWorkMode()).isEqualTo(WorkMode.MAINTENANCE);
+
+        patched = ServiceInstancePatch.ofStatus(ServiceInstanceStatus.newBuilder().asOffline().build())
+                .applyTo(instance);
+        assertThat(patched.getStatus().getLeaseId()).isEqualTo(42L);
+        assertThat(patched.getStatus().getComment()).isEqualTo("Service is offline.");
+    }
+
+    @Test
+    public void applyTo_unchanged() throws Exception {
+        ServiceInstance instance = newInstance(WorkMode.DEGRADE);
+        assertThat(ServiceInstancePatch.ofWorkMode(WorkMode.DEGRADE).applyTo(instance)).isSameAs(instance);
+        assertThat(ServiceInstancePatch.ofStatus(instance.getStatus()).applyTo(instance)).isSameAs(instance);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void applyTo_workModeWithoutData() throws Exception {
+        ServiceInstance instance = ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080).build();
+        ServiceInstancePatch.ofWorkMode(WorkMode.MAINTENANCE).applyTo(instance);
+    }
+
+    @Test
+    public void applyTo_expectedWorkMode() throws Exception {
+        ServiceInstancePatch patch = ServiceInstancePatch.newBuilder().setWorkMode(WorkMode.DEGRADE)
+                .setExpectedWorkMode(WorkMode.NORMAL).build();
+        assertThat(patch.applyTo(newInstance(WorkMode.NORMAL)).getData().getWorkMode()).isEqualTo(WorkMode.DEGRADE);
+        ServiceInstance maintenance = newInstance(WorkMode.MAINTENANCE);
+        assertThat(patch.applyTo(maintenance)).isSameAs(maintenance);
+        // not expected, no failure without data
+        ServiceInstance instance = ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080).build();
+        assertThat(patch.applyTo(instance)).isSameAs(instance);
+        assertThat(patch.forInstance("Main-UserService-192.168.0.1-1080").getExpectedWorkMode())
+                .isEqualTo(WorkMode.NORMAL);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void build_expectedWorkModeWithoutWorkMode() throws Exception {
+        ServiceInstancePatch.newBuilder().setStatus(ServiceInstanceStatus.newBuilder().asOnline().build())
+                .setExpectedWorkMode(WorkMode.NORMAL).build();
+    }
+
+    @Test
+    public void forInstance() throws Exception {
+        ServiceInstancePatch patch = ServiceInstancePatch.ofWorkMode(WorkMode.MAINTENANCE);
+        assertThat(patch.getInstanceId()).isNull();
+        ServiceInstancePatch delivered = patch.forInstance("Main-UserService-192.168.0.1-1080");
+        assertThat(delivered.getInstanceId()).isEqualTo("Main-UserService-192.168.0.1-1080");
+        assertThat(delivered.getWorkMode()).isEqualTo(WorkMode.MAINTENANCE);
+        assertThat(delivered.forInstance("Main-UserService-192.168.0.1-1080")).isSameAs(delivered);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void build_empty() throws Exception {
+        ServiceInstancePatch.newBuilder().build();
+    }
+}
@@ -0,0 +1,134 @@
+package net.basiccloud.registry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServiceInstanceSnapshotTest {
+
+    private static ServiceInstance newInstance(int port, String version) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion(version).setFrameworkVersion("1.0.0").build())
+                .build();
+    }
+
+    @Test
+    public void update() throws Exception {
+        ServiceInstanceSnapshot snapshot = new ServiceInstanceSnapshot();
+        ServiceInstance instance1 = newInstance(1080, "1.0.0");
+        ServiceInstance instance2 = newInstance(1081, "1.0.0");
+        ServiceInstance instance3 = newInstance(1082, "1.0.0");
+
+        ServiceInstanceDelta delta = snapshot.update(Arrays.asList(instance1, instance2));
+        assertThat(delta.getRevision()).isEqualTo(1);
+        assertThat(delta.getAdded()).containsExactly(instance1, instance2);
+        assertThat(delta.getChanged()).isEmpty();
+        assertThat(delta.getRemoved()).isEmpty();
+
+        ServiceInstance changed = newInstance(1081, "1.1.0");
+        delta = snapshot.update(Arrays.asList(changed, instance3));
+        assertThat(delta.getRevision()).isEqualTo(2);
+        assertThat(delta.getAdded()).containsExactly(instance3);
+        assertThat(delta.getChanged()).containsExactly(changed);
+        assertThat(delta.getRemoved()).containsExactly(instance1);
+        assertThat(new ArrayList<>(snapshot.getInstances())).containsExactly(changed, instance3);
+        assertThat(snapshot.get(changed.getId())).isSameAs(changed);
+
+        // same list, nothing changed
+        delta = snapshot.update(Arrays.asList(changed, instance3));
+        assertThat(delta.isEmpty()).isTrue();
+        assertThat(snapshot.getRevision()).isEqualTo(3);
+    }
+
+    @Test
+    public void apply() throws Exception {
+        ServiceInstanceSnapshot snapshot = new ServiceInstanceSnapshot();
+        ServiceInstance instance1 = newInstance(1080, "1.0.0");
+        ServiceInstance instance2 = newInstance(1081, "1.0.0");
+
+        assertThat(snapshot.apply(ServiceInstanceDelta.newBuilder().setRevision(5)
+                .addAdded(instance1).addAdded(instance2).build())).isTrue();
+        assertThat(snapshot.size()).isEqualTo(2);
+        assertThat(snapshot.getRevision()).isEqualTo(5);
+
+        assertThat(snapshot.apply(ServiceInstanceDelta.newBuilder().setRevision(6)
+                .addRemoved(instance1).build())).isTrue();
+        assertThat(new ArrayList<>(snapshot.getInstances())).containsExactly(instance2);
+    }
+
+    @Test
+    public void apply_staleDeltaIgnored() throws Exception {
+        ServiceInstanceSnapshot snapshot = new ServiceInstanceSnapshot();
+        ServiceInstance instance = newInstance(1080, "1.0.0");
+        snapshot.apply(ServiceInstanceDelta.newBuilder().setRevision(2).addAdded(instance).build());
+
+        assertThat(snapshot.apply(ServiceInstanceDelta.newBuilder().setRevision(2).addRemoved(instance).build()))
+                .isFalse();
+        assertThat(snapshot.apply(ServiceInstanceDelta.newBuilder().setRevision(1).addRemoved(instance).build()))
+                .isFalse();
+        assertThat(snapshot.size()).isEqualTo(1);
+        assertThat(snapshot.update(Collections.<ServiceInstance>emptyList()).getRemoved()).containsExactly(instance);
+        assertThat(snapshot.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void watchDelta_defaultDiffsFullLists() throws Exception {
+        List<ServiceRegistryClient.ClientListener> listeners = new ArrayList<>();
+        ServiceRegistryClient client = new ServiceRegistryClient() {
+            @Override
+            public List<ServiceInstance> discover(String group, String service) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public List<ServiceInstance> discover(String group, String service, Version version) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public boolean watch(String group, String service, Version version, ClientListener clientListener) {
+                listeners.add(clientListener);
+                return true;
+            }
+        };
+        List<ServiceInstanceDelta> deltas = new ArrayList<>();
+        assertThat(client.watchDelta("Main", "UserService", null, deltas::add)).isTrue();
+
+        ServiceInstance instance1 = newInstance(1080, "1.0.0");
+        ServiceInstance instance2 = newInstance(1081, "1.0.0");
+        listeners.get(0).update(Collections.emptyList());
+        listeners.get(0).update(Arrays.asList(instance1, instance2));
+        listeners.get(0).update(Arrays.asList(instance1, instance2));
+        listeners.get(0).update(Collections.singletonList(instance2));
+
+        // the first delta is always delivered, later empty ones are dropped
+        assertThat(deltas).hasSize(3);
+        assertThat(deltas.get(0).isEmpty()).isTrue();
+        assertThat(deltas.get(1).getAdded()).containsExactly(instance1, instance2);
+        assertThat(deltas.get(2).getRemoved()).containsExactly(instance1);
+        assertThat(deltas.get(2).getRevision()).isEqualTo(4);
+    }
+
+    @Test
+    public void apply_patched() throws Exception {
+        ServiceInstanceSnapshot snapshot = new ServiceInstanceSnapshot();
+        ServiceInstance instance1 = newInstance(1080, "1.0.0");
+        snapshot.update(Collections.singletonList(instance1));
+
+        ServiceInstancePatch patch = ServiceInstancePatch.ofWorkMode(WorkMode.MAINTENANCE);
+        assertThat(snapshot.apply(ServiceInstanceDelta.newBuilder().setRevision(2)
+                .addPatched(patch.forInstance(instance1.getId()))
+                .addPatched(patch.forInstance("Main-UserService-192.168.0.1-9999"))
+                .build())).isTrue();
+        assertThat(snapshot.size()).isEqualTo(1);
+        assertThat(snapshot.get(instance1.getId()).getData().getWorkMode()).isEqualTo(WorkMode.MAINTENANCE);
+        assertThat(snapshot.get(instance1.getId()).getData().getServiceVersion())
+                .isEqualTo(instance1.getData().getServiceVersion());
+    }
+}
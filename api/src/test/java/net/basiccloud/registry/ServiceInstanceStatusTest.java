@@ -51,4 +51,18 @@ public class ServiceInstanceStatusTest {
         ServiceInstanceStatus status3 = ServiceInstanceStatus.newBuilder(status1).asOffline().build();
         assertThat(status3.getStatus()).isEqualTo(OFFLINE);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void valueOfCode() throws Exception {
+        assertThat(ONLINE.getCode()).isEqualTo(0);
+        assertThat(OFFLINE.getCode()).isEqualTo(1);
+        for (ServiceInstanceStatus.Status status : ServiceInstanceStatus.Status.values()) {
+            assertThat(ServiceInstanceStatus.Status.valueOfCode(status.getCode())).isEqualTo(status);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void valueOfCode_unknown() throws Exception {
+        ServiceInstanceStatus.Status.valueOfCode(2);
+    }
+}
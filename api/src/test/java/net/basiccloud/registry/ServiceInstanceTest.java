@@ -57,4 +57,33 @@ public class ServiceInstanceTest {
                 .build();
         assertThat(instance3.getGroup()).isEqualTo("Main2");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void newBuilder_interned() throws Exception {
+        ServiceInstance instance1 = ServiceInstance.newBuilder().setGroup(new String("Main"))
+                .setService(new String("UserService")).setIp(new String("192.168.0.1")).setPort(1080)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setTags(new String("zone-a")).addPort(new String("grpc"), 9090).build())
+                .build();
+        ServiceInstance instance2 = ServiceInstance.newBuilder().setGroup(new String("Main"))
+                .setService(new String("UserService")).setIp(new String("192.168.0.1")).setPort(1081)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setTags(new String("zone-a")).addPort(new String("grpc"), 9091).build())
+                .build();
+
+        assertThat(instance1.getGroup()).isSameAs(instance2.getGroup());
+        assertThat(instance1.getService()).isSameAs(instance2.getService());
+        assertThat(instance1.getIp()).isSameAs(instance2.getIp());
+        assertThat(instance1.getData().getTags()[0]).isSameAs(instance2.getData().getTags()[0]);
+        assertThat(instance1.getData().getPorts().keySet().iterator().next())
+                .isSameAs(ServiceInstanceData.PROTOCOL_GRPC);
+    }
+
+    @Test
+    public void getId() throws Exception {
+        ServiceInstance instance = ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080).build();
+        assertThat(instance.getId()).isEqualTo("Main-UserService-192.168.0.1-1080");
+        assertThat(instance.getId()).isSameAs(instance.getId());
+    }
+}
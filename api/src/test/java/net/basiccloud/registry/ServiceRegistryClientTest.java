@@ -0,0 +1,67 @@
+package net.basiccloud.registry;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ServiceRegistryClientTest {
+
+    @Test
+    public void discoverAsync() throws Exception {
+        ServiceInstance instance = ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080).build();
+        ServiceRegistryClient client = new ServiceRegistryClientMock(Collections.singletonList(instance));
+
+        assertThat(client.discoverAsync("Main", "UserService").get(5, TimeUnit.SECONDS)).containsExactly(instance);
+        assertThat(client.discoverAsync("Main", "UserService", Version.valueOf("1")).get(5, TimeUnit.SECONDS))
+                .containsExactly(instance);
+        assertThat(client.watchAsync("Main", "UserService", null, list -> {
+        }).get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void discoverAsync_failed() throws Exception {
+        ServiceRegistryClient client = new ServiceRegistryClientMock(null);
+
+        CompletableFuture<List<ServiceInstance>> future = client.discoverAsync("Main", "UserService");
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("it should not reach here");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage()).isEqualTo("registry is down");
+        }
+    }
+
+    private static class ServiceRegistryClientMock implements ServiceRegistryClient {
+        private final List<ServiceInstance> instances;
+
+        private ServiceRegistryClientMock(List<ServiceInstance> instances) {
+            this.instances = instances;
+        }
+
+        @Override
+        public List<ServiceInstance> discover(String group, String service) {
+            if (instances == null) {
+                throw new ServiceRegistryConnectionException("registry is down");
+            }
+            return instances;
+        }
+
+        @Override
+        public List<ServiceInstance> discover(String group, String service, Version version) {
+            return discover(group, service);
+        }
+
+        @Override
+        public boolean watch(String group, String service, Version version, ClientListener clientListener) {
+            return true;
+        }
+    }
+}
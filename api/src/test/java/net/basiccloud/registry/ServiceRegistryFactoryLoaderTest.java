@@ -1,9 +1,13 @@
 package net.basiccloud.registry;
 
+import net.basiccloud.registry.metrics.InMemoryRegistryMetrics;
+import net.basiccloud.registry.metrics.InstrumentedServiceRegistryFactory;
+import net.basiccloud.registry.metrics.RegistryMetrics;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.*;
@@ -19,6 +23,60 @@ public class ServiceRegistryFactoryLoaderTest {
         Assertions.assertThat(factory.getName()).isEqualTo("mock1");
     }
 
+    @Test
+    public void testLoad_cachedAndLazy() throws Exception {
+        ServiceRegistryFactoryLoader.clearCache();
+        int instances = ServiceRegistryFactoryMock3.INSTANCES.get();
+        ServiceRegistryFactory factory = ServiceRegistryFactoryLoader.load().get();
+        assertThat(ServiceRegistryFactoryLoader.load().get()).isSameAs(factory);
+        // priority read from the annotation, not selected so never instantiated
+        assertThat(ServiceRegistryFactoryMock3.INSTANCES.get()).isEqualTo(instances);
+
+        ServiceRegistryFactoryLoader.clearCache();
+        assertThat(ServiceRegistryFactoryLoader.load().get()).isNotSameAs(factory);
+    }
+
+    @Test
+    public void testLoadConnected() throws Exception {
+        // mock1 and mock2 return no connection, mock3 connects
+        Optional<ServiceRegistryFactoryLoader.Connected> connected =
+                ServiceRegistryFactoryLoader.loadConnected(Collections.emptyMap(), 3, 5000);
+        assertThat(connected.isPresent()).isTrue();
+        assertThat(connected.get().getFactory().getName()).isEqualTo("mock3");
+        assertThat(connected.get().getConnection()).isNotNull();
+
+        assertThat(ServiceRegistryFactoryLoader.loadConnected(Collections.emptyMap(), 2, 5000).isPresent()).isFalse();
+    }
+
+    @Test
+    public void testLoadConnected_closeLateConnection() throws Exception {
+        int closed = ServiceRegistryFactoryMock3.CLOSED.get();
+        ServiceRegistryFactoryMock3.connectDelayMillis = 200;
+        try {
+            assertThat(ServiceRegistryFactoryLoader.loadConnected(Collections.emptyMap(), 3, 20).isPresent())
+                    .isFalse();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (ServiceRegistryFactoryMock3.CLOSED.get() == closed && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(ServiceRegistryFactoryMock3.CLOSED.get()).isEqualTo(closed + 1);
+        } finally {
+            ServiceRegistryFactoryMock3.connectDelayMillis = 0;
+        }
+    }
+
+    @Test
+    public void testLoadInstrumented() throws Exception {
+        InMemoryRegistryMetrics metrics = new InMemoryRegistryMetrics();
+        Optional<ServiceRegistryFactory> factoryOptional = ServiceRegistryFactoryLoader.loadInstrumented(metrics);
+        assertThat(factoryOptional.isPresent()).isTrue();
+        ServiceRegistryFactory factory = factoryOptional.get();
+        assertThat(factory).isInstanceOf(InstrumentedServiceRegistryFactory.class);
+        assertThat(factory.getName()).isEqualTo("mock1");
+
+        factory.connect(Collections.emptyMap());
+        assertThat(metrics.getMetrics(RegistryMetrics.Operation.CONNECT).getCount()).isEqualTo(1L);
+    }
 
     public static class ServiceRegistryFactoryMock1 implements ServiceRegistryFactory {
 
@@ -85,4 +143,59 @@ public class ServiceRegistryFactoryLoaderTest {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    @ServiceRegistryFactoryPriority(1)
+    public static class ServiceRegistryFactoryMock3 implements ServiceRegistryFactory {
+        private static final AtomicInteger INSTANCES = new AtomicInteger();
+        private static final AtomicInteger CLOSED = new AtomicInteger();
+        private static volatile long connectDelayMillis;
+
+        public ServiceRegistryFactoryMock3() {
+            INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public String getName() {
+            return "mock3";
+        }
+
+        @Override
+        public int getPriority() {
+            return 1;
+        }
+
+        @Override
+        public ServiceRegistryConnection connect(Map<String, String> connParameters) {
+            return new ServiceRegistryConnection() {
+                @Override
+                public void connect() {
+                    try {
+                        Thread.sleep(connectDelayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                @Override
+                public void close() {
+                    CLOSED.incrementAndGet();
+                }
+            };
+        }
+
+        @Override
+        public ServiceRegistryClient getClient(ServiceRegistryConnection conn) {
+            return null;
+        }
+
+        @Override
+        public ServiceRegistryServer getServer(ServiceRegistryConnection conn) {
+            return null;
+        }
+
+        @Override
+        public ServiceRegistryAdmin getAdmin(ServiceRegistryConnection conn) {
+            return null;
+        }
+    }
+}
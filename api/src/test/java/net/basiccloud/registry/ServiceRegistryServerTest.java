@@ -0,0 +1,112 @@
+package net.basiccloud.registry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServiceRegistryServerTest {
+
+    private static ServiceInstance newInstance(int port) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port).build();
+    }
+
+    @Test
+    public void registerAll() throws Exception {
+        ServiceRegistryServerMock server = new ServiceRegistryServerMock();
+        ServiceInstance instance1 = newInstance(1080);
+        ServiceInstance instance2 = newInstance(1081);
+        ServiceInstance instance3 = newInstance(1082);
+        server.failedPort = 1081;
+
+        BatchResult<ServiceInstance, RegisterIdMock> result = server.registerAll(Arrays.asList(instance1, instance2, instance3));
+        assertThat(result.isAllSuccess()).isFalse();
+        assertThat(result.getFailureCount()).isEqualTo(1);
+        assertThat(result.getItems()).hasSize(3);
+        assertThat(result.getItems().get(0).getOutput().port).isEqualTo(1080);
+        assertThat(result.getItems().get(1).isSuccess()).isFalse();
+        assertThat(result.getItems().get(1).getInput()).isEqualTo(instance2);
+        assertThat(result.getItems().get(1).getError().getMessage()).isEqualTo("fail to register 1081");
+        assertThat(result.getItems().get(2).getOutput().port).isEqualTo(1082);
+        assertThat(result.getOutputs()).hasSize(2);
+        assertThat(result.getFailures().get(0).getInput()).isEqualTo(instance2);
+    }
+
+    @Test
+    public void deregisterAll() throws Exception {
+        ServiceRegistryServerMock server = new ServiceRegistryServerMock();
+        server.failedPort = 1081;
+
+        BatchResult<RegisterIdMock, Void> result = server.deregisterAll(Arrays.asList(
+                new RegisterIdMock(1080), new RegisterIdMock(1081), new RegisterIdMock(1082)));
+        assertThat(result.getFailureCount()).isEqualTo(1);
+        assertThat(result.getFailures().get(0).getInput().port).isEqualTo(1081);
+        assertThat(server.deregistered).containsExactly(1080, 1082);
+    }
+
+    @Test
+    public void registerAsync() throws Exception {
+        ServiceRegistryServerMock server = new ServiceRegistryServerMock();
+
+        RegisterIdMock registerId = server.registerAsync(newInstance(1080)).get(5, TimeUnit.SECONDS);
+        assertThat(registerId.port).isEqualTo(1080);
+        server.deregisterAsync(registerId).get(5, TimeUnit.SECONDS);
+        assertThat(server.deregistered).containsExactly(1080);
+    }
+
+    @Test
+    public void patchAll() throws Exception {
+        ServiceRegistryServerMock server = new ServiceRegistryServerMock();
+        server.failedPort = 1081;
+
+        BatchResult<RegisterIdMock, Void> result = server.patchAll(Arrays.asList(
+                new RegisterIdMock(1080), new RegisterIdMock(1081)), ServiceInstancePatch.ofWorkMode(WorkMode.DEGRADE));
+        assertThat(result.getFailureCount()).isEqualTo(1);
+        assertThat(result.getFailures().get(0).getInput().port).isEqualTo(1081);
+        assertThat(result.getFailures().get(0).getError().getMessage()).isEqualTo("fail to patch 1081");
+        assertThat(server.patched).containsExactly(1080);
+    }
+
+    private static class RegisterIdMock implements RegisterId {
+        private final int port;
+
+        private RegisterIdMock(int port) {
+            this.port = port;
+        }
+    }
+
+    private static class ServiceRegistryServerMock implements ServiceRegistryServer<RegisterIdMock> {
+        private int failedPort;
+        private List<Integer> deregistered = new ArrayList<>();
+        private List<Integer> patched = new ArrayList<>();
+
+        @Override
+        public RegisterIdMock register(ServiceInstance serviceInstance) {
+            if (serviceInstance.getPort() == failedPort) {
+                throw new IllegalStateException("fail to register " + failedPort);
+            }
+            return new RegisterIdMock(serviceInstance.getPort());
+        }
+
+        @Override
+        public void deregister(RegisterIdMock registerId) {
+            if (registerId.port == failedPort) {
+                throw new IllegalStateException("fail to deregister " + failedPort);
+            }
+            deregistered.add(registerId.port);
+        }
+
+        @Override
+        public void patch(RegisterIdMock registerId, ServiceInstancePatch patch) {
+            if (registerId.port == failedPort) {
+                throw new IllegalStateException("fail to patch " + failedPort);
+            }
+            patched.add(registerId.port);
+        }
+    }
+}
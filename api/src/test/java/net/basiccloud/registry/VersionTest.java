@@ -2,6 +2,8 @@ package net.basiccloud.registry;
 
 import org.junit.Test;
 
+import java.util.regex.Pattern;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 
@@ -94,4 +96,58 @@ public class VersionTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testValueOf_sameAsRegex() throws Exception {
+        // compare with the regex based implementation for all strings of length <= 7 over "019.a"
+        Pattern regex = Pattern.compile("^\\d{1,3}(\\.\\d{1,3}){0,2}$");
+        char[] alphabet = new char[]{'0', '1', '9', '.', 'a'};
+        for (int length = 0; length <= 7; length++) {
+            int count = (int) Math.pow(alphabet.length, length);
+            for (int n = 0; n < count; n++) {
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0, rest = n; i < length; i++, rest /= alphabet.length) {
+                    builder.append(alphabet[rest % alphabet.length]);
+                }
+                String input = builder.toString();
+                if (regex.matcher(input).matches()) {
+                    String[] parts = input.split("\\.");
+                    Version version = Version.valueOf(input);
+                    assertThat(version.getMajor()).isEqualTo(Integer.parseInt(parts[0]));
+                    assertThat(version.getMinor()).isEqualTo(parts.length > 1 ? Integer.parseInt(parts[1]) : 0);
+                    assertThat(version.getPatch()).isEqualTo(parts.length > 2 ? Integer.parseInt(parts[2]) : 0);
+                } else {
+                    try {
+                        Version.valueOf(input);
+                        fail("it should not reach here: " + input);
+                    } catch (Version.InvalidVersionException e) {
+                        assertThat(e.getMessage()).isEqualTo("Invalid version, it should like 1/1.0/1.0.0: version = "
+                                + input);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testValueOf_interned() throws Exception {
+        assertThat(Version.valueOf("2.3.1")).isSameAs(Version.valueOf("2.3.1"));
+        assertThat(Version.valueOf(new String("2.3.1"))).isSameAs(Version.valueOf("2.3.1"));
+    }
+
+    @Test
+    public void testEquals() throws Exception {
+        assertThat(Version.valueOf("2")).isEqualTo(new Version(2, 0, 0));
+        assertThat(Version.valueOf("2.1").hashCode()).isEqualTo(new Version(2, 1, 0).hashCode());
+        assertThat(Version.valueOf("2.1")).isNotEqualTo(new Version(2, 0, 1));
+        assertThat(new Version(999, 999, 999).getMajor()).isEqualTo(999);
+        assertThat(new Version(999, 999, 999).getMinor()).isEqualTo(999);
+        assertThat(new Version(999, 999, 999).getPatch()).isEqualTo(999);
+    }
+
+    @Test
+    public void testFromPackedInt() throws Exception {
+        Version version = new Version(12, 345, 999);
+        assertThat(Version.fromPackedInt(version.toPackedInt())).isEqualTo(version);
+        assertThat(Version.fromPackedInt(0)).isEqualTo(new Version(0, 0, 0));
+    }
+}
@@ -12,4 +12,15 @@ public class WorkModeTest {
         assertThat(WorkMode.DEGRADE.isAvailable()).isTrue();
     }
 
+    @Test
+    public void valueOfCode() throws Exception {
+        for (WorkMode workMode : WorkMode.values()) {
+            assertThat(WorkMode.valueOfCode(workMode.getCode())).isEqualTo(workMode);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void valueOfCode_unknown() throws Exception {
+        WorkMode.valueOfCode(3);
+    }
 }
\ No newline at end of file
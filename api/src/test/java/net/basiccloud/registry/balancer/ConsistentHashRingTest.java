@@ -0,0 +1,127 @@
+package net.basiccloud.registry.balancer;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.WorkMode;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsistentHashRingTest {
+
+    private static ServiceInstance newInstance(int port, WorkMode workMode) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setWorkMode(workMode).build())
+                .build();
+    }
+
+    private static List<ServiceInstance> newInstances(int count) {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            instances.add(newInstance(1080 + i, WorkMode.NORMAL));
+        }
+        return instances;
+    }
+
+    private static Map<String, ServiceInstance> route(ConsistentHashRing ring) {
+        Map<String, ServiceInstance> routes = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            routes.put("key-" + i, ring.pick("key-" + i));
+        }
+        return routes;
+    }
+
+    @Test
+    public void pick() throws Exception {
+        ConsistentHashRing ring = new ConsistentHashRing();
+        assertThat(ring.pick("key")).isNull();
+
+        List<ServiceInstance> instances = newInstances(5);
+        ring.update(instances);
+        assertThat(ring.size()).isEqualTo(5);
+        assertThat(ring.pick("key")).isSameAs(ring.pick("key"));
+        assertThat(ring.pick("key")).isSameAs(ring.pick(ConsistentHashRing.hashKey("key")));
+
+        Map<ServiceInstance, Integer> counts = new HashMap<>();
+        route(ring).values().forEach(instance -> counts.merge(instance, 1, Integer::sum));
+        assertThat(counts.keySet()).containsOnly(instances.toArray(new ServiceInstance[0]));
+        // 200 expected for each
+        counts.values().forEach(count -> assertThat(count).isBetween(100, 300));
+    }
+
+    @Test
+    public void update_incremental() throws Exception {
+        List<ServiceInstance> instances = newInstances(5);
+        ConsistentHashRing ring = new ConsistentHashRing();
+        ring.update(instances);
+        Map<String, ServiceInstance> before = route(ring);
+
+        // join: keys move only to the new instance
+        ServiceInstance joining = newInstance(2000, WorkMode.NORMAL);
+        List<ServiceInstance> joined = new ArrayList<>(instances);
+        joined.add(joining);
+        ring.update(joined);
+        Map<String, ServiceInstance> afterJoin = route(ring);
+        int moved = 0;
+        for (Map.Entry<String, ServiceInstance> entry : afterJoin.entrySet()) {
+            if (entry.getValue() != before.get(entry.getKey())) {
+                assertThat(entry.getValue()).isSameAs(joining);
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(50, 350);
+
+        // leave: only the keys of the leaving instance move
+        ServiceInstance leaving = instances.get(0);
+        List<ServiceInstance> left = new ArrayList<>(joined);
+        left.remove(leaving);
+        ring.update(left);
+        Map<String, ServiceInstance> afterLeave = route(ring);
+        for (Map.Entry<String, ServiceInstance> entry : afterLeave.entrySet()) {
+            assertThat(entry.getValue()).isNotSameAs(leaving);
+            if (afterJoin.get(entry.getKey()) != leaving) {
+                assertThat(entry.getValue()).isSameAs(afterJoin.get(entry.getKey()));
+            }
+        }
+
+        // routed as a ring built from scratch
+        ConsistentHashRing rebuilt = new ConsistentHashRing();
+        rebuilt.update(left);
+        assertThat(route(rebuilt)).isEqualTo(afterLeave);
+    }
+
+    @Test
+    public void update_respectWorkMode() throws Exception {
+        List<ServiceInstance> instances = newInstances(3);
+        ConsistentHashRing ring = new ConsistentHashRing();
+        ring.update(instances);
+        Map<String, ServiceInstance> before = route(ring);
+
+        // the same instance in maintenance leaves the ring
+        ServiceInstance maintenance = newInstance(1080, WorkMode.MAINTENANCE);
+        ring.update(Arrays.asList(maintenance, instances.get(1), instances.get(2)));
+        assertThat(ring.size()).isEqualTo(2);
+        assertThat(route(ring).values()).doesNotContain(instances.get(0));
+
+        // back to normal, the keys come back
+        ring.update(instances);
+        assertThat(route(ring)).isEqualTo(before);
+
+        // degraded but available, keeps its points and is replaced by the new object
+        ServiceInstance degrade = newInstance(1080, WorkMode.DEGRADE);
+        ring.update(Arrays.asList(degrade, instances.get(1), instances.get(2)));
+        for (Map.Entry<String, ServiceInstance> entry : route(ring).entrySet()) {
+            assertThat(entry.getValue())
+                    .isSameAs(before.get(entry.getKey()) == instances.get(0) ? degrade : before.get(entry.getKey()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_invalidVirtualNodes() throws Exception {
+        new ConsistentHashRing(0);
+    }
+}
@@ -0,0 +1,83 @@
+package net.basiccloud.registry.balancer;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.WorkMode;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PowerOfTwoChoicesLoadBalancerTest {
+
+    private static ServiceInstance newInstance(int port, WorkMode workMode) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setWorkMode(workMode).build())
+                .build();
+    }
+
+    @Test
+    public void pickAndRelease() throws Exception {
+        ServiceInstance instance1 = newInstance(1080, WorkMode.NORMAL);
+        ServiceInstance instance2 = newInstance(1081, WorkMode.NORMAL);
+        PowerOfTwoChoicesLoadBalancer balancer = new PowerOfTwoChoicesLoadBalancer();
+        balancer.update(Arrays.asList(instance1, instance2));
+
+        // with two instances both are always compared, so the calls in flight stay balanced
+        for (int i = 0; i < 10; i++) {
+            balancer.pick();
+        }
+        assertThat(balancer.getInFlight(instance1)).isEqualTo(5);
+        assertThat(balancer.getInFlight(instance2)).isEqualTo(5);
+
+        for (int i = 0; i < 4; i++) {
+            balancer.release(instance1);
+        }
+        assertThat(balancer.getInFlight(instance1)).isEqualTo(1);
+        for (int i = 0; i < 4; i++) {
+            assertThat(balancer.pick()).isSameAs(instance1);
+        }
+    }
+
+    @Test
+    public void pick_preferNormalOverDegrade() throws Exception {
+        ServiceInstance normal = newInstance(1080, WorkMode.NORMAL);
+        ServiceInstance degrade = newInstance(1081, WorkMode.DEGRADE);
+        PowerOfTwoChoicesLoadBalancer balancer = new PowerOfTwoChoicesLoadBalancer();
+        balancer.update(Arrays.asList(normal, degrade, newInstance(1082, WorkMode.MAINTENANCE)));
+        assertThat(balancer.size()).isEqualTo(2);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(balancer.pick()).isSameAs(normal);
+        }
+        // 11 calls on weight 100 weigh more than 1 call on weight 10
+        assertThat(balancer.pick()).isSameAs(degrade);
+        assertThat(balancer.getInFlight(normal)).isEqualTo(10);
+        assertThat(balancer.getInFlight(degrade)).isEqualTo(1);
+    }
+
+    @Test
+    public void update_keepInFlight() throws Exception {
+        ServiceInstance instance1 = newInstance(1080, WorkMode.NORMAL);
+        PowerOfTwoChoicesLoadBalancer balancer = new PowerOfTwoChoicesLoadBalancer();
+        balancer.update(Collections.singletonList(instance1));
+        assertThat(balancer.pick()).isSameAs(instance1);
+        assertThat(balancer.pick()).isSameAs(instance1);
+
+        ServiceInstance instance2 = newInstance(1081, WorkMode.NORMAL);
+        balancer.update(Arrays.asList(newInstance(1080, WorkMode.NORMAL), instance2));
+        assertThat(balancer.getInFlight(instance1)).isEqualTo(2);
+        assertThat(balancer.pick()).isSameAs(instance2);
+
+        balancer.update(Collections.singletonList(instance2));
+        assertThat(balancer.getInFlight(instance1)).isEqualTo(0);
+        // release of a removed instance is ignored
+        balancer.release(instance1);
+        balancer.release(instance2);
+        balancer.release(instance2);
+        assertThat(balancer.getInFlight(instance2)).isEqualTo(0);
+    }
+}
@@ -0,0 +1,81 @@
+package net.basiccloud.registry.balancer;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.ServiceInstanceStatus;
+import net.basiccloud.registry.WorkMode;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoundRobinLoadBalancerTest {
+
+    private static ServiceInstance newInstance(int port, WorkMode workMode) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setWorkMode(workMode).build())
+                .build();
+    }
+
+    @Test
+    public void pick() throws Exception {
+        ServiceInstance instance1 = newInstance(1080, WorkMode.NORMAL);
+        ServiceInstance instance2 = newInstance(1081, WorkMode.NORMAL);
+        ServiceInstance instance3 = newInstance(1082, WorkMode.NORMAL);
+        RoundRobinLoadBalancer balancer = new RoundRobinLoadBalancer();
+        balancer.update(Arrays.asList(instance1, instance2, instance3));
+        assertThat(balancer.size()).isEqualTo(3);
+
+        Map<ServiceInstance, Integer> counts = new HashMap<>();
+        ServiceInstance previous = null;
+        for (int i = 0; i < 300; i++) {
+            ServiceInstance picked = balancer.pick();
+            // interleaved, never the same instance twice in a row
+            assertThat(picked).isNotSameAs(previous);
+            counts.merge(picked, 1, Integer::sum);
+            previous = picked;
+        }
+        assertThat(counts.get(instance1)).isEqualTo(100);
+        assertThat(counts.get(instance2)).isEqualTo(100);
+        assertThat(counts.get(instance3)).isEqualTo(100);
+    }
+
+    @Test
+    public void pick_skipUnavailableAndDownWeightDegrade() throws Exception {
+        ServiceInstance normal = newInstance(1080, WorkMode.NORMAL);
+        ServiceInstance degrade = newInstance(1081, WorkMode.DEGRADE);
+        ServiceInstance maintenance = newInstance(1082, WorkMode.MAINTENANCE);
+        ServiceInstance offline = ServiceInstance.newBuilder(newInstance(1083, WorkMode.NORMAL))
+                .setStatus(ServiceInstanceStatus.newBuilder().asOffline().build()).build();
+        RoundRobinLoadBalancer balancer = new RoundRobinLoadBalancer();
+        balancer.update(Arrays.asList(normal, degrade, maintenance, offline));
+        assertThat(balancer.size()).isEqualTo(2);
+
+        Map<ServiceInstance, Integer> counts = new HashMap<>();
+        int total = AbstractLoadBalancer.NORMAL_WEIGHT + AbstractLoadBalancer.DEFAULT_DEGRADE_WEIGHT;
+        for (int i = 0; i < total; i++) {
+            counts.merge(balancer.pick(), 1, Integer::sum);
+        }
+        assertThat(counts.keySet()).containsOnly(normal, degrade);
+        assertThat(counts.get(normal)).isEqualTo(AbstractLoadBalancer.NORMAL_WEIGHT);
+        assertThat(counts.get(degrade)).isEqualTo(AbstractLoadBalancer.DEFAULT_DEGRADE_WEIGHT);
+    }
+
+    @Test
+    public void pick_empty() throws Exception {
+        RoundRobinLoadBalancer balancer = new RoundRobinLoadBalancer();
+        assertThat(balancer.pick()).isNull();
+
+        balancer.update(Collections.singletonList(newInstance(1080, WorkMode.MAINTENANCE)));
+        assertThat(balancer.size()).isEqualTo(0);
+        assertThat(balancer.pick()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_invalidDegradeWeight() throws Exception {
+        new RoundRobinLoadBalancer(AbstractLoadBalancer.NORMAL_WEIGHT + 1);
+    }
+}
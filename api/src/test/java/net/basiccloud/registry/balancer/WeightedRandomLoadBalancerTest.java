@@ -0,0 +1,53 @@
+package net.basiccloud.registry.balancer;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.WorkMode;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WeightedRandomLoadBalancerTest {
+
+    private static ServiceInstance newInstance(int port, WorkMode workMode) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setWorkMode(workMode).build())
+                .build();
+    }
+
+    @Test
+    public void pick() throws Exception {
+        ServiceInstance normal = newInstance(1080, WorkMode.NORMAL);
+        ServiceInstance degrade = newInstance(1081, WorkMode.DEGRADE);
+        ServiceInstance maintenance = newInstance(1082, WorkMode.MAINTENANCE);
+        WeightedRandomLoadBalancer balancer = new WeightedRandomLoadBalancer(50);
+        balancer.update(Arrays.asList(normal, degrade, maintenance));
+        assertThat(balancer.size()).isEqualTo(2);
+
+        Map<ServiceInstance, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30000; i++) {
+            counts.merge(balancer.pick(), 1, Integer::sum);
+        }
+        assertThat(counts.keySet()).containsOnly(normal, degrade);
+        // expected 20000 and 10000
+        assertThat(counts.get(normal)).isBetween(19000, 21000);
+        assertThat(counts.get(degrade)).isBetween(9000, 11000);
+    }
+
+    @Test
+    public void pick_zeroDegradeWeight() throws Exception {
+        ServiceInstance normal = newInstance(1080, WorkMode.NORMAL);
+        WeightedRandomLoadBalancer balancer = new WeightedRandomLoadBalancer(0);
+        balancer.update(Arrays.asList(newInstance(1081, WorkMode.DEGRADE), normal));
+        for (int i = 0; i < 100; i++) {
+            assertThat(balancer.pick()).isSameAs(normal);
+        }
+
+        balancer.update(Collections.emptyList());
+        assertThat(balancer.pick()).isNull();
+    }
+}
@@ -0,0 +1,165 @@
+package net.basiccloud.registry.cache;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceRegistryClient;
+import net.basiccloud.registry.Version;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingServiceRegistryClientTest {
+
+    private static ServiceInstance newInstance(int port) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port).build();
+    }
+
+    @Test
+    public void discover_cachedAndRefreshedByWatch() throws Exception {
+        ServiceRegistryClientMock mock = new ServiceRegistryClientMock();
+        ServiceInstance instance1 = newInstance(1080);
+        mock.instances = Collections.singletonList(instance1);
+        CachingServiceRegistryClient client = new CachingServiceRegistryClient(mock);
+
+        List<ServiceInstance> list1 = client.discover("Main", "UserService");
+        List<ServiceInstance> list2 = client.discover("Main", "UserService");
+        assertThat(list1).containsExactly(instance1);
+        assertThat(list2).isSameAs(list1);
+        assertThat(mock.discoverCount).isEqualTo(1);
+        assertThat(mock.listeners).hasSize(1);
+        assertThat(client.getMissCount()).isEqualTo(1L);
+        assertThat(client.getHitCount()).isEqualTo(1L);
+
+        ServiceInstance instance2 = newInstance(1081);
+        mock.listeners.get(0).update(Arrays.asList(instance1, instance2));
+        assertThat(client.discover("Main", "UserService")).containsExactly(instance1, instance2);
+        assertThat(mock.discoverCount).isEqualTo(1);
+        assertThat(client.getRefreshCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void discover_cachedPerVersion() throws Exception {
+        ServiceRegistryClientMock mock = new ServiceRegistryClientMock();
+        mock.instances = Collections.singletonList(newInstance(1080));
+        CachingServiceRegistryClient client = new CachingServiceRegistryClient(mock);
+
+        client.discover("Main", "UserService");
+        client.discover("Main", "UserService", Version.valueOf("1.0"));
+        client.discover("Main", "UserService", Version.valueOf("1.0.0"));
+        client.discover("Main", "UserService", Version.valueOf("2.0"));
+        assertThat(mock.discoverCount).isEqualTo(3);
+        assertThat(mock.watchedVersions).containsExactly(null, Version.valueOf("1.0"), Version.valueOf("2.0"));
+        assertThat(client.getHitCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void discover_updatedByWatchFromAnotherThread() throws Exception {
+        ServiceRegistryClientMock mock = new ServiceRegistryClientMock();
+        mock.instances = Collections.singletonList(newInstance(1080));
+        mock.updateOnWatch = true;
+        CachingServiceRegistryClient client = new CachingServiceRegistryClient(mock);
+
+        assertThat(client.discover("Main", "UserService")).containsExactly(newInstance(1080));
+        assertThat(mock.updatedOnWatch).isTrue();
+        assertThat(mock.discoverCount).isEqualTo(0);
+        assertThat(client.getRefreshCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void discover_notCachedIfWatchFails() throws Exception {
+        ServiceRegistryClientMock mock = new ServiceRegistryClientMock();
+        mock.instances = Collections.singletonList(newInstance(1080));
+        mock.watchResult = false;
+        CachingServiceRegistryClient client = new CachingServiceRegistryClient(mock);
+
+        client.discover("Main", "UserService");
+        client.discover("Main", "UserService");
+        assertThat(mock.discoverCount).isEqualTo(2);
+        assertThat(mock.listeners).hasSize(2);
+        assertThat(client.getMissCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void discover_servedFromSnapshotFile() throws Exception {
+        SnapshotFile snapshotFile = SnapshotFile.newBuilder()
+                .setPath(Files.createTempDirectory("registry-snapshot").resolve("snapshot.bin")).build();
+        ServiceRegistryClientMock mock = new ServiceRegistryClientMock();
+        ServiceInstance instance1 = newInstance(1080);
+        mock.instances = Collections.singletonList(instance1);
+        CachingServiceRegistryClient client = new CachingServiceRegistryClient(mock, snapshotFile);
+        client.discover("Main", "UserService");
+        client.discover("Main", "UserService", Version.valueOf("1.0"));
+        client.saveSnapshots();
+
+        // registry is not reachable on restart
+        ServiceRegistryClientMock restartedMock = new ServiceRegistryClientMock();
+        restartedMock.watchResult = false;
+        CachingServiceRegistryClient restarted = new CachingServiceRegistryClient(restartedMock, snapshotFile);
+        assertThat(restarted.discover("Main", "UserService")).containsExactly(instance1);
+        assertThat(restarted.discover("Main", "UserService", Version.valueOf("1.0"))).containsExactly(instance1);
+        assertThat(restarted.isStale("Main", "UserService", null)).isTrue();
+        assertThat(restarted.isStale("Main", "UserService", Version.valueOf("1.0"))).isTrue();
+        assertThat(restarted.isStale("Main", "OtherService", null)).isFalse();
+        assertThat(restartedMock.discoverCount).isEqualTo(0);
+        assertThat(restarted.getMissCount()).isEqualTo(0L);
+
+        // reconciled in background by watch
+        long deadline = System.currentTimeMillis() + 5000;
+        while (restartedMock.listeners.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(restartedMock.listeners).hasSize(2);
+        ServiceInstance instance2 = newInstance(1081);
+        for (ServiceRegistryClient.ClientListener listener : restartedMock.listeners) {
+            listener.update(Collections.singletonList(instance2));
+        }
+        assertThat(restarted.isStale("Main", "UserService", null)).isFalse();
+        assertThat(restarted.discover("Main", "UserService")).containsExactly(instance2);
+    }
+
+    private static class ServiceRegistryClientMock implements ServiceRegistryClient {
+        private List<ServiceInstance> instances = Collections.emptyList();
+        private boolean watchResult = true;
+        private int discoverCount;
+        private List<ClientListener> listeners = Collections.synchronizedList(new ArrayList<>());
+        private List<Version> watchedVersions = Collections.synchronizedList(new ArrayList<>());
+        /**
+         * deliver the instances from a notification thread before watch returns, as some registries do.
+         */
+        private boolean updateOnWatch;
+        private volatile boolean updatedOnWatch;
+
+        @Override
+        public List<ServiceInstance> discover(String group, String service) {
+            discoverCount++;
+            return instances;
+        }
+
+        @Override
+        public List<ServiceInstance> discover(String group, String service, Version version) {
+            discoverCount++;
+            return instances;
+        }
+
+        @Override
+        public boolean watch(String group, String service, Version version, ClientListener clientListener) {
+            listeners.add(clientListener);
+            watchedVersions.add(version);
+            if (updateOnWatch) {
+                Thread notifier = new Thread(() -> clientListener.update(instances));
+                notifier.setDaemon(true);
+                notifier.start();
+                try {
+                    notifier.join(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                updatedOnWatch = !notifier.isAlive();
+            }
+            return watchResult;
+        }
+    }
+}
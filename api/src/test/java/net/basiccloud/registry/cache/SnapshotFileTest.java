@@ -0,0 +1,99 @@
+package net.basiccloud.registry.cache;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.ServiceInstanceStatus;
+import net.basiccloud.registry.Version;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotFileTest {
+
+    private static ServiceInstance newInstance(int port) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setTags("zone-a").build())
+                .setStatus(ServiceInstanceStatus.newBuilder().asOnline().build())
+                .build();
+    }
+
+    private static Path newPath() throws Exception {
+        Path directory = Files.createTempDirectory("registry-snapshot");
+        directory.toFile().deleteOnExit();
+        return directory.resolve("snapshot.bin");
+    }
+
+    @Test
+    public void saveAndLoad() throws Exception {
+        SnapshotFile file = SnapshotFile.newBuilder().setPath(newPath()).build();
+        assertThat(file.load()).isEmpty();
+
+        ServiceInstance instance1 = newInstance(1080);
+        ServiceInstance instance2 = newInstance(1081);
+        long now = System.currentTimeMillis();
+        file.save(Arrays.asList(
+                new SnapshotFile.Entry("Main", "UserService", null, Arrays.asList(instance1, instance2), now),
+                new SnapshotFile.Entry("Main", "UserService", Version.valueOf("1.0"),
+                        Collections.singletonList(instance1), now - 1000),
+                new SnapshotFile.Entry("Main", "EmptyService", null, Collections.emptyList(), now)));
+
+        List<SnapshotFile.Entry> entries = file.load();
+        assertThat(entries).hasSize(3);
+        assertThat(entries.get(0).getGroup()).isEqualTo("Main");
+        assertThat(entries.get(0).getService()).isEqualTo("UserService");
+        assertThat(entries.get(0).getVersion()).isNull();
+        assertThat(entries.get(0).getInstances()).containsExactly(instance1, instance2);
+        assertThat(entries.get(0).getUpdateTime()).isEqualTo(now);
+        assertThat(entries.get(1).getVersion()).isEqualTo(Version.valueOf("1.0"));
+        assertThat(entries.get(1).getInstances()).containsExactly(instance1);
+        assertThat(entries.get(1).getUpdateTime()).isEqualTo(now - 1000);
+        assertThat(entries.get(2).getService()).isEqualTo("EmptyService");
+        assertThat(entries.get(2).getInstances()).isEmpty();
+
+        // replaced by the next save
+        file.save(Collections.emptyList());
+        assertThat(file.load()).isEmpty();
+    }
+
+    @Test
+    public void load_dropExpired() throws Exception {
+        SnapshotFile file = SnapshotFile.newBuilder().setPath(newPath()).setMaxAgeMillis(60000).build();
+        long now = System.currentTimeMillis();
+        file.save(Arrays.asList(
+                new SnapshotFile.Entry("Main", "OldService", null, Collections.singletonList(newInstance(1080)),
+                        now - 120000),
+                new SnapshotFile.Entry("Main", "UserService", null, Collections.singletonList(newInstance(1081)),
+                        now)));
+
+        List<SnapshotFile.Entry> entries = file.load();
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).getService()).isEqualTo("UserService");
+    }
+
+    @Test
+    public void load_corrupted() throws Exception {
+        Path path = newPath();
+        SnapshotFile file = SnapshotFile.newBuilder().setPath(path).build();
+        file.save(Collections.singletonList(new SnapshotFile.Entry("Main", "UserService", null,
+                Collections.singletonList(newInstance(1080)), System.currentTimeMillis())));
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 3] ^= 0x55;
+        Files.write(path, bytes);
+        assertThat(file.load()).isEmpty();
+
+        Files.write(path, new byte[]{1, 2, 3});
+        assertThat(file.load()).isEmpty();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void newBuilder_withoutPath() throws Exception {
+        SnapshotFile.newBuilder().build();
+    }
+}
@@ -0,0 +1,141 @@
+package net.basiccloud.registry.codec;
+
+import net.basiccloud.registry.*;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServiceInstanceCodecTest {
+
+    private static ServiceInstance newInstance(int port) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port)
+                .setData(ServiceInstanceData.newBuilder()
+                        .setServiceType("CUSTOM")
+                        .setServiceVersion("1.2.3")
+                        .setFrameworkVersion("0.9.100")
+                        .setWorkMode(WorkMode.DEGRADE)
+                        .setTags("zone-a", "canary", "区域")
+                        .addGrpcPort(port)
+                        .addHttpPort(8080)
+                        .addPort("thrift", 9090)
+                        .build())
+                .setStatus(ServiceInstanceStatus.newBuilder().asOnline().setComment("上线 🚀")
+                        .setLeaseId(Long.MAX_VALUE).build())
+                .build();
+    }
+
+    @Test
+    public void encodeAndDecode() throws Exception {
+        ServiceInstance instance = newInstance(1080);
+        ByteBuffer buffer = ServiceInstanceCodec.encode(instance);
+        assertThat(buffer.remaining()).isEqualTo(ServiceInstanceCodec.encodedSize(instance));
+
+        ServiceInstance decoded = ServiceInstanceCodec.decodeInstance(buffer);
+        assertThat(decoded).isEqualTo(instance);
+        assertThat(decoded.getData()).isEqualTo(instance.getData());
+        assertThat(decoded.getStatus()).isEqualTo(instance.getStatus());
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void encodeAndDecode_withoutDataAndStatus() throws Exception {
+        ServiceInstance instance = ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080).build();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        ServiceInstanceCodec.encode(instance, buffer);
+        assertThat(buffer.position()).isEqualTo(ServiceInstanceCodec.encodedSize(instance));
+
+        buffer.flip();
+        ServiceInstance decoded = ServiceInstanceCodec.decodeInstance(buffer);
+        assertThat(decoded).isEqualTo(instance);
+        assertThat(decoded.getData()).isNull();
+        assertThat(decoded.getStatus()).isNull();
+    }
+
+    @Test
+    public void encodeList() throws Exception {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            instances.add(newInstance(1000 + i));
+        }
+        ByteBuffer buffer = ServiceInstanceCodec.encodeList(instances);
+        assertThat(ServiceInstanceCodec.decodeList(buffer)).isEqualTo(instances);
+        assertThat(buffer.hasRemaining()).isFalse();
+
+        assertThat(ServiceInstanceCodec.decodeList(ServiceInstanceCodec.encodeList(new ArrayList<>()))).isEmpty();
+    }
+
+    @Test
+    public void encodeVersionAndStatus() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        Version version = new Version(999, 999, 999);
+        ServiceInstanceStatus status = ServiceInstanceStatus.newBuilder().asOffline().setComment(null).build();
+        ServiceInstanceCodec.encodeVersion(version, buffer);
+        ServiceInstanceCodec.encodeStatus(status, buffer);
+        ServiceInstanceData data = newInstance(1080).getData();
+        ServiceInstanceCodec.encodeData(data, buffer);
+        buffer.flip();
+
+        assertThat(ServiceInstanceCodec.decodeVersion(buffer)).isEqualTo(version);
+        ServiceInstanceStatus decodedStatus = ServiceInstanceCodec.decodeStatus(buffer);
+        assertThat(decodedStatus).isEqualTo(status);
+        assertThat(decodedStatus.getComment()).isNull();
+        assertThat(ServiceInstanceCodec.decodeData(buffer)).isEqualTo(data);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void decode_varIntOverflow() throws Exception {
+        // format, then a 5 byte varint of the version with overflow bits in the last byte
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{1, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10});
+        try {
+            ServiceInstanceCodec.decodeVersion(buffer);
+            throw new AssertionError("overflow should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).isEqualTo("malformed varint");
+        }
+    }
+
+    @Test
+    public void encodeData_wellKnownProtocolsInOneByte() throws Exception {
+        ServiceInstanceData data = ServiceInstanceData.newBuilder().setServiceVersion("1.0.0")
+                .setFrameworkVersion("1.0.0").addGrpcPort(9090).build();
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        ServiceInstanceCodec.encodeData(data, buffer);
+        // format, type, 2 versions of 3 bytes, work mode, tag count, port count, protocol, port
+        assertThat(buffer.position()).isEqualTo(1 + 1 + 3 + 3 + 1 + 1 + 1 + 1 + 2);
+        buffer.flip();
+        assertThat(ServiceInstanceCodec.decodeData(buffer)).isEqualTo(data);
+    }
+
+    @Test
+    public void encodeData_nullServiceType() throws Exception {
+        ServiceInstanceData data = ServiceInstanceData.newBuilder().setServiceType("").setServiceVersion("1.0.0")
+                .setFrameworkVersion("1.0.0").build();
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        ServiceInstanceCodec.encodeData(data, buffer);
+        buffer.flip();
+        assertThat(ServiceInstanceCodec.decodeData(buffer).getServiceType()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_unsupportedFormatVersion() throws Exception {
+        ServiceInstanceCodec.decodeInstance(ByteBuffer.wrap(new byte[]{2, 0}));
+    }
+
+    @Test
+    public void decode_sliceOfHeapBuffer() throws Exception {
+        ServiceInstance instance = newInstance(1080);
+        ByteBuffer encoded = ServiceInstanceCodec.encode(instance);
+        byte[] bytes = new byte[encoded.remaining() + 3];
+        encoded.get(bytes, 3, encoded.capacity());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(3);
+        assertThat(ServiceInstanceCodec.decodeInstance(buffer.slice())).isEqualTo(instance);
+    }
+}
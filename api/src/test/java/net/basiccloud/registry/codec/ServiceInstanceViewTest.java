@@ -0,0 +1,106 @@
+package net.basiccloud.registry.codec;
+
+import net.basiccloud.registry.*;
+import net.basiccloud.registry.ServiceInstanceStatus.Status;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServiceInstanceViewTest {
+
+    private static ServiceInstance newInstance(int port) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port)
+                .setData(ServiceInstanceData.newBuilder()
+                        .setServiceVersion("1.2.3")
+                        .setFrameworkVersion("1.0.0")
+                        .setWorkMode(WorkMode.DEGRADE)
+                        .setTags("zone-a")
+                        .addGrpcPort(port)
+                        .build())
+                .setStatus(ServiceInstanceStatus.newBuilder().asOnline().setLeaseId(42).build())
+                .build();
+    }
+
+    @Test
+    public void decodeViews() throws Exception {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            instances.add(newInstance(1000 + i));
+        }
+        instances.add(ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.2").setPort(1080).build());
+        ByteBuffer buffer = ServiceInstanceCodec.encodeList(instances);
+        List<ServiceInstanceView> views = ServiceInstanceCodec.decodeViews(buffer);
+        assertThat(buffer.hasRemaining()).isFalse();
+        assertThat(views).hasSize(11);
+
+        ServiceInstanceView view = views.get(3);
+        ServiceInstance instance = instances.get(3);
+        assertThat(view.getGroup()).isEqualTo("Main");
+        assertThat(view.getService()).isEqualTo("UserService");
+        assertThat(view.getIp()).isEqualTo("192.168.0.1");
+        assertThat(view.getPort()).isEqualTo(1003);
+        assertThat(view.hasData()).isTrue();
+        assertThat(view.getServiceType()).isEqualTo(ServiceInstanceData.LIGHT_SERVICE_TYPE);
+        assertThat(view.getServiceVersion()).isEqualTo(Version.valueOf("1.2.3"));
+        assertThat(view.getFrameworkVersion()).isEqualTo(Version.valueOf("1.0.0"));
+        assertThat(view.getWorkMode()).isEqualTo(WorkMode.DEGRADE);
+        assertThat(view.getTags()).containsExactly("zone-a");
+        assertThat(view.getPorts()).isEqualTo(instance.getData().getPorts());
+        assertThat(view.getStatus()).isEqualTo(Status.ONLINE);
+        assertThat(view.isOnline()).isTrue();
+        assertThat(view.getLastUpdateTime()).isEqualTo(instance.getStatus().getLastUpdateTime());
+        assertThat(view.getComment()).isEqualTo(instance.getStatus().getComment());
+        assertThat(view.getLeaseId()).isEqualTo(42);
+        assertThat(view.toServiceInstance()).isEqualTo(instance);
+
+        ServiceInstanceView last = views.get(10);
+        assertThat(last.getIp()).isEqualTo("192.168.0.2");
+        assertThat(last.hasData()).isFalse();
+        assertThat(last.hasStatus()).isFalse();
+        assertThat(last.isOnline()).isFalse();
+        assertThat(last.toServiceInstance()).isEqualTo(instances.get(10));
+    }
+
+    @Test
+    public void decodeView() throws Exception {
+        ServiceInstance instance = newInstance(1080);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        ServiceInstanceCodec.encode(instance, buffer);
+        ServiceInstanceCodec.encode(newInstance(1081), buffer);
+        buffer.flip();
+
+        ServiceInstanceView view = ServiceInstanceCodec.decodeView(buffer);
+        assertThat(ServiceInstanceCodec.decodeView(buffer).getPort()).isEqualTo(1081);
+        assertThat(view.getIp()).isEqualTo("192.168.0.1");
+        assertThat(view.toServiceInstance()).isEqualTo(instance);
+        assertThat(Arrays.asList(view.getTags())).containsExactly("zone-a");
+    }
+
+    @Test
+    public void getStrings_decodedOnce() throws Exception {
+        ServiceInstance instance = ServiceInstance.newBuilder(newInstance(1080))
+                .setData(ServiceInstanceData.newBuilder().setServiceType("CUSTOM").setServiceVersion("1.2.3")
+                        .setFrameworkVersion("1.0.0").build())
+                .setStatus(ServiceInstanceStatus.newBuilder().asOnline().build())
+                .build();
+        ServiceInstanceView view = ServiceInstanceCodec.decodeView(ServiceInstanceCodec.encode(instance));
+        assertThat(view.getServiceType()).isEqualTo("CUSTOM");
+        assertThat(view.getServiceType()).isSameAs(view.getServiceType());
+        assertThat(view.getComment()).isEqualTo("Service is online.");
+        assertThat(view.getComment()).isSameAs(view.getComment());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getTags_withoutData() throws Exception {
+        ServiceInstance instance = ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080).build();
+        ServiceInstanceCodec.decodeView(ServiceInstanceCodec.encode(instance)).getTags();
+    }
+}
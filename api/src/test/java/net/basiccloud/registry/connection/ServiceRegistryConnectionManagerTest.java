@@ -0,0 +1,411 @@
+package net.basiccloud.registry.connection;
+
+import com.google.common.collect.ImmutableMap;
+import net.basiccloud.registry.*;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class ServiceRegistryConnectionManagerTest {
+
+    private static final Map<String, String> PARAMETERS_1 = ImmutableMap.of("registry.registryUrl", "mock://host1");
+    private static final Map<String, String> PARAMETERS_2 = ImmutableMap.of("registryUrl", "mock://host2");
+
+    private static ServiceInstance newInstance(int port) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port).build();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    public void acquire_sharedAndReferenceCounted() throws Exception {
+        FactoryMock factory = new FactoryMock();
+        ServiceRegistryConnectionManager manager = ServiceRegistryConnectionManager.newBuilder()
+                .setFactory(factory).build();
+
+        SharedServiceRegistryConnection conn1 = manager.acquire(PARAMETERS_1);
+        SharedServiceRegistryConnection conn2 = manager.acquire(ImmutableMap.of("registryUrl", " mock://host1 "));
+        SharedServiceRegistryConnection conn3 = manager.acquire(PARAMETERS_2);
+        assertThat(factory.connectCount.get()).isEqualTo(2);
+        assertThat(manager.getConnectionCount()).isEqualTo(2);
+        assertThat(conn1.getRegistryUrl()).isEqualTo("mock://host1");
+        assertThat(conn1.getClient()).isSameAs(conn2.getClient());
+        assertThat(conn1.getServer()).isSameAs(conn2.getServer());
+        assertThat(conn1.getClient()).isNotSameAs(conn3.getClient());
+
+        conn1.close();
+        conn1.close();
+        assertThat(manager.getConnectionCount()).isEqualTo(2);
+        conn2.close();
+        assertThat(manager.getConnectionCount()).isEqualTo(1);
+
+        // connects again after the last release
+        manager.acquire(PARAMETERS_1);
+        assertThat(factory.connectCount.get()).isEqualTo(3);
+        manager.close();
+        assertThat(manager.getConnectionCount()).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getClient_closedHandle() throws Exception {
+        ServiceRegistryConnectionManager manager = ServiceRegistryConnectionManager.newBuilder()
+                .setFactory(new FactoryMock()).build();
+        SharedServiceRegistryConnection conn = manager.acquire(PARAMETERS_1);
+        conn.close();
+        conn.getClient();
+    }
+
+    @Test
+    public void acquire_connectTimeout() throws Exception {
+        FactoryMock factory = new FactoryMock();
+        ServiceRegistryConnectionManager manager = ServiceRegistryConnectionManager.newBuilder()
+                .setFactory(factory).build();
+        factory.connectGate = new CountDownLatch(1);
+        try {
+            manager.acquire(ImmutableMap.of("registryUrl", "mock://host1", "connectTimeoutMillis", "20"));
+            fail("connect should time out");
+        } catch (ServiceRegistryConnectionException e) {
+            // expected
+        } finally {
+            factory.connectGate.countDown();
+        }
+        assertThat(factory.backends.get(0).closeCount.get()).isEqualTo(1);
+        assertThat(manager.getConnectionCount()).isEqualTo(0);
+        manager.close();
+    }
+
+    @Test
+    public void watch_coalescedByWatchWindow() throws Exception {
+        FactoryMock factory = new FactoryMock();
+        ServiceRegistryConnectionManager manager = ServiceRegistryConnectionManager.newBuilder()
+                .setFactory(factory).build();
+        SharedServiceRegistryConnection conn = manager.acquire(
+                ImmutableMap.of("registryUrl", "mock://host1", "light.client.watchWindowMillis", "20"));
+        List<List<ServiceInstance>> updates = Collections.synchronizedList(new ArrayList<>());
+        assertThat(conn.getClient().watch("Main", "UserService", null, updates::add)).isTrue();
+
+        ServiceRegistryClient.ClientListener listener = factory.backends.get(0).listeners.get(0);
+        for (int port = 1080; port < 1083; port++) {
+            listener.update(Collections.singletonList(newInstance(port)));
+        }
+        waitUntil(() -> !updates.isEmpty());
+        Thread.sleep(50);
+        assertThat(updates).containsExactly(Collections.singletonList(newInstance(1082)));
+        manager.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void acquire_withoutRegistryUrl() throws Exception {
+        ServiceRegistryConnectionManager.newBuilder().setFactory(new FactoryMock()).build()
+                .acquire(Collections.emptyMap());
+    }
+
+    @Test
+    public void reconnect_replayWatchesAndRegistrations() throws Exception {
+        FactoryMock factory = new FactoryMock();
+        ServiceRegistryConnectionManager manager = ServiceRegistryConnectionManager.newBuilder()
+                .setFactory(factory).setInitialBackoffMillis(1).setMaxBackoffMillis(10).build();
+        SharedServiceRegistryConnection conn = manager.acquire(PARAMETERS_1);
+        ServiceRegistryClient client = conn.getClient();
+        ServiceRegistryServer<RegisterId> server = conn.getServer();
+
+        List<List<ServiceInstance>> updates = Collections.synchronizedList(new ArrayList<>());
+        assertThat(client.watch("Main", "UserService", null, updates::add)).isTrue();
+        RegisterId registerId1 = server.register(newInstance(1080));
+        RegisterId registerId2 = server.register(newInstance(1081));
+        server.deregister(registerId2);
+        assertThat(conn.getWatchCount()).isEqualTo(1);
+        assertThat(conn.getRegistrationCount()).isEqualTo(1);
+
+        // registry down: the failed call starts reconnecting, the first 3 reconnects fail
+        factory.failures.set(3);
+        factory.backends.get(0).down = true;
+        try {
+            client.discover("Main", "UserService");
+        } catch (ServiceRegistryConnectionException e) {
+            // expected
+        }
+        waitUntil(() -> conn.getReconnectCount() == 1);
+        assertThat(conn.isReconnecting()).isFalse();
+        assertThat(factory.connectCount.get()).isEqualTo(5);
+
+        BackendMock backend = factory.backends.get(1);
+        assertThat(backend.listeners).hasSize(1);
+        assertThat(backend.registered).containsExactly(newInstance(1080));
+        // the listener is detached from the old backend
+        factory.backends.get(0).listeners.get(0).update(Collections.singletonList(newInstance(1081)));
+        assertThat(updates).isEmpty();
+        backend.listeners.get(0).update(Collections.singletonList(newInstance(1080)));
+        assertThat(updates).containsExactly(Collections.singletonList(newInstance(1080)));
+        assertThat(client.discover("Main", "UserService")).isEmpty();
+
+        // the first register id deregisters the replayed registration
+        server.deregister(registerId1);
+        assertThat(backend.registered).isEmpty();
+        assertThat(conn.getRegistrationCount()).isEqualTo(0);
+        manager.close();
+    }
+
+    @Test
+    public void reconnect_registerWhileReplaying() throws Exception {
+        FactoryMock factory = new FactoryMock();
+        ServiceRegistryConnectionManager manager = ServiceRegistryConnectionManager.newBuilder()
+                .setFactory(factory).build();
+        SharedServiceRegistryConnection conn = manager.acquire(PARAMETERS_1);
+        ServiceRegistryServer<RegisterId> server = conn.getServer();
+        assertThat(conn.getClient().watch("Main", "UserService", null, list -> { })).isTrue();
+        server.register(newInstance(1080));
+
+        // the replay of the watch blocks until released
+        factory.watchGate = new CountDownLatch(1);
+        conn.reconnect();
+        waitUntil(() -> factory.backends.size() == 2);
+        RegisterId registerId = server.register(newInstance(1081));
+        factory.watchGate.countDown();
+        waitUntil(() -> conn.getReconnectCount() == 1);
+
+        BackendMock backend = factory.backends.get(1);
+        assertThat(backend.registered).hasSize(2);
+        assertThat(backend.registered).contains(newInstance(1080), newInstance(1081));
+        server.deregister(registerId);
+        assertThat(backend.registered).containsExactly(newInstance(1080));
+        manager.close();
+    }
+
+    @Test
+    public void reconnect_replayPatchedRegistrations() throws Exception {
+        FactoryMock factory = new FactoryMock();
+        ServiceRegistryConnectionManager manager = ServiceRegistryConnectionManager.newBuilder()
+                .setFactory(factory).setInitialBackoffMillis(1).setMaxBackoffMillis(10).build();
+        SharedServiceRegistryConnection conn = manager.acquire(PARAMETERS_1);
+        ServiceRegistryServer<RegisterId> server = conn.getServer();
+        RegisterId registerId = server.register(newInstance(1080));
+        ServiceInstanceStatus offline = ServiceInstanceStatus.newBuilder().asOffline().build();
+        server.updateStatus(registerId, offline);
+        assertThat(factory.backends.get(0).registered.get(0).getStatus()).isEqualTo(offline);
+
+        conn.reconnect();
+        waitUntil(() -> conn.getReconnectCount() == 1);
+        assertThat(factory.backends.get(1).registered.get(0).getStatus()).isEqualTo(offline);
+
+        BatchResult<RegisterId, Void> result = server.patchAll(Collections.singletonList(registerId),
+                ServiceInstancePatch.ofStatus(ServiceInstanceStatus.newBuilder().asOnline().build()));
+        assertThat(result.isAllSuccess()).isTrue();
+        assertThat(factory.backends.get(1).registered.get(0).getStatus().isOnline()).isTrue();
+        manager.close();
+    }
+
+    @Test
+    public void close_closeReplacedFailedAndReleasedBackends() throws Exception {
+        FactoryMock factory = new FactoryMock();
+        ServiceRegistryConnectionManager manager = ServiceRegistryConnectionManager.newBuilder()
+                .setFactory(factory).setInitialBackoffMillis(1).setMaxBackoffMillis(10).build();
+        SharedServiceRegistryConnection conn = manager.acquire(PARAMETERS_1);
+        ServiceRegistryServer<RegisterId> server = conn.getServer();
+        server.register(newInstance(1080));
+        server.register(newInstance(1081));
+
+        // the replay to the second backend fails at the second registration
+        factory.registerLimit = 1;
+        conn.reconnect();
+        waitUntil(() -> factory.backends.size() >= 2 && factory.backends.get(1).closeCount.get() == 1);
+        factory.registerLimit = Integer.MAX_VALUE;
+        waitUntil(() -> conn.getReconnectCount() == 1);
+        BackendMock failed = factory.backends.get(1);
+        assertThat(failed.registered).isEmpty();
+
+        // the replaced backend is deregistered and closed
+        BackendMock replaced = factory.backends.get(0);
+        BackendMock current = factory.backends.get(factory.backends.size() - 1);
+        assertThat(replaced.closeCount.get()).isEqualTo(1);
+        assertThat(replaced.registered).isEmpty();
+        assertThat(current.closeCount.get()).isEqualTo(0);
+        assertThat(current.registered).hasSize(2);
+
+        // the last release deregisters and closes the current backend
+        conn.close();
+        assertThat(current.closeCount.get()).isEqualTo(1);
+        assertThat(current.registered).isEmpty();
+
+        // the manager closes the backends of the connections left
+        manager.acquire(PARAMETERS_1);
+        manager.acquire(PARAMETERS_2);
+        int size = factory.backends.size();
+        manager.close();
+        assertThat(factory.backends.get(size - 2).closeCount.get()).isEqualTo(1);
+        assertThat(factory.backends.get(size - 1).closeCount.get()).isEqualTo(1);
+        for (BackendMock backend : factory.backends) {
+            assertThat(backend.closeCount.get()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void backoffMillis() throws Exception {
+        ServiceRegistryConnectionManager manager = ServiceRegistryConnectionManager.newBuilder()
+                .setFactory(new FactoryMock()).setInitialBackoffMillis(100).setMaxBackoffMillis(1000).build();
+        assertThat(manager.backoffMillis(0)).isEqualTo(0L);
+        for (int i = 0; i < 100; i++) {
+            assertThat(manager.backoffMillis(1)).isBetween(50L, 100L);
+            assertThat(manager.backoffMillis(3)).isBetween(200L, 400L);
+            assertThat(manager.backoffMillis(10)).isBetween(500L, 1000L);
+            assertThat(manager.backoffMillis(100)).isBetween(500L, 1000L);
+        }
+        manager.close();
+    }
+
+    private static class BackendMock implements ServiceRegistryConnection, ServiceRegistryClient,
+            ServiceRegistryServer<RegisterId> {
+        private volatile boolean down;
+        private final AtomicInteger closeCount = new AtomicInteger();
+        private final CountDownLatch connectGate;
+        private final CountDownLatch watchGate;
+        private final int registerLimit;
+        private final List<ClientListener> listeners = Collections.synchronizedList(new ArrayList<>());
+        private final List<ServiceInstance> registered = Collections.synchronizedList(new ArrayList<>());
+
+        private BackendMock(CountDownLatch connectGate, CountDownLatch watchGate, int registerLimit) {
+            this.connectGate = connectGate;
+            this.watchGate = watchGate;
+            this.registerLimit = registerLimit;
+        }
+
+        @Override
+        public void connect() {
+            try {
+                connectGate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            checkUp();
+        }
+
+        @Override
+        public List<ServiceInstance> discover(String group, String service) {
+            checkUp();
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<ServiceInstance> discover(String group, String service, Version version) {
+            return discover(group, service);
+        }
+
+        @Override
+        public boolean watch(String group, String service, Version version, ClientListener clientListener) {
+            checkUp();
+            try {
+                watchGate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            listeners.add(clientListener);
+            return true;
+        }
+
+        @Override
+        public RegisterId register(ServiceInstance serviceInstance) {
+            checkUp();
+            if (registered.size() >= registerLimit) {
+                throw new ServiceRegistryConnectionException("too many registrations");
+            }
+            registered.add(serviceInstance);
+            return new MockRegisterId(serviceInstance);
+        }
+
+        @Override
+        public void deregister(RegisterId registerId) {
+            checkUp();
+            registered.remove(((MockRegisterId) registerId).instance);
+        }
+
+        @Override
+        public void patch(RegisterId registerId, ServiceInstancePatch patch) {
+            checkUp();
+            synchronized (registered) {
+                for (int i = 0; i < registered.size(); i++) {
+                    if (registered.get(i).getId().equals(((MockRegisterId) registerId).instance.getId())) {
+                        registered.set(i, patch.applyTo(registered.get(i)));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closeCount.incrementAndGet();
+        }
+
+        private void checkUp() {
+            if (down) {
+                throw new ServiceRegistryConnectionException("registry down");
+            }
+        }
+    }
+
+    private static class MockRegisterId implements RegisterId {
+        private final ServiceInstance instance;
+
+        private MockRegisterId(ServiceInstance instance) {
+            this.instance = instance;
+        }
+    }
+
+    private static class FactoryMock implements ServiceRegistryFactory {
+        private final AtomicInteger connectCount = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final List<BackendMock> backends = Collections.synchronizedList(new ArrayList<>());
+        private volatile CountDownLatch connectGate = new CountDownLatch(0);
+        private volatile CountDownLatch watchGate = new CountDownLatch(0);
+        private volatile int registerLimit = Integer.MAX_VALUE;
+
+        @Override
+        public String getName() {
+            return "mock";
+        }
+
+        @Override
+        public int getPriority() {
+            return PRIORITY_DEFAULT;
+        }
+
+        @Override
+        public ServiceRegistryConnection connect(Map<String, String> parameters) {
+            connectCount.incrementAndGet();
+            if (failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new ServiceRegistryConnectionException("fail to connect");
+            }
+            BackendMock backend = new BackendMock(connectGate, watchGate, registerLimit);
+            backends.add(backend);
+            return backend;
+        }
+
+        @Override
+        public ServiceRegistryClient getClient(ServiceRegistryConnection conn) {
+            return (BackendMock) conn;
+        }
+
+        @Override
+        public ServiceRegistryServer getServer(ServiceRegistryConnection conn) {
+            return (BackendMock) conn;
+        }
+
+        @Override
+        public ServiceRegistryAdmin getAdmin(ServiceRegistryConnection conn) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package net.basiccloud.registry.filter;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.ServiceInstanceStatus;
+import net.basiccloud.registry.WorkMode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompiledServiceInstanceFilterTest {
+
+    private static ServiceInstance newInstance(int port, boolean online, WorkMode workMode, String version,
+                                               String... tags) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion(version).setFrameworkVersion("1.0.0")
+                        .setWorkMode(workMode).setTags(tags).build())
+                .setStatus(online ? ServiceInstanceStatus.newBuilder().asOnline().build()
+                        : ServiceInstanceStatus.newBuilder().asOffline().build())
+                .build();
+    }
+
+    @Test
+    public void filter_sameAsEachFilter() throws Exception {
+        List<ServiceInstanceFilter> filters = Arrays.asList(
+                TagFilter.newBuilder().addTag("canary").build(),
+                VersionFilter.newBuilder().setVersion("1.1").build(),
+                WorkModeFilter.newBuilder().build(),
+                StatusFilter.newBuilder().build(),
+                TagFilter.newBuilder().addTag("zone-a").build());
+        CompiledServiceInstanceFilter compiled = CompiledServiceInstanceFilter.compile(filters);
+        assertThat(compiled.getFilterName())
+                .isEqualTo("TagFilter&VersionFilter&WorkModeFilter&StatusFilter&TagFilter");
+
+        List<ServiceInstance> instances = new ArrayList<>();
+        int port = 1000;
+        for (boolean online : new boolean[]{true, false}) {
+            for (WorkMode workMode : WorkMode.values()) {
+                for (String version : new String[]{"1.0.0", "1.1.0", "1.2.3", "2.1.0"}) {
+                    instances.add(newInstance(port++, online, workMode, version, "canary", "zone-a"));
+                    instances.add(newInstance(port++, online, workMode, version, "canary"));
+                    instances.add(newInstance(port++, online, workMode, version));
+                }
+            }
+        }
+
+        List<ServiceInstance> expected = new ArrayList<>();
+        for (ServiceInstance instance : instances) {
+            if (filters.stream().allMatch(filter -> filter.filter(instance))) {
+                expected.add(instance);
+            }
+            assertThat(compiled.filter(instance)).isEqualTo(filters.stream().allMatch(f -> f.filter(instance)));
+        }
+        assertThat(expected).hasSize(4);
+        assertThat(compiled.filter(instances)).isEqualTo(expected);
+    }
+
+    @Test
+    public void filter_othersCheapestFirst() throws Exception {
+        List<String> called = new ArrayList<>();
+        ServiceInstanceFilter expensive = newFilter("Expensive", 100, false, called);
+        ServiceInstanceFilter cheap = newFilter("Cheap", 1, false, called);
+        CompiledServiceInstanceFilter compiled = CompiledServiceInstanceFilter.compile(expensive, cheap);
+
+        assertThat(compiled.filter(newInstance(1080, true, WorkMode.NORMAL, "1.0.0"))).isFalse();
+        // short-circuited after the cheap one
+        assertThat(called).containsExactly("Cheap");
+    }
+
+    @Test
+    public void filter_empty() throws Exception {
+        CompiledServiceInstanceFilter compiled = CompiledServiceInstanceFilter.compile();
+        assertThat(compiled.filter(newInstance(1080, false, WorkMode.MAINTENANCE, "1.0.0"))).isTrue();
+    }
+
+    private static ServiceInstanceFilter newFilter(String name, int cost, boolean result, List<String> called) {
+        return new ServiceInstanceFilter() {
+            @Override
+            public String getFilterName() {
+                return name;
+            }
+
+            @Override
+            public boolean filter(ServiceInstance instance) {
+                called.add(name);
+                return result;
+            }
+
+            @Override
+            public int getCost() {
+                return cost;
+            }
+        };
+    }
+}
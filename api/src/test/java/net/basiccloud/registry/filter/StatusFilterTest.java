@@ -0,0 +1,29 @@
+package net.basiccloud.registry.filter;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceStatus;
+import net.basiccloud.registry.ServiceInstanceStatus.Status;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatusFilterTest {
+
+    private static ServiceInstance newInstance(ServiceInstanceStatus status) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080).setStatus(status).build();
+    }
+
+    @Test
+    public void filter() throws Exception {
+        StatusFilter filter = StatusFilter.newBuilder().build();
+        assertThat(filter.getFilterName()).isEqualTo("StatusFilter");
+        assertThat(filter.getStatus()).isEqualTo(Status.ONLINE);
+        assertThat(filter.filter(newInstance(ServiceInstanceStatus.newBuilder().asOnline().build()))).isTrue();
+        assertThat(filter.filter(newInstance(ServiceInstanceStatus.newBuilder().asOffline().build()))).isFalse();
+        assertThat(filter.filter(newInstance(null))).isFalse();
+
+        StatusFilter offlineFilter = StatusFilter.newBuilder().setStatus(Status.OFFLINE).build();
+        assertThat(offlineFilter.filter(newInstance(ServiceInstanceStatus.newBuilder().asOffline().build()))).isTrue();
+    }
+}
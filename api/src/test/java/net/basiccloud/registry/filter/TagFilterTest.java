@@ -0,0 +1,31 @@
+package net.basiccloud.registry.filter;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TagFilterTest {
+
+    private static ServiceInstance newInstance(String... tags) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setTags(tags).build())
+                .build();
+    }
+
+    @Test
+    public void filter() throws Exception {
+        TagFilter filter = TagFilter.newBuilder().addTag("canary", "zone-a").build();
+        assertThat(filter.filter(newInstance("zone-a", "canary", "ssd"))).isTrue();
+        assertThat(filter.filter(newInstance("canary"))).isFalse();
+        assertThat(filter.filter(newInstance())).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addTag_empty() throws Exception {
+        TagFilter.newBuilder().addTag("");
+    }
+}
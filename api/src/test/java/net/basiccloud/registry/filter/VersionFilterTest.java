@@ -0,0 +1,31 @@
+package net.basiccloud.registry.filter;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VersionFilterTest {
+
+    private static ServiceInstance newInstance(String version) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion(version).setFrameworkVersion("1.0.0").build())
+                .build();
+    }
+
+    @Test
+    public void filter() throws Exception {
+        VersionFilter filter = VersionFilter.newBuilder().setVersion("1.2").build();
+        assertThat(filter.filter(newInstance("1.2.0"))).isTrue();
+        assertThat(filter.filter(newInstance("1.3.1"))).isTrue();
+        assertThat(filter.filter(newInstance("1.1.9"))).isFalse();
+        assertThat(filter.filter(newInstance("2.2.0"))).isFalse();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void build_withoutVersion() throws Exception {
+        VersionFilter.newBuilder().build();
+    }
+}
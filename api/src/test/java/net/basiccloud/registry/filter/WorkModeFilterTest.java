@@ -0,0 +1,31 @@
+package net.basiccloud.registry.filter;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.WorkMode;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkModeFilterTest {
+
+    private static ServiceInstance newInstance(WorkMode workMode) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setWorkMode(workMode).build())
+                .build();
+    }
+
+    @Test
+    public void filter() throws Exception {
+        WorkModeFilter filter = WorkModeFilter.newBuilder().build();
+        assertThat(filter.filter(newInstance(WorkMode.NORMAL))).isTrue();
+        assertThat(filter.filter(newInstance(WorkMode.DEGRADE))).isTrue();
+        assertThat(filter.filter(newInstance(WorkMode.MAINTENANCE))).isFalse();
+
+        WorkModeFilter noDegradeFilter = WorkModeFilter.newBuilder().setIncludeDegrade(false).build();
+        assertThat(noDegradeFilter.filter(newInstance(WorkMode.NORMAL))).isTrue();
+        assertThat(noDegradeFilter.filter(newInstance(WorkMode.DEGRADE))).isFalse();
+    }
+}
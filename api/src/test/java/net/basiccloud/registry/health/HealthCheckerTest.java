@@ -0,0 +1,252 @@
+package net.basiccloud.registry.health;
+
+import net.basiccloud.registry.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HealthCheckerTest {
+
+    private static HealthChecker newChecker() {
+        return HealthChecker.newBuilder().setIntervalMillis(20).setTimeoutMillis(50).setTickMillis(5).build();
+    }
+
+    private static ServiceInstance newInstance(WorkMode workMode) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setWorkMode(workMode).build())
+                .setStatus(ServiceInstanceStatus.newBuilder().asOnline().setComment("upgrading").setLeaseId(42)
+                        .build())
+                .build();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    public void watch_reportTransitionsOnly() throws Exception {
+        try (HealthChecker checker = newChecker()) {
+            ServerMock server = new ServerMock();
+            server.instance = newInstance(WorkMode.NORMAL);
+            AtomicReference<Health> health = new AtomicReference<>(Health.HEALTHY);
+            HealthChecker.Check<RegisterIdMock> check = checker.watch(server, new RegisterIdMock(), health::get);
+
+            waitUntil(() -> checker.getProbeCount() >= 3);
+            assertThat(server.patches).isEmpty();
+            assertThat(check.getLastHealth()).isEqualTo(Health.HEALTHY);
+
+            health.set(Health.UNHEALTHY);
+            waitUntil(() -> check.getReportedHealth() == Health.UNHEALTHY);
+            assertThat(server.instance.getStatus().isOffline()).isTrue();
+            health.set(Health.DEGRADED);
+            waitUntil(() -> check.getReportedHealth() == Health.DEGRADED);
+            assertThat(server.instance.getStatus().isOnline()).isTrue();
+            assertThat(server.instance.getData().getWorkMode()).isEqualTo(WorkMode.DEGRADE);
+            health.set(Health.HEALTHY);
+            waitUntil(() -> check.getReportedHealth() == Health.HEALTHY);
+            long probes = checker.getProbeCount();
+            waitUntil(() -> checker.getProbeCount() >= probes + 3);
+
+            assertThat(checker.getTransitionCount()).isEqualTo(3L);
+            List<ServiceInstancePatch> patches = server.getPatches();
+            assertThat(patches).hasSize(3);
+            assertThat(patches.get(0).getStatus().isOffline()).isTrue();
+            assertThat(patches.get(0).getStatus().getComment()).isNull();
+            assertThat(patches.get(0).getWorkMode()).isNull();
+            assertThat(patches.get(1).getStatus().isOnline()).isTrue();
+            assertThat(patches.get(1).getWorkMode()).isEqualTo(WorkMode.DEGRADE);
+            // degraded to healthy keeps the instance online, only the work mode is restored
+            assertThat(patches.get(2).getStatus()).isNull();
+            assertThat(patches.get(2).getWorkMode()).isEqualTo(WorkMode.NORMAL);
+            assertThat(server.instance.getData().getWorkMode()).isEqualTo(WorkMode.NORMAL);
+            assertThat(server.instance.getStatus().getLeaseId()).isEqualTo(42L);
+        }
+    }
+
+    @Test
+    public void watch_keepMaintenance() throws Exception {
+        try (HealthChecker checker = newChecker()) {
+            ServerMock server = new ServerMock();
+            server.instance = newInstance(WorkMode.MAINTENANCE);
+            AtomicReference<Health> health = new AtomicReference<>(Health.DEGRADED);
+            HealthChecker.Check<RegisterIdMock> check = checker.watch(server, new RegisterIdMock(), health::get);
+
+            waitUntil(() -> check.getReportedHealth() == Health.DEGRADED);
+            assertThat(server.instance.getData().getWorkMode()).isEqualTo(WorkMode.MAINTENANCE);
+            health.set(Health.HEALTHY);
+            waitUntil(() -> check.getReportedHealth() == Health.HEALTHY);
+            assertThat(server.instance.getData().getWorkMode()).isEqualTo(WorkMode.MAINTENANCE);
+            assertThat(server.getPatches()).hasSize(2);
+        }
+    }
+
+    @Test
+    public void toPatch_keepLeaseCommentAndWorkMode() throws Exception {
+        ServiceInstance instance = newInstance(WorkMode.MAINTENANCE);
+
+        ServiceInstance offline = Health.UNHEALTHY.toPatch(Health.HEALTHY).applyTo(instance);
+        assertThat(offline.getStatus().isOffline()).isTrue();
+        ServiceInstance online = Health.HEALTHY.toPatch(Health.UNHEALTHY).applyTo(offline);
+        assertThat(online.getStatus().isOnline()).isTrue();
+        assertThat(online.getStatus().getLeaseId()).isEqualTo(42L);
+        assertThat(online.getStatus().getComment()).isEqualTo("upgrading");
+        assertThat(online.getData().getWorkMode()).isEqualTo(WorkMode.MAINTENANCE);
+        assertThat(Health.DEGRADED.toPatch(Health.HEALTHY).applyTo(instance)).isSameAs(instance);
+        assertThat(Health.HEALTHY.toPatch(Health.DEGRADED).applyTo(instance)).isSameAs(instance);
+    }
+
+    @Test
+    public void toPatch_degrade() throws Exception {
+        ServiceInstance instance = newInstance(WorkMode.NORMAL);
+
+        ServiceInstance degraded = Health.DEGRADED.toPatch(Health.HEALTHY).applyTo(instance);
+        assertThat(degraded.getData().getWorkMode()).isEqualTo(WorkMode.DEGRADE);
+        assertThat(degraded.getStatus()).isEqualTo(instance.getStatus());
+        ServiceInstance offline = Health.UNHEALTHY.toPatch(Health.DEGRADED).applyTo(degraded);
+        assertThat(offline.getData().getWorkMode()).isEqualTo(WorkMode.NORMAL);
+        assertThat(offline.getStatus().isOffline()).isTrue();
+        assertThat(Health.HEALTHY.toPatch(Health.DEGRADED).applyTo(degraded).getData().getWorkMode())
+                .isEqualTo(WorkMode.NORMAL);
+    }
+
+    @Test
+    public void watch_threshold() throws Exception {
+        try (HealthChecker checker = HealthChecker.newBuilder().setIntervalMillis(10).setTickMillis(5)
+                .setFailureThreshold(3).build()) {
+            ServerMock server = new ServerMock();
+            AtomicInteger probes = new AtomicInteger();
+            // unhealthy twice in a row only, never reported
+            HealthChecker.Check<RegisterIdMock> check = checker.watch(server, new RegisterIdMock(),
+                    () -> probes.incrementAndGet() % 3 == 0 ? Health.HEALTHY : Health.UNHEALTHY);
+
+            waitUntil(() -> probes.get() >= 10);
+            assertThat(check.getReportedHealth()).isEqualTo(Health.HEALTHY);
+            assertThat(server.patches).isEmpty();
+        }
+    }
+
+    @Test
+    public void watch_failedAndTimedOut() throws Exception {
+        try (HealthChecker checker = newChecker()) {
+            ServerMock server = new ServerMock();
+            HealthChecker.Check<RegisterIdMock> failed = checker.watch(server, new RegisterIdMock(), () -> {
+                throw new IllegalStateException("wedged");
+            });
+            HealthChecker.Check<RegisterIdMock> timedOut = checker.watch(server, new RegisterIdMock(), () -> {
+                Thread.sleep(10000);
+                return Health.HEALTHY;
+            });
+
+            waitUntil(() -> failed.getReportedHealth() == Health.UNHEALTHY
+                    && timedOut.getReportedHealth() == Health.UNHEALTHY);
+            assertThat(checker.getProbeFailureCount()).isGreaterThanOrEqualTo(4L);
+        }
+    }
+
+    @Test
+    public void watch_probeIgnoringInterrupt() throws Exception {
+        AtomicBoolean released = new AtomicBoolean();
+        try (HealthChecker checker = HealthChecker.newBuilder().setIntervalMillis(20).setTimeoutMillis(50)
+                .setTickMillis(5).setProbeThreads(1).build()) {
+            ServerMock server = new ServerMock();
+            // takes the only probe thread forever
+            HealthChecker.Check<RegisterIdMock> hung = checker.watch(server, new RegisterIdMock(), () -> {
+                while (!released.get()) {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        // ignored
+                    }
+                }
+                return Health.HEALTHY;
+            });
+
+            waitUntil(() -> hung.getReportedHealth() == Health.UNHEALTHY);
+            assertThat(server.getPatches()).hasSize(1);
+            assertThat(server.getPatches().get(0).getStatus().isOffline()).isTrue();
+        } finally {
+            released.set(true);
+        }
+    }
+
+    @Test
+    public void watch_retryFailedPatch() throws Exception {
+        try (HealthChecker checker = newChecker()) {
+            ServerMock server = new ServerMock();
+            server.failures.set(2);
+            HealthChecker.Check<RegisterIdMock> check = checker.watch(server, new RegisterIdMock(),
+                    () -> Health.UNHEALTHY);
+
+            waitUntil(() -> check.getReportedHealth() == Health.UNHEALTHY);
+            assertThat(server.failures.get()).isEqualTo(0);
+            assertThat(server.getPatches()).hasSize(1);
+        }
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        try (HealthChecker checker = newChecker()) {
+            AtomicInteger probes = new AtomicInteger();
+            HealthChecker.Check<RegisterIdMock> check = checker.watch(new ServerMock(), new RegisterIdMock(), () -> {
+                probes.incrementAndGet();
+                return Health.HEALTHY;
+            });
+            waitUntil(() -> probes.get() >= 2);
+
+            check.cancel();
+            Thread.sleep(50);
+            int count = probes.get();
+            Thread.sleep(100);
+            assertThat(probes.get()).isEqualTo(count);
+        }
+    }
+
+    private static class RegisterIdMock implements RegisterId {
+    }
+
+    private static class ServerMock implements ServiceRegistryServer<RegisterIdMock> {
+        private final List<ServiceInstancePatch> patches = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile ServiceInstance instance;
+
+        @Override
+        public RegisterIdMock register(ServiceInstance serviceInstance) {
+            return new RegisterIdMock();
+        }
+
+        @Override
+        public void deregister(RegisterIdMock registerId) {
+        }
+
+        @Override
+        public void patch(RegisterIdMock registerId, ServiceInstancePatch patch) {
+            if (failures.getAndUpdate(value -> Math.max(0, value - 1)) > 0) {
+                throw new ServiceRegistryConnectionException("registry down");
+            }
+            patches.add(patch);
+            if (instance != null) {
+                instance = patch.applyTo(instance);
+            }
+        }
+
+        private List<ServiceInstancePatch> getPatches() {
+            synchronized (patches) {
+                return new ArrayList<>(patches);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package net.basiccloud.registry.index;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongHashMapTest {
+
+    @Test
+    public void putGetRemove() throws Exception {
+        LongHashMap<String> map = new LongHashMap<>();
+        assertThat(map.put(1L, "a")).isNull();
+        assertThat(map.put(1L, "b")).isEqualTo("a");
+        assertThat(map.put(-1L, "c")).isNull();
+        assertThat(map.get(1L)).isEqualTo("b");
+        assertThat(map.get(2L)).isNull();
+        assertThat(map.size()).isEqualTo(2);
+
+        LongHashMap<String> copy = map.copy();
+        assertThat(map.remove(1L)).isEqualTo("b");
+        assertThat(map.remove(1L)).isNull();
+        assertThat(map.containsKey(1L)).isFalse();
+        assertThat(copy.get(1L)).isEqualTo("b");
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void sameAsHashMap() throws Exception {
+        Random random = new Random(42);
+        LongHashMap<Long> map = new LongHashMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            // small key range with packed-like high bits to force collisions and removals
+            long key = (long) random.nextInt(2000) << 16 | random.nextInt(4);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                long value = random.nextLong();
+                assertThat(map.put(key, value)).isEqualTo(expected.put(key, value));
+            }
+            if (i % 1000 == 0) {
+                assertThat(map.size()).isEqualTo(expected.size());
+                for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+                    assertThat(map.get(entry.getKey())).isEqualTo(entry.getValue());
+                }
+            }
+        }
+        long[] count = new long[1];
+        map.forEachValue(value -> count[0]++);
+        assertThat(count[0]).isEqualTo(expected.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void put_nullValue() throws Exception {
+        new LongHashMap<String>().put(1L, null);
+    }
+}
@@ -0,0 +1,104 @@
+package net.basiccloud.registry.index;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.TagQuery;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TagIndexTest {
+
+    private static final String[] TAGS = {"zone-a", "zone-b", "canary", "ssd", "gpu"};
+
+    private static ServiceInstance newInstance(int port, String... tags) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setTags(tags).build())
+                .build();
+    }
+
+    @Test
+    public void find() throws Exception {
+        ServiceInstance instance1 = newInstance(1080, "zone-a", "canary");
+        ServiceInstance instance2 = newInstance(1081, "zone-a");
+        ServiceInstance instance3 = newInstance(1082, "zone-b", "canary");
+        ServiceInstance instance4 = ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1083).build();
+        TagIndex index = TagIndex.of(Arrays.asList(instance1, instance2, instance3, instance4));
+
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.find(TagQuery.newBuilder().build()))
+                .containsExactly(instance1, instance2, instance3, instance4);
+        assertThat(index.find(TagQuery.newBuilder().allOf("zone-a", "canary").build())).containsExactly(instance1);
+        assertThat(index.find(TagQuery.newBuilder().anyOf("zone-b", "canary").build()))
+                .containsExactly(instance1, instance3);
+        assertThat(index.find(TagQuery.newBuilder().allOf("zone-a").noneOf("canary").build()))
+                .containsExactly(instance2);
+        assertThat(index.find(TagQuery.newBuilder().noneOf("canary").build())).containsExactly(instance2, instance4);
+        assertThat(index.find(TagQuery.newBuilder().allOf("never-used-tag").build())).isEmpty();
+        assertThat(index.find(TagQuery.newBuilder().anyOf("never-used-tag").build())).isEmpty();
+    }
+
+    @Test
+    public void withAddedAndWithRemoved() throws Exception {
+        ServiceInstance instance1 = newInstance(1080, "zone-a");
+        ServiceInstance instance2 = newInstance(1081, "zone-a", "canary");
+        TagIndex index = TagIndex.EMPTY.withAdded(instance1).withAdded(instance2);
+        TagQuery zoneA = TagQuery.newBuilder().allOf("zone-a").build();
+        assertThat(index.find(zoneA)).containsExactly(instance1, instance2);
+
+        TagIndex removed = index.withRemoved(newInstance(1080, "zone-a"));
+        assertThat(removed.size()).isEqualTo(1);
+        assertThat(removed.find(zoneA)).containsExactly(instance2);
+        // the original index is not changed
+        assertThat(index.find(zoneA)).containsExactly(instance1, instance2);
+        assertThat(removed.withRemoved(instance1)).isSameAs(removed);
+
+        // the slot is reused
+        ServiceInstance instance3 = newInstance(1082, "canary");
+        TagIndex added = removed.withAdded(instance3);
+        assertThat(added.find(TagQuery.newBuilder().allOf("canary").build())).containsExactly(instance3, instance2);
+        assertThat(added.find(zoneA)).containsExactly(instance2);
+    }
+
+    @Test
+    public void find_sameAsMatches() throws Exception {
+        Random random = new Random(42);
+        List<ServiceInstance> instances = new ArrayList<>();
+        TagIndex index = TagIndex.EMPTY;
+        for (int i = 0; i < 2000; i++) {
+            if (!instances.isEmpty() && random.nextInt(3) == 0) {
+                ServiceInstance removed = instances.remove(random.nextInt(instances.size()));
+                index = index.withRemoved(removed);
+            } else {
+                ServiceInstance added = newInstance(1000 + i, randomTags(random));
+                instances.add(added);
+                index = index.withAdded(added);
+            }
+        }
+        assertThat(index.size()).isEqualTo(instances.size());
+
+        for (int i = 0; i < 200; i++) {
+            TagQuery query = TagQuery.newBuilder().allOf(randomTags(random)).anyOf(randomTags(random))
+                    .noneOf(randomTags(random)).build();
+            Set<ServiceInstance> expected = instances.stream().filter(query::matches).collect(Collectors.toSet());
+            assertThat(new HashSet<>(index.find(query))).isEqualTo(expected);
+            assertThat(new HashSet<>(TagIndex.of(instances).find(query))).isEqualTo(expected);
+        }
+    }
+
+    private static String[] randomTags(Random random) {
+        List<String> tags = new ArrayList<>();
+        for (String tag : TAGS) {
+            if (random.nextInt(4) == 0) {
+                tags.add(tag);
+            }
+        }
+        return tags.toArray(new String[0]);
+    }
+}
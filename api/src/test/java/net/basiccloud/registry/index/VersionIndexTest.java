@@ -0,0 +1,94 @@
+package net.basiccloud.registry.index;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.Version;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VersionIndexTest {
+
+    private static ServiceInstance newInstance(int port, String version) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion(version).setFrameworkVersion("1.0.0").build())
+                .build();
+    }
+
+    @Test
+    public void getCompatible() throws Exception {
+        ServiceInstance instance1 = newInstance(1001, "2.5.5");
+        ServiceInstance instance2 = newInstance(1002, "2.4.0");
+        ServiceInstance instance3 = newInstance(1003, "2.9.0");
+        ServiceInstance instance4 = newInstance(1004, "3.0.0");
+        ServiceInstance instance5 = newInstance(1005, "2.5.5");
+        ServiceInstance noData = ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1006).build();
+        VersionIndex index = VersionIndex.of(Arrays.asList(instance1, instance2, instance3, instance4, instance5, noData));
+
+        assertThat(index.size()).isEqualTo(5);
+        assertThat(index.getCompatible(Version.valueOf("2.5.5"))).containsExactly(instance1, instance5, instance3);
+        assertThat(index.getCompatible(Version.valueOf("2"))).containsExactly(instance2, instance1, instance5, instance3);
+        assertThat(index.getCompatible(Version.valueOf("2.9.1"))).isEmpty();
+        assertThat(index.getCompatible(Version.valueOf("3"))).containsExactly(instance4);
+        assertThat(index.getCompatible(Version.valueOf("1"))).isEmpty();
+        assertThat(index.getCompatible(Version.valueOf("2.5"))).isSameAs(index.getCompatible(Version.valueOf("2.5")));
+    }
+
+    @Test
+    public void withAddedAndRemoved() throws Exception {
+        ServiceInstance instance1 = newInstance(1001, "2.5.5");
+        ServiceInstance instance2 = newInstance(1002, "1.0.0");
+        ServiceInstance instance3 = newInstance(1003, "2.5.5");
+
+        VersionIndex index = VersionIndex.EMPTY.withAdded(instance1).withAdded(instance2).withAdded(instance3);
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.getCompatible(Version.valueOf("2"))).containsExactly(instance1, instance3);
+        assertThat(index.getCompatible(Version.valueOf("1"))).containsExactly(instance2);
+
+        VersionIndex removed = index.withRemoved(instance2).withRemoved(instance1);
+        assertThat(removed.size()).isEqualTo(1);
+        assertThat(removed.getCompatible(Version.valueOf("1"))).isEmpty();
+        assertThat(removed.getCompatible(Version.valueOf("2"))).containsExactly(instance3);
+        assertThat(removed.withRemoved(instance1)).isSameAs(removed);
+        // the original index is not changed
+        assertThat(index.getCompatible(Version.valueOf("2"))).containsExactly(instance1, instance3);
+    }
+
+    @Test
+    public void sameAsIsBackCompatibleWith() throws Exception {
+        Random random = new Random(1);
+        List<ServiceInstance> instances = new ArrayList<>();
+        VersionIndex index = VersionIndex.EMPTY;
+        for (int i = 0; i < 500; i++) {
+            ServiceInstance instance = newInstance(1000 + i,
+                    random.nextInt(3) + "." + random.nextInt(5) + "." + random.nextInt(5));
+            instances.add(instance);
+            index = index.withAdded(instance);
+            if (i % 3 == 0) {
+                ServiceInstance removed = instances.remove(random.nextInt(instances.size()));
+                index = index.withRemoved(removed);
+            }
+        }
+
+        for (int major = 0; major < 4; major++) {
+            for (int minor = 0; minor < 6; minor++) {
+                Version target = new Version(major, minor, random.nextInt(6));
+                List<ServiceInstance> expected = new ArrayList<>();
+                for (ServiceInstance instance : instances) {
+                    if (instance.getData().getServiceVersion().isBackCompatibleWith(target)) {
+                        expected.add(instance);
+                    }
+                }
+                assertThat(index.getCompatible(target)).containsExactlyInAnyOrder(expected.toArray(new ServiceInstance[0]));
+                assertThat(VersionIndex.of(instances).getCompatible(target)).containsExactlyInAnyOrder(expected.toArray(new ServiceInstance[0]));
+            }
+        }
+    }
+}
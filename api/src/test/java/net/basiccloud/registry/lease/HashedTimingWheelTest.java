@@ -0,0 +1,42 @@
+package net.basiccloud.registry.lease;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashedTimingWheelTest {
+
+    @Test
+    public void schedule() throws Exception {
+        try (HashedTimingWheel wheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8, "test-wheel")) {
+            CountDownLatch latch = new CountDownLatch(3);
+            long start = System.nanoTime();
+            // more than one round of the 8 buckets
+            wheel.schedule(latch::countDown, 150, TimeUnit.MILLISECONDS);
+            wheel.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+            wheel.schedule(latch::countDown, 0, TimeUnit.MILLISECONDS);
+
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(150));
+        }
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        try (HashedTimingWheel wheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8, "test-wheel")) {
+            AtomicBoolean cancelledRun = new AtomicBoolean();
+            CountDownLatch latch = new CountDownLatch(1);
+            HashedTimingWheel.Timeout timeout = wheel.schedule(() -> cancelledRun.set(true), 30, TimeUnit.MILLISECONDS);
+            wheel.schedule(latch::countDown, 60, TimeUnit.MILLISECONDS);
+            timeout.cancel();
+
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(timeout.isCancelled()).isTrue();
+            assertThat(cancelledRun.get()).isFalse();
+        }
+    }
+}
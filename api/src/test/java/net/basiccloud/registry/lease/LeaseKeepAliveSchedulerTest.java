@@ -0,0 +1,114 @@
+package net.basiccloud.registry.lease;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LeaseKeepAliveSchedulerTest {
+
+    private static void waitUntil(BooleanSupplier condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    public void keepAlive() throws Exception {
+        try (LeaseKeepAliveScheduler scheduler = LeaseKeepAliveScheduler.newBuilder().setTickMillis(10).build()) {
+            LeaseClientMock client = new LeaseClientMock();
+            LeaseClientMock control = new LeaseClientMock();
+            AtomicReference<LeaseKeepAliveScheduler.KeptLease> lease = new AtomicReference<>();
+            // cancelled by its third renewal, so no renewal is in flight when cancelled
+            client.onRenewal = renewals -> {
+                if (renewals == 3) {
+                    lease.get().cancel();
+                }
+            };
+            lease.set(scheduler.keepAlive(1, 150, client, null));
+            scheduler.keepAlive(2, 150, control, null);
+
+            waitUntil(() -> client.renewals.get() == 3);
+            assertThat(lease.get().isLost()).isFalse();
+
+            // the control lease renews at the same interval, 3 renewals of it cover 2 intervals of the cancelled one
+            int controlRenewals = control.renewals.get();
+            waitUntil(() -> control.renewals.get() >= controlRenewals + 3);
+            assertThat(client.renewals.get()).isEqualTo(3);
+            assertThat(scheduler.getRenewalCount()).isEqualTo((long) client.renewals.get() + control.renewals.get());
+            assertThat(scheduler.getMissedDeadlineCount()).isEqualTo(0L);
+        }
+    }
+
+    @Test
+    public void keepAlive_lost() throws Exception {
+        try (LeaseKeepAliveScheduler scheduler = LeaseKeepAliveScheduler.newBuilder().setTickMillis(10).build()) {
+            LeaseClientMock client = new LeaseClientMock();
+            client.alive = false;
+            CountDownLatch lost = new CountDownLatch(1);
+            AtomicLong lostLeaseId = new AtomicLong();
+            LeaseKeepAliveScheduler.KeptLease lease = scheduler.keepAlive(7, 60, client, leaseId -> {
+                lostLeaseId.set(leaseId);
+                lost.countDown();
+            });
+
+            assertThat(lost.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(lostLeaseId.get()).isEqualTo(7L);
+            assertThat(lease.isLost()).isTrue();
+            assertThat(scheduler.getRenewalFailureCount()).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    public void keepAlive_missedDeadline() throws Exception {
+        try (LeaseKeepAliveScheduler scheduler = LeaseKeepAliveScheduler.newBuilder().setTickMillis(10).build()) {
+            LeaseClientMock client = new LeaseClientMock();
+            client.error = true;
+            CountDownLatch lost = new CountDownLatch(1);
+            scheduler.keepAlive(7, 60, client, leaseId -> lost.countDown());
+
+            assertThat(lost.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(scheduler.getMissedDeadlineCount()).isEqualTo(1L);
+            assertThat(scheduler.getRenewalFailureCount()).isGreaterThanOrEqualTo(1L);
+        }
+    }
+
+    static class LeaseClientMock implements LeaseClient {
+        private final AtomicLong nextLeaseId = new AtomicLong(100);
+        final AtomicInteger renewals = new AtomicInteger();
+        final AtomicInteger revokes = new AtomicInteger();
+        volatile boolean alive = true;
+        volatile boolean error;
+        volatile IntConsumer onRenewal = renewals -> { };
+
+        @Override
+        public long grant(long ttlMillis) {
+            return nextLeaseId.incrementAndGet();
+        }
+
+        @Override
+        public boolean keepAlive(long leaseId) {
+            if (error) {
+                throw new IllegalStateException("registry is down");
+            }
+            if (alive) {
+                onRenewal.accept(renewals.incrementAndGet());
+            }
+            return alive;
+        }
+
+        @Override
+        public void revoke(long leaseId) {
+            revokes.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package net.basiccloud.registry.lease;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SharedLeaseTest {
+
+    @Test
+    public void acquireAndRelease() throws Exception {
+        try (LeaseKeepAliveScheduler scheduler = LeaseKeepAliveScheduler.newBuilder().build()) {
+            LeaseKeepAliveSchedulerTest.LeaseClientMock client = new LeaseKeepAliveSchedulerTest.LeaseClientMock();
+            SharedLease sharedLease = new SharedLease(client, scheduler, 10000, null);
+            assertThat(sharedLease.getLeaseId()).isEqualTo(0L);
+
+            long leaseId = sharedLease.acquire();
+            assertThat(sharedLease.acquire()).isEqualTo(leaseId);
+            assertThat(sharedLease.acquire()).isEqualTo(leaseId);
+            assertThat(sharedLease.getHolders()).isEqualTo(3);
+
+            sharedLease.release();
+            sharedLease.release();
+            assertThat(client.revokes.get()).isEqualTo(0);
+            sharedLease.release();
+            assertThat(client.revokes.get()).isEqualTo(1);
+            assertThat(sharedLease.getLeaseId()).isEqualTo(0L);
+
+            assertThat(sharedLease.acquire()).isNotEqualTo(leaseId);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void release_notAcquired() throws Exception {
+        try (LeaseKeepAliveScheduler scheduler = LeaseKeepAliveScheduler.newBuilder().build()) {
+            new SharedLease(new LeaseKeepAliveSchedulerTest.LeaseClientMock(), scheduler, 10000, null).release();
+        }
+    }
+}
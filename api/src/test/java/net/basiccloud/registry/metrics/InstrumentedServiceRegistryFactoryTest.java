@@ -0,0 +1,144 @@
+package net.basiccloud.registry.metrics;
+
+import net.basiccloud.registry.*;
+import net.basiccloud.registry.metrics.RegistryMetrics.Operation;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstrumentedServiceRegistryFactoryTest {
+
+    private static ServiceInstance newInstance(int port) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port).build();
+    }
+
+    @Test
+    public void recordClientCalls() throws Exception {
+        InMemoryRegistryMetrics metrics = new InMemoryRegistryMetrics();
+        ServiceRegistryFactory factory = new InstrumentedServiceRegistryFactory(new FactoryMock(), metrics);
+        assertThat(factory.getName()).isEqualTo("mock");
+
+        ServiceRegistryConnection conn = factory.connect(Collections.emptyMap());
+        conn.connect();
+        ServiceRegistryClient client = factory.getClient(conn);
+        assertThat(client.discover("Main", "UserService")).containsExactly(newInstance(1080));
+        client.discover("Main", "UserService", Version.valueOf("1.0"));
+        assertThat(client.discoverAsync("Main", "OrderService").get()).containsExactly(newInstance(1080));
+        try {
+            client.discover("Main", "FailedService");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertThat(client.watch("Main", "UserService", null, list -> { })).isFalse();
+
+        assertThat(metrics.getMetrics(Operation.CONNECT).getCount()).isEqualTo(2L);
+        assertThat(metrics.getMetrics(Operation.DISCOVER).getCount()).isEqualTo(4L);
+        assertThat(metrics.getMetrics(Operation.DISCOVER).getErrorCount()).isEqualTo(1L);
+        assertThat(metrics.getMetrics(Operation.DISCOVER, "Main", "UserService").getCount()).isEqualTo(2L);
+        assertThat(metrics.getMetrics(Operation.DISCOVER, "Main", "OrderService").getCount()).isEqualTo(1L);
+        assertThat(metrics.getMetrics(Operation.DISCOVER, "Main", "FailedService").getErrorCount()).isEqualTo(1L);
+        assertThat(metrics.getMetrics(Operation.DISCOVER, "Main", "NoService")).isNull();
+        assertThat(metrics.getMetrics(Operation.WATCH).getErrorCount()).isEqualTo(1L);
+        assertThat(metrics.getMetricsByService(Operation.DISCOVER).get("Main").keySet())
+                .containsOnly("UserService", "OrderService", "FailedService");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void recordServerAndAdminCalls() throws Exception {
+        InMemoryRegistryMetrics metrics = new InMemoryRegistryMetrics();
+        ServiceRegistryFactory factory = new InstrumentedServiceRegistryFactory(new FactoryMock(), metrics);
+        ServiceRegistryConnection conn = factory.connect(Collections.emptyMap());
+
+        ServiceRegistryServer<RegisterId> server = factory.getServer(conn);
+        RegisterId registerId = server.register(newInstance(1080));
+        server.deregister(registerId);
+        server.registerAll(Arrays.asList(newInstance(1081), newInstance(1082)));
+        assertThat(factory.getAdmin(conn).getInstance("Main", "UserService", "192.168.0.1", 1080)).isPresent();
+
+        assertThat(metrics.getMetrics(Operation.REGISTER, "Main", "UserService").getCount()).isEqualTo(1L);
+        assertThat(metrics.getMetrics(Operation.DEREGISTER, null, null).getCount()).isEqualTo(1L);
+        assertThat(metrics.getMetrics(Operation.REGISTER_ALL).getCount()).isEqualTo(1L);
+        assertThat(metrics.getMetrics(Operation.GET_INSTANCE, "Main", "UserService").getCount()).isEqualTo(1L);
+        assertThat(metrics.getMetrics(Operation.GET_INSTANCE).getErrorCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void getClient_unwrapConnection() throws Exception {
+        FactoryMock mock = new FactoryMock();
+        ServiceRegistryFactory factory = new InstrumentedServiceRegistryFactory(mock, new InMemoryRegistryMetrics());
+        factory.getClient(factory.connect(Collections.emptyMap()));
+        assertThat(mock.lastConnection).isSameAs(mock.connection);
+    }
+
+    private static class FactoryMock implements ServiceRegistryFactory {
+        private final ServiceRegistryConnection connection = () -> { };
+        private ServiceRegistryConnection lastConnection;
+
+        @Override
+        public String getName() {
+            return "mock";
+        }
+
+        @Override
+        public int getPriority() {
+            return PRIORITY_DEFAULT;
+        }
+
+        @Override
+        public ServiceRegistryConnection connect(Map<String, String> parameters) {
+            return connection;
+        }
+
+        @Override
+        public ServiceRegistryClient getClient(ServiceRegistryConnection conn) {
+            lastConnection = conn;
+            return new ServiceRegistryClient() {
+                @Override
+                public List<ServiceInstance> discover(String group, String service) {
+                    if (service.equals("FailedService")) {
+                        throw new IllegalStateException("registry failure");
+                    }
+                    return Collections.singletonList(newInstance(1080));
+                }
+
+                @Override
+                public List<ServiceInstance> discover(String group, String service, Version version) {
+                    return discover(group, service);
+                }
+
+                @Override
+                public boolean watch(String group, String service, Version version, ClientListener clientListener) {
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public ServiceRegistryServer getServer(ServiceRegistryConnection conn) {
+            return new ServiceRegistryServer<RegisterId>() {
+                @Override
+                public RegisterId register(ServiceInstance serviceInstance) {
+                    return new RegisterId() {
+                    };
+                }
+
+                @Override
+                public void deregister(RegisterId registerId) {
+                }
+
+                @Override
+                public void patch(RegisterId registerId, ServiceInstancePatch patch) {
+                }
+            };
+        }
+
+        @Override
+        public ServiceRegistryAdmin getAdmin(ServiceRegistryConnection conn) {
+            return (group, service, ip, port) -> Optional.of(newInstance(port));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package net.basiccloud.registry.metrics;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void record() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getValueAtPercentile(99)).isEqualTo(0L);
+        assertThat(histogram.getMean()).isEqualTo(0.0);
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertThat(histogram.getCount()).isEqualTo(1000L);
+        assertThat(histogram.getMax()).isEqualTo(1000000L);
+        assertThat(histogram.getMean()).isEqualTo(500500.0);
+        // buckets are at most 12.5% wide
+        assertThat(histogram.getValueAtPercentile(50)).isBetween(500000L, 562500L);
+        assertThat(histogram.getValueAtPercentile(99)).isBetween(990000L, 1000000L);
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(1000000L);
+        assertThat(histogram.getValueAtPercentile(0)).isBetween(1000L, 1125L);
+    }
+
+    @Test
+    public void indexOf() throws Exception {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertThat(LatencyHistogram.upperBoundOf(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(LatencyHistogram.upperBoundOf(index - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getValueAtPercentile_invalid() throws Exception {
+        new LatencyHistogram().getValueAtPercentile(101);
+    }
+}
@@ -0,0 +1,80 @@
+package net.basiccloud.registry.watch;
+
+import net.basiccloud.registry.ServiceInstance;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CoalescingClientListenerTest {
+
+    private static List<ServiceInstance> newList(int port) {
+        return Collections.singletonList(ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(port).build());
+    }
+
+    @Test
+    public void update_coalescedInWindow() throws Exception {
+        BlockingQueue<List<ServiceInstance>> updates = new LinkedBlockingQueue<>();
+        CoalescingClientListener listener = CoalescingClientListener.newBuilder()
+                .setListener(updates::add)
+                .setWindowMillis(200)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            listener.update(newList(1000 + i));
+        }
+        assertThat(updates.poll(5, TimeUnit.SECONDS)).isEqualTo(newList(1099));
+        assertThat(updates.poll(300, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(listener.getRawCount()).isEqualTo(100);
+        assertThat(listener.getDeliveredCount()).isEqualTo(1);
+
+        // a new window after the delivery
+        listener.update(newList(2000));
+        assertThat(updates.poll(5, TimeUnit.SECONDS)).isEqualTo(newList(2000));
+        assertThat(listener.getDeliveredCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void update_conflatedForSlowListener() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<List<ServiceInstance>> updates = new LinkedBlockingQueue<>();
+        CoalescingClientListener listener = CoalescingClientListener.newBuilder()
+                .setListener(list -> {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    updates.add(list);
+                })
+                .setWindowMillis(0)
+                .build();
+
+        listener.update(newList(1000));
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < 100; i++) {
+            listener.update(newList(1000 + i));
+        }
+        release.countDown();
+
+        assertThat(updates.poll(5, TimeUnit.SECONDS)).isEqualTo(newList(1000));
+        assertThat(updates.poll(5, TimeUnit.SECONDS)).isEqualTo(newList(1099));
+        assertThat(updates.poll(200, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(listener.getRawCount()).isEqualTo(100);
+        assertThat(listener.getDeliveredCount()).isEqualTo(2);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void build_withoutListener() throws Exception {
+        CoalescingClientListener.newBuilder().build();
+    }
+}
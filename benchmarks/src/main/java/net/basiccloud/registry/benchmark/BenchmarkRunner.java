@@ -0,0 +1,29 @@
+package net.basiccloud.registry.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry of benchmarks.jar, runs JMH with the GC profiler always enabled.
+ *
+ * <p>Usage: {@code java -jar benchmarks/target/benchmarks.jar [jmh options] [benchmark regex]}, the
+ * "gc.alloc.rate.norm" line of each benchmark is the number of bytes allocated per operation.
+ */
+public class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        // no instance
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
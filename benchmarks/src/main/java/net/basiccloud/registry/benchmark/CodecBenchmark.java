@@ -0,0 +1,64 @@
+package net.basiccloud.registry.benchmark;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.codec.ServiceInstanceCodec;
+import net.basiccloud.registry.codec.ServiceInstanceView;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link ServiceInstanceCodec} on the instance list of one service, decoding owned instances against
+ * lazy {@link ServiceInstanceView}s of which only ip, port and status are read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"100", "10000"})
+    private int instanceCount;
+
+    private List<ServiceInstance> instances;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setup() {
+        instances = Instances.newInstances("Main", "UserService", instanceCount);
+        encoded = ServiceInstanceCodec.encodeList(instances);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeList() {
+        return ServiceInstanceCodec.encodeList(instances);
+    }
+
+    @Benchmark
+    public List<ServiceInstance> decodeList() {
+        return ServiceInstanceCodec.decodeList(encoded.duplicate());
+    }
+
+    @Benchmark
+    public void decodeListReadEndpoints(Blackhole blackhole) {
+        for (ServiceInstance instance : ServiceInstanceCodec.decodeList(encoded.duplicate())) {
+            blackhole.consume(instance.getIp());
+            blackhole.consume(instance.getPort());
+            blackhole.consume(instance.getStatus().isOnline());
+        }
+    }
+
+    @Benchmark
+    public void decodeViewsReadEndpoints(Blackhole blackhole) {
+        for (ServiceInstanceView view : ServiceInstanceCodec.decodeViews(encoded.duplicate())) {
+            blackhole.consume(view.getIp());
+            blackhole.consume(view.getPort());
+            blackhole.consume(view.isOnline());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package net.basiccloud.registry.benchmark;
+
+import net.basiccloud.registry.*;
+import net.basiccloud.registry.filter.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link ServiceInstanceFilter} evaluation over a discovered instance list, a hand written filter
+ * against the chain of built-in filters evaluated one by one and compiled by {@link CompiledServiceInstanceFilter}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+
+    @Param({"100", "10000"})
+    private int instanceCount;
+
+    private List<ServiceInstance> instances;
+    private ServiceInstanceFilter filter;
+    private List<ServiceInstanceFilter> chain;
+    private CompiledServiceInstanceFilter compiled;
+
+    @Setup
+    public void setup() {
+        instances = Instances.newInstances("Main", "UserService", instanceCount);
+        filter = new ServiceInstanceFilter() {
+            @Override
+            public String getFilterName() {
+                return "AvailableFilter";
+            }
+
+            @Override
+            public boolean filter(ServiceInstance instance) {
+                return instance.getStatus().isOnline() && instance.getData().getWorkMode().isAvailable();
+            }
+        };
+        chain = Arrays.asList(
+                VersionFilter.newBuilder().setVersion("1.0").build(),
+                StatusFilter.newBuilder().build(),
+                WorkModeFilter.newBuilder().build());
+        compiled = CompiledServiceInstanceFilter.compile(chain);
+    }
+
+    @Benchmark
+    public void filterEach(Blackhole blackhole) {
+        for (ServiceInstance instance : instances) {
+            blackhole.consume(filter.filter(instance));
+        }
+    }
+
+    @Benchmark
+    public List<ServiceInstance> filterToList() {
+        List<ServiceInstance> result = new ArrayList<>();
+        for (ServiceInstance instance : instances) {
+            if (filter.filter(instance)) {
+                result.add(instance);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<ServiceInstance> chainToList() {
+        List<ServiceInstance> result = instances;
+        for (ServiceInstanceFilter each : chain) {
+            List<ServiceInstance> filtered = new ArrayList<>();
+            for (ServiceInstance instance : result) {
+                if (each.filter(instance)) {
+                    filtered.add(instance);
+                }
+            }
+            result = filtered;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<ServiceInstance> compiledToList() {
+        return compiled.filter(instances);
+    }
+}
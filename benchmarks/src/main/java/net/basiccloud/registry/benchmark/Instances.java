@@ -0,0 +1,56 @@
+package net.basiccloud.registry.benchmark;
+
+import net.basiccloud.registry.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test data shared by benchmarks.
+ */
+final class Instances {
+
+    private Instances() {
+        // no instance
+    }
+
+    /**
+     * create instances with different ip/port, versions 1.0.0 to 1.9.9, every 10th one offline and every 7th one
+     * in maintenance.
+     *
+     * @param group   service group
+     * @param service service
+     * @param count   number of instances
+     * @return instance list
+     */
+    static List<ServiceInstance> newInstances(String group, String service, int count) {
+        List<ServiceInstance> instances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            instances.add(newInstance(group, service, i));
+        }
+        return instances;
+    }
+
+    static ServiceInstance newInstance(String group, String service, int i) {
+        ServiceInstanceData data = ServiceInstanceData.newBuilder()
+                .setServiceVersion(new Version(1, i % 10, i % 100 / 10))
+                .setFrameworkVersion(new Version(1, 0, 0))
+                .setWorkMode(i % 7 == 0 ? WorkMode.MAINTENANCE : WorkMode.NORMAL)
+                .addTag(i % 2 == 0 ? "zone-a" : "zone-b")
+                .addGrpcPort(9090)
+                .build();
+        ServiceInstanceStatus.Builder status = ServiceInstanceStatus.newBuilder();
+        return ServiceInstance.newBuilder()
+                .setGroup(group)
+                .setService(service)
+                .setIp(ip(i))
+                .setPort(9090)
+                .setData(data)
+                .setStatus(i % 10 == 0 ? status.asOffline().build() : status.asOnline().build())
+                .build();
+    }
+
+    static String ip(int i) {
+        return "10." + (i >> 16 & 0xFF) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF);
+    }
+}
@@ -0,0 +1,81 @@
+package net.basiccloud.registry.benchmark;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.balancer.ConsistentHashRing;
+import net.basiccloud.registry.balancer.PowerOfTwoChoicesLoadBalancer;
+import net.basiccloud.registry.balancer.RoundRobinLoadBalancer;
+import net.basiccloud.registry.balancer.WeightedRandomLoadBalancer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link net.basiccloud.registry.balancer.LoadBalancer#pick()} on every call, shared by all threads, and
+ * of {@link ConsistentHashRing}: routing a key, and updating the ring when one instance joins or leaves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBalancerBenchmark {
+
+    @Param({"10", "1000"})
+    private int instanceCount;
+
+    private RoundRobinLoadBalancer roundRobin;
+    private WeightedRandomLoadBalancer weightedRandom;
+    private PowerOfTwoChoicesLoadBalancer powerOfTwoChoices;
+    private ConsistentHashRing ring;
+    private List<ServiceInstance> instances;
+    private List<ServiceInstance> instancesWithoutLast;
+
+    @Setup
+    public void setup() {
+        roundRobin = new RoundRobinLoadBalancer();
+        roundRobin.update(Instances.newInstances("Main", "UserService", instanceCount));
+        weightedRandom = new WeightedRandomLoadBalancer();
+        weightedRandom.update(Instances.newInstances("Main", "UserService", instanceCount));
+        powerOfTwoChoices = new PowerOfTwoChoicesLoadBalancer();
+        powerOfTwoChoices.update(Instances.newInstances("Main", "UserService", instanceCount));
+        instances = Instances.newInstances("Main", "UserService", instanceCount);
+        instancesWithoutLast = instances.subList(0, instanceCount - 1);
+        ring = new ConsistentHashRing();
+        ring.update(instances);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ServiceInstance roundRobin() {
+        return roundRobin.pick();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ServiceInstance weightedRandom() {
+        return weightedRandom.pick();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ServiceInstance powerOfTwoChoices() {
+        ServiceInstance instance = powerOfTwoChoices.pick();
+        powerOfTwoChoices.release(instance);
+        return instance;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ServiceInstance consistentHash() {
+        return ring.pick(ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    public void consistentHashUpdate() {
+        ring.update(instancesWithoutLast);
+        ring.update(instances);
+    }
+}
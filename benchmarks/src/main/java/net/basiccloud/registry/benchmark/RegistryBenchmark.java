@@ -0,0 +1,106 @@
+package net.basiccloud.registry.benchmark;
+
+import net.basiccloud.registry.*;
+import net.basiccloud.registry.cache.CachingServiceRegistryClient;
+import net.basiccloud.registry.memory.InMemoryServiceRegistryFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark of discover and watch against the in-memory registry.
+ *
+ * <p>Run with {@code -t max} to measure the discover throughput across all cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark {
+
+    private static final String GROUP = "Main";
+    private static final String SERVICE = "UserService";
+
+    @Param({"10", "1000"})
+    private int instanceCount;
+
+    private ServiceRegistryClient client;
+    private ServiceRegistryClient cachingClient;
+    private ServiceRegistryServer<RegisterId> server;
+    private ServiceRegistryAdmin admin;
+    private Version version;
+    private ServiceInstance churnInstance;
+    private final AtomicLong watchUpdates = new AtomicLong();
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        ServiceRegistryFactory factory = new InMemoryServiceRegistryFactory();
+        ServiceRegistryConnection conn = factory.connect(Collections.singletonMap("registryUrl",
+                "memory://benchmark-" + instanceCount));
+        conn.connect();
+        client = factory.getClient(conn);
+        cachingClient = new CachingServiceRegistryClient(factory.getClient(conn));
+        server = factory.getServer(conn);
+        admin = factory.getAdmin(conn);
+        for (ServiceInstance instance : Instances.newInstances(GROUP, SERVICE, instanceCount)) {
+            server.register(instance);
+        }
+        version = Version.valueOf("1.5");
+        churnInstance = Instances.newInstance(GROUP, SERVICE, instanceCount);
+        client.watch(GROUP, SERVICE, null, list -> watchUpdates.incrementAndGet());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<ServiceInstance> discover() {
+        return client.discover(GROUP, SERVICE);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<ServiceInstance> discoverWithVersion() {
+        return client.discover(GROUP, SERVICE, version);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<ServiceInstance> discoverCached() {
+        return cachingClient.discover(GROUP, SERVICE);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<ServiceInstance> discoverCachedWithVersion() {
+        return cachingClient.discover(GROUP, SERVICE, version);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Optional<ServiceInstance> getInstance() {
+        return admin.getInstance(GROUP, SERVICE, "10.0.0.1", 9090);
+    }
+
+    /**
+     * register and deregister one instance, and wait until the watcher has received both changes.
+     *
+     * @return number of watch updates received
+     */
+    @Benchmark
+    @Threads(1)
+    public long registerAndWatch() {
+        long expected = watchUpdates.get() + 2;
+        server.deregister(server.register(churnInstance));
+        long received;
+        while ((received = watchUpdates.get()) < expected) {
+            Thread.yield();
+        }
+        return received;
+    }
+}
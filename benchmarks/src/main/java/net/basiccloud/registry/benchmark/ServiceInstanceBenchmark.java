@@ -0,0 +1,68 @@
+package net.basiccloud.registry.benchmark;
+
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.ServiceInstanceStatus;
+import net.basiccloud.registry.Version;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the builders of {@link ServiceInstance} and {@link ServiceInstanceData}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceInstanceBenchmark {
+
+    private Version serviceVersion;
+    private Version frameworkVersion;
+    private ServiceInstanceData data;
+    private ServiceInstanceStatus status;
+
+    @Setup
+    public void setup() {
+        serviceVersion = Version.valueOf("2.3.1");
+        frameworkVersion = Version.valueOf("1.0.0");
+        data = buildData();
+        status = ServiceInstanceStatus.newBuilder().asOnline().build();
+    }
+
+    @Benchmark
+    public ServiceInstanceData buildData() {
+        return ServiceInstanceData.newBuilder()
+                .setServiceVersion(serviceVersion)
+                .setFrameworkVersion(frameworkVersion)
+                .addTag("zone-a", "canary")
+                .addGrpcPort(9090)
+                .addHttpPort(8080)
+                .build();
+    }
+
+    @Benchmark
+    public ServiceInstanceData buildDataFromString() {
+        return ServiceInstanceData.newBuilder()
+                .setServiceVersion("2.3.1")
+                .setFrameworkVersion("1.0.0")
+                .addTag("zone-a", "canary")
+                .addGrpcPort(9090)
+                .addHttpPort(8080)
+                .build();
+    }
+
+    @Benchmark
+    public ServiceInstance buildInstance() {
+        return ServiceInstance.newBuilder()
+                .setGroup("Main")
+                .setService("UserService")
+                .setIp("192.168.0.1")
+                .setPort(9090)
+                .setData(data)
+                .setStatus(status)
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package net.basiccloud.registry.benchmark;
+
+import net.basiccloud.registry.Version;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link Version}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionBenchmark {
+
+    @Param({"2", "2.3", "2.3.1", "100.200.300"})
+    private String version;
+
+    private Version serverVersion;
+    private Version clientVersion;
+
+    @Setup
+    public void setup() {
+        serverVersion = Version.valueOf("2.5.3");
+        clientVersion = Version.valueOf(version);
+    }
+
+    @Benchmark
+    public Version valueOf() {
+        return Version.valueOf(version);
+    }
+
+    @Benchmark
+    public boolean isBackCompatibleWith() {
+        return serverVersion.isBackCompatibleWith(clientVersion);
+    }
+}
@@ -0,0 +1,62 @@
+package net.basiccloud.registry.memory;
+
+import net.basiccloud.registry.AsyncSupport;
+import net.basiccloud.registry.RegistryConfig;
+import net.basiccloud.registry.ServiceRegistryConnection;
+import net.basiccloud.registry.ServiceRegistryConnectionException;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Connection for in-memory service registry.
+ */
+public class InMemoryConnection implements ServiceRegistryConnection {
+
+    private final RegistryConfig config;
+    private final String registryUrl;
+    private volatile InMemoryRegistry registry;
+
+    InMemoryConnection(RegistryConfig config) {
+        this.config = checkNotNull(config, "config should not be null");
+        this.registryUrl = config.getRegistryUrl().orElse(InMemoryRegistry.DEFAULT_REGISTRY_URL);
+    }
+
+    @Override
+    public void connect() {
+        if (registry == null) {
+            registry = InMemoryRegistry.forUrl(registryUrl);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> connectAsync() {
+        return AsyncSupport.runNow(this::connect);
+    }
+
+    @Override
+    public RegistryConfig getConfig() {
+        return config;
+    }
+
+    public String getRegistryUrl() {
+        return registryUrl;
+    }
+
+    InMemoryRegistry getRegistry() {
+        InMemoryRegistry current = registry;
+        if (current == null) {
+            throw new ServiceRegistryConnectionException("connection is not connected, call connect() first: registryUrl="
+                    + registryUrl);
+        }
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryConnection{" +
+                "registryUrl='" + registryUrl + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,69 @@
+package net.basiccloud.registry.memory;
+
+import net.basiccloud.registry.RegisterId;
+
+/**
+ * register id of in-memory service registry, identified by group/service/ip/port.
+ */
+public class InMemoryRegisterId implements RegisterId {
+
+    private final String group;
+    private final String service;
+    private final String ip;
+    private final int port;
+
+    InMemoryRegisterId(String group, String service, String ip, int port) {
+        this.group = group;
+        this.service = service;
+        this.ip = ip;
+        this.port = port;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        InMemoryRegisterId that = (InMemoryRegisterId) o;
+
+        if (port != that.port) return false;
+        if (!group.equals(that.group)) return false;
+        if (!service.equals(that.service)) return false;
+        return ip.equals(that.ip);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = group.hashCode();
+        result = 31 * result + service.hashCode();
+        result = 31 * result + ip.hashCode();
+        result = 31 * result + port;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryRegisterId{" +
+                "group='" + group + '\'' +
+                ", service='" + service + '\'' +
+                ", ip='" + ip + '\'' +
+                ", port=" + port +
+                '}';
+    }
+}
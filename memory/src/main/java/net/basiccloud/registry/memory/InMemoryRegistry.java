@@ -0,0 +1,113 @@
+package net.basiccloud.registry.memory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.basiccloud.registry.ServiceInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Storage of in-memory service registry.
+ *
+ * <p>Instances are indexed by group → service → {@link ServiceEntry}. Both levels are concurrent maps and every
+ * entry publishes an immutable snapshot, so readers never take a lock and never allocate, while writers of
+ * one service are serialized on its entry without blocking readers or writers of other services.
+ *
+ * <p>Watch notifications are dispatched on one daemon thread per registry, in the order of the changes.
+ */
+public class InMemoryRegistry {
+
+    private static Logger logger = LoggerFactory.getLogger(InMemoryRegistry.class);
+
+    /**
+     * registry url used when no registry url is given, "memory://default".
+     */
+    public static final String DEFAULT_REGISTRY_URL = "memory://default";
+
+    private static final ConcurrentMap<String, InMemoryRegistry> REGISTRIES = new ConcurrentHashMap<>();
+
+    /**
+     * get the registry of given url, create it if absent.
+     *
+     * @param registryUrl registry url like "memory://default"
+     * @return the registry shared by all connections with the same url in current JVM
+     */
+    public static InMemoryRegistry forUrl(String registryUrl) {
+        checkNotNull(registryUrl, "registryUrl should not be null");
+        return REGISTRIES.computeIfAbsent(registryUrl, url -> {
+            logger.info("create in-memory registry: registryUrl={}", url);
+            return new InMemoryRegistry(url);
+        });
+    }
+
+    private final String registryUrl;
+    private final ConcurrentMap<String, ConcurrentMap<String, ServiceEntry>> groups = new ConcurrentHashMap<>();
+    private final ExecutorService notifier;
+
+    private InMemoryRegistry(String registryUrl) {
+        this.registryUrl = registryUrl;
+        this.notifier = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("memory-registry-notifier-" + registryUrl)
+                .setDaemon(true)
+                .build());
+    }
+
+    public String getRegistryUrl() {
+        return registryUrl;
+    }
+
+    /**
+     * get entry of given service without creating it.
+     *
+     * @param group   service group
+     * @param service service
+     * @return the entry, null if nothing has been registered or watched for this service
+     */
+    ServiceEntry getEntry(String group, String service) {
+        ConcurrentMap<String, ServiceEntry> services = groups.get(group);
+        return services == null ? null : services.get(service);
+    }
+
+    /**
+     * get entry of given service, create it if absent.
+     *
+     * @param group   service group
+     * @param service service
+     * @return the entry
+     */
+    ServiceEntry getOrCreateEntry(String group, String service) {
+        ServiceEntry entry = getEntry(group, service);
+        if (entry != null) {
+            return entry;
+        }
+        return groups.computeIfAbsent(group, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(service, key -> new ServiceEntry(group, service, notifier));
+    }
+
+    /**
+     * get all instances of given service.
+     *
+     * @param group   service group
+     * @param service service
+     * @return immutable instance list, empty if no instance
+     */
+    List<ServiceInstance> getInstances(String group, String service) {
+        ServiceEntry entry = getEntry(group, service);
+        return entry == null ? Collections.emptyList() : entry.getInstances();
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryRegistry{" +
+                "registryUrl='" + registryUrl + '\'' +
+                '}';
+    }
+}
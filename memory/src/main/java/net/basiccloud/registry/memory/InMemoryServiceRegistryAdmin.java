@@ -0,0 +1,36 @@
+package net.basiccloud.registry.memory;
+
+import net.basiccloud.registry.AsyncSupport;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceRegistryAdmin;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * admin of in-memory service registry.
+ *
+ * <p>All methods are non-blocking, the asynchronous methods complete in the calling thread.
+ */
+public class InMemoryServiceRegistryAdmin implements ServiceRegistryAdmin {
+
+    private final InMemoryRegistry registry;
+
+    InMemoryServiceRegistryAdmin(InMemoryRegistry registry) {
+        this.registry = checkNotNull(registry, "registry should not be null");
+    }
+
+    @Override
+    public Optional<ServiceInstance> getInstance(String group, String service, String ip, int port) {
+        ServiceEntry entry = registry.getEntry(group, service);
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.getInstance(ip, port));
+    }
+
+    @Override
+    public CompletableFuture<Optional<ServiceInstance>> getInstanceAsync(String group, String service,
+                                                                        String ip, int port) {
+        return AsyncSupport.supplyNow(() -> getInstance(group, service, ip, port));
+    }
+}
@@ -0,0 +1,120 @@
+package net.basiccloud.registry.memory;
+
+import net.basiccloud.registry.AsyncSupport;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceRegistryClient;
+import net.basiccloud.registry.TagQuery;
+import net.basiccloud.registry.Version;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * client of in-memory service registry.
+ *
+ * <p>All methods are non-blocking, the asynchronous methods complete in the calling thread.
+ */
+public class InMemoryServiceRegistryClient implements ServiceRegistryClient {
+
+    private final InMemoryRegistry registry;
+
+    InMemoryServiceRegistryClient(InMemoryRegistry registry) {
+        this.registry = checkNotNull(registry, "registry should not be null");
+    }
+
+    /**
+     * discover all instances of given service.
+     *
+     * @param group   service group
+     * @param service service
+     * @return immutable instance list shared by all callers, empty if no instance
+     */
+    @Override
+    public List<ServiceInstance> discover(String group, String service) {
+        return registry.getInstances(group, service);
+    }
+
+    /**
+     * discover instances back compatible with given version.
+     *
+     * @param group   service group
+     * @param service service
+     * @param version required version
+     * @return immutable instance list sorted by version, empty if no instance
+     */
+    @Override
+    public List<ServiceInstance> discover(String group, String service, Version version) {
+        checkNotNull(version, "version should not be null");
+        ServiceEntry entry = registry.getEntry(group, service);
+        return entry == null ? Collections.emptyList() : entry.getCompatibleInstances(version);
+    }
+
+    /**
+     * discover instances matching given tag query, evaluated on the tag index of the service.
+     *
+     * @param group   service group
+     * @param service service
+     * @param query   tag query
+     * @return immutable instance list, empty if no instance
+     */
+    @Override
+    public List<ServiceInstance> discover(String group, String service, TagQuery query) {
+        checkNotNull(query, "query should not be null");
+        ServiceEntry entry = registry.getEntry(group, service);
+        return entry == null ? Collections.emptyList() : entry.getInstances(query);
+    }
+
+    /**
+     * watch given service, current instances are delivered to the listener right after watched.
+     *
+     * @param group          service group
+     * @param service        service
+     * @param version        required version, null for all instances
+     * @param clientListener listener
+     * @return always true
+     */
+    @Override
+    public boolean watch(String group, String service, Version version, ClientListener clientListener) {
+        checkArgument(group != null && service != null, "group and service should not be null");
+        checkNotNull(clientListener, "clientListener should not be null");
+        registry.getOrCreateEntry(group, service).addWatcher(version, clientListener);
+        return true;
+    }
+
+    /**
+     * watch changes of given service, the delta is computed once per change from the write itself.
+     *
+     * @param group         service group
+     * @param service       service
+     * @param version       required version, null for all instances
+     * @param deltaListener listener
+     * @return always true
+     */
+    @Override
+    public boolean watchDelta(String group, String service, Version version, DeltaListener deltaListener) {
+        checkArgument(group != null && service != null, "group and service should not be null");
+        checkNotNull(deltaListener, "deltaListener should not be null");
+        registry.getOrCreateEntry(group, service).addDeltaWatcher(version, deltaListener);
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<List<ServiceInstance>> discoverAsync(String group, String service) {
+        return AsyncSupport.supplyNow(() -> discover(group, service));
+    }
+
+    @Override
+    public CompletableFuture<List<ServiceInstance>> discoverAsync(String group, String service, Version version) {
+        return AsyncSupport.supplyNow(() -> discover(group, service, version));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> watchAsync(String group, String service, Version version,
+                                                 ClientListener clientListener) {
+        return AsyncSupport.supplyNow(() -> watch(group, service, version, clientListener));
+    }
+}
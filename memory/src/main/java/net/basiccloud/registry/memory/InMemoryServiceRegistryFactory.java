@@ -0,0 +1,71 @@
+package net.basiccloud.registry.memory;
+
+import net.basiccloud.registry.*;
+
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * factory of in-memory service registry.
+ *
+ * <p>All connections with the same registry url ("memory://name") share one {@link InMemoryRegistry}
+ * in the current JVM, connections without registry url share the default one.
+ */
+@ServiceRegistryFactoryPriority(InMemoryServiceRegistryFactory.PRIORITY)
+public class InMemoryServiceRegistryFactory implements ServiceRegistryFactory {
+
+    /**
+     * name of this factory, "memory".
+     */
+    public static final String NAME = "memory";
+
+    /**
+     * priority of this factory (1), lower than {@link #PRIORITY_DEFAULT} so that any remote backend in classpath wins.
+     */
+    public static final int PRIORITY = 1;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getPriority() {
+        return PRIORITY;
+    }
+
+    @Override
+    public ServiceRegistryConnection connect(Map<String, String> parameters) {
+        checkNotNull(parameters, "parameters should not be null");
+        return connect(RegistryConfig.parse(parameters));
+    }
+
+    @Override
+    public ServiceRegistryConnection connect(RegistryConfig config) {
+        checkNotNull(config, "config should not be null");
+        return new InMemoryConnection(config);
+    }
+
+    @Override
+    public ServiceRegistryClient getClient(ServiceRegistryConnection conn) {
+        return new InMemoryServiceRegistryClient(toInMemoryConnection(conn).getRegistry());
+    }
+
+    @Override
+    public ServiceRegistryServer getServer(ServiceRegistryConnection conn) {
+        return new InMemoryServiceRegistryServer(toInMemoryConnection(conn).getRegistry());
+    }
+
+    @Override
+    public ServiceRegistryAdmin getAdmin(ServiceRegistryConnection conn) {
+        return new InMemoryServiceRegistryAdmin(toInMemoryConnection(conn).getRegistry());
+    }
+
+    private static InMemoryConnection toInMemoryConnection(ServiceRegistryConnection conn) {
+        checkArgument(conn instanceof InMemoryConnection,
+                "connection should be created by InMemoryServiceRegistryFactory: conn=%s", conn);
+        return (InMemoryConnection) conn;
+    }
+}
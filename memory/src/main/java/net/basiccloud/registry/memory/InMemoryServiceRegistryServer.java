@@ -0,0 +1,203 @@
+package net.basiccloud.registry.memory;
+
+import net.basiccloud.registry.AsyncSupport;
+import net.basiccloud.registry.BatchResult;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstancePatch;
+import net.basiccloud.registry.ServiceRegistryServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * server of in-memory service registry.
+ *
+ * <p>All methods are non-blocking, the asynchronous methods complete in the calling thread.
+ */
+public class InMemoryServiceRegistryServer implements ServiceRegistryServer<InMemoryRegisterId> {
+
+    private static Logger logger = LoggerFactory.getLogger(InMemoryServiceRegistryServer.class);
+
+    private final InMemoryRegistry registry;
+
+    InMemoryServiceRegistryServer(InMemoryRegistry registry) {
+        this.registry = checkNotNull(registry, "registry should not be null");
+    }
+
+    /**
+     * register service, the instance with the same group/service/ip/port is replaced.
+     *
+     * @param serviceInstance service instance
+     * @return register id
+     */
+    @Override
+    public InMemoryRegisterId register(ServiceInstance serviceInstance) {
+        checkNotNull(serviceInstance, "serviceInstance should not be null");
+        registry.getOrCreateEntry(serviceInstance.getGroup(), serviceInstance.getService()).put(serviceInstance);
+        logger.debug("instance registered: id={}", serviceInstance.getId());
+        return new InMemoryRegisterId(serviceInstance.getGroup(), serviceInstance.getService(),
+                serviceInstance.getIp(), serviceInstance.getPort());
+    }
+
+    @Override
+    public void deregister(InMemoryRegisterId registerId) {
+        checkNotNull(registerId, "registerId should not be null");
+        ServiceEntry entry = registry.getEntry(registerId.getGroup(), registerId.getService());
+        if (entry == null || !entry.remove(registerId.getIp(), registerId.getPort())) {
+            logger.warn("instance to deregister not found: registerId={}", registerId);
+        }
+    }
+
+    @Override
+    public CompletableFuture<InMemoryRegisterId> registerAsync(ServiceInstance serviceInstance) {
+        return AsyncSupport.supplyNow(() -> register(serviceInstance));
+    }
+
+    @Override
+    public CompletableFuture<Void> deregisterAsync(InMemoryRegisterId registerId) {
+        return AsyncSupport.runNow(() -> deregister(registerId));
+    }
+
+    /**
+     * register instances in batch, the instances of one service are put in one copy of the service and notified
+     * to the watchers once.
+     *
+     * @param serviceInstances service instances
+     * @return register id or error of each instance
+     */
+    @Override
+    public BatchResult<ServiceInstance, InMemoryRegisterId> registerAll(Collection<ServiceInstance> serviceInstances) {
+        checkNotNull(serviceInstances, "serviceInstances should not be null");
+        Map<ServiceEntry, List<ServiceInstance>> byEntry = new LinkedHashMap<>();
+        for (ServiceInstance serviceInstance : serviceInstances) {
+            if (serviceInstance != null) {
+                byEntry.computeIfAbsent(registry.getOrCreateEntry(serviceInstance.getGroup(),
+                        serviceInstance.getService()), key -> new ArrayList<>()).add(serviceInstance);
+            }
+        }
+        byEntry.forEach(ServiceEntry::putAll);
+        logger.debug("{} instances registered in batch", serviceInstances.size());
+
+        BatchResult.Builder<ServiceInstance, InMemoryRegisterId> builder = BatchResult.newBuilder();
+        for (ServiceInstance serviceInstance : serviceInstances) {
+            if (serviceInstance == null) {
+                builder.addFailure(null, new NullPointerException("serviceInstance should not be null"));
+            } else {
+                builder.addSuccess(serviceInstance, new InMemoryRegisterId(serviceInstance.getGroup(),
+                        serviceInstance.getService(), serviceInstance.getIp(), serviceInstance.getPort()));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * deregister instances in batch, the instances of one service are removed in one copy of the service and
+     * notified to the watchers once.
+     *
+     * @param registerIds register ids
+     * @return error of each register id
+     */
+    @Override
+    public BatchResult<InMemoryRegisterId, Void> deregisterAll(Collection<InMemoryRegisterId> registerIds) {
+        checkNotNull(registerIds, "registerIds should not be null");
+        Map<ServiceEntry, List<InMemoryRegisterId>> byEntry = new LinkedHashMap<>();
+        for (InMemoryRegisterId registerId : registerIds) {
+            if (registerId != null) {
+                ServiceEntry entry = registry.getEntry(registerId.getGroup(), registerId.getService());
+                if (entry != null) {
+                    byEntry.computeIfAbsent(entry, key -> new ArrayList<>()).add(registerId);
+                }
+            }
+        }
+        int removed = 0;
+        for (Map.Entry<ServiceEntry, List<InMemoryRegisterId>> entry : byEntry.entrySet()) {
+            removed += entry.getKey().removeAll(entry.getValue());
+        }
+        if (removed < registerIds.size()) {
+            logger.warn("{} of {} instances to deregister not found", registerIds.size() - removed, registerIds.size());
+        }
+
+        BatchResult.Builder<InMemoryRegisterId, Void> builder = BatchResult.newBuilder();
+        for (InMemoryRegisterId registerId : registerIds) {
+            if (registerId == null) {
+                builder.addFailure(null, new NullPointerException("registerId should not be null"));
+            } else {
+                builder.addSuccess(registerId, null);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * patch the status and/or work mode of a registered instance, delta watchers receive the patch.
+     *
+     * @param registerId register id
+     * @param patch      patch to apply
+     * @throws IllegalArgumentException if the instance is not registered
+     */
+    @Override
+    public void patch(InMemoryRegisterId registerId, ServiceInstancePatch patch) {
+        checkNotNull(registerId, "registerId should not be null");
+        checkNotNull(patch, "patch should not be null");
+        ServiceEntry entry = registry.getEntry(registerId.getGroup(), registerId.getService());
+        checkArgument(entry != null && entry.patchAll(Collections.singletonList(registerId), patch)[0],
+                "instance to patch not found: registerId=%s", registerId);
+    }
+
+    @Override
+    public CompletableFuture<Void> patchAsync(InMemoryRegisterId registerId, ServiceInstancePatch patch) {
+        return AsyncSupport.runNow(() -> patch(registerId, patch));
+    }
+
+    /**
+     * patch instances in batch, the instances of one service are patched in one copy of the service and notified
+     * to the watchers once.
+     *
+     * @param registerIds register ids
+     * @param patch       patch to apply
+     * @return error of each register id, IllegalArgumentException if the instance is not registered
+     */
+    @Override
+    public BatchResult<InMemoryRegisterId, Void> patchAll(Collection<InMemoryRegisterId> registerIds,
+                                                          ServiceInstancePatch patch) {
+        checkNotNull(registerIds, "registerIds should not be null");
+        checkNotNull(patch, "patch should not be null");
+        Map<ServiceEntry, List<InMemoryRegisterId>> byEntry = new LinkedHashMap<>();
+        for (InMemoryRegisterId registerId : registerIds) {
+            if (registerId != null) {
+                ServiceEntry entry = registry.getEntry(registerId.getGroup(), registerId.getService());
+                if (entry != null) {
+                    byEntry.computeIfAbsent(entry, key -> new ArrayList<>()).add(registerId);
+                }
+            }
+        }
+        Set<InMemoryRegisterId> found = new HashSet<>(registerIds.size() * 2);
+        for (Map.Entry<ServiceEntry, List<InMemoryRegisterId>> entry : byEntry.entrySet()) {
+            boolean[] patched = entry.getKey().patchAll(entry.getValue(), patch);
+            for (int i = 0; i < patched.length; i++) {
+                if (patched[i]) {
+                    found.add(entry.getValue().get(i));
+                }
+            }
+        }
+        logger.debug("{} of {} instances patched in batch: patch={}", found.size(), registerIds.size(), patch);
+
+        BatchResult.Builder<InMemoryRegisterId, Void> builder = BatchResult.newBuilder();
+        for (InMemoryRegisterId registerId : registerIds) {
+            if (registerId == null) {
+                builder.addFailure(null, new NullPointerException("registerId should not be null"));
+            } else if (!found.contains(registerId)) {
+                builder.addFailure(registerId,
+                        new IllegalArgumentException("instance to patch not found: registerId=" + registerId));
+            } else {
+                builder.addSuccess(registerId, null);
+            }
+        }
+        return builder.build();
+    }
+}
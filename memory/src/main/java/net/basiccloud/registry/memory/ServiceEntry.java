@@ -0,0 +1,413 @@
+package net.basiccloud.registry.memory;
+
+import net.basiccloud.registry.InstanceKey;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceDelta;
+import net.basiccloud.registry.ServiceInstancePatch;
+import net.basiccloud.registry.ServiceRegistryClient.ClientListener;
+import net.basiccloud.registry.ServiceRegistryClient.DeltaListener;
+import net.basiccloud.registry.TagQuery;
+import net.basiccloud.registry.Version;
+import net.basiccloud.registry.index.LongHashMap;
+import net.basiccloud.registry.index.TagIndex;
+import net.basiccloud.registry.index.VersionIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Instances and watchers of one service.
+ *
+ * <p>Reads go through a volatile immutable {@link Snapshot}; writes are serialized on this entry and
+ * replace the snapshot with a new copy (copy-on-write), then notify the watchers. Instances are looked up by the
+ * {@link InstanceKey#endpointKey(String, int)} of their ip and port in a primitive map; lookups by ip and port use
+ * {@link InstanceKey#findEndpointKey(String, int)} so unknown host names are not interned. Batch writes update the
+ * copied instance list in place through the positions of the instances, in one pass. The {@link VersionIndex}
+ * and {@link TagIndex} of the snapshot are updated incrementally from the previous one, and delta watchers get the
+ * {@link Change} of the write without diffing the instance lists. Status and work mode patches reach the delta
+ * watchers as {@link ServiceInstancePatch}.
+ */
+final class ServiceEntry {
+
+    private static Logger logger = LoggerFactory.getLogger(ServiceEntry.class);
+
+    private final String group;
+    private final String service;
+    private final Executor notifier;
+    private final List<Watcher> watchers = new CopyOnWriteArrayList<>();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    ServiceEntry(String group, String service, Executor notifier) {
+        this.group = group;
+        this.service = service;
+        this.notifier = notifier;
+    }
+
+    List<ServiceInstance> getInstances() {
+        return snapshot.instances;
+    }
+
+    /**
+     * get instances back compatible with given version.
+     *
+     * @param version target version
+     * @return immutable instance list sorted by version
+     */
+    List<ServiceInstance> getCompatibleInstances(Version version) {
+        return snapshot.versionIndex.getCompatible(version);
+    }
+
+    /**
+     * get instances matching given tag query.
+     *
+     * @param query tag query
+     * @return immutable instance list
+     */
+    List<ServiceInstance> getInstances(TagQuery query) {
+        return snapshot.tagIndex.find(query);
+    }
+
+    /**
+     * get the instance with given ip and port.
+     *
+     * @param ip   ip address
+     * @param port port
+     * @return instance, null if not found
+     */
+    ServiceInstance getInstance(String ip, int port) {
+        long endpointKey = InstanceKey.findEndpointKey(ip, port);
+        return endpointKey == InstanceKey.NOT_FOUND ? null : snapshot.instancesByEndpoint.get(endpointKey);
+    }
+
+    /**
+     * add or replace the instance with the same ip and port.
+     *
+     * @param instance instance to put
+     */
+    void put(ServiceInstance instance) {
+        putAll(Collections.singletonList(instance));
+    }
+
+    /**
+     * add or replace the instances with the same ip and port, watchers are notified once.
+     *
+     * @param toPut instances to put
+     */
+    synchronized void putAll(List<ServiceInstance> toPut) {
+        List<ServiceInstance> instances = new ArrayList<>(snapshot.instances.size() + toPut.size());
+        instances.addAll(snapshot.instances);
+        LongHashMap<ServiceInstance> byEndpoint = snapshot.instancesByEndpoint.copy();
+        VersionIndex versionIndex = snapshot.versionIndex;
+        TagIndex tagIndex = snapshot.tagIndex;
+        Change change = new Change();
+        Map<ServiceInstance, Integer> positions = null;
+        for (ServiceInstance instance : toPut) {
+            ServiceInstance replaced = byEndpoint.put(InstanceKey.endpointKey(instance.getIp(), instance.getPort()),
+                    instance);
+            if (replaced != null) {
+                if (positions == null) {
+                    positions = positionsOf(instances);
+                }
+                int position = positions.remove(replaced);
+                instances.set(position, instance);
+                positions.put(instance, position);
+                versionIndex = versionIndex.withRemoved(replaced);
+                tagIndex = tagIndex.withRemoved(replaced);
+                change.changedFrom.add(replaced);
+                change.changedTo.add(instance);
+            } else {
+                if (positions != null) {
+                    positions.put(instance, instances.size());
+                }
+                instances.add(instance);
+                change.added.add(instance);
+            }
+            versionIndex = versionIndex.withAdded(instance);
+            tagIndex = tagIndex.withAdded(instance);
+        }
+        publish(instances, byEndpoint, versionIndex, tagIndex, change);
+    }
+
+    /**
+     * remove the instance with given ip and port.
+     *
+     * @param ip   ip address
+     * @param port port
+     * @return true if removed, false if no such instance
+     */
+    boolean remove(String ip, int port) {
+        return removeAll(Collections.singletonList(new InMemoryRegisterId(group, service, ip, port))) > 0;
+    }
+
+    /**
+     * remove the instances with the ip and port of given register ids, watchers are notified once.
+     *
+     * @param registerIds register ids of this service
+     * @return number of instances removed
+     */
+    synchronized int removeAll(List<InMemoryRegisterId> registerIds) {
+        List<ServiceInstance> instances = null;
+        LongHashMap<ServiceInstance> byEndpoint = null;
+        VersionIndex versionIndex = snapshot.versionIndex;
+        TagIndex tagIndex = snapshot.tagIndex;
+        Change change = new Change();
+        Map<ServiceInstance, Integer> positions = null;
+        for (InMemoryRegisterId registerId : registerIds) {
+            long endpointKey = InstanceKey.findEndpointKey(registerId.getIp(), registerId.getPort());
+            if (endpointKey == InstanceKey.NOT_FOUND) {
+                continue;
+            }
+            if (instances == null) {
+                if (!snapshot.instancesByEndpoint.containsKey(endpointKey)) {
+                    continue;
+                }
+                instances = new ArrayList<>(snapshot.instances);
+                byEndpoint = snapshot.instancesByEndpoint.copy();
+                positions = positionsOf(instances);
+            }
+            ServiceInstance removed = byEndpoint.remove(endpointKey);
+            if (removed != null) {
+                // cleared here, compacted once after the loop
+                instances.set(positions.get(removed), null);
+                versionIndex = versionIndex.withRemoved(removed);
+                tagIndex = tagIndex.withRemoved(removed);
+                change.removed.add(removed);
+            }
+        }
+        if (instances == null) {
+            return 0;
+        }
+        instances.removeIf(Objects::isNull);
+        int removed = snapshot.instances.size() - instances.size();
+        publish(instances, byEndpoint, versionIndex, tagIndex, change);
+        return removed;
+    }
+
+    /**
+     * patch the instances with the ip and port of given register ids, watchers are notified once.
+     *
+     * @param registerIds register ids of this service
+     * @param patch       patch to apply
+     * @return whether the instance of each register id is found, in the same order
+     */
+    synchronized boolean[] patchAll(List<InMemoryRegisterId> registerIds, ServiceInstancePatch patch) {
+        boolean[] found = new boolean[registerIds.size()];
+        List<ServiceInstance> instances = null;
+        LongHashMap<ServiceInstance> byEndpoint = null;
+        VersionIndex versionIndex = snapshot.versionIndex;
+        TagIndex tagIndex = snapshot.tagIndex;
+        Change change = new Change();
+        Map<ServiceInstance, Integer> positions = null;
+        for (int i = 0; i < found.length; i++) {
+            InMemoryRegisterId registerId = registerIds.get(i);
+            long endpointKey = InstanceKey.findEndpointKey(registerId.getIp(), registerId.getPort());
+            if (endpointKey == InstanceKey.NOT_FOUND) {
+                continue;
+            }
+            ServiceInstance exist = byEndpoint == null
+                    ? snapshot.instancesByEndpoint.get(endpointKey) : byEndpoint.get(endpointKey);
+            if (exist == null) {
+                continue;
+            }
+            found[i] = true;
+            ServiceInstance patched = patch.applyTo(exist);
+            if (patched == exist) {
+                continue;
+            }
+            if (instances == null) {
+                instances = new ArrayList<>(snapshot.instances);
+                byEndpoint = snapshot.instancesByEndpoint.copy();
+                positions = positionsOf(instances);
+            }
+            byEndpoint.put(endpointKey, patched);
+            int position = positions.remove(exist);
+            instances.set(position, patched);
+            positions.put(patched, position);
+            versionIndex = versionIndex.withRemoved(exist).withAdded(patched);
+            tagIndex = tagIndex.withRemoved(exist).withAdded(patched);
+            change.patched.add(patched);
+        }
+        if (instances != null) {
+            change.patch = patch;
+            publish(instances, byEndpoint, versionIndex, tagIndex, change);
+        }
+        return found;
+    }
+
+    /**
+     * add watcher, current instances are delivered to the watcher immediately.
+     *
+     * @param version  version the watcher requires, null for all instances
+     * @param listener listener
+     */
+    synchronized void addWatcher(Version version, ClientListener listener) {
+        Watcher watcher = new ListWatcher(version, listener);
+        watchers.add(watcher);
+        watcher.notify(snapshot, null);
+    }
+
+    /**
+     * add delta watcher, current instances are delivered to the watcher immediately as added.
+     *
+     * @param version  version the watcher requires, null for all instances
+     * @param listener listener
+     */
+    synchronized void addDeltaWatcher(Version version, DeltaListener listener) {
+        Watcher watcher = new DeltaWatcher(version, listener);
+        watchers.add(watcher);
+        watcher.notify(snapshot, null);
+    }
+
+    private void publish(List<ServiceInstance> instances, LongHashMap<ServiceInstance> byEndpoint,
+                         VersionIndex versionIndex, TagIndex tagIndex, Change change) {
+        Snapshot newSnapshot = new Snapshot(instances, byEndpoint, versionIndex, tagIndex, snapshot.revision + 1);
+        this.snapshot = newSnapshot;
+        for (Watcher watcher : watchers) {
+            watcher.notify(newSnapshot, change);
+        }
+    }
+
+    /**
+     * index the positions of the instances by identity, so a batch write updates the list in one pass.
+     */
+    private static Map<ServiceInstance, Integer> positionsOf(List<ServiceInstance> instances) {
+        Map<ServiceInstance, Integer> positions = new IdentityHashMap<>(instances.size());
+        for (int i = 0; i < instances.size(); i++) {
+            positions.put(instances.get(i), i);
+        }
+        return positions;
+    }
+
+    /**
+     * instances added, replaced, removed and patched by one write.
+     */
+    private static final class Change {
+        private final List<ServiceInstance> added = new ArrayList<>();
+        private final List<ServiceInstance> changedFrom = new ArrayList<>();
+        private final List<ServiceInstance> changedTo = new ArrayList<>();
+        private final List<ServiceInstance> removed = new ArrayList<>();
+        private final List<ServiceInstance> patched = new ArrayList<>();
+        private ServiceInstancePatch patch;
+    }
+
+    private abstract class Watcher {
+        protected final Version version;
+
+        private Watcher(Version version) {
+            this.version = version;
+        }
+
+        /**
+         * notify the watcher of the new snapshot.
+         *
+         * @param snapshot new snapshot
+         * @param change   change from the previous snapshot, null for the first notification
+         */
+        abstract void notify(Snapshot snapshot, Change change);
+
+        boolean accept(ServiceInstance instance) {
+            return version == null || (instance.getData() != null
+                    && instance.getData().getServiceVersion().isBackCompatibleWith(version));
+        }
+
+        void execute(Runnable notification) {
+            notifier.execute(() -> {
+                try {
+                    notification.run();
+                } catch (RuntimeException e) {
+                    logger.error("fail to notify watcher: group={}, service={}, version={}",
+                            group, service, version, e);
+                }
+            });
+        }
+    }
+
+    private final class ListWatcher extends Watcher {
+        private final ClientListener listener;
+
+        private ListWatcher(Version version, ClientListener listener) {
+            super(version);
+            this.listener = listener;
+        }
+
+        @Override
+        void notify(Snapshot snapshot, Change change) {
+            List<ServiceInstance> list = version == null
+                    ? snapshot.instances : snapshot.versionIndex.getCompatible(version);
+            execute(() -> listener.update(list));
+        }
+    }
+
+    private final class DeltaWatcher extends Watcher {
+        private final DeltaListener listener;
+
+        private DeltaWatcher(Version version, DeltaListener listener) {
+            super(version);
+            this.listener = listener;
+        }
+
+        @Override
+        void notify(Snapshot snapshot, Change change) {
+            ServiceInstanceDelta.Builder builder = ServiceInstanceDelta.newBuilder().setRevision(snapshot.revision);
+            if (change == null) {
+                (version == null ? snapshot.instances : snapshot.versionIndex.getCompatible(version))
+                        .forEach(builder::addAdded);
+            } else {
+                change.added.stream().filter(this::accept).forEach(builder::addAdded);
+                change.removed.stream().filter(this::accept).forEach(builder::addRemoved);
+                for (int i = 0; i < change.changedTo.size(); i++) {
+                    ServiceInstance from = change.changedFrom.get(i);
+                    ServiceInstance to = change.changedTo.get(i);
+                    boolean acceptFrom = accept(from);
+                    boolean acceptTo = accept(to);
+                    if (acceptFrom && acceptTo) {
+                        builder.addChanged(to);
+                    } else if (acceptFrom) {
+                        builder.addRemoved(from);
+                    } else if (acceptTo) {
+                        builder.addAdded(to);
+                    }
+                }
+                // a patch does not change the version, the watcher accepts the instance before and after
+                for (ServiceInstance instance : change.patched) {
+                    if (accept(instance)) {
+                        builder.addPatched(change.patch.forInstance(instance.getId()));
+                    }
+                }
+                if (builder.isEmpty()) {
+                    return;
+                }
+            }
+            ServiceInstanceDelta delta = builder.build();
+            execute(() -> listener.update(delta));
+        }
+    }
+
+    /**
+     * immutable view of the instances.
+     */
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(Collections.emptyList(), new LongHashMap<>(),
+                VersionIndex.EMPTY, TagIndex.EMPTY, 0);
+
+        private final List<ServiceInstance> instances;
+        private final LongHashMap<ServiceInstance> instancesByEndpoint;
+        private final VersionIndex versionIndex;
+        private final TagIndex tagIndex;
+        private final long revision;
+
+        private Snapshot(List<ServiceInstance> instances, LongHashMap<ServiceInstance> instancesByEndpoint,
+                         VersionIndex versionIndex, TagIndex tagIndex, long revision) {
+            this.instances = Collections.unmodifiableList(instances);
+            this.instancesByEndpoint = instancesByEndpoint;
+            this.versionIndex = versionIndex;
+            this.tagIndex = tagIndex;
+            this.revision = revision;
+        }
+    }
+}
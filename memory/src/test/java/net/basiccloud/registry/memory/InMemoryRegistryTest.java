@@ -0,0 +1,240 @@
+package net.basiccloud.registry.memory;
+
+import net.basiccloud.registry.BatchResult;
+import net.basiccloud.registry.ServiceInstance;
+import net.basiccloud.registry.ServiceInstanceData;
+import net.basiccloud.registry.ServiceInstanceDelta;
+import net.basiccloud.registry.ServiceInstancePatch;
+import net.basiccloud.registry.ServiceInstanceStatus;
+import net.basiccloud.registry.TagQuery;
+import net.basiccloud.registry.Version;
+import net.basiccloud.registry.WorkMode;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryRegistryTest {
+
+    private static ServiceInstance newInstance(String ip, int port, String version) {
+        return ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp(ip).setPort(port)
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion(version).setFrameworkVersion("1.0.0").build())
+                .build();
+    }
+
+    @Test
+    public void registerAndDiscover() throws Exception {
+        InMemoryRegistry registry = InMemoryRegistry.forUrl("memory://registerAndDiscover");
+        InMemoryServiceRegistryServer server = new InMemoryServiceRegistryServer(registry);
+        InMemoryServiceRegistryClient client = new InMemoryServiceRegistryClient(registry);
+        InMemoryServiceRegistryAdmin admin = new InMemoryServiceRegistryAdmin(registry);
+
+        ServiceInstance instance1 = newInstance("192.168.0.1", 1080, "1.0.0");
+        ServiceInstance instance2 = newInstance("192.168.0.1", 1081, "1.2.0");
+        ServiceInstance instance3 = newInstance("192.168.0.2", 1080, "2.0.0");
+        InMemoryRegisterId registerId1 = server.register(instance1);
+        server.register(instance2);
+        server.register(instance3);
+
+        assertThat(client.discover("Main", "UserService")).containsExactly(instance1, instance2, instance3);
+        assertThat(client.discover("Main", "UserService", Version.valueOf("1.1"))).containsExactly(instance2);
+        assertThat(client.discover("Main", "OtherService")).isEmpty();
+        assertThat(admin.getInstance("Main", "UserService", "192.168.0.1", 1081).get()).isEqualTo(instance2);
+        assertThat(admin.getInstance("Main", "UserService", "192.168.0.3", 1081).isPresent()).isFalse();
+        assertThat(admin.getInstance("Main", "UserService", "unknown-host.local", 1081).isPresent()).isFalse();
+        assertThat(admin.getInstance("Main", "UserService", "192.168.0.1", 65536).isPresent()).isFalse();
+
+        server.deregister(registerId1);
+        assertThat(client.discover("Main", "UserService")).containsExactly(instance2, instance3);
+        assertThat(admin.getInstance("Main", "UserService", "192.168.0.1", 1080).isPresent()).isFalse();
+    }
+
+    @Test
+    public void register_replaceSameEndpoint() throws Exception {
+        InMemoryRegistry registry = InMemoryRegistry.forUrl("memory://register_replaceSameEndpoint");
+        InMemoryServiceRegistryServer server = new InMemoryServiceRegistryServer(registry);
+        InMemoryServiceRegistryClient client = new InMemoryServiceRegistryClient(registry);
+
+        server.register(newInstance("192.168.0.1", 1080, "1.0.0"));
+        ServiceInstance replaced = newInstance("192.168.0.1", 1080, "1.1.0");
+        server.register(replaced);
+
+        assertThat(client.discover("Main", "UserService")).containsExactly(replaced);
+    }
+
+    @Test
+    public void watch() throws Exception {
+        InMemoryRegistry registry = InMemoryRegistry.forUrl("memory://watch");
+        InMemoryServiceRegistryServer server = new InMemoryServiceRegistryServer(registry);
+        InMemoryServiceRegistryClient client = new InMemoryServiceRegistryClient(registry);
+
+        BlockingQueue<List<ServiceInstance>> updates = new LinkedBlockingQueue<>();
+        assertThat(client.watch("Main", "UserService", Version.valueOf("2.0"), updates::add)).isTrue();
+        assertThat(updates.poll(5, TimeUnit.SECONDS)).isEmpty();
+
+        server.register(newInstance("192.168.0.1", 1080, "1.0.0"));
+        assertThat(updates.poll(5, TimeUnit.SECONDS)).isEmpty();
+
+        ServiceInstance instance = newInstance("192.168.0.2", 1080, "2.1.0");
+        InMemoryRegisterId registerId = server.register(instance);
+        assertThat(updates.poll(5, TimeUnit.SECONDS)).containsExactly(instance);
+
+        server.deregister(registerId);
+        assertThat(updates.poll(5, TimeUnit.SECONDS)).isEmpty();
+    }
+
+    @Test
+    public void registerAllAndDeregisterAll() throws Exception {
+        InMemoryRegistry registry = InMemoryRegistry.forUrl("memory://registerAllAndDeregisterAll");
+        InMemoryServiceRegistryServer server = new InMemoryServiceRegistryServer(registry);
+        InMemoryServiceRegistryClient client = new InMemoryServiceRegistryClient(registry);
+
+        BlockingQueue<List<ServiceInstance>> updates = new LinkedBlockingQueue<>();
+        client.watch("Main", "UserService", null, updates::add);
+        assertThat(updates.poll(5, TimeUnit.SECONDS)).isEmpty();
+
+        ServiceInstance instance1 = newInstance("192.168.0.1", 1080, "1.0.0");
+        ServiceInstance instance2 = newInstance("192.168.0.1", 1081, "1.0.0");
+        ServiceInstance instance3 = newInstance("192.168.0.1", 1082, "1.0.0");
+        BatchResult<ServiceInstance, InMemoryRegisterId> registered = server.registerAll(
+                Arrays.asList(instance1, null, instance2, instance3));
+        assertThat(registered.getFailureCount()).isEqualTo(1);
+        assertThat(registered.getItems().get(1).isSuccess()).isFalse();
+        assertThat(registered.getOutputs()).hasSize(3);
+        // notified once for the whole batch
+        assertThat(updates.poll(5, TimeUnit.SECONDS)).containsExactly(instance1, instance2, instance3);
+
+        BatchResult<InMemoryRegisterId, Void> deregistered = server.deregisterAll(
+                Arrays.asList(registered.getOutputs().get(0), registered.getOutputs().get(2)));
+        assertThat(deregistered.isAllSuccess()).isTrue();
+        assertThat(updates.poll(5, TimeUnit.SECONDS)).containsExactly(instance2);
+        assertThat(updates.isEmpty()).isTrue();
+        assertThat(client.discover("Main", "UserService")).containsExactly(instance2);
+    }
+
+    @Test
+    public void watchDelta() throws Exception {
+        InMemoryRegistry registry = InMemoryRegistry.forUrl("memory://watchDelta");
+        InMemoryServiceRegistryServer server = new InMemoryServiceRegistryServer(registry);
+        InMemoryServiceRegistryClient client = new InMemoryServiceRegistryClient(registry);
+
+        ServiceInstance instance1 = newInstance("192.168.0.1", 1080, "1.0.0");
+        InMemoryRegisterId registerId1 = server.register(instance1);
+
+        BlockingQueue<ServiceInstanceDelta> deltas = new LinkedBlockingQueue<>();
+        client.watchDelta("Main", "UserService", Version.valueOf("1.1"), deltas::add);
+        ServiceInstanceDelta delta = deltas.poll(5, TimeUnit.SECONDS);
+        assertThat(delta.isEmpty()).isTrue();
+        assertThat(delta.getRevision()).isEqualTo(1);
+
+        // upgraded into the watched version
+        ServiceInstance upgraded = newInstance("192.168.0.1", 1080, "1.1.0");
+        server.register(upgraded);
+        delta = deltas.poll(5, TimeUnit.SECONDS);
+        assertThat(delta.getAdded()).containsExactly(upgraded);
+        assertThat(delta.getRevision()).isEqualTo(2);
+
+        ServiceInstance changed = newInstance("192.168.0.1", 1080, "1.2.0");
+        ServiceInstance instance2 = newInstance("192.168.0.1", 1081, "1.1.0");
+        server.registerAll(Arrays.asList(changed, instance2));
+        delta = deltas.poll(5, TimeUnit.SECONDS);
+        assertThat(delta.getAdded()).containsExactly(instance2);
+        assertThat(delta.getChanged()).containsExactly(changed);
+
+        // not compatible, no delta
+        server.register(newInstance("192.168.0.1", 1082, "2.0.0"));
+        server.deregister(registerId1);
+        delta = deltas.poll(5, TimeUnit.SECONDS);
+        assertThat(delta.getRemoved()).containsExactly(changed);
+        assertThat(delta.getRevision()).isEqualTo(5);
+        assertThat(deltas.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void patch() throws Exception {
+        InMemoryRegistry registry = InMemoryRegistry.forUrl("memory://patch");
+        InMemoryServiceRegistryServer server = new InMemoryServiceRegistryServer(registry);
+        InMemoryServiceRegistryClient client = new InMemoryServiceRegistryClient(registry);
+
+        ServiceInstance instance1 = newInstance("192.168.0.1", 1080, "1.0.0");
+        ServiceInstance instance2 = newInstance("192.168.0.1", 1081, "1.0.0");
+        ServiceInstance instance3 = newInstance("192.168.0.1", 1082, "2.0.0");
+        List<InMemoryRegisterId> registerIds = server.registerAll(Arrays.asList(instance1, instance2, instance3))
+                .getOutputs();
+
+        BlockingQueue<ServiceInstanceDelta> deltas = new LinkedBlockingQueue<>();
+        client.watchDelta("Main", "UserService", Version.valueOf("1.0"), deltas::add);
+        assertThat(deltas.poll(5, TimeUnit.SECONDS).getAdded()).containsExactly(instance1, instance2);
+
+        server.updateWorkMode(registerIds.get(0), WorkMode.MAINTENANCE);
+        ServiceInstanceDelta delta = deltas.poll(5, TimeUnit.SECONDS);
+        assertThat(delta.getChanged()).isEmpty();
+        assertThat(delta.getPatched()).containsExactly(
+                ServiceInstancePatch.ofWorkMode(WorkMode.MAINTENANCE).forInstance(instance1.getId()));
+        assertThat(client.discover("Main", "UserService").get(0).getData().getWorkMode())
+                .isEqualTo(WorkMode.MAINTENANCE);
+
+        // unchanged, no delta
+        server.updateWorkMode(registerIds.get(0), WorkMode.MAINTENANCE);
+
+        // all patched in one delta, the instance not compatible is not delivered
+        ServiceInstanceStatus offline = ServiceInstanceStatus.newBuilder().asOffline().build();
+        BatchResult<InMemoryRegisterId, Void> result = server.patchAll(registerIds,
+                ServiceInstancePatch.ofStatus(offline));
+        assertThat(result.isAllSuccess()).isTrue();
+        delta = deltas.poll(5, TimeUnit.SECONDS);
+        assertThat(delta.getPatched()).hasSize(2);
+        assertThat(delta.getPatched().get(1).getInstanceId()).isEqualTo(instance2.getId());
+        assertThat(delta.getPatched().get(1).getStatus()).isEqualTo(offline);
+        assertThat(client.discover("Main", "UserService", Version.valueOf("2.0")).get(0).getStatus())
+                .isEqualTo(offline);
+        assertThat(deltas.isEmpty()).isTrue();
+
+        server.deregister(registerIds.get(1));
+        result = server.patchAll(registerIds, ServiceInstancePatch.ofWorkMode(WorkMode.DEGRADE));
+        assertThat(result.getFailureCount()).isEqualTo(1);
+        assertThat(result.getFailures().get(0).getInput()).isEqualTo(registerIds.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void patch_notFound() throws Exception {
+        InMemoryRegistry registry = InMemoryRegistry.forUrl("memory://patch_notFound");
+        InMemoryServiceRegistryServer server = new InMemoryServiceRegistryServer(registry);
+        InMemoryRegisterId registerId = server.register(newInstance("192.168.0.1", 1080, "1.0.0"));
+        server.deregister(registerId);
+        server.updateWorkMode(registerId, WorkMode.MAINTENANCE);
+    }
+
+    @Test
+    public void discoverByTags() throws Exception {
+        InMemoryRegistry registry = InMemoryRegistry.forUrl("memory://discoverByTags");
+        InMemoryServiceRegistryServer server = new InMemoryServiceRegistryServer(registry);
+        InMemoryServiceRegistryClient client = new InMemoryServiceRegistryClient(registry);
+
+        ServiceInstance instance1 = ServiceInstance.newBuilder(newInstance("192.168.0.1", 1080, "1.0.0"))
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setTags("zone-a", "canary").build())
+                .build();
+        ServiceInstance instance2 = ServiceInstance.newBuilder(newInstance("192.168.0.1", 1081, "1.0.0"))
+                .setData(ServiceInstanceData.newBuilder().setServiceVersion("1.0.0").setFrameworkVersion("1.0.0")
+                        .setTags("zone-a").build())
+                .build();
+        InMemoryRegisterId registerId1 = server.register(instance1);
+        server.register(instance2);
+
+        TagQuery stable = TagQuery.newBuilder().allOf("zone-a").noneOf("canary").build();
+        assertThat(client.discover("Main", "UserService", stable)).containsExactly(instance2);
+        assertThat(client.discover("Main", "UserService", TagQuery.newBuilder().allOf("zone-a").build()))
+                .containsExactly(instance1, instance2);
+        assertThat(client.discover("Main", "OtherService", stable)).isEmpty();
+
+        server.deregister(registerId1);
+        assertThat(client.discover("Main", "UserService", TagQuery.newBuilder().anyOf("canary").build())).isEmpty();
+    }
+}
@@ -0,0 +1,79 @@
+package net.basiccloud.registry.memory;
+
+import net.basiccloud.registry.*;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryServiceRegistryFactoryTest {
+
+    @Test
+    public void load() throws Exception {
+        Optional<ServiceRegistryFactory> factoryOptional = ServiceRegistryFactoryLoader.load();
+        assertThat(factoryOptional.isPresent()).isTrue();
+        assertThat(factoryOptional.get().getName()).isEqualTo(InMemoryServiceRegistryFactory.NAME);
+    }
+
+    @Test
+    public void connect_sameUrlSharesRegistry() throws Exception {
+        InMemoryServiceRegistryFactory factory = new InMemoryServiceRegistryFactory();
+        ServiceRegistryConnection conn1 = factory.connect(
+                Collections.singletonMap("registryUrl", "memory://connect_sameUrlSharesRegistry"));
+        ServiceRegistryConnection conn2 = factory.connect(
+                Collections.singletonMap("light.server.registryUrl", "memory://connect_sameUrlSharesRegistry"));
+        conn1.connect();
+        conn2.connect();
+
+        ServiceInstance instance = ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080).build();
+        factory.getServer(conn1).register(instance);
+        assertThat(factory.getClient(conn2).discover("Main", "UserService")).containsExactly(instance);
+    }
+
+    @Test(expected = ServiceRegistryConnectionException.class)
+    public void getClient_notConnected() throws Exception {
+        InMemoryServiceRegistryFactory factory = new InMemoryServiceRegistryFactory();
+        factory.getClient(factory.connect(Collections.emptyMap()));
+    }
+
+    @Test
+    public void connect_parsesConfigOnce() throws Exception {
+        InMemoryServiceRegistryFactory factory = new InMemoryServiceRegistryFactory();
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("light.client.registryUrl", "memory://connect_parsesConfigOnce");
+        parameters.put("light.client.watchWindowMillis", "16");
+        ServiceRegistryConnection conn = factory.connect(parameters);
+        assertThat(conn.getConfig().getRegistryUrl().get()).isEqualTo("memory://connect_parsesConfigOnce");
+        assertThat(conn.getConfig().getWatchWindowMillis()).isEqualTo(16L);
+        assertThat(((InMemoryConnection) conn).getRegistryUrl()).isEqualTo("memory://connect_parsesConfigOnce");
+        assertThat(factory.connect(Collections.emptyMap()).getConfig().getRegistryUrl().isPresent()).isFalse();
+        RegistryConfig config = RegistryConfig.parse(parameters);
+        assertThat(factory.connect(config).getConfig()).isSameAs(config);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void async_completedInCallingThread() throws Exception {
+        InMemoryServiceRegistryFactory factory = new InMemoryServiceRegistryFactory();
+        ServiceRegistryConnection conn = factory.connect(
+                Collections.singletonMap("registryUrl", "memory://async_completedInCallingThread"));
+        assertThat(conn.connectAsync().isDone()).isTrue();
+
+        ServiceInstance instance = ServiceInstance.newBuilder().setGroup("Main").setService("UserService")
+                .setIp("192.168.0.1").setPort(1080).build();
+        CompletableFuture<RegisterId> registered = factory.getServer(conn).registerAsync(instance);
+        assertThat(registered.isDone()).isTrue();
+        CompletableFuture<List<ServiceInstance>> discovered = factory.getClient(conn)
+                .discoverAsync("Main", "UserService");
+        assertThat(discovered.getNow(null)).containsExactly(instance);
+        assertThat(factory.getAdmin(conn).getInstanceAsync("Main", "UserService", "192.168.0.1", 1080)
+                .getNow(null).get()).isEqualTo(instance);
+    }
+}